@@ -31,6 +31,8 @@ public class ChessClient {
     private ChessboardDrawer drawer;
     private final NotificationHandler notificationHandler;
     private WebSocketFacade ws;
+    //Open while the user is watching the lobby for changes
+    private WebSocketFacade lobby;
 
     public ChessClient(String serverurl, NotificationHandler handler) {
         server = new ServerFacade(serverurl);
@@ -50,13 +52,18 @@ public class ChessClient {
                 case "logout" -> logOut(params);
                 case "create" -> create(params);
                 case "list" -> list(params);
+                case "watch" -> watch(params);
+                case "unwatch" -> unwatch(params);
                 case "join" -> join(params);
                 case "observe" -> observe(params);
+                case "computer" -> addComputer(params);
                 case "quit", "leave" -> quit();
                 case "redraw" -> redraw();
                 case "move" -> makeMove(params);
                 case "resign" -> resign(params);
                 case "highlight" -> highlight(params);
+                case "book" -> book(params);
+                case "hint" -> hint(params);
                 default -> help();
             };
         } catch (ResponseException ex) {
@@ -78,8 +85,11 @@ public class ChessClient {
                     logOut - log out of this user
                     create <name> - create a new chess game
                     list - list all active chess games
+                    watch - list the games, then show changes to them as they happen
+                    unwatch - stop showing changes to the games
                     join <id> [WHITE|BLACK] - join a chess game
                     observe <id> - watch a game without playing
+                    computer <id> [WHITE|BLACK] [level] - seat a computer player, level 1-10
                     help - list possible commands
                     """;
         }
@@ -91,6 +101,8 @@ public class ChessClient {
                     move <start> <end> ?promotionPiece? - move the piece from start to end, if legal
                     resign - concede the game to your opponent
                     highlight <position> - redraw the chessboard, highlighting all moves that can be made from position
+                    book - list the opening book moves for the current position
+                    hint - ask the engine for the best move in the current position
                     """;
         }
         if (state == State.OBSERVING) {
@@ -99,6 +111,8 @@ public class ChessClient {
                     redraw - redraw the chessboard (no highlights)
                     leave - stop observing the current game
                     highlight <position> - redraw the chessboard, highlighting all moves that can be made from position
+                    book - list the opening book moves for the current position
+                    hint - ask the engine for the best move in the current position
                     """;
         }
         return null;
@@ -147,6 +161,7 @@ public class ChessClient {
         if (params.length != 0) {
             throw new ResponseException(407, "Expected no parameters for logOut");
         }
+        stopWatching();
         server.logout(authToken);
         username = null;
         authToken = null;
@@ -199,6 +214,68 @@ public class ChessClient {
         return output;
     }
 
+    public String watch(String... params) throws ResponseException {
+        assertLoggedIn();
+        assertNotInGame();
+        if (params.length != 0) {
+            throw new ResponseException(407, "Expected no parameters for watch");
+        }
+        if (lobby == null) {
+            //Subscribe before listing so nothing that changes in between is missed
+            lobby = new WebSocketFacade(url, notificationHandler, username);
+            lobby.subscribeLobby(authToken);
+        }
+        return list() + "Changes to these games will be shown as they happen.\n";
+    }
+
+    public String unwatch(String... params) throws ResponseException {
+        assertLoggedIn();
+        if (params.length != 0) {
+            throw new ResponseException(407, "Expected no parameters for unwatch");
+        }
+        stopWatching();
+        return "No longer showing changes to the games.";
+    }
+
+    //Describes the changes in a LOBBY message, numbering new games so they can be joined without listing again
+    public String lobbyUpdate(ArrayList<LobbyEvent> events) {
+        if (displayedIDConverter == null) {
+            displayedIDConverter = new HashMap<>();
+        }
+        StringBuilder output = new StringBuilder();
+        for (LobbyEvent event : events) {
+            int displayedID = displayedID(event.gameID());
+            String white = event.whiteUsername() == null ? "no one" : event.whiteUsername();
+            String black = event.blackUsername() == null ? "no one" : event.blackUsername();
+            String line = switch (event.kind()) {
+                case CREATED -> "%d: New game '%s' with white controlled by %s and black controlled by %s.%n";
+                case SEAT_TAKEN, SEAT_LEFT -> "%d: '%s' with white controlled by %s and black controlled by %s.%n";
+                case ENDED -> "%d: '%s' has ended.%n";
+            };
+            output.append(String.format(line, displayedID, event.gameName(), white, black));
+        }
+        return output.toString();
+    }
+
+    private int displayedID(int gameID) {
+        for (var entry : displayedIDConverter.entrySet()) {
+            if (entry.getValue() == gameID) {
+                return entry.getKey();
+            }
+        }
+        int displayedID = displayedIDConverter.size() + 1;
+        displayedIDConverter.put(displayedID, gameID);
+        return displayedID;
+    }
+
+    private void stopWatching() throws ResponseException {
+        if (lobby != null) {
+            WebSocketFacade watching = lobby;
+            lobby = null;
+            watching.unsubscribeLobby(authToken);
+        }
+    }
+
     public String join(String... params) throws ResponseException {
         assertLoggedIn();
         assertNotInGame();
@@ -242,6 +319,34 @@ public class ChessClient {
         }
     }
 
+    public String addComputer(String... params) throws ResponseException {
+        assertLoggedIn();
+        assertNotInGame();
+        if (displayedIDConverter == null) {
+            throw new ResponseException(411, "Error: Please call list to list the games available first.");
+        }
+        if (params.length == 2 || params.length == 3) {
+            try {
+                int displayedID = Integer.parseInt(params[0]);
+                if (displayedIDConverter.get(displayedID) == null) {
+                    throw new ResponseException(410, "Error: Invalid id");
+                }
+                int level = params.length == 3 ? Integer.parseInt(params[2]) : 3;
+                if (level < 1 || level > BotSettings.MAX_LEVEL) {
+                    throw new ResponseException(416, "Error: level must be between 1 and " + BotSettings.MAX_LEVEL);
+                }
+                String color = params[1].toUpperCase();
+                server.addComputer(color, displayedIDConverter.get(displayedID), level, 0, authToken);
+                return String.format("A level %d computer now controls %s.%n", level, color);
+            } catch (NumberFormatException e) {
+                throw new ResponseException(415, "Error: id and level must be supplied as integers");
+            }
+        }
+        else {
+            throw new ResponseException(407, "Expected: <id> [WHITE|BLACK] [level]");
+        }
+    }
+
     public String observe(String... params) throws ResponseException {
         assertLoggedIn();
         assertNotInGame();
@@ -352,8 +457,7 @@ public class ChessClient {
             String endPosString = params[1];
             ChessPosition endPosition = positionFromString(endPosString);
             ChessMove move = new ChessMove(startPosition, endPosition, null);
-            ws.makeMove(authToken, activeGameId, move);
-            return "";
+            return queueMove(move);
         }
         if (params.length == 3) {
             String startPosString = params[0];
@@ -362,12 +466,18 @@ public class ChessClient {
             ChessPosition endPosition = positionFromString(endPosString);
             ChessPiece.PieceType promotion = pieceTypeFromString(params[2]);
             ChessMove move = new ChessMove(startPosition, endPosition, promotion);
-            ws.makeMove(authToken, activeGameId, move);
-            return "";
+            return queueMove(move);
         }
         throw new ResponseException(407, "Expected: <start> <end> ?promotionPiece?");
     }
 
+    private String queueMove(ChessMove move) throws ResponseException {
+        if (ws.premove(authToken, activeGameId, move)) {
+            return "";
+        }
+        return "Premove queued, it will be played when it is your turn.";
+    }
+
     public String resign(String... params) throws ResponseException{
         if (state != State.INGAME) {
             throw new ResponseException(423, "You must be playing a game to use this command");
@@ -392,6 +502,61 @@ public class ChessClient {
         throw new ResponseException(407, "Expected: <position>");
     }
 
+    public String book(String... params) throws ResponseException {
+        if (state != State.INGAME && state != State.OBSERVING) {
+            throw new ResponseException(423, "You must be playing or observing a game to use this command");
+        }
+        if (params.length != 0) {
+            throw new ResponseException(407, "Expected no parameters for book");
+        }
+        BookResult result = server.bookMoves(activeGameId, authToken);
+        if (result.moves().isEmpty()) {
+            return "This position is not in the opening book.";
+        }
+        StringBuilder output = new StringBuilder();
+        for (BookResult.Choice choice : result.moves()) {
+            ChessMove move = choice.move();
+            output.append(String.format("%s to %s (weight %d)%n", positionToString(move.getStartPosition()),
+                    positionToString(move.getEndPosition()), choice.weight()));
+        }
+        return output.toString();
+    }
+
+    public String hint(String... params) throws ResponseException {
+        if (state != State.INGAME && state != State.OBSERVING) {
+            throw new ResponseException(423, "You must be playing or observing a game to use this command");
+        }
+        if (params.length != 0) {
+            throw new ResponseException(407, "Expected no parameters for hint");
+        }
+        HintResult result = server.hint(activeGameId, authToken);
+        if (result.bestMove() == null) {
+            return "There are no legal moves in this position.";
+        }
+        String evaluation;
+        if (result.mateIn() != 0) {
+            evaluation = result.mateIn() > 0 ? "mate in " + result.mateIn() : "mated in " + -result.mateIn();
+        }
+        else {
+            evaluation = String.format("%+.2f", result.score() / 100.0);
+        }
+        StringBuilder line = new StringBuilder();
+        for (ChessMove move : result.principalVariation()) {
+            line.append(positionToString(move.getStartPosition())).append(positionToString(move.getEndPosition()));
+            if (move.getPromotionPiece() != null) {
+                line.append(move.getPromotionPiece().toString().charAt(0));
+            }
+            line.append(' ');
+        }
+        return String.format("Best move: %s to %s (%s for the side to move, depth %d)%nExpected line: %s%n",
+                positionToString(result.bestMove().getStartPosition()), positionToString(result.bestMove().getEndPosition()),
+                evaluation, result.depth(), line.toString().trim());
+    }
+
+    private static String positionToString(ChessPosition position) {
+        return "" + (char) ('a' + position.getColumn() - 1) + position.getRow();
+    }
+
     private void assertLoggedIn() throws ResponseException {
         if (state == State.LOGGEDOUT) {
             throw new ResponseException(409, "You must be logged in to use this command. Please use logIn or register first.");
@@ -453,6 +618,7 @@ public class ChessClient {
                 activeGame = data.game();
                 activeGameName = data.gameName();
                 activeGameId = data.gameID();
+                stopWatching();
                 ws = new WebSocketFacade(url, notificationHandler, username);
                 ws.connect(authToken, activeGameId);
                 break;
@@ -1,7 +1,6 @@
 package client;
 
 import client.websocket.NotificationHandler;
-import com.google.gson.Gson;
 import model.GameData;
 import websocket.messages.ServerMessage;
 
@@ -44,14 +43,14 @@ public class Repl implements NotificationHandler {
             case ERROR -> handleError(serverMessage);
             case LOAD_GAME -> handleLoadGame(serverMessage);
             case NOTIFICATION -> handleNotification(serverMessage);
+            case LOBBY -> handleLobby(serverMessage);
         }
         printPrompt();
     }
 
     private void handleLoadGame(ServerMessage serverMessage) {
         System.out.println();
-        String gameDataJson = serverMessage.getGameJson();
-        GameData gameData = new Gson().fromJson(gameDataJson, GameData.class);
+        GameData gameData = serverMessage.getGameData();
         String drawnBoard = client.updateGame(gameData);
         System.out.println(drawnBoard);
     }
@@ -64,6 +63,11 @@ public class Repl implements NotificationHandler {
         System.out.println(SET_TEXT_COLOR_GREEN + serverMessage.getMessage());
     }
 
+    private void handleLobby(ServerMessage serverMessage) {
+        System.out.println();
+        System.out.print(SET_TEXT_COLOR_BLUE + client.lobbyUpdate(serverMessage.getLobbyEvents()));
+    }
+
     private void printPrompt() {
         System.out.print("\n" + RESET_TEXT_COLOR + client.statusDisplay() + ">>> " + SET_TEXT_COLOR_GREEN);
     }
@@ -1,6 +1,6 @@
 package client;
 
-import com.google.gson.Gson;
+import json.Codecs;
 import exception.ResponseException;
 import model.*;
 import requestsresults.*;
@@ -12,6 +12,8 @@ import java.util.Base64;
 public class ServerFacade {
 
     private final String serverUrl;
+    private ListResult lastList;
+    private String lastListTag;
 
     public ServerFacade(String url) {
         serverUrl = url;
@@ -40,10 +42,29 @@ public class ServerFacade {
         this.makeRequest("DELETE", path, null, null, null);
     }
 
-    public ListResult list(String authToken) throws ResponseException {
+    //Sends the ETag of the last list, so an unchanged list comes back as an empty 304 and the last one is reused
+    public synchronized ListResult list(String authToken) throws ResponseException {
         var path = "/game";
-        //ListRequest request = new ListRequest(authToken);
-        return this.makeRequest("GET", path, null, authToken, ListResult.class);
+        try {
+            HttpURLConnection http = openConnection("GET", path, null, authToken);
+            if (lastList != null) {
+                http.addRequestProperty("If-None-Match", lastListTag);
+            }
+            http.connect();
+            if (http.getResponseCode() == HttpURLConnection.HTTP_NOT_MODIFIED && lastList != null) {
+                return lastList;
+            }
+            throwIfNotSuccessful(http);
+            ListResult listResult = readBody(http, ListResult.class);
+            String tag = http.getHeaderField("ETag");
+            lastList = tag == null ? null : listResult;
+            lastListTag = tag;
+            return listResult;
+        } catch (ResponseException ex) {
+            throw ex;
+        } catch (Exception ex) {
+            throw new ResponseException(500, ex.getMessage());
+        }
     }
 
     public CreateResult create(String gameName, String authToken) throws ResponseException{
@@ -58,14 +79,27 @@ public class ServerFacade {
         this.makeRequest("PUT", path, request, authToken, null);
     }
 
+    //Seats a computer player in the game, level 1-10, with 0 moveMillis letting the level pick its time
+    public void addComputer(String playerColor, int gameID, int level, long moveMillis, String authToken) throws ResponseException {
+        var path = "/game";
+        JoinRequest request = new JoinRequest(authToken, playerColor, gameID, new BotSettings(level, moveMillis));
+        this.makeRequest("PUT", path, request, authToken, null);
+    }
+
+    public BookResult bookMoves(int gameID, String authToken) throws ResponseException {
+        var path = "/book?gameID=" + gameID;
+        return this.makeRequest("GET", path, null, authToken, BookResult.class);
+    }
+
+    //The engine's best move, score and expected line for the game's current position
+    public HintResult hint(int gameID, String authToken) throws ResponseException {
+        var path = "/hint?gameID=" + gameID;
+        return this.makeRequest("GET", path, null, authToken, HintResult.class);
+    }
+
     private <T> T makeRequest(String method, String path, Object request, String authToken, Class<T> responseClass) throws ResponseException {
         try {
-            URL url = (new URI(serverUrl + path)).toURL();
-            HttpURLConnection http = (HttpURLConnection) url.openConnection();
-            http.setRequestMethod(method);
-            http.setDoOutput(true);
-            writeBody(request, http, authToken);
-            System.out.println();
+            HttpURLConnection http = openConnection(method, path, request, authToken);
             http.connect();
             throwIfNotSuccessful(http);
             return readBody(http, responseClass);
@@ -77,6 +111,17 @@ public class ServerFacade {
     }
 
 
+    private HttpURLConnection openConnection(String method, String path, Object request, String authToken)
+            throws URISyntaxException, IOException {
+        URL url = (new URI(serverUrl + path)).toURL();
+        HttpURLConnection http = (HttpURLConnection) url.openConnection();
+        http.setRequestMethod(method);
+        http.setDoOutput(true);
+        writeBody(request, http, authToken);
+        System.out.println();
+        return http;
+    }
+
     private static void writeBody(Object request, HttpURLConnection http, String authToken) throws IOException {
         if (authToken != null) {
             //String basicAuth = new String(Base64.getEncoder().encode(authToken.getBytes()));
@@ -84,9 +129,8 @@ public class ServerFacade {
         }
         if (request != null) {
             http.addRequestProperty("Content-Type", "application/json");
-            String reqData = new Gson().toJson(request);
             try (OutputStream reqBody = http.getOutputStream()) {
-                reqBody.write(reqData.getBytes());
+                Codecs.write(request, reqBody);
             }
         }
     }
@@ -108,9 +152,8 @@ public class ServerFacade {
         T response = null;
         if (http.getContentLength() < 0) {
             try (InputStream respBody = http.getInputStream()) {
-                InputStreamReader reader = new InputStreamReader(respBody);
                 if (responseClass != null) {
-                    response = new Gson().fromJson(reader, responseClass);
+                    response = Codecs.read(respBody, responseClass);
                 }
             }
         }
@@ -0,0 +1,206 @@
+package client.websocket;
+
+import org.glassfish.tyrus.core.extension.ExtendedExtension;
+import org.glassfish.tyrus.core.frame.Frame;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Client side of the permessage-deflate websocket extension (RFC 7692).
+ * <p>
+ * The server's Jetty already implements the extension, so offering it here is enough to get
+ * compressed LOAD_GAME frames. The context takeover flags are sent as part of the offer and
+ * control whether each side keeps its sliding window between messages: keeping it compresses
+ * repeated boards much better, dropping it saves memory per connection. Outgoing messages
+ * smaller than the threshold are sent uncompressed.
+ */
+public class PerMessageDeflate implements ExtendedExtension {
+    public static final String NAME = "permessage-deflate";
+    public static final int DEFAULT_THRESHOLD_BYTES = 256;
+
+    //The empty deflate block left by a sync flush, stripped before sending and restored before inflating
+    private static final byte[] TAIL = {0x00, 0x00, (byte) 0xff, (byte) 0xff};
+    private static final byte OPCODE_CONTINUATION = 0x0;
+    private static final byte OPCODE_TEXT = 0x1;
+    private static final byte OPCODE_BINARY = 0x2;
+
+    private static final String DEFLATER = "deflate.deflater";
+    private static final String INFLATER = "deflate.inflater";
+    private static final String INFLATING = "deflate.inflating";
+    private static final String CLIENT_TAKEOVER = "deflate.clientTakeover";
+    private static final String SERVER_TAKEOVER = "deflate.serverTakeover";
+
+    private final int thresholdBytes;
+    private final boolean clientContextTakeover;
+    private final boolean serverContextTakeover;
+    private final int level;
+
+    public PerMessageDeflate() {
+        this(DEFAULT_THRESHOLD_BYTES, true, true, Deflater.DEFAULT_COMPRESSION);
+    }
+
+    public PerMessageDeflate(int thresholdBytes, boolean clientContextTakeover, boolean serverContextTakeover, int level) {
+        this.thresholdBytes = thresholdBytes;
+        this.clientContextTakeover = clientContextTakeover;
+        this.serverContextTakeover = serverContextTakeover;
+        this.level = level;
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public List<Parameter> getParameters() {
+        List<Parameter> parameters = new ArrayList<>();
+        if (!clientContextTakeover) {
+            parameters.add(parameter("client_no_context_takeover"));
+        }
+        if (!serverContextTakeover) {
+            parameters.add(parameter("server_no_context_takeover"));
+        }
+        return parameters;
+    }
+
+    @Override
+    public void onHandshakeResponse(ExtensionContext context, List<Parameter> responseParameters) {
+        Map<String, Object> properties = context.getProperties();
+        //The server may ask for less takeover than was offered, but never more
+        boolean clientTakeover = clientContextTakeover;
+        boolean serverTakeover = serverContextTakeover;
+        for (Parameter parameter : responseParameters) {
+            if (parameter.getName().equals("client_no_context_takeover")) {
+                clientTakeover = false;
+            }
+            if (parameter.getName().equals("server_no_context_takeover")) {
+                serverTakeover = false;
+            }
+        }
+        properties.put(CLIENT_TAKEOVER, clientTakeover);
+        properties.put(SERVER_TAKEOVER, serverTakeover);
+        properties.put(DEFLATER, new Deflater(level, true));
+        properties.put(INFLATER, new Inflater(true));
+        properties.put(INFLATING, false);
+    }
+
+    @Override
+    public List<Parameter> onExtensionNegotiation(ExtensionContext context, List<Parameter> requestedParameters) {
+        //Only used by server endpoints
+        return null;
+    }
+
+    @Override
+    public Frame processOutgoing(ExtensionContext context, Frame frame) {
+        Map<String, Object> properties = context.getProperties();
+        Deflater deflater = (Deflater) properties.get(DEFLATER);
+        boolean wholeMessage = frame.isFin() && (frame.getOpcode() == OPCODE_TEXT || frame.getOpcode() == OPCODE_BINARY);
+        if (deflater == null || !wholeMessage || frame.getPayloadLength() < thresholdBytes) {
+            return frame;
+        }
+        byte[] compressed = compress(deflater, frame.getPayloadData());
+        if (!(Boolean) properties.get(CLIENT_TAKEOVER)) {
+            deflater.reset();
+        }
+        return Frame.builder(frame).rsv1(true).payloadData(compressed).payloadLength(compressed.length).build();
+    }
+
+    @Override
+    public Frame processIncoming(ExtensionContext context, Frame frame) {
+        Map<String, Object> properties = context.getProperties();
+        Inflater inflater = (Inflater) properties.get(INFLATER);
+        if (inflater == null || frame.isControlFrame()) {
+            return frame;
+        }
+        boolean inflating = (Boolean) properties.get(INFLATING);
+        if (frame.getOpcode() != OPCODE_CONTINUATION) {
+            //RSV1 is only set on the first frame of a compressed message
+            inflating = frame.isRsv1();
+        }
+        if (!inflating) {
+            return frame;
+        }
+        try {
+            byte[] inflated = decompress(inflater, frame.getPayloadData(), frame.isFin());
+            if (frame.isFin() && !(Boolean) properties.get(SERVER_TAKEOVER)) {
+                inflater.reset();
+            }
+            properties.put(INFLATING, !frame.isFin());
+            return Frame.builder(frame).rsv1(false).payloadData(inflated).payloadLength(inflated.length).build();
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Invalid compressed websocket frame", e);
+        }
+    }
+
+    @Override
+    public void destroy(ExtensionContext context) {
+        Deflater deflater = (Deflater) context.getProperties().remove(DEFLATER);
+        if (deflater != null) {
+            deflater.end();
+        }
+        Inflater inflater = (Inflater) context.getProperties().remove(INFLATER);
+        if (inflater != null) {
+            inflater.end();
+        }
+    }
+
+    static byte[] compress(Deflater deflater, byte[] payload) {
+        deflater.setInput(payload);
+        ByteArrayOutputStream out = new ByteArrayOutputStream(payload.length / 4 + 16);
+        byte[] buffer = new byte[Math.max(64, payload.length)];
+        int count;
+        do {
+            count = deflater.deflate(buffer, 0, buffer.length, Deflater.SYNC_FLUSH);
+            out.write(buffer, 0, count);
+        } while (count == buffer.length);
+        byte[] compressed = out.toByteArray();
+        int length = compressed.length;
+        if (length >= TAIL.length && compressed[length - 1] == TAIL[3] && compressed[length - 2] == TAIL[2]
+                && compressed[length - 3] == TAIL[1] && compressed[length - 4] == TAIL[0]) {
+            length -= TAIL.length;
+        }
+        byte[] result = new byte[length];
+        System.arraycopy(compressed, 0, result, 0, length);
+        return result;
+    }
+
+    static byte[] decompress(Inflater inflater, byte[] payload, boolean lastFrame) throws DataFormatException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(payload.length * 4 + 16);
+        byte[] buffer = new byte[Math.max(256, payload.length * 4)];
+        inflateAll(inflater, payload, out, buffer);
+        if (lastFrame) {
+            inflateAll(inflater, TAIL, out, buffer);
+        }
+        return out.toByteArray();
+    }
+
+    private static void inflateAll(Inflater inflater, byte[] input, ByteArrayOutputStream out, byte[] buffer) throws DataFormatException {
+        inflater.setInput(input);
+        int count;
+        do {
+            //inflate only returns 0 once it needs more input or the stream has ended
+            count = inflater.inflate(buffer);
+            out.write(buffer, 0, count);
+        } while (count > 0);
+    }
+
+    private static Parameter parameter(String name) {
+        return new Parameter() {
+            @Override
+            public String getName() {
+                return name;
+            }
+
+            @Override
+            public String getValue() {
+                return null;
+            }
+        };
+    }
+}
@@ -1,8 +1,11 @@
 package client.websocket;
 
+import chess.ChessGame;
 import chess.ChessMove;
-import com.google.gson.Gson;
+import json.Codecs;
 import exception.ResponseException;
+import model.GameData;
+import websocket.BinaryProtocol;
 import websocket.commands.UserGameCommand;
 import websocket.messages.ServerMessage;
 
@@ -10,6 +13,12 @@ import javax.websocket.*;
 import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 //need to extend Endpoint for websocket to work properly
 public class WebSocketFacade extends Endpoint {
@@ -17,32 +26,102 @@ public class WebSocketFacade extends Endpoint {
     Session session;
     NotificationHandler notificationHandler;
     String username;
+    boolean binary;
+    URI socketURI;
+    ClientEndpointConfig config;
+
+    //Every command carries a sequence and stays pending until the server ACKs or NACKs it.
+    //The server only compares sequences from the same client id, so another window, device or a
+    //restarted client counts from its own start without being mistaken for a retry.
+    private final String clientId = UUID.randomUUID().toString();
+    private final AtomicLong nextSequence = new AtomicLong();
+    private final ConcurrentSkipListMap<Long, UserGameCommand> pending = new ConcurrentSkipListMap<>();
+    //Moves entered before it was this player's turn, sent one per LOAD_GAME that hands the turn over
+    private final ConcurrentLinkedQueue<ChessMove> premoves = new ConcurrentLinkedQueue<>();
+    private String premoveAuthToken;
+    private int premoveGameId;
+    private boolean myTurn;
+    //From the last board the server sent, premoves only make sense for a seated player in a live game
+    private boolean seated;
+    private boolean gameOver;
 
 
     public WebSocketFacade(String url, NotificationHandler notificationHandler, String username) throws ResponseException {
+        this(url, notificationHandler, username, false);
+    }
+
+    //Passing binary = true offers the compact binary subprotocol, meant for bots and relays that send many commands
+    public WebSocketFacade(String url, NotificationHandler notificationHandler, String username, boolean binary) throws ResponseException {
+        this(url, notificationHandler, username, binary, null);
+    }
+
+    //A non-null deflate offers permessage-deflate compression with its settings
+    public WebSocketFacade(String url, NotificationHandler notificationHandler, String username, boolean binary,
+                           PerMessageDeflate deflate) throws ResponseException {
         try {
             this.username = username;
+            this.binary = binary;
             url = url.replace("http", "ws");
-            URI socketURI = new URI(url + "/ws");
+            this.socketURI = new URI(url + "/ws");
             this.notificationHandler = notificationHandler;
 
+            ClientEndpointConfig.Builder builder = ClientEndpointConfig.Builder.create();
+            if (binary) {
+                builder.preferredSubprotocols(List.of(BinaryProtocol.SUBPROTOCOL));
+            }
+            if (deflate != null) {
+                builder.extensions(List.of(deflate));
+            }
+            this.config = builder.build();
+            open();
+        } catch (URISyntaxException ex) {
+            throw new ResponseException(500, ex.getMessage());
+        }
+    }
 
+    private void open() throws ResponseException {
+        try {
             WebSocketContainer container = ContainerProvider.getWebSocketContainer();
-            this.session = container.connectToServer(this, socketURI);
+            this.session = container.connectToServer(this, config, socketURI);
 
-            //set message handler
+            //set message handlers, the server answers in whichever format was negotiated
             this.session.addMessageHandler(new MessageHandler.Whole<String>() {
                 @Override
                 public void onMessage(String message) {
-                    ServerMessage serverMessage = new Gson().fromJson(message, ServerMessage.class);
-                    notificationHandler.notify(serverMessage);
+                    receive(Codecs.GSON.fromJson(message, ServerMessage.class));
                 }
             });
-        } catch (DeploymentException | IOException | URISyntaxException ex) {
+            this.session.addMessageHandler(new MessageHandler.Whole<ByteBuffer>() {
+                @Override
+                public void onMessage(ByteBuffer message) {
+                    receive(BinaryProtocol.decodeMessage(message));
+                }
+            });
+        } catch (DeploymentException | IOException ex) {
             throw new ResponseException(500, ex.getMessage());
         }
     }
 
+    private void receive(ServerMessage serverMessage) {
+        switch (serverMessage.getServerMessageType()) {
+            case ACK -> pending.remove(serverMessage.getSequence());
+            case NACK -> {
+                pending.remove(serverMessage.getSequence());
+                //The moves queued behind a rejected one were planned for a position that never happened
+                premoves.clear();
+                ServerMessage error = new ServerMessage(ServerMessage.ServerMessageType.ERROR);
+                error.setErrorMessage(serverMessage.getErrorMessage());
+                notificationHandler.notify(error);
+            }
+            case LOAD_GAME -> {
+                updateTurn(serverMessage.getGameData());
+                notificationHandler.notify(serverMessage);
+                sendPremove();
+            }
+            default -> notificationHandler.notify(serverMessage);
+        }
+    }
+
     //Endpoint requires this method, but you don't have to do anything
     @Override
     public void onOpen(Session session, EndpointConfig endpointConfig) {
@@ -51,19 +130,92 @@ public class WebSocketFacade extends Endpoint {
     public void connect(String authToken, int id) throws ResponseException {
         try {
             UserGameCommand command = new UserGameCommand(UserGameCommand.CommandType.CONNECT, authToken, id);
-            this.session.getBasicRemote().sendText(new Gson().toJson(command));
+            command.setClientId(clientId);
+            send(command);
         }
         catch (Exception e) {
             throw new ResponseException(500, e.getMessage());
         }
     }
 
+    //Re-opens the websocket after a dropped connection and resends every command the server never
+    //acknowledged, with its original sequence so the server skips the ones it had already applied
+    public void reconnect(String authToken, int id) throws ResponseException {
+        open();
+        connect(authToken, id);
+        try {
+            for (UserGameCommand command : pending.values()) {
+                if (command.getCommandType() == UserGameCommand.CommandType.CONNECT) {
+                    pending.remove(command.getSequence());
+                }
+                else {
+                    sendCommand(command);
+                }
+            }
+        }
+        catch (IOException e) {
+            throw new ResponseException(500, e.getMessage());
+        }
+    }
+
+    //Sends the move right away when it is this player's turn, otherwise queues it. Returns whether it was sent.
+    //Moves from observers or in a finished game are sent anyway, so the server's error comes back instead of a queue that never drains.
+    public boolean premove(String authToken, int id, ChessMove chessMove) throws ResponseException {
+        synchronized (premoves) {
+            if (!seated || gameOver) {
+                makeMove(authToken, id, chessMove);
+                return true;
+            }
+            premoveAuthToken = authToken;
+            premoveGameId = id;
+            premoves.add(chessMove);
+            boolean sent = myTurn && premoves.size() == 1;
+            sendPremove();
+            return sent;
+        }
+    }
+
+    public int pendingCount() {
+        return pending.size();
+    }
+
+    private void sendPremove() {
+        synchronized (premoves) {
+            if (!myTurn || premoves.isEmpty()) {
+                return;
+            }
+            myTurn = false;
+            try {
+                makeMove(premoveAuthToken, premoveGameId, premoves.poll());
+            }
+            catch (ResponseException e) {
+                premoves.clear();
+                ServerMessage error = new ServerMessage(ServerMessage.ServerMessageType.ERROR);
+                error.setErrorMessage(e.getMessage());
+                notificationHandler.notify(error);
+            }
+        }
+    }
+
+    private void updateTurn(GameData gameData) {
+        ChessGame.TeamColor turn = gameData.game().getTeamTurn();
+        String mover = turn == ChessGame.TeamColor.WHITE ? gameData.whiteUsername() : gameData.blackUsername();
+        synchronized (premoves) {
+            myTurn = username.equals(mover);
+            seated = username.equals(gameData.whiteUsername()) || username.equals(gameData.blackUsername());
+            gameOver = gameData.game().isGameOver();
+            if (!seated || gameOver) {
+                premoves.clear();
+            }
+        }
+    }
+
     public void makeMove(String authToken, int id, ChessMove chessMove) throws ResponseException {
         try {
             UserGameCommand command = new UserGameCommand(UserGameCommand.CommandType.MAKE_MOVE, authToken, id);
             command.setMove(chessMove);
             command.setUsername(username);
-            this.session.getBasicRemote().sendText(new Gson().toJson(command));
+            send(command);
         }
         catch (Exception e) {
             throw new ResponseException(500, e.getMessage());
@@ -74,7 +226,7 @@ public class WebSocketFacade extends Endpoint {
         try {
             UserGameCommand command = new UserGameCommand(UserGameCommand.CommandType.LEAVE, authToken, id);
             command.setUsername(username);
-            this.session.getBasicRemote().sendText(new Gson().toJson(command));
+            send(command);
             this.session.close();
         }
         catch (Exception e) {
@@ -86,10 +238,46 @@ public class WebSocketFacade extends Endpoint {
         try {
             UserGameCommand command = new UserGameCommand(UserGameCommand.CommandType.RESIGN, authToken, id);
             command.setUsername(username);
-            this.session.getBasicRemote().sendText(new Gson().toJson(command));
+            send(command);
+        }
+        catch (Exception e) {
+            throw new ResponseException(500, e.getMessage());
+        }
+    }
+
+    //Asks for LOBBY messages whenever a game is created, filled, left or finished, instead of polling list
+    public void subscribeLobby(String authToken) throws ResponseException {
+        try {
+            send(new UserGameCommand(UserGameCommand.CommandType.SUBSCRIBE_LOBBY, authToken, null));
         }
         catch (Exception e) {
             throw new ResponseException(500, e.getMessage());
         }
     }
+
+    //Stops the LOBBY messages and closes the connection, like leave does for a game
+    public void unsubscribeLobby(String authToken) throws ResponseException {
+        try {
+            send(new UserGameCommand(UserGameCommand.CommandType.UNSUBSCRIBE_LOBBY, authToken, null));
+            this.session.close();
+        }
+        catch (Exception e) {
+            throw new ResponseException(500, e.getMessage());
+        }
+    }
+
+    private void send(UserGameCommand command) throws IOException {
+        command.setSequence(nextSequence.incrementAndGet());
+        pending.put(command.getSequence(), command);
+        sendCommand(command);
+    }
+
+    private void sendCommand(UserGameCommand command) throws IOException {
+        if (binary) {
+            this.session.getBasicRemote().sendBinary(BinaryProtocol.encodeCommand(command));
+        }
+        else {
+            this.session.getBasicRemote().sendText(Codecs.GSON.toJson(command));
+        }
+    }
 }
@@ -0,0 +1,103 @@
+package client.websocket;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPosition;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import model.GameData;
+import websocket.messages.ServerMessage;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Random;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Measures what permessage-deflate costs and saves when a game with many observers is
+ * played, by compressing the LOAD_GAME frame of every move once per observer the way the
+ * server does. Run with: java client.websocket.DeflateBenchmark [observers] [moves]
+ */
+public class DeflateBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int observers = args.length > 0 ? Integer.parseInt(args[0]) : 100;
+        int moves = args.length > 1 ? Integer.parseInt(args[1]) : 60;
+        List<byte[]> frames = loadGameFrames(moves);
+        long rawBytes = 0;
+        for (byte[] frame : frames) {
+            rawBytes += frame.length;
+        }
+        rawBytes *= observers;
+        System.out.printf("%d observers, %d LOAD_GAME frames, %,d bytes uncompressed%n", observers, frames.size(), rawBytes);
+        //Warm up the JIT before timing anything
+        run(frames, observers, true);
+        run(frames, observers, false);
+        report("context takeover", run(frames, observers, true), rawBytes);
+        report("no context takeover", run(frames, observers, false), rawBytes);
+    }
+
+    private static void report(String name, long[] result, long rawBytes) {
+        System.out.printf("%-20s %,12d bytes (%.1f%%)  deflate %,8d us  inflate %,8d us%n",
+                name, result[0], 100.0 * result[0] / rawBytes, result[1] / 1000, result[2] / 1000);
+    }
+
+    //Returns {compressed bytes, deflate nanos, inflate nanos}
+    private static long[] run(List<byte[]> frames, int observers, boolean contextTakeover) throws Exception {
+        long[] result = new long[3];
+        for (int i = 0; i < observers; i++) {
+            Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+            Inflater inflater = new Inflater(true);
+            for (byte[] frame : frames) {
+                long start = System.nanoTime();
+                byte[] compressed = PerMessageDeflate.compress(deflater, frame);
+                long middle = System.nanoTime();
+                PerMessageDeflate.decompress(inflater, compressed, true);
+                long end = System.nanoTime();
+                if (!contextTakeover) {
+                    deflater.reset();
+                    inflater.reset();
+                }
+                result[0] += compressed.length;
+                result[1] += middle - start;
+                result[2] += end - middle;
+            }
+            deflater.end();
+            inflater.end();
+        }
+        return result;
+    }
+
+    //Plays a reproducible random game and returns the LOAD_GAME frame sent after each move
+    private static List<byte[]> loadGameFrames(int moves) throws Exception {
+        Gson gameGson = new GsonBuilder().enableComplexMapKeySerialization().create();
+        Random random = new Random(240);
+        ChessGame game = new ChessGame();
+        List<byte[]> frames = new ArrayList<>();
+        for (int i = 0; i < moves; i++) {
+            List<ChessMove> legal = new ArrayList<>();
+            for (int row = 1; row <= 8; row++) {
+                for (int col = 1; col <= 8; col++) {
+                    ChessPosition position = new ChessPosition(row, col);
+                    var piece = game.getBoard().getPiece(position);
+                    if (piece != null && piece.getTeamColor() == game.getTeamTurn()) {
+                        Collection<ChessMove> pieceMoves = game.validMoves(position);
+                        legal.addAll(pieceMoves);
+                    }
+                }
+            }
+            if (legal.isEmpty()) {
+                break;
+            }
+            legal.sort((a, b) -> a.toString().compareTo(b.toString()));
+            game.makeMove(legal.get(random.nextInt(legal.size())));
+            ServerMessage loadMessage = new ServerMessage(ServerMessage.ServerMessageType.LOAD_GAME);
+            loadMessage.setGame(gameGson.toJson(new GameData(1, "white", "black", "benchmark", game)));
+            frames.add(new Gson().toJson(loadMessage).getBytes(StandardCharsets.UTF_8));
+        }
+        return frames;
+    }
+}
@@ -0,0 +1,69 @@
+package client.websocket;
+
+import org.glassfish.tyrus.core.extension.ExtendedExtension;
+import org.glassfish.tyrus.core.frame.Frame;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.Deflater;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PerMessageDeflateTest {
+    private static final String BOARD = "{\"gameBoard\":{\"piecesMap\":[[{\"thisRow\":1,\"thisCol\":1},{\"myColor\":\"WHITE\",\"myType\":\"ROOK\"}]]}}".repeat(20);
+
+    private static ExtendedExtension.ExtensionContext negotiated(PerMessageDeflate deflate) {
+        Map<String, Object> properties = new HashMap<>();
+        ExtendedExtension.ExtensionContext context = () -> properties;
+        deflate.onHandshakeResponse(context, List.of());
+        return context;
+    }
+
+    private static Frame textFrame(String text) {
+        byte[] payload = text.getBytes(StandardCharsets.UTF_8);
+        return Frame.builder().fin(true).opcode((byte) 0x1).payloadData(payload).payloadLength(payload.length).build();
+    }
+
+    @Test
+    @DisplayName("Compressed Messages Round Trip")
+    void roundTrip() {
+        PerMessageDeflate deflate = new PerMessageDeflate();
+        ExtendedExtension.ExtensionContext sender = negotiated(deflate);
+        ExtendedExtension.ExtensionContext receiver = negotiated(deflate);
+        for (int i = 0; i < 3; i++) {
+            Frame compressed = deflate.processOutgoing(sender, textFrame(BOARD));
+            assertTrue(compressed.isRsv1());
+            assertTrue(compressed.getPayloadLength() < BOARD.length() / 4);
+            Frame inflated = deflate.processIncoming(receiver, compressed);
+            assertFalse(inflated.isRsv1());
+            assertEquals(BOARD, new String(inflated.getPayloadData(), StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    @DisplayName("Small Messages Skip Compression")
+    void belowThreshold() {
+        PerMessageDeflate deflate = new PerMessageDeflate();
+        Frame frame = deflate.processOutgoing(negotiated(deflate), textFrame("{\"commandType\":\"LEAVE\"}"));
+        assertFalse(frame.isRsv1());
+    }
+
+    @Test
+    @DisplayName("Context Takeover Shrinks Repeated Messages")
+    void contextTakeover() {
+        PerMessageDeflate takeover = new PerMessageDeflate();
+        PerMessageDeflate noTakeover = new PerMessageDeflate(0, false, false, Deflater.DEFAULT_COMPRESSION);
+        ExtendedExtension.ExtensionContext withContext = negotiated(takeover);
+        ExtendedExtension.ExtensionContext withoutContext = negotiated(noTakeover);
+        takeover.processOutgoing(withContext, textFrame(BOARD));
+        noTakeover.processOutgoing(withoutContext, textFrame(BOARD));
+        long repeatedWith = takeover.processOutgoing(withContext, textFrame(BOARD)).getPayloadLength();
+        long repeatedWithout = noTakeover.processOutgoing(withoutContext, textFrame(BOARD)).getPayloadLength();
+        assertTrue(repeatedWith < repeatedWithout);
+        assertEquals(2, noTakeover.getParameters().size());
+    }
+}
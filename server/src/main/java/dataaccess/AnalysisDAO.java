@@ -0,0 +1,14 @@
+package dataaccess;
+import model.GameAnalysis;
+
+public interface AnalysisDAO {
+
+    //Clear all analyses
+    void clear();
+
+    //Store the analysis of a game, replacing any earlier one
+    void saveAnalysis(GameAnalysis analysis);
+
+    //Find a game's analysis, null if it hasn't been analysed
+    GameAnalysis getAnalysis(int gameID);
+}
@@ -1,7 +1,9 @@
 package dataaccess;
+import chess.ChessGame;
 import model.GameData;
 
 import java.util.ArrayList;
+import java.util.stream.Stream;
 
 public interface GameDAO {
     //Clear all games
@@ -13,10 +15,34 @@ public interface GameDAO {
     //Find a game based on ID
     GameData getGame(int id);
 
-    //Update the chess game at a specified ID
+    //Update the chess game at a specified ID, seats included. Writes the whole row, so moves and seat changes
+    //made concurrently go through saveGame, claimSeat and releaseSeat instead
     void updateGame(GameData game) throws DataAccessException;
 
+    /**
+     * Seats username as color only if that seat is still empty, checked and taken in one step so
+     * two players joining at once can't both get it. Only the seat is written, not the board.
+     *
+     * @return the game's listing with the seat taken, or null if someone already has it. The
+     * listing's game may be null, callers that need the board read it with getGame
+     * @throws GameNotFoundException if there is no game with this ID
+     * @throws DataAccessException if the database fails
+     */
+    GameData claimSeat(int id, ChessGame.TeamColor color, String username) throws DataAccessException;
+
+    //Gives up username's seat as color only if they still hold it, null if they don't. The listing's game may be null.
+    GameData releaseSeat(int id, ChessGame.TeamColor color, String username) throws DataAccessException;
+
+    //Saves the state of the board without touching the seats, which joins and leaves change on their own
+    void saveGame(int id, ChessGame game) throws DataAccessException;
+
     //Produce a list of all GameData
     ArrayList<GameData> listGames();
 
+    //Every game, read as the stream is consumed rather than all at once. Close the stream when done.
+    Stream<GameData> streamGames();
+
+    //Goes up whenever a game is created, updated or cleared, so an unchanged version means an unchanged list
+    long version();
+
 }
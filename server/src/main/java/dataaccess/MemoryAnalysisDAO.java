@@ -0,0 +1,32 @@
+package dataaccess;
+import model.GameAnalysis;
+
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class MemoryAnalysisDAO implements AnalysisDAO {
+
+    public MemoryAnalysisDAO() {
+        analyses = new ConcurrentHashMap<>();
+    }
+
+    public void clear() {
+        analyses.clear();
+    }
+
+    public void saveAnalysis(GameAnalysis analysis) {
+        analyses.put(analysis.gameID(), analysis);
+    }
+
+    public GameAnalysis getAnalysis(int gameID) {
+        return analyses.get(gameID);
+    }
+
+    //Every analysis, for snapshots
+    Collection<GameAnalysis> allAnalyses() {
+        return analyses.values();
+    }
+
+    //Concurrent so the server can run on these DAOs, not just the tests
+    private final ConcurrentHashMap<Integer, GameAnalysis> analyses;
+}
@@ -1,11 +1,13 @@
 package dataaccess;
 import model.AuthData;
-import java.util.HashMap;
+
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class MemoryAuthDAO implements AuthDAO {
 
     public MemoryAuthDAO() {
-        auths = new HashMap<>();
+        auths = new ConcurrentHashMap<>();
     }
 
     public void clear() {
@@ -17,12 +19,18 @@ public class MemoryAuthDAO implements AuthDAO {
     }
 
     public AuthData getAuth(String authToken) {
-        return auths.get(authToken);
+        return authToken == null ? null : auths.get(authToken);
     }
 
     public void deleteAuth(AuthData auth) {
-        auths.put(auth.authToken(), null);
+        auths.remove(auth.authToken());
+    }
+
+    //Every authorization, for snapshots
+    Collection<AuthData> allAuths() {
+        return auths.values();
     }
 
-    private final HashMap<String, AuthData> auths;
+    //Concurrent so the server can run on these DAOs, not just the tests
+    private final ConcurrentHashMap<String, AuthData> auths;
 }
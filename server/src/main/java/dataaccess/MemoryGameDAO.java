@@ -1,38 +1,131 @@
 package dataaccess;
+import chess.ChessGame;
+import json.Codecs;
 import model.GameData;
 
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Collection;
 import java.util.HashSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
 
 public class MemoryGameDAO implements GameDAO {
 
     public MemoryGameDAO() {
-        games = new HashMap<Integer, GameData>();
+        games = new ConcurrentHashMap<Integer, GameData>();
     }
 
     public void clear() {
         games.clear();
+        version.incrementAndGet();
     }
 
     public void createGame(GameData game) {
-        games.put(game.gameID(), game);
+        games.put(game.gameID(), copy(game));
+        version.incrementAndGet();
     }
 
     public GameData getGame(int id) {
-        return games.get(id);
+        return copy(games.get(id));
     }
 
     public void updateGame(GameData game) throws DataAccessException{
-        if (games.get(game.gameID()) == null) {
-            throw new DataAccessException("Error: Cannot update a game that doesn't exist");
+        //replace only writes a game that's there, so a game cleared meanwhile isn't brought back
+        if (games.replace(game.gameID(), copy(game)) == null) {
+            throw new GameNotFoundException("Error: Cannot update a game that doesn't exist");
         }
-        games.put(game.gameID(), game);
+        version.incrementAndGet();
+    }
+
+    public GameData claimSeat(int id, ChessGame.TeamColor color, String username) throws DataAccessException {
+        boolean white = color == ChessGame.TeamColor.WHITE;
+        GameData[] claimed = new GameData[1];
+        //Checked and written in one compute, so a board saved at the same moment is neither lost nor overwritten
+        GameData after = games.computeIfPresent(id, (key, current) -> {
+            if ((white ? current.whiteUsername() : current.blackUsername()) != null) {
+                return current;
+            }
+            claimed[0] = new GameData(id, white ? username : current.whiteUsername(),
+                    white ? current.blackUsername() : username, current.gameName(), current.game());
+            return claimed[0];
+        });
+        if (after == null) {
+            throw new GameNotFoundException("Error: Cannot update a game that doesn't exist");
+        }
+        if (claimed[0] == null) {
+            return null;
+        }
+        version.incrementAndGet();
+        return new GameData(id, after.whiteUsername(), after.blackUsername(), after.gameName(), null);
+    }
+
+    public GameData releaseSeat(int id, ChessGame.TeamColor color, String username) throws DataAccessException {
+        boolean white = color == ChessGame.TeamColor.WHITE;
+        GameData[] released = new GameData[1];
+        //compute runs atomically for the game, so the seat can't change hands between the check and the write
+        GameData after = games.computeIfPresent(id, (key, current) -> {
+            if (!username.equals(white ? current.whiteUsername() : current.blackUsername())) {
+                return current;
+            }
+            released[0] = new GameData(id, white ? null : current.whiteUsername(),
+                    white ? current.blackUsername() : null, current.gameName(), current.game());
+            return released[0];
+        });
+        if (after == null) {
+            throw new GameNotFoundException("Error: Cannot update a game that doesn't exist");
+        }
+        if (released[0] == null) {
+            return null;
+        }
+        version.incrementAndGet();
+        return new GameData(id, after.whiteUsername(), after.blackUsername(), after.gameName(), null);
+    }
+
+    public void saveGame(int id, ChessGame game) throws DataAccessException {
+        ChessGame copied = copy(new GameData(id, null, null, null, game)).game();
+        if (games.computeIfPresent(id, (key, current) -> new GameData(id, current.whiteUsername(),
+                current.blackUsername(), current.gameName(), copied)) == null) {
+            throw new GameNotFoundException("Error: Cannot update a game that doesn't exist");
+        }
+        version.incrementAndGet();
     }
 
     public ArrayList<GameData> listGames() {
-        return new ArrayList<>(games.values());
+        ArrayList<GameData> allGames = new ArrayList<>(games.size());
+        for (GameData game : games.values()) {
+            allGames.add(copy(game));
+        }
+        return allGames;
+    }
+
+    public Stream<GameData> streamGames() {
+        return games.values().stream().map(MemoryGameDAO::copy);
+    }
+
+    //Every game as stored, for snapshots
+    Collection<GameData> allGames() {
+        return games.values();
+    }
+
+    public long version() {
+        return version.get();
+    }
+
+    /**
+     * ChessGame is mutable and moves are made on the copy a caller read, so games are copied on
+     * the way in and out, as the MySQL DAO does by reading and writing JSON. Without this a move
+     * being made would be visible half done to a request listing games on another thread.
+     */
+    private static GameData copy(GameData game) {
+        if (game == null || game.game() == null) {
+            return game;
+        }
+        ChessGame copied = Codecs.GSON.fromJson(Codecs.GSON.toJson(game.game()), ChessGame.class);
+        return new GameData(game.gameID(), game.whiteUsername(), game.blackUsername(), game.gameName(), copied);
     }
 
-    private final HashMap<Integer, GameData> games;
+    //Concurrent so claimSeat's replace is a real compare-and-set and the server can run on it
+    private final ConcurrentHashMap<Integer, GameData> games;
+    private final AtomicLong version = new AtomicLong();
 }
@@ -0,0 +1,155 @@
+package dataaccess;
+
+import json.Codecs;
+import model.AuthData;
+import model.GameAnalysis;
+import model.GameData;
+import model.UserData;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One set of in memory DAOs for running the server without MySQL, for local play and load
+ * tests. Nothing outlives the process unless a snapshot file is given, in which case the
+ * store starts from it and writes it back every so often and when closed.
+ * <p>
+ * A snapshot is taken while requests keep running, so it's a consistent copy of each game,
+ * user and authorization but not of all of them at one instant. It's meant to carry a test
+ * server across restarts, not as a replacement for the database.
+ */
+public class MemoryStore implements AutoCloseable {
+    public static final long DEFAULT_SNAPSHOT_SECONDS = 60;
+
+    private final MemoryUserDAO users = new MemoryUserDAO();
+    private final MemoryAuthDAO auths = new MemoryAuthDAO();
+    private final MemoryGameDAO games = new MemoryGameDAO();
+    private final MemoryAnalysisDAO analyses = new MemoryAnalysisDAO();
+    private final Path snapshot;
+    private ScheduledExecutorService scheduler;
+
+    //Everything a snapshot file holds
+    private record Snapshot(ArrayList<UserData> users, ArrayList<AuthData> auths, ArrayList<GameData> games,
+                            ArrayList<GameAnalysis> analyses) {}
+
+    public MemoryStore() {
+        snapshot = null;
+    }
+
+    /**
+     * @param snapshot where to keep the store between runs, read now if it exists
+     */
+    public MemoryStore(Path snapshot) throws IOException {
+        this.snapshot = snapshot;
+        if (Files.exists(snapshot)) {
+            load();
+        }
+    }
+
+    public MemoryUserDAO users() {
+        return users;
+    }
+
+    public MemoryAuthDAO auths() {
+        return auths;
+    }
+
+    public MemoryGameDAO games() {
+        return games;
+    }
+
+    public MemoryAnalysisDAO analyses() {
+        return analyses;
+    }
+
+    //Writes the snapshot every period seconds in the background, does nothing without a snapshot file
+    public synchronized void saveEvery(long seconds) {
+        if (snapshot == null || scheduler != null) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "memory-snapshot");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                save();
+            } catch (IOException e) {
+                System.out.println(e.getMessage());
+            }
+        }, seconds, seconds, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Writes everything to the snapshot file. It's written beside the file and moved over it,
+     * so a crash part way through leaves the previous snapshot rather than half of this one.
+     */
+    public synchronized void save() throws IOException {
+        if (snapshot == null) {
+            return;
+        }
+        Snapshot contents = new Snapshot(new ArrayList<>(users.allUsers()), new ArrayList<>(auths.allAuths()),
+                new ArrayList<>(games.allGames()), new ArrayList<>(analyses.allAnalyses()));
+        Path parent = snapshot.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Path written = Files.createTempFile(parent, snapshot.getFileName().toString(), ".tmp");
+        try {
+            try (OutputStream out = Files.newOutputStream(written)) {
+                Codecs.write(contents, out);
+            }
+            try {
+                Files.move(written, snapshot, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(written, snapshot, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(written);
+        }
+    }
+
+    private void load() throws IOException {
+        Snapshot contents;
+        try (InputStream in = Files.newInputStream(snapshot)) {
+            contents = Codecs.read(in, Snapshot.class);
+        }
+        if (contents == null) {
+            return;
+        }
+        if (contents.users() != null) {
+            contents.users().forEach(users::createUser);
+        }
+        if (contents.auths() != null) {
+            contents.auths().forEach(auths::createAuth);
+        }
+        if (contents.games() != null) {
+            contents.games().forEach(games::createGame);
+        }
+        if (contents.analyses() != null) {
+            contents.analyses().forEach(analyses::saveAnalysis);
+        }
+    }
+
+    //Stops the background saves and writes one last snapshot
+    @Override
+    public synchronized void close() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+        try {
+            save();
+        } catch (IOException e) {
+            System.out.println(e.getMessage());
+        }
+    }
+}
@@ -1,11 +1,13 @@
 package dataaccess;
 import model.UserData;
-import java.util.HashMap;
+
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class MemoryUserDAO implements UserDAO {
 
     public MemoryUserDAO() {
-        users = new HashMap<String, UserData>();
+        users = new ConcurrentHashMap<String, UserData>();
     }
 
     public void clear() {
@@ -13,12 +15,18 @@ public class MemoryUserDAO implements UserDAO {
     }
 
     public UserData getUser(String username) {
-        return users.get(username);
+        return username == null ? null : users.get(username);
+    }
+
+    public boolean createUser(UserData data) {
+        return users.putIfAbsent(data.username(), data) == null;
     }
 
-    public void createUser(UserData data) {
-        users.put(data.username(), data);
+    //Every user, for snapshots
+    Collection<UserData> allUsers() {
+        return users.values();
     }
 
-    private final HashMap<String, UserData> users;
+    //Concurrent so the server can run on these DAOs, not just the tests
+    private final ConcurrentHashMap<String, UserData> users;
 }
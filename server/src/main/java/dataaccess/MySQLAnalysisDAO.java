@@ -0,0 +1,63 @@
+package dataaccess;
+
+import json.Codecs;
+import exception.ResponseException;
+import model.GameAnalysis;
+
+public class MySQLAnalysisDAO implements AnalysisDAO {
+
+    private final MySQLHelper helper = new MySQLHelper();
+
+    public MySQLAnalysisDAO() throws DataAccessException, ResponseException {
+        String[] createStatements = {
+                """
+CREATE TABLE IF NOT EXISTS analyses (
+`gameId` int NOT NULL,
+`analysis` mediumtext NOT NULL,
+PRIMARY KEY (`gameId`)
+)
+"""
+        };
+        helper.configureDatabase(createStatements);
+    }
+
+    //Clear all analyses
+    public void clear() {
+        var statement = "TRUNCATE analyses";
+        try {
+            helper.executeUpdate(statement);
+        }
+        catch (Exception e) {
+            System.out.println(e.getMessage());
+        }
+    }
+
+    //Store the analysis of a game, replacing any earlier one
+    public void saveAnalysis(GameAnalysis analysis) {
+        var statement = "REPLACE INTO analyses (gameId, analysis) VALUES (?, ?)";
+        try {
+            helper.executeUpdate(statement, analysis.gameID(), Codecs.GSON.toJson(analysis));
+        }
+        catch (Throwable ex) {
+            System.out.println(ex.getMessage());
+        }
+    }
+
+    //Find a game's analysis, null if it hasn't been analysed
+    public GameAnalysis getAnalysis(int gameID) {
+        var statement = "SELECT analysis FROM analyses WHERE gameId=?";
+        try (var conn = DatabaseManager.getConnection()) {
+            try (var ps = conn.prepareStatement(statement)) {
+                ps.setInt(1, gameID);
+                var rs = ps.executeQuery();
+                if (rs.next()) {
+                    return Codecs.GSON.fromJson(rs.getString("analysis"), GameAnalysis.class);
+                }
+            }
+        }
+        catch (Throwable ex) {
+            System.out.println(ex.getMessage());
+        }
+        return null;
+    }
+}
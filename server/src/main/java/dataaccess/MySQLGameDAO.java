@@ -1,18 +1,29 @@
 package dataaccess;
 
 import chess.ChessGame;
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
+import json.Codecs;
 import exception.ResponseException;
 import model.GameData;
 
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 
 public class MySQLGameDAO implements GameDAO {
 
     private final MySQLHelper helper = new MySQLHelper();
+    //Only counts writes made through this server, which is the only one writing the games table
+    private final AtomicLong version = new AtomicLong();
 
     public MySQLGameDAO() throws DataAccessException, ResponseException {
         String[] createStatements = {
@@ -40,19 +51,20 @@ INDEX(id)
         catch (Exception e) {
             System.out.println(e.getMessage());
         }
+        version.incrementAndGet();
     }
 
     //Add a new game
     public void createGame(GameData game) {
         var statement = "INSERT INTO games (id, whiteUsername, blackUsername, name, game) VALUES (?, ?, ?, ?, ?)";
-        Gson gson = new GsonBuilder().enableComplexMapKeySerialization().create();
-        var json = gson.toJson(game.game());
+        var json = Codecs.GSON.toJson(game.game());
         try {
             helper.executeUpdate(statement, game.gameID(), game.whiteUsername(), game.blackUsername(), game.gameName(), json);
         }
         catch (Throwable ex) {
             System.out.println(ex.getMessage());
         }
+        version.incrementAndGet();
     }
 
     //Find a game based on ID
@@ -67,7 +79,7 @@ INDEX(id)
                 String black = rs.getString("blackUsername");
                 String name = rs.getString("name");
                 var json = rs.getString("game");
-                ChessGame foundGame = new Gson().fromJson(json, ChessGame.class);
+                ChessGame foundGame = Codecs.GSON.fromJson(json, ChessGame.class);
                 return new GameData(id, white, black, name, foundGame);
             }
 
@@ -78,21 +90,78 @@ INDEX(id)
     }
 
     //Update the chess game at a specified ID
+    //The driver reports rows matched rather than changed, so no rows means no such game, without loading it first
     public void updateGame(GameData game) throws DataAccessException {
-        if (getGame(game.gameID()) == null) {
-            throw new DataAccessException("Cannot update game that doesn't exist");
-        }
         var statement = "UPDATE games SET whiteUsername=?, blackUsername=?, game=? WHERE id=?";
+        int matched;
         try {
-            Gson gson = new GsonBuilder().enableComplexMapKeySerialization().create();
-            var json = gson.toJson(game.game());
-            helper.executeUpdate(statement, game.whiteUsername(), game.blackUsername(), json, game.gameID());
+            var json = Codecs.GSON.toJson(game.game());
+            matched = helper.executeUpdateCount(statement, game.whiteUsername(), game.blackUsername(), json, game.gameID());
+        } catch (ResponseException e) {
+            throw new DataAccessException(e.getMessage());
         }
-        catch (Exception e) {
-            System.out.println(e.getMessage());
+        if (matched == 0) {
+            throw new GameNotFoundException("Cannot update game that doesn't exist");
+        }
+        version.incrementAndGet();
+    }
+
+    //One conditional update of a name column, the board's JSON isn't read or rewritten
+    public GameData claimSeat(int id, ChessGame.TeamColor color, String username) throws DataAccessException {
+        String seat = color == ChessGame.TeamColor.WHITE ? "whiteUsername" : "blackUsername";
+        return changeSeat(id, "UPDATE games SET " + seat + "=? WHERE id=? AND " + seat + " IS NULL", username, id);
+    }
+
+    //Only clears the seat while username still holds it, so it never unseats whoever took it since
+    public GameData releaseSeat(int id, ChessGame.TeamColor color, String username) throws DataAccessException {
+        String seat = color == ChessGame.TeamColor.WHITE ? "whiteUsername" : "blackUsername";
+        return changeSeat(id, "UPDATE games SET " + seat + "=NULL WHERE id=? AND " + seat + "=?", id, username);
+    }
+
+    //Runs a conditional seat update, then reads back the names for the lobby, null if the condition didn't hold
+    private GameData changeSeat(int id, String statement, Object... params) throws DataAccessException {
+        var listing = "SELECT whiteUsername, blackUsername, name FROM games WHERE id=?";
+        int changed;
+        try {
+            changed = helper.executeUpdateCount(statement, params);
+        } catch (ResponseException e) {
+            throw new DataAccessException(e.getMessage());
+        }
+        if (changed > 0) {
+            version.incrementAndGet();
+        }
+        try (var conn = DatabaseManager.getConnection(); var ps = conn.prepareStatement(listing)) {
+            ps.setInt(1, id);
+            try (var rs = ps.executeQuery()) {
+                if (!rs.next()) {
+                    throw new GameNotFoundException("Cannot update game that doesn't exist");
+                }
+                if (changed == 0) {
+                    return null;
+                }
+                return new GameData(id, rs.getString("whiteUsername"), rs.getString("blackUsername"),
+                        rs.getString("name"), null);
+            }
+        } catch (SQLException e) {
+            throw new DataAccessException(String.format("Unable to read game: %s", e.getMessage()));
         }
     }
 
+    //Writes only the game column, so a join or leave landing while a move is made keeps its seat change
+    public void saveGame(int id, ChessGame game) throws DataAccessException {
+        var statement = "UPDATE games SET game=? WHERE id=?";
+        int matched;
+        try {
+            matched = helper.executeUpdateCount(statement, Codecs.GSON.toJson(game), id);
+        } catch (ResponseException e) {
+            throw new DataAccessException(e.getMessage());
+        }
+        if (matched == 0) {
+            throw new GameNotFoundException("Cannot update game that doesn't exist");
+        }
+        version.incrementAndGet();
+    }
+
     //Produce a list of all GameData
     public ArrayList<GameData> listGames() {
         ArrayList<GameData> allGames = new ArrayList<>();
@@ -106,7 +175,7 @@ INDEX(id)
                         String black = rs.getString("blackUsername");
                         String name = rs.getString("name");
                         var json = rs.getString("game");
-                        ChessGame foundGame = new Gson().fromJson(json, ChessGame.class);
+                        ChessGame foundGame = Codecs.GSON.fromJson(json, ChessGame.class);
                         allGames.add(new GameData(id, white, black, name, foundGame));
                     }
                 }
@@ -117,4 +186,55 @@ INDEX(id)
         return allGames;
     }
 
+    //Streams rows from the server one at a time, so a batch over every game never holds them all in memory
+    public Stream<GameData> streamGames() {
+        Connection conn = null;
+        try {
+            conn = DatabaseManager.getConnection();
+            PreparedStatement ps = conn.prepareStatement("SELECT * FROM games",
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            //MySQL's driver only streams when asked for this fetch size
+            ps.setFetchSize(Integer.MIN_VALUE);
+            ResultSet rs = ps.executeQuery();
+            Connection opened = conn;
+            Spliterator<GameData> rows = new Spliterators.AbstractSpliterator<>(Long.MAX_VALUE, Spliterator.ORDERED) {
+                @Override
+                public boolean tryAdvance(Consumer<? super GameData> action) {
+                    try {
+                        if (!rs.next()) {
+                            return false;
+                        }
+                        ChessGame foundGame = Codecs.GSON.fromJson(rs.getString("game"), ChessGame.class);
+                        action.accept(new GameData(rs.getInt("id"), rs.getString("whiteUsername"),
+                                rs.getString("blackUsername"), rs.getString("name"), foundGame));
+                        return true;
+                    } catch (SQLException e) {
+                        System.out.println(e.getMessage());
+                        return false;
+                    }
+                }
+            };
+            return StreamSupport.stream(rows, false).onClose(() -> {
+                try {
+                    opened.close();
+                } catch (SQLException e) {
+                    System.out.println(e.getMessage());
+                }
+            });
+        } catch (Exception e) {
+            System.out.println(e.getMessage());
+            if (conn != null) {
+                try {
+                    conn.close();
+                } catch (SQLException closing) {
+                    System.out.println(closing.getMessage());
+                }
+            }
+            return Stream.empty();
+        }
+    }
+
+    public long version() {
+        return version.get();
+    }
 }
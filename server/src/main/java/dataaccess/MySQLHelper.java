@@ -2,6 +2,7 @@ package dataaccess;
 
 import exception.ResponseException;
 
+import java.sql.PreparedStatement;
 import java.sql.SQLException;
 
 import static java.sql.Statement.RETURN_GENERATED_KEYS;
@@ -25,18 +26,7 @@ public class MySQLHelper {
     public int executeUpdate(String statement, Object... params) throws ResponseException, DataAccessException {
         try (var conn = DatabaseManager.getConnection()) {
             try (var ps = conn.prepareStatement(statement, RETURN_GENERATED_KEYS)) {
-                for (var i = 0; i < params.length; i++) {
-                    var param = params[i];
-                    if (param instanceof Integer integer) {
-                        ps.setInt(i + 1, integer);
-                    }
-                    else if (param instanceof String p) {
-                        ps.setString(i + 1, p);
-                    }
-                    else if (param == null) {
-                        ps.setNull(i + 1, NULL);
-                    }
-                }
+                setParameters(ps, params);
                 ps.executeUpdate();
 
                 var rs = ps.getGeneratedKeys();
@@ -50,4 +40,32 @@ public class MySQLHelper {
             throw new ResponseException(500, String.format("unable to update database: %s, %s", statement, e.getMessage()));
         }
     }
+
+    //Like executeUpdate, but returns how many rows the statement matched, so a conditional
+    //update can tell whether its WHERE held without reading the row first
+    public int executeUpdateCount(String statement, Object... params) throws ResponseException, DataAccessException {
+        try (var conn = DatabaseManager.getConnection()) {
+            try (var ps = conn.prepareStatement(statement)) {
+                setParameters(ps, params);
+                return ps.executeUpdate();
+            }
+        } catch (SQLException e) {
+            throw new ResponseException(500, String.format("unable to update database: %s, %s", statement, e.getMessage()));
+        }
+    }
+
+    private static void setParameters(PreparedStatement ps, Object... params) throws SQLException {
+        for (var i = 0; i < params.length; i++) {
+            var param = params[i];
+            if (param instanceof Integer integer) {
+                ps.setInt(i + 1, integer);
+            }
+            else if (param instanceof String p) {
+                ps.setString(i + 1, p);
+            }
+            else if (param == null) {
+                ps.setNull(i + 1, NULL);
+            }
+        }
+    }
 }
@@ -2,7 +2,9 @@ package dataaccess;
 
 import exception.ResponseException;
 import model.UserData;
-import org.mindrot.jbcrypt.BCrypt;
+
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
 
 
 public class MySQLUserDAO implements UserDAO {
@@ -34,7 +36,7 @@ CREATE TABLE IF NOT EXISTS `users` (
     }
 
     //Find userData based on username
-    //Password will be hashed
+    //Password is the BCrypt hash UserService stored
     public UserData getUser(String username) {
         try (var conn = DatabaseManager.getConnection()) {
             var statement = "SELECT * FROM users WHERE username=?";
@@ -53,15 +55,24 @@ CREATE TABLE IF NOT EXISTS `users` (
         return null;
     }
 
-    //Add a new user
-    public void createUser(UserData data) {
+    //Add a new user, the password is stored as given since UserService hashes it off the request thread.
+    //The primary key decides whether the name is taken, so there's no separate lookup to race against.
+    public boolean createUser(UserData data) throws ResponseException {
         var statement = "INSERT INTO users (username, password, email) VALUES (?, ?, ?)";
-        try {
-            String hashedPass = BCrypt.hashpw(data.password(), BCrypt.gensalt());
-            helper.executeUpdate(statement, data.username(), hashedPass, data.email());
+        try (var conn = DatabaseManager.getConnection()) {
+            try (var ps = conn.prepareStatement(statement)) {
+                ps.setString(1, data.username());
+                ps.setString(2, data.password());
+                ps.setString(3, data.email());
+                ps.executeUpdate();
+                return true;
+            }
+        }
+        catch (SQLIntegrityConstraintViolationException taken) {
+            return false;
         }
-        catch (Throwable ex) {
-            System.out.println(ex.getMessage());
+        catch (SQLException | DataAccessException ex) {
+            throw new ResponseException(500, String.format("Unable to create user: %s", ex.getMessage()));
         }
     }
 }
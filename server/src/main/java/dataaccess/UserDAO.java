@@ -1,5 +1,6 @@
 package dataaccess;
 
+import exception.ResponseException;
 import model.UserData;
 
 public interface UserDAO {
@@ -9,6 +10,6 @@ public interface UserDAO {
     //Find userData based on username
     UserData getUser(String username);
 
-    //Add a new user
-    void createUser(UserData data);
+    //Add a new user, false if it wasn't added because the username is already taken. Any other failure is thrown.
+    boolean createUser(UserData data) throws ResponseException;
 }
@@ -1,39 +1,73 @@
 package server;
 
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
 import exception.ResponseException;
+import json.Codecs;
+import chess.engine.OpeningBook;
+import chess.engine.PolyglotKey;
+import chess.engine.Tablebase;
 import server.websocket.WebSocketHandler;
 import spark.*;
 import service.*;
 import dataaccess.*;
 import requestsresults.*;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
 
 public class Server {
     private UserService userService;
     private GameService gameService;
+    private AnalysisService analysisService;
     private UserDAO userDAO;
     private AuthDAO authDAO;
     private GameDAO gameDAO;
+    private AnalysisDAO analysisDAO;
     private WebSocketHandler ws;
+    private GameAnalyzer analyzer;
+    private ScheduledExecutorService analysisSchedule;
+    private PasswordHasher hasher;
+    private MemoryStore memory;
 
     public Server() {
         try {
-            userDAO = new MySQLUserDAO();
-            authDAO = new MySQLAuthDAO();
-            gameDAO = new MySQLGameDAO();
-            userService = new UserService(userDAO, authDAO);
+            if ("memory".equals(System.getProperty("chess.storage"))) {
+                memory = openMemoryStore();
+                userDAO = memory.users();
+                authDAO = memory.auths();
+                gameDAO = memory.games();
+                analysisDAO = memory.analyses();
+            }
+            else {
+                userDAO = new MySQLUserDAO();
+                authDAO = new MySQLAuthDAO();
+                gameDAO = new MySQLGameDAO();
+                analysisDAO = new MySQLAnalysisDAO();
+            }
+            hasher = new PasswordHasher(workFactor());
+            userService = new UserService(userDAO, authDAO, hasher);
             gameService = new GameService(gameDAO, authDAO);
-            ws = new WebSocketHandler(gameService, authDAO);
+            OpeningBook book = openBook();
+            Tablebase tablebase = openTablebases();
+            //Hints and computer players share one set of engine threads
+            EnginePool engines = new EnginePool(book, tablebase);
+            analysisService = new AnalysisService(gameDAO, authDAO, book, engines);
+            ws = new WebSocketHandler(gameService, authDAO, engines, tablebase);
+            scheduleAnalysis();
         }
         catch (Throwable ex) {
             System.out.printf("Unable to start server: %s %n", ex);
             userService = null;
             gameService = null;
+            analysisService = null;
             userDAO = null;
             authDAO = null;
             gameDAO = null;
+            analysisDAO = null;
         }
     }
 
@@ -51,6 +85,8 @@ public class Server {
         Spark.get("/game", this::list);
         Spark.post("/game", this::create);
         Spark.put("/game", this::join);
+        Spark.get("/book", this::bookMoves);
+        Spark.get("/hint", this::hint);
         Spark.exception(ResponseException.class, this::exceptionHandler);
 
         //This line initializes the server and can be removed once you have a functioning endpoint 
@@ -64,47 +100,218 @@ public class Server {
         userDAO.clear();
         authDAO.clear();
         gameDAO.clear();
+        analysisDAO.clear();
         return "";
     }
 
     private Object login(Request req, Response res) throws ResponseException {
-        LoginRequest logReq = new Gson().fromJson(req.body(), LoginRequest.class);
+        LoginRequest logReq = readBody(req, LoginRequest.class);
         LoginResult logRes = userService.login(logReq);
-        return new Gson().toJson(logRes);
+        return writeBody(res, logRes);
     }
 
     private Object register(Request req, Response res) throws ResponseException {
-        RegisterRequest regReq = new Gson().fromJson(req.body(), RegisterRequest.class);
+        RegisterRequest regReq = readBody(req, RegisterRequest.class);
         RegisterResult regRes = userService.register(regReq);
-        return new Gson().toJson(regRes);
+        return writeBody(res, regRes);
     }
 
     private Object logout(Request req, Response res) throws ResponseException{
         LogoutRequest logoutRequest = new LogoutRequest(req.headers("authorization"));
         LogoutResult logoutResult = userService.logout(logoutRequest);
-        return new Gson().toJson(logoutResult);
+        return writeBody(res, logoutResult);
     }
 
     private Object list(Request req, Response res) throws ResponseException {
-        ListRequest listRequest = new ListRequest(req.headers("authorization"));
-        ListResult listResult = gameService.list(listRequest);
-        var gson = new GsonBuilder().enableComplexMapKeySerialization().create();
-        return gson.toJson(listResult);
+        //Authenticated once here, the tag and the list don't depend on who is asking
+        gameService.verifyAuth(req.headers("authorization"));
+        String tag = gameService.listTag();
+        res.header("ETag", tag);
+        //Only signed in users may see the list, so shared caches mustn't keep it and others must check back first
+        res.header("Cache-Control", "private, no-cache");
+        if (matches(req.headers("If-None-Match"), tag)) {
+            res.status(304);
+            return "";
+        }
+        ListResult listResult = gameService.list();
+        return writeBody(res, listResult);
     }
 
     private Object create(Request req, Response res) throws ResponseException {
-        CreateRequest nameOnly = new Gson().fromJson(req.body(), CreateRequest.class);
+        CreateRequest nameOnly = readBody(req, CreateRequest.class);
         CreateRequest createRequest = new CreateRequest(req.headers("authorization"), nameOnly.gameName());
         CreateResult createResult = gameService.create(createRequest);
-        var gson = new GsonBuilder().enableComplexMapKeySerialization().create();
-        return gson.toJson(createResult);
+        return writeBody(res, createResult);
     }
 
     private Object join(Request req, Response res) throws ResponseException, DataAccessException {
-        JoinRequest withoutAuth = new Gson().fromJson(req.body(), JoinRequest.class);
-        JoinRequest joinRequest = new JoinRequest(req.headers("authorization"), withoutAuth.playerColor(), withoutAuth.gameID());
+        JoinRequest withoutAuth = readBody(req, JoinRequest.class);
+        JoinRequest joinRequest = new JoinRequest(req.headers("authorization"), withoutAuth.playerColor(), withoutAuth.gameID(),
+                withoutAuth.bot());
         JoinResult joinResult = gameService.join(joinRequest);
-        return new Gson().toJson(joinResult);
+        return writeBody(res, joinResult);
+    }
+
+    private Object bookMoves(Request req, Response res) throws ResponseException {
+        int gameID;
+        try {
+            gameID = Integer.parseInt(req.queryParams("gameID"));
+        } catch (NumberFormatException e) {
+            throw new ResponseException(400, "Error: bad request");
+        }
+        BookResult bookResult = analysisService.bookMoves(new BookRequest(req.headers("authorization"), gameID));
+        return writeBody(res, bookResult);
+    }
+
+    private Object hint(Request req, Response res) throws ResponseException {
+        int gameID;
+        try {
+            gameID = Integer.parseInt(req.queryParams("gameID"));
+        } catch (NumberFormatException e) {
+            throw new ResponseException(400, "Error: bad request");
+        }
+        HintResult hintResult = analysisService.hint(new HintRequest(req.headers("authorization"), gameID));
+        return writeBody(res, hintResult);
+    }
+
+    //If-None-Match may list several tags, or * for any
+    private static boolean matches(String ifNoneMatch, String tag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            candidate = candidate.trim();
+            if (candidate.equals("*") || candidate.equals(tag) || candidate.equals("W/" + tag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    //Bodies are parsed straight off the request stream instead of being copied into a String first
+    private static <T> T readBody(Request req, Class<T> type) throws ResponseException {
+        try {
+            return Codecs.read(req.raw().getInputStream(), type);
+        } catch (IOException | JsonParseException e) {
+            throw new ResponseException(400, "Error: bad request");
+        }
+    }
+
+    //Results are written straight to the response stream, Spark leaves an already committed response alone
+    private static Object writeBody(Response res, Object result) throws ResponseException {
+        res.type("application/json");
+        try {
+            Codecs.write(result, res.raw().getOutputStream());
+        } catch (IOException e) {
+            throw new ResponseException(500, String.format("Error: %s", e.getMessage()));
+        }
+        return "";
+    }
+
+    //The opening book is optional, start the server with -Dchess.book=path/to/book.bin to use a Polyglot book.
+    //A book keyed with some other table also needs -Dchess.bookKeys=path/to/keys.bin, 781 big-endian longs.
+    private static OpeningBook openBook() {
+        String path = System.getProperty("chess.book");
+        if (path == null) {
+            return null;
+        }
+        String keysPath = System.getProperty("chess.bookKeys");
+        try {
+            PolyglotKey keys = keysPath == null ? PolyglotKey.defaultKeys() : PolyglotKey.load(Path.of(keysPath));
+            if (!keys.isStandard()) {
+                System.out.printf("%s is not Polyglot's key table, only books written with it will find moves %n", keysPath);
+            }
+            return OpeningBook.open(Path.of(path), keys);
+        } catch (IOException e) {
+            System.out.printf("Unable to open opening book: %s %n", e.getMessage());
+            return null;
+        }
+    }
+
+    //Tablebases are optional too, point -Dchess.tablebases at a directory of files from TablebaseGenerator
+    private static Tablebase openTablebases() {
+        String path = System.getProperty("chess.tablebases");
+        if (path == null) {
+            return null;
+        }
+        try {
+            return Tablebase.open(Path.of(path));
+        } catch (IOException e) {
+            System.out.printf("Unable to open tablebases: %s %n", e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Start the server with -Dchess.storage=memory to keep everything in memory instead of MySQL.
+     * Add -Dchess.snapshot=path/to/file.json to carry it across restarts, saved every
+     * -Dchess.snapshotSeconds seconds (60 unless set) and on stop.
+     */
+    private static MemoryStore openMemoryStore() throws IOException {
+        String path = System.getProperty("chess.snapshot");
+        if (path == null) {
+            return new MemoryStore();
+        }
+        MemoryStore store = new MemoryStore(Path.of(path));
+        long seconds = MemoryStore.DEFAULT_SNAPSHOT_SECONDS;
+        String configured = System.getProperty("chess.snapshotSeconds");
+        if (configured != null) {
+            try {
+                seconds = Long.parseLong(configured);
+            } catch (NumberFormatException e) {
+                System.out.printf("Invalid chess.snapshotSeconds: %s %n", configured);
+            }
+        }
+        if (seconds > 0) {
+            store.saveEvery(seconds);
+        }
+        return store;
+    }
+
+    //New passwords are hashed with -Dchess.bcryptRounds as the BCrypt work factor, existing hashes keep theirs
+    private static int workFactor() {
+        String rounds = System.getProperty("chess.bcryptRounds");
+        if (rounds == null) {
+            return PasswordHasher.DEFAULT_WORK_FACTOR;
+        }
+        try {
+            int workFactor = Integer.parseInt(rounds);
+            if (workFactor >= 4 && workFactor <= 30) {
+                return workFactor;
+            }
+        } catch (NumberFormatException e) {
+            //Fall through to the default
+        }
+        System.out.printf("Invalid chess.bcryptRounds: %s %n", rounds);
+        return PasswordHasher.DEFAULT_WORK_FACTOR;
+    }
+
+    //Finished games are analysed in the background every -Dchess.analysisMinutes minutes, off unless set
+    private void scheduleAnalysis() {
+        String minutes = System.getProperty("chess.analysisMinutes");
+        if (minutes == null) {
+            return;
+        }
+        long period;
+        try {
+            period = Long.parseLong(minutes);
+        } catch (NumberFormatException e) {
+            System.out.printf("Invalid chess.analysisMinutes: %s %n", minutes);
+            return;
+        }
+        analyzer = new GameAnalyzer(gameDAO, analysisDAO, GameAnalyzer.Settings.defaults());
+        analysisSchedule = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "game-analysis");
+            thread.setDaemon(true);
+            return thread;
+        });
+        analysisSchedule.scheduleWithFixedDelay(() -> {
+            try {
+                System.out.printf("Analysed %d finished games %n", analyzer.run());
+            } catch (Exception e) {
+                System.out.println(e.getMessage());
+            }
+        }, period, period, TimeUnit.MINUTES);
     }
 
     private void exceptionHandler(ResponseException ex, Request req, Response res) {
@@ -113,7 +320,24 @@ public class Server {
     }
 
     public void stop() {
+        if (ws != null) {
+            ws.stop();
+        }
+        if (analysisSchedule != null) {
+            analysisSchedule.shutdownNow();
+            analyzer.close();
+        }
+        if (hasher != null) {
+            PasswordHasher.Stats stats = hasher.stats();
+            System.out.printf("Password hashing: %d hashes, %d checks, %d turned away, mean %.1f ms, max %.1f ms %n",
+                    stats.hashes(), stats.checks(), stats.rejected(), stats.meanMillis(), stats.maxMillis());
+            hasher.close();
+        }
         Spark.stop();
         Spark.awaitStop();
+        //After the routes stop, so the last snapshot has every request's changes
+        if (memory != null) {
+            memory.close();
+        }
     }
 }
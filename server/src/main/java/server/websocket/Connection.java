@@ -1,19 +1,42 @@
 package server.websocket;
 
 import org.eclipse.jetty.websocket.api.Session;
+import websocket.BinaryProtocol;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 
 public class Connection {
+    public int gameId;
     public String username;
     public Session session;
+    public boolean binary;
+    //System.nanoTime() of the last frame received from this client
+    public volatile long lastSeen;
 
-    public Connection(String username, Session session) {
+    public Connection(int gameId, String username, Session session) {
+        this.gameId = gameId;
         this.username = username;
         this.session = session;
+        this.binary = usesBinaryProtocol(session);
+        this.lastSeen = System.nanoTime();
+    }
+
+    public void touch() {
+        lastSeen = System.nanoTime();
     }
 
     public void send(String msg) throws IOException {
         session.getRemote().sendString(msg);
     }
-}
\ No newline at end of file
+
+    public void send(ByteBuffer frame) throws IOException {
+        //Duplicate so the same encoded frame can be sent to several connections
+        session.getRemote().sendBytes(frame.duplicate());
+    }
+
+    //A session speaks the binary protocol if the client offered it during the handshake
+    public static boolean usesBinaryProtocol(Session session) {
+        return session.getUpgradeRequest().getSubProtocols().contains(BinaryProtocol.SUBPROTOCOL);
+    }
+}
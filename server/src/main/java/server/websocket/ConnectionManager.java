@@ -1,33 +1,149 @@
 package server.websocket;
 
-import com.google.gson.Gson;
 import org.eclipse.jetty.websocket.api.Session;
+import websocket.BinaryProtocol;
 import websocket.messages.ServerMessage;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.IntConsumer;
 
+/**
+ * Tracks the open websocket connections for every game.
+ * <p>
+ * Each game's map of connections is created and dropped inside a compute on the outer map,
+ * so a game is removed the moment its last connection leaves and an add racing with that
+ * removal can never land in a map that is no longer registered.
+ * <p>
+ * One session can be connected to several games at once, so the session index keeps a set
+ * of connections per session and closing a session drops it from every game.
+ * <p>
+ * Whoever keeps state per game can register to hear when a game's last connection goes,
+ * however it went. The callback runs inside the compute that drops the game, so a connection
+ * to that game added at the same moment waits until it has finished.
+ */
 public class ConnectionManager {
-    public final ConcurrentHashMap<Integer, ConcurrentHashMap<String, Connection>> games = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Integer, ConcurrentHashMap<String, Connection>> games = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Session, Set<Connection>> sessions = new ConcurrentHashMap<>();
+    private volatile IntConsumer gameEmptied = gameId -> {};
+
+    //Called with the game's id whenever its last connection is removed
+    public void onGameEmptied(IntConsumer listener) {
+        gameEmptied = listener;
+    }
 
     public void add(int gameId, String username, Session session) {
-        var connection = new Connection(username, session);
-        games.putIfAbsent(gameId, new ConcurrentHashMap<>());
-        games.get(gameId).put(username, connection);
+        var connection = new Connection(gameId, username, session);
+        games.compute(gameId, (id, connections) -> {
+            if (connections == null) {
+                connections = new ConcurrentHashMap<>();
+            }
+            Connection replaced = connections.put(username, connection);
+            if (replaced != null) {
+                detach(replaced);
+            }
+            return connections;
+        });
+        sessions.compute(session, (key, connections) -> {
+            if (connections == null) {
+                connections = ConcurrentHashMap.newKeySet();
+            }
+            connections.add(connection);
+            return connections;
+        });
     }
 
     public void remove(int gameId, String username) {
-        games.get(gameId).remove(username);
+        games.computeIfPresent(gameId, (id, connections) -> {
+            Connection removed = connections.remove(username);
+            if (removed != null) {
+                detach(removed);
+            }
+            return dropIfEmpty(id, connections);
+        });
+    }
+
+    //Removes every connection using session, in whichever games they are
+    public Collection<Connection> remove(Session session) {
+        Set<Connection> connections = sessions.remove(session);
+        if (connections == null) {
+            return List.of();
+        }
+        for (Connection connection : connections) {
+            removeConnection(connection);
+        }
+        return connections;
+    }
+
+    //Every connection using session, null if it has none
+    public Collection<Connection> get(Session session) {
+        return sessions.get(session);
+    }
+
+    //Records that the client on session is still alive
+    public void touch(Session session) {
+        Set<Connection> connections = sessions.get(session);
+        if (connections != null) {
+            for (Connection connection : connections) {
+                connection.touch();
+            }
+        }
+    }
+
+    public Collection<Connection> all() {
+        ArrayList<Connection> all = new ArrayList<>();
+        for (Set<Connection> connections : sessions.values()) {
+            all.addAll(connections);
+        }
+        return all;
+    }
+
+    public int gameCount() {
+        return games.size();
+    }
+
+    public int connectionCount() {
+        int count = 0;
+        for (Set<Connection> connections : sessions.values()) {
+            count += connections.size();
+        }
+        return count;
+    }
+
+    public int connectionCount(int gameId) {
+        ConcurrentHashMap<String, Connection> connections = games.get(gameId);
+        return connections == null ? 0 : connections.size();
     }
 
     public void broadcast(int gameId, String excludeUsername, ServerMessage serverMessage) throws IOException {
-        var removeList = new ArrayList<Connection>();
         ConcurrentHashMap<String, Connection> connections = games.get(gameId);
+        if (connections == null) {
+            return;
+        }
+        var removeList = new ArrayList<Connection>();
+        //Encode at most once per protocol, no matter how many connections are watching
+        String json = null;
+        ByteBuffer frame = null;
         for (var c : connections.values()) {
             if (c.session.isOpen()) {
                 if (!c.username.equals(excludeUsername)) {
-                    c.send(new Gson().toJson(serverMessage));
+                    if (c.binary) {
+                        if (frame == null) {
+                            frame = BinaryProtocol.encodeMessage(serverMessage);
+                        }
+                        c.send(frame);
+                    }
+                    else {
+                        if (json == null) {
+                            json = serverMessage.toJson();
+                        }
+                        c.send(json);
+                    }
                 }
             } else {
                 removeList.add(c);
@@ -36,19 +152,52 @@ public class ConnectionManager {
 
         // Clean up any connections that were left open.
         for (var c : removeList) {
-            connections.remove(c.username);
+            detach(c);
+            removeConnection(c);
         }
     }
 
     public void send(int gameId, String username, ServerMessage serverMessage) throws IOException {
-        Connection connection = games.get(gameId).get(username);
+        ConcurrentHashMap<String, Connection> connections = games.get(gameId);
+        Connection connection = connections == null ? null : connections.get(username);
         if (connection != null) {
             if (connection.session.isOpen()) {
-                connection.send(new Gson().toJson(serverMessage));
+                if (connection.binary) {
+                    connection.send(BinaryProtocol.encodeMessage(serverMessage));
+                }
+                else {
+                    connection.send(serverMessage.toJson());
+                }
             }
             else {
-                games.get(gameId).remove(username);
+                detach(connection);
+                removeConnection(connection);
             }
         }
     }
-}
\ No newline at end of file
+
+    //Drops connection from its session's set, and the set once it's empty
+    private void detach(Connection connection) {
+        sessions.computeIfPresent(connection.session, (key, connections) -> {
+            connections.remove(connection);
+            return connections.isEmpty() ? null : connections;
+        });
+    }
+
+    //Only removes the exact connection given, so a newer connection for the same user survives
+    private void removeConnection(Connection connection) {
+        games.computeIfPresent(connection.gameId, (id, connections) -> {
+            connections.remove(connection.username, connection);
+            return dropIfEmpty(id, connections);
+        });
+    }
+
+    //Only called from inside a compute on games
+    private ConcurrentHashMap<String, Connection> dropIfEmpty(int gameId, ConcurrentHashMap<String, Connection> connections) {
+        if (!connections.isEmpty()) {
+            return connections;
+        }
+        gameEmptied.accept(gameId);
+        return null;
+    }
+}
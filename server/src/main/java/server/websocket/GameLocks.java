@@ -0,0 +1,37 @@
+package server.websocket;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * One lock object per game, shared by every thread working on that game.
+ * <p>
+ * Each lock counts the threads that acquired it and is dropped once the last one releases it,
+ * so finished games don't keep their locks forever. The count changes inside a compute on the
+ * map, so a thread can never be handed a lock that another thread is about to drop.
+ */
+public class GameLocks {
+    private static final class Lock {
+        private int holders;
+    }
+
+    private final ConcurrentHashMap<Integer, Lock> locks = new ConcurrentHashMap<>();
+
+    //Every acquire needs a matching release, the returned object is what to synchronize on
+    public Object acquire(int gameId) {
+        return locks.compute(gameId, (id, lock) -> {
+            if (lock == null) {
+                lock = new Lock();
+            }
+            lock.holders++;
+            return lock;
+        });
+    }
+
+    public void release(int gameId) {
+        locks.computeIfPresent(gameId, (id, lock) -> --lock.holders == 0 ? null : lock);
+    }
+
+    public int gameCount() {
+        return locks.size();
+    }
+}
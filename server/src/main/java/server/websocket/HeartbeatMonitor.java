@@ -0,0 +1,76 @@
+package server.websocket;
+
+import org.eclipse.jetty.websocket.api.Session;
+
+import java.nio.ByteBuffer;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pings every connection on a fixed interval and evicts connections that have not
+ * sent anything (a pong or a command) within the idle timeout.
+ * <p>
+ * A half-open TCP connection still accepts writes, so the server can't rely on a failed
+ * send to notice it. Only traffic from the client proves it is still there.
+ */
+public class HeartbeatMonitor {
+    public static final long DEFAULT_PING_INTERVAL_MILLIS = 30_000;
+    public static final long DEFAULT_IDLE_TIMEOUT_MILLIS = 90_000;
+
+    private final ConnectionManager connections;
+    private final long idleTimeoutNanos;
+    private final ScheduledExecutorService scheduler;
+
+    public HeartbeatMonitor(ConnectionManager connections) {
+        this(connections, DEFAULT_PING_INTERVAL_MILLIS, DEFAULT_IDLE_TIMEOUT_MILLIS);
+    }
+
+    public HeartbeatMonitor(ConnectionManager connections, long pingIntervalMillis, long idleTimeoutMillis) {
+        this.connections = connections;
+        this.idleTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(idleTimeoutMillis);
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "websocket-heartbeat");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleAtFixedRate(this::sweep, pingIntervalMillis, pingIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    //Visible for tests, normally only called by the scheduler
+    void sweep() {
+        long now = System.nanoTime();
+        //A session in several games has a connection in each, but only needs one ping
+        Set<Session> pinged = new HashSet<>();
+        for (Connection connection : connections.all()) {
+            if (!connection.session.isOpen() || now - connection.lastSeen > idleTimeoutNanos) {
+                evict(connection);
+                continue;
+            }
+            if (!pinged.add(connection.session)) {
+                continue;
+            }
+            try {
+                connection.session.getRemote().sendPing(ByteBuffer.allocate(0));
+            } catch (Exception e) {
+                evict(connection);
+            }
+        }
+    }
+
+    private void evict(Connection connection) {
+        connections.remove(connection.session);
+        try {
+            //The peer is presumed gone, so don't wait on a close handshake
+            connection.session.disconnect();
+        } catch (Exception e) {
+            System.out.println(e.getMessage());
+        }
+    }
+
+    public void stop() {
+        scheduler.shutdownNow();
+    }
+}
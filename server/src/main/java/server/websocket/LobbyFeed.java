@@ -0,0 +1,154 @@
+package server.websocket;
+
+import json.Codecs;
+import model.LobbyEvent;
+import org.eclipse.jetty.websocket.api.Session;
+import org.eclipse.jetty.websocket.api.WriteCallback;
+import websocket.BinaryProtocol;
+import websocket.messages.ServerMessage;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pushes changes to the game list to every session subscribed to the lobby, so lobby
+ * clients don't have to keep polling GET /game.
+ * <p>
+ * Changes are coalesced. The first one starts a short window, later changes to the same game
+ * replace the earlier one, and when the window closes subscribers get one LOBBY message with
+ * the latest listing of each game that changed. A burst of games being created and filled
+ * costs each subscriber one frame per window rather than one per change.
+ * <p>
+ * Pushes are sent asynchronously. A blocking send here would stall every other subscriber
+ * behind a slow one, and would fail outright whenever a game message was being written to
+ * the same session at that moment. Jetty queues async frames behind whatever the session is
+ * already writing, so each subscriber only has a bounded number of pushes left unwritten, and
+ * one that falls further behind than that is dropped from the feed.
+ */
+public class LobbyFeed {
+    public static final long DEFAULT_WINDOW_MILLIS = 100;
+    public static final int MAX_UNWRITTEN_PUSHES = 8;
+
+    //Each subscriber with the number of its pushes Jetty hasn't finished writing
+    private final ConcurrentHashMap<Session, AtomicInteger> subscribers = new ConcurrentHashMap<>();
+    //Guarded by this, in the order the games first changed within the window
+    private final LinkedHashMap<Integer, LobbyEvent> pending = new LinkedHashMap<>();
+    private final long windowMillis;
+    private final ScheduledExecutorService scheduler;
+
+    public LobbyFeed() {
+        this(DEFAULT_WINDOW_MILLIS);
+    }
+
+    public LobbyFeed(long windowMillis) {
+        this.windowMillis = windowMillis;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "lobby-feed");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public void subscribe(Session session) {
+        subscribers.putIfAbsent(session, new AtomicInteger());
+    }
+
+    public void unsubscribe(Session session) {
+        subscribers.remove(session);
+    }
+
+    public int subscriberCount() {
+        return subscribers.size();
+    }
+
+    public void publish(LobbyEvent event) {
+        if (subscribers.isEmpty()) {
+            return;
+        }
+        synchronized (this) {
+            boolean windowOpen = !pending.isEmpty();
+            pending.merge(event.gameID(), event, LobbyFeed::coalesce);
+            if (windowOpen) {
+                return;
+            }
+        }
+        scheduler.schedule(this::flush, windowMillis, TimeUnit.MILLISECONDS);
+    }
+
+    //Visible for tests, normally only called by the scheduler when a window closes
+    void flush() {
+        ArrayList<LobbyEvent> events;
+        synchronized (this) {
+            events = new ArrayList<>(pending.values());
+            pending.clear();
+        }
+        if (events.isEmpty()) {
+            return;
+        }
+        ServerMessage message = new ServerMessage(ServerMessage.ServerMessageType.LOBBY);
+        message.setLobbyEvents(events);
+        //Encode at most once per protocol, no matter how many sessions are subscribed
+        String json = null;
+        ByteBuffer frame = null;
+        for (Map.Entry<Session, AtomicInteger> subscriber : subscribers.entrySet()) {
+            Session session = subscriber.getKey();
+            AtomicInteger unwritten = subscriber.getValue();
+            if (!session.isOpen() || unwritten.incrementAndGet() > MAX_UNWRITTEN_PUSHES) {
+                subscribers.remove(session, unwritten);
+                continue;
+            }
+            WriteCallback written = new WriteCallback() {
+                @Override
+                public void writeFailed(Throwable x) {
+                    unwritten.decrementAndGet();
+                    subscribers.remove(session, unwritten);
+                }
+
+                @Override
+                public void writeSuccess() {
+                    unwritten.decrementAndGet();
+                }
+            };
+            try {
+                if (Connection.usesBinaryProtocol(session)) {
+                    if (frame == null) {
+                        frame = BinaryProtocol.encodeMessage(message);
+                    }
+                    session.getRemote().sendBytes(frame.duplicate(), written);
+                }
+                else {
+                    if (json == null) {
+                        json = Codecs.GSON.toJson(message);
+                    }
+                    session.getRemote().sendString(json, written);
+                }
+            } catch (Exception e) {
+                subscribers.remove(session, unwritten);
+            }
+        }
+    }
+
+    /**
+     * Combines two changes to one game made within a window. Events carry the whole listing,
+     * so the newer one wins, except that a game created in this window still has to be
+     * announced as created to subscribers that have never seen it.
+     */
+    static LobbyEvent coalesce(LobbyEvent older, LobbyEvent newer) {
+        if (older.kind() == LobbyEvent.Kind.CREATED && newer.kind() != LobbyEvent.Kind.ENDED) {
+            return new LobbyEvent(LobbyEvent.Kind.CREATED, newer.gameID(), newer.gameName(),
+                    newer.whiteUsername(), newer.blackUsername());
+        }
+        return newer;
+    }
+
+    public void stop() {
+        scheduler.shutdownNow();
+    }
+}
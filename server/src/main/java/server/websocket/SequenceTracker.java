@@ -0,0 +1,36 @@
+package server.websocket;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Remembers the highest command sequence applied for each client in each game. Sequences are
+ * counted by each client on its own, so they are only comparable within one client id, never
+ * across the clients of one user.
+ * <p>
+ * It is kept apart from the connections on purpose: a client that reconnects resends the
+ * commands it never saw acknowledged, and the new session has to be able to recognise the
+ * ones the old session already applied. A game's sequences are dropped when it ends and when
+ * its last connection goes, so they only outlive a session while someone else is still there.
+ */
+public class SequenceTracker {
+    private final ConcurrentHashMap<Integer, ConcurrentHashMap<String, Long>> games = new ConcurrentHashMap<>();
+
+    public boolean isDuplicate(int gameId, String clientId, long sequence) {
+        ConcurrentHashMap<String, Long> clients = games.get(gameId);
+        Long applied = clients == null ? null : clients.get(clientId);
+        return applied != null && sequence <= applied;
+    }
+
+    public void applied(int gameId, String clientId, long sequence) {
+        games.computeIfAbsent(gameId, id -> new ConcurrentHashMap<>()).merge(clientId, sequence, Math::max);
+    }
+
+    //Once a game is over, or nobody is connected to it to retry anything, its sequences are not needed anymore
+    public void forget(int gameId) {
+        games.remove(gameId);
+    }
+
+    public int gameCount() {
+        return games.size();
+    }
+}
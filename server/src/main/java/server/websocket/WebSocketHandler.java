@@ -1,20 +1,34 @@
 package server.websocket;
 
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
+import json.Codecs;
 import dataaccess.AuthDAO;
+import dataaccess.DataAccessException;
 import exception.ResponseException;
 import model.AuthData;
+import model.BotSettings;
 import model.GameData;
 import org.eclipse.jetty.websocket.api.Session;
+import org.eclipse.jetty.websocket.api.annotations.OnWebSocketClose;
+import org.eclipse.jetty.websocket.api.annotations.OnWebSocketError;
+import org.eclipse.jetty.websocket.api.annotations.OnWebSocketFrame;
 import org.eclipse.jetty.websocket.api.annotations.OnWebSocketMessage;
+import org.eclipse.jetty.websocket.api.extensions.Frame;
 import org.eclipse.jetty.websocket.api.annotations.WebSocket;
+import service.EnginePool;
 import service.GameService;
+import websocket.BinaryProtocol;
 import websocket.commands.UserGameCommand;
 import websocket.messages.ServerMessage;
 import chess.*;
+import chess.engine.Position;
+import chess.engine.SearchLimits;
+import chess.engine.SearchResult;
+import chess.engine.Tablebase;
+import chess.engine.TablebaseResult;
 import java.io.IOException;
-import java.util.HashMap;
+import java.nio.ByteBuffer;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 
 @WebSocket
@@ -26,30 +40,148 @@ public class WebSocketHandler {
 
     private final ConnectionManager connections = new ConnectionManager();
 
-    private final HashMap<Integer, Boolean> activeGames = new HashMap<>();
+    private final HeartbeatMonitor heartbeat = new HeartbeatMonitor(connections);
+
+    private final SequenceTracker sequences = new SequenceTracker();
+
+    //The client id each session gave when it connected, which its sequences are counted under
+    private final ConcurrentHashMap<Session, String> clientIds = new ConcurrentHashMap<>();
+
+    private final LobbyFeed lobby = new LobbyFeed();
+
+    private final GameLocks gameLocks = new GameLocks();
+
+    private final ConcurrentHashMap<Integer, Boolean> activeGames = new ConcurrentHashMap<>();
+
+    private final EnginePool engines;
+
+    private final Tablebase tablebase;
+
+    //Games where a computer player is already working out its move
+    private final Set<Integer> botsThinking = ConcurrentHashMap.newKeySet();
 
 
     public WebSocketHandler(GameService gameService, AuthDAO authDAO) {
+        this(gameService, authDAO, new EnginePool());
+    }
+
+    public WebSocketHandler(GameService gameService, AuthDAO authDAO, EnginePool engines) {
+        this(gameService, authDAO, engines, null);
+    }
+
+    /**
+     * @param tablebase ends games once the remaining pieces have a known result, may be null
+     */
+    public WebSocketHandler(GameService gameService, AuthDAO authDAO, EnginePool engines, Tablebase tablebase) {
         this.gameService = gameService;
         this.authDAO = authDAO;
+        this.engines = engines;
+        this.tablebase = tablebase;
+        gameService.addLobbyListener(lobby::publish);
+        //Once nobody is connected to a game, whether they left, closed or went quiet, nobody is left to retry anything
+        connections.onGameEmptied(sequences::forget);
+    }
+
+    @OnWebSocketClose
+    public void onClose(Session session, int statusCode, String reason) {
+        connections.remove(session);
+        lobby.unsubscribe(session);
+        clientIds.remove(session);
+    }
+
+    @OnWebSocketError
+    public void onError(Session session, Throwable error) {
+        connections.remove(session);
+        lobby.unsubscribe(session);
+        clientIds.remove(session);
+    }
+
+    @OnWebSocketFrame
+    public void onFrame(Session session, Frame frame) {
+        if (frame.getType() == Frame.Type.PONG) {
+            connections.touch(session);
+        }
     }
 
     @OnWebSocketMessage
     public void onMessage(Session session, String message) throws IOException {
-        UserGameCommand command = new Gson().fromJson(message, UserGameCommand.class);
+        UserGameCommand command = Codecs.GSON.fromJson(message, UserGameCommand.class);
+        handleCommand(session, command);
+    }
+
+    @OnWebSocketMessage
+    public void onMessage(Session session, byte[] payload, int offset, int length) throws IOException {
+        UserGameCommand command;
+        try {
+            command = BinaryProtocol.decodeCommand(ByteBuffer.wrap(payload, offset, length));
+        } catch (RuntimeException e) {
+            ServerMessage errorMessage = new ServerMessage(ServerMessage.ServerMessageType.ERROR);
+            errorMessage.setErrorMessage("Error: Malformed binary command");
+            reply(session, errorMessage);
+            return;
+        }
+        handleCommand(session, command);
+    }
+
+    private void handleCommand(Session session, UserGameCommand command) throws IOException {
+        connections.touch(session);
+        Long sequence = command.getSequence();
         try {
             command.setUsername(getUsername(command.getAuthToken()));
-            command.setGameData(gameService.getGame(command.getGameID()));
-            switch (command.getCommandType()) {
-                case CONNECT -> connect(command, session);
-                case LEAVE -> leave(command);
-                case MAKE_MOVE -> makeMove(command, session);
-                case RESIGN -> resign(command, session);
+            //Lobby subscriptions aren't about any one game, so they need neither a game nor its lock
+            if (command.getCommandType() == UserGameCommand.CommandType.SUBSCRIBE_LOBBY
+                    || command.getCommandType() == UserGameCommand.CommandType.UNSUBSCRIBE_LOBBY) {
+                if (command.getCommandType() == UserGameCommand.CommandType.SUBSCRIBE_LOBBY) {
+                    lobby.subscribe(session);
+                }
+                else {
+                    lobby.unsubscribe(session);
+                }
+                if (sequence != null) {
+                    acknowledge(session, sequence, null);
+                }
+                return;
+            }
+            int gameId = command.getGameID();
+            if (command.getCommandType() == UserGameCommand.CommandType.CONNECT && command.getClientId() != null) {
+                clientIds.put(session, command.getClientId());
+            }
+            //Without a client id there is nothing to tell a retry from a new command, so the command just runs
+            String clientId = clientIds.get(session);
+            //Each player's session runs on its own thread, so without this a premove could land while
+            //the previous move is still being checked for checkmate on the same ChessGame
+            Object gameLock = gameLocks.acquire(gameId);
+            try {
+                synchronized (gameLock) {
+                    command.setGameData(gameService.getGame(gameId));
+                    //A retry of a command that was already applied is acknowledged again but not repeated.
+                    //Connecting changes no game state, so it always runs and re-registers the session.
+                    if (sequence != null && clientId != null && command.getCommandType() != UserGameCommand.CommandType.CONNECT
+                            && sequences.isDuplicate(gameId, clientId, sequence)) {
+                        acknowledge(session, sequence, "Duplicate command ignored");
+                        return;
+                    }
+                    switch (command.getCommandType()) {
+                        case CONNECT -> connect(command, session);
+                        case LEAVE -> leave(command);
+                        case MAKE_MOVE -> makeMove(command);
+                        case RESIGN -> resign(command);
+                        default -> throw new ResponseException(400, "Error: Unexpected command");
+                    }
+                    if (sequence != null) {
+                        //A game that just ended has had its sequences forgotten and no command can change it anymore
+                        if (clientId != null && Boolean.TRUE.equals(activeGames.get(gameId))) {
+                            sequences.applied(gameId, clientId, sequence);
+                        }
+                        acknowledge(session, sequence, null);
+                    }
+                    requestBotMove(command.getGameData());
+                }
+            } finally {
+                gameLocks.release(gameId);
             }
         } catch (Exception e) {
-            ServerMessage errorMessage = new ServerMessage(ServerMessage.ServerMessageType.ERROR);
-            errorMessage.setErrorMessage(e.getMessage());
-            session.getRemote().sendString(new Gson().toJson(errorMessage));
+            reject(session, sequence, e.getMessage());
         }
     }
 
@@ -70,27 +202,20 @@ public class WebSocketHandler {
         }
         connections.add(game.gameID(), username, session);
         var message = String.format("%s joined the game as %s.", username, joinAs);
-        activeGames.putIfAbsent(game.gameID(), true);
+        activeGames.putIfAbsent(game.gameID(), !game.game().isGameOver());
         var serverMessage = new ServerMessage(ServerMessage.ServerMessageType.NOTIFICATION);
         serverMessage.setMessage(message);
         connections.broadcast(game.gameID(), username, serverMessage);
         ServerMessage loadMessage = new ServerMessage(ServerMessage.ServerMessageType.LOAD_GAME);
-        var gson = new GsonBuilder().enableComplexMapKeySerialization().create();
-        loadMessage.setGame(gson.toJson(game));
-        session.getRemote().sendString(new Gson().toJson(loadMessage));
+        loadMessage.setGameData(game);
+        reply(session, loadMessage);
     }
 
-    private void leave(UserGameCommand command) throws IOException {
+    private void leave(UserGameCommand command) throws IOException, ResponseException, DataAccessException {
         String username = command.getUsername();
         int id = command.getGameID();
-        String authToken = command.getAuthToken();
-        try {
-            gameService.removePlayer(authToken, id);
-        }
-        catch (Exception e) {
-            errorHandler(id, username, e);
-            return;
-        }
+        //The command already carries the player, and the seats are only cleared if they still hold them
+        gameService.leaveSeats(username, id);
         connections.remove(command.getGameID(), username);
         var message = String.format("%s left the game", username);
         var serverMessage = new ServerMessage(ServerMessage.ServerMessageType.NOTIFICATION);
@@ -98,7 +223,7 @@ public class WebSocketHandler {
         connections.broadcast(id, username, serverMessage);
     }
 
-    private void makeMove(UserGameCommand command, Session session) throws IOException {
+    private void makeMove(UserGameCommand command) throws IOException, ResponseException {
         String username = command.getUsername();
         GameData gameData = command.getGameData();
         String white = gameData.whiteUsername();
@@ -106,43 +231,28 @@ public class WebSocketHandler {
         int gameId = command.getGameID();
         ChessGame chessGame = gameData.game();
         if (!username.equals(white) && !username.equals(black)) {
-            ServerMessage observerError = new ServerMessage(ServerMessage.ServerMessageType.ERROR);
-            observerError.setErrorMessage("You are not a player in this game");
-            session.getRemote().sendString(new Gson().toJson(observerError));
-            return;
+            throw new ResponseException(403, "You are not a player in this game");
         }
         String whoseTurn = switch (chessGame.getTeamTurn()) {
             case WHITE -> "WHITE";
             case BLACK -> "BLACK";
         };
         if ((username.equals(white) && whoseTurn.equals("BLACK")) || (username.equals(black) && whoseTurn.equals("WHITE"))) {
-            ServerMessage wrongTurnError = new ServerMessage(ServerMessage.ServerMessageType.ERROR);
-            wrongTurnError.setErrorMessage("Cannot move: It is not your turn");
-            session.getRemote().sendString(new Gson().toJson(wrongTurnError));
-            return;
+            throw new ResponseException(400, "Cannot move: It is not your turn");
         }
         if (!activeGames.get(gameId)) {
-            ServerMessage gameOverError = new ServerMessage(ServerMessage.ServerMessageType.ERROR);
-            gameOverError.setErrorMessage("Cannot move: This game is over.");
-            session.getRemote().sendString(new Gson().toJson(gameOverError));
-            return;
+            throw new ResponseException(400, "Cannot move: This game is over.");
         }
         ChessMove move = command.getMove();
-        try {
-            GameData afterMove = gameService.makeMove(command.getGameID(), move);
-            var loadMessage = new ServerMessage(ServerMessage.ServerMessageType.LOAD_GAME);
-            var gson = new GsonBuilder().enableComplexMapKeySerialization().create();
-            loadMessage.setGame(gson.toJson(afterMove));
-            connections.broadcast(gameId,"", loadMessage);
-            var notificationMessage = new ServerMessage(ServerMessage.ServerMessageType.NOTIFICATION);
-            notificationMessage.setMessage(prettyMovePrinter(username,move));
-            connections.broadcast(gameId, username, notificationMessage);
-            checkGameState(afterMove);
-        }
-        catch (ResponseException e) {
-            errorHandler(gameId, username, e);
-        }
-
+        GameData afterMove = gameService.makeMove(command.getGameID(), move);
+        command.setGameData(afterMove);
+        var loadMessage = new ServerMessage(ServerMessage.ServerMessageType.LOAD_GAME);
+        loadMessage.setGameData(afterMove);
+        connections.broadcast(gameId,"", loadMessage);
+        var notificationMessage = new ServerMessage(ServerMessage.ServerMessageType.NOTIFICATION);
+        notificationMessage.setMessage(prettyMovePrinter(username,move));
+        connections.broadcast(gameId, username, notificationMessage);
+        checkGameState(afterMove);
     }
 
     private String prettyMovePrinter(String username, ChessMove move) {
@@ -179,39 +289,120 @@ public class WebSocketHandler {
         return col + row;
     }
 
-    private void resign(UserGameCommand command, Session session) throws IOException {
+    private void resign(UserGameCommand command) throws IOException, ResponseException {
         String username = command.getUsername();
         GameData game = command.getGameData();
         int gameId = command.getGameID();
         if (!activeGames.get(gameId)) {
-            ServerMessage gameOverError = new ServerMessage(ServerMessage.ServerMessageType.ERROR);
-            gameOverError.setErrorMessage("Cannot resign: This game is over.");
-            session.getRemote().sendString(new Gson().toJson(gameOverError));
-            return;
+            throw new ResponseException(400, "Cannot resign: This game is over.");
         }
         if (username.equals(game.whiteUsername())) {
             ServerMessage serverMessage = new ServerMessage(ServerMessage.ServerMessageType.NOTIFICATION);
             serverMessage.setMessage(String.format("%s has resigned. %s wins!", username, game.blackUsername()));
-            activeGames.replace(gameId, false);
+            endGame(gameId);
             connections.broadcast(gameId, "", serverMessage);
         }
         else if (username.equals(game.blackUsername())) {
             ServerMessage serverMessage = new ServerMessage(ServerMessage.ServerMessageType.NOTIFICATION);
             serverMessage.setMessage(String.format("%s has resigned. %s wins!", username, game.whiteUsername()));
-            activeGames.replace(gameId, false);
+            endGame(gameId);
             connections.broadcast(gameId, "", serverMessage);
         }
         else {
-            ServerMessage errorMessage = new ServerMessage(ServerMessage.ServerMessageType.ERROR);
-            errorMessage.setErrorMessage("You cannot resign as an observer");
-            session.getRemote().sendString(new Gson().toJson(errorMessage));
+            throw new ResponseException(403, "You cannot resign as an observer");
+        }
+    }
+
+    //If a computer player is to move, hands its search to the engine pool so this thread is not held up
+    private void requestBotMove(GameData gameData) throws IOException {
+        int gameId = gameData.gameID();
+        ChessGame game = gameData.game();
+        if (!Boolean.TRUE.equals(activeGames.get(gameId))) {
+            return;
+        }
+        String seat = game.getTeamTurn() == ChessGame.TeamColor.WHITE ? gameData.whiteUsername() : gameData.blackUsername();
+        BotSettings bot = BotSettings.fromSeatName(seat);
+        if (bot == null || !botsThinking.add(gameId)) {
+            return;
+        }
+        SearchLimits limits = new SearchLimits(bot.depth(), bot.timeLimit(), 0);
+        //A search that fails frees the game, so the next move or reconnect asks the computer again
+        if (!engines.submit(Position.from(game), limits, result -> playBotMove(gameId, seat, result), failure -> {
+            System.out.println(failure.getMessage());
+            botsThinking.remove(gameId);
+        })) {
+            botsThinking.remove(gameId);
+            var busyMessage = new ServerMessage(ServerMessage.ServerMessageType.NOTIFICATION);
+            busyMessage.setMessage(String.format("%s is busy, reconnect to ask it to move again.", seat));
+            connections.broadcast(gameId, "", busyMessage);
+        }
+    }
+
+    //Runs on an engine thread, so it takes the game lock just like a command from a person would
+    private void playBotMove(int gameId, String seat, SearchResult result) {
+        Object gameLock = gameLocks.acquire(gameId);
+        try {
+            synchronized (gameLock) {
+                botsThinking.remove(gameId);
+                try {
+                    GameData gameData = gameService.getGame(gameId);
+                    ChessGame game = gameData.game();
+                    String onMove = game.getTeamTurn() == ChessGame.TeamColor.WHITE ? gameData.whiteUsername() : gameData.blackUsername();
+                    //The game may have ended or the seat changed while the engine was thinking
+                    if (result == null || result.bestMove() == null || !seat.equals(onMove)
+                            || !Boolean.TRUE.equals(activeGames.get(gameId))) {
+                        return;
+                    }
+                    var command = new UserGameCommand(UserGameCommand.CommandType.MAKE_MOVE, null, gameId);
+                    command.setUsername(seat);
+                    command.setGameData(gameData);
+                    command.setMove(result.bestMove());
+                    makeMove(command);
+                    //Lets two computers play each other
+                    requestBotMove(command.getGameData());
+                } catch (Exception e) {
+                    System.out.println(e.getMessage());
+                }
+            }
+        } finally {
+            gameLocks.release(gameId);
+        }
+    }
+
+    public void stop() {
+        heartbeat.stop();
+        lobby.stop();
+        engines.close();
+    }
+
+    private void reply(Session session, ServerMessage serverMessage) throws IOException {
+        if (Connection.usesBinaryProtocol(session)) {
+            session.getRemote().sendBytes(BinaryProtocol.encodeMessage(serverMessage));
+        }
+        else {
+            session.getRemote().sendString(serverMessage.toJson());
         }
     }
 
-    private void errorHandler(int gameId, String username, Exception error) throws IOException {
-        var serverErrorMessage = new ServerMessage(ServerMessage.ServerMessageType.ERROR);
-        serverErrorMessage.setErrorMessage(error.getMessage());
-        connections.send(gameId, username, serverErrorMessage);
+    //Errors always go back on the session that sent the command, as a NACK when it carried a sequence
+    private void reject(Session session, Long sequence, String error) throws IOException {
+        ServerMessage errorMessage;
+        if (sequence != null) {
+            errorMessage = new ServerMessage(ServerMessage.ServerMessageType.NACK);
+            errorMessage.setSequence(sequence);
+        }
+        else {
+            errorMessage = new ServerMessage(ServerMessage.ServerMessageType.ERROR);
+        }
+        errorMessage.setErrorMessage(error);
+        reply(session, errorMessage);
+    }
+
+    private void acknowledge(Session session, long sequence, String message) throws IOException {
+        ServerMessage ack = new ServerMessage(ServerMessage.ServerMessageType.ACK);
+        ack.setSequence(sequence);
+        ack.setMessage(message);
+        reply(session, ack);
     }
 
     private void checkGameState(GameData gameData) throws IOException {
@@ -222,28 +413,31 @@ public class WebSocketHandler {
             ServerMessage whiteInCheckmate = new ServerMessage(ServerMessage.ServerMessageType.NOTIFICATION);
             whiteInCheckmate.setMessage(String.format("%s is in checkmate. %s wins!", white, black));
             connections.broadcast(gameData.gameID(), "", whiteInCheckmate);
-            activeGames.replace(gameData.gameID(), false);
+            endGame(gameData.gameID());
             return;
         }
         if (game.isInCheckmate(ChessGame.TeamColor.BLACK)) {
             ServerMessage blackInCheckmate = new ServerMessage(ServerMessage.ServerMessageType.NOTIFICATION);
             blackInCheckmate.setMessage(String.format("%s is in checkmate. %s wins!", black, white));
             connections.broadcast(gameData.gameID(),"", blackInCheckmate);
-            activeGames.replace(gameData.gameID(), false);
+            endGame(gameData.gameID());
             return;
         }
         if (game.isInStalemate(ChessGame.TeamColor.WHITE)) {
             ServerMessage whiteInStalemate = new ServerMessage(ServerMessage.ServerMessageType.NOTIFICATION);
             whiteInStalemate.setMessage(String.format("%s is in stalemate. Draw.", white));
             connections.broadcast(gameData.gameID(),"", whiteInStalemate);
-            activeGames.replace(gameData.gameID(), false);
+            endGame(gameData.gameID());
             return;
         }
         if (game.isInStalemate(ChessGame.TeamColor.BLACK)) {
             ServerMessage blackInStalemate = new ServerMessage(ServerMessage.ServerMessageType.NOTIFICATION);
             blackInStalemate.setMessage(String.format("%s is in stalemate. Draw.", black));
             connections.broadcast(gameData.gameID(),"", blackInStalemate);
-            activeGames.replace(gameData.gameID(), false);
+            endGame(gameData.gameID());
+            return;
+        }
+        if (adjudicate(gameData)) {
             return;
         }
         if (game.isInCheck(ChessGame.TeamColor.WHITE)) {
@@ -258,6 +452,35 @@ public class WebSocketHandler {
         }
     }
 
+    //Ends the game early when the tablebase already knows how it finishes with best play
+    private boolean adjudicate(GameData gameData) throws IOException {
+        if (tablebase == null) {
+            return false;
+        }
+        TablebaseResult result = tablebase.probe(Position.from(gameData.game()));
+        if (result == null) {
+            return false;
+        }
+        boolean whiteToMove = gameData.game().getTeamTurn() == ChessGame.TeamColor.WHITE;
+        String toMove = whiteToMove ? gameData.whiteUsername() : gameData.blackUsername();
+        String other = whiteToMove ? gameData.blackUsername() : gameData.whiteUsername();
+        ServerMessage adjudication = new ServerMessage(ServerMessage.ServerMessageType.NOTIFICATION);
+        adjudication.setMessage(switch (result.outcome()) {
+            case WIN -> String.format("%s has a forced win according to the endgame tablebase. %s wins!", toMove, toMove);
+            case LOSS -> String.format("%s has a forced win according to the endgame tablebase. %s wins!", other, other);
+            case DRAW -> "Neither side can force a win according to the endgame tablebase. Draw.";
+        });
+        connections.broadcast(gameData.gameID(), "", adjudication);
+        endGame(gameData.gameID());
+        return true;
+    }
+
+    private void endGame(int gameId) {
+        activeGames.replace(gameId, false);
+        sequences.forget(gameId);
+        gameService.endGame(gameId);
+    }
+
     private String getUsername(String authToken) throws ResponseException {
         AuthData authData = authDAO.getAuth(authToken);
         if (authData == null) {
@@ -0,0 +1,155 @@
+package service;
+
+import chess.engine.Move;
+import chess.engine.OpeningBook;
+import chess.engine.Position;
+import chess.engine.SearchLimits;
+import chess.engine.SearchResult;
+import dataaccess.AuthDAO;
+import dataaccess.GameDAO;
+import exception.ResponseException;
+import model.AuthData;
+import model.GameData;
+import requestsresults.BookRequest;
+import requestsresults.BookResult;
+import requestsresults.HintRequest;
+import requestsresults.HintResult;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Answers questions about a game's position from the opening book and the engines.
+ * <p>
+ * Hints are cached by position key, so everyone watching a game gets the same answer
+ * without another search. Requests for a position that is already being searched wait
+ * for that search instead of starting their own.
+ */
+public class AnalysisService {
+    public static final long HINT_MILLIS = 500;
+    public static final int DEFAULT_CACHE_SIZE = 1024;
+
+    //How much longer than the search a request waits before giving up on it
+    private static final long GRACE_MILLIS = 5000;
+
+    private final GameDAO gameDAO;
+    private final AuthDAO authDAO;
+    private final OpeningBook book;
+    private final EnginePool engines;
+    private final long hintMillis;
+    private final Map<Long, HintResult> hints;
+    private final ConcurrentHashMap<Long, CompletableFuture<HintResult>> searching = new ConcurrentHashMap<>();
+
+    public AnalysisService(GameDAO gameDAOToUse, AuthDAO authDAOToUse, OpeningBook book) {
+        this(gameDAOToUse, authDAOToUse, book, null);
+    }
+
+    public AnalysisService(GameDAO gameDAOToUse, AuthDAO authDAOToUse, OpeningBook book, EnginePool engines) {
+        this(gameDAOToUse, authDAOToUse, book, engines, HINT_MILLIS, DEFAULT_CACHE_SIZE);
+    }
+
+    /**
+     * @param book the opening book to answer from, or null if the server has none
+     * @param engines searches hints, or null to turn hints off
+     * @param hintMillis how long each hint is searched
+     * @param cacheSize how many positions' hints to remember
+     */
+    public AnalysisService(GameDAO gameDAOToUse, AuthDAO authDAOToUse, OpeningBook book, EnginePool engines,
+                           long hintMillis, int cacheSize) {
+        gameDAO = gameDAOToUse;
+        authDAO = authDAOToUse;
+        this.book = book;
+        this.engines = engines;
+        this.hintMillis = hintMillis;
+        hints = new LinkedHashMap<>(cacheSize, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, HintResult> eldest) {
+                return size() > cacheSize;
+            }
+        };
+    }
+
+    public BookResult bookMoves(BookRequest bookReq) throws ResponseException {
+        GameData game = authorizedGame(bookReq.authToken(), bookReq.gameID());
+        ArrayList<BookResult.Choice> choices = new ArrayList<>();
+        if (book != null) {
+            for (OpeningBook.BookMove bookMove : book.moves(Position.from(game.game()))) {
+                choices.add(new BookResult.Choice(Move.toChessMove(bookMove.move()), bookMove.weight()));
+            }
+        }
+        return new BookResult(choices);
+    }
+
+    public HintResult hint(HintRequest hintReq) throws ResponseException {
+        GameData game = authorizedGame(hintReq.authToken(), hintReq.gameID());
+        if (engines == null) {
+            throw new ResponseException(503, "Error: analysis unavailable");
+        }
+        Position position = Position.from(game.game());
+        long key = position.key();
+        synchronized (hints) {
+            HintResult cached = hints.get(key);
+            if (cached != null) {
+                return cached;
+            }
+        }
+        CompletableFuture<HintResult> started = new CompletableFuture<>();
+        CompletableFuture<HintResult> pending = searching.putIfAbsent(key, started);
+        if (pending == null) {
+            pending = started;
+            //However the search ends the key is freed, before anyone waiting hears about it, so the
+            //next request reads the cache or searches again rather than joining a finished search
+            boolean queued = engines.submit(position, SearchLimits.ofTime(hintMillis), result -> {
+                HintResult hint;
+                try {
+                    hint = toHint(result);
+                    synchronized (hints) {
+                        hints.put(key, hint);
+                    }
+                } finally {
+                    searching.remove(key, started);
+                }
+                started.complete(hint);
+            }, failure -> {
+                searching.remove(key, started);
+                System.out.println(failure.getMessage());
+                started.completeExceptionally(failure);
+            });
+            if (!queued) {
+                searching.remove(key);
+                started.completeExceptionally(new ResponseException(503, "Error: engines are busy"));
+            }
+        }
+        try {
+            return pending.get(hintMillis + GRACE_MILLIS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ResponseException(503, "Error: engines are busy");
+        } catch (ExecutionException | TimeoutException e) {
+            throw new ResponseException(503, "Error: engines are busy");
+        }
+    }
+
+    private GameData authorizedGame(String authToken, int gameID) throws ResponseException {
+        AuthData auth = authDAO.getAuth(authToken);
+        if (auth == null) {
+            throw new ResponseException(401, "Error: Unauthorized");
+        }
+        GameData game = gameDAO.getGame(gameID);
+        if (game == null) {
+            throw new ResponseException(400, "Error: bad request");
+        }
+        return game;
+    }
+
+    private static HintResult toHint(SearchResult result) {
+        return new HintResult(result.bestMove(), result.score(), result.mateIn(), result.depth(),
+                new ArrayList<>(result.principalVariation()));
+    }
+}
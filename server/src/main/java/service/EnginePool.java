@@ -0,0 +1,124 @@
+package service;
+
+import chess.engine.Engine;
+import chess.engine.Evaluator;
+import chess.engine.OpeningBook;
+import chess.engine.TaperedEvaluator;
+import chess.engine.Position;
+import chess.engine.SearchLimits;
+import chess.engine.SearchResult;
+import chess.engine.Tablebase;
+import chess.engine.TranspositionTable;
+
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * A fixed number of engine threads with a bounded queue in front of them.
+ * <p>
+ * Searches take far longer than anything else the server does, so they never run on the
+ * threads serving requests and websockets. Each worker keeps its own Engine and table for
+ * its whole life, which saves reallocating them and lets a worker reuse what it learned
+ * about a game on the next move. When the queue is full new searches are turned away
+ * instead of piling up.
+ */
+public class EnginePool implements AutoCloseable {
+    public static final int DEFAULT_QUEUE_SIZE = 64;
+    public static final int DEFAULT_TABLE_MEGABYTES = 16;
+
+    private final ThreadPoolExecutor executor;
+    private final Set<Engine> engines = ConcurrentHashMap.newKeySet();
+    private final ThreadLocal<Engine> workerEngine;
+
+    public EnginePool() {
+        this(null);
+    }
+
+    public EnginePool(OpeningBook book) {
+        this(book, null);
+    }
+
+    public EnginePool(OpeningBook book, Tablebase tablebase) {
+        this(Math.max(1, Runtime.getRuntime().availableProcessors() / 2), DEFAULT_QUEUE_SIZE, DEFAULT_TABLE_MEGABYTES,
+                book, tablebase);
+    }
+
+    /**
+     * @param book answers positions it knows without searching, may be null
+     * @param tablebase scores endgames exactly during the search, may be null
+     */
+    public EnginePool(int threads, int queueSize, int tableMegabytes, OpeningBook book, Tablebase tablebase) {
+        this(threads, queueSize, tableMegabytes, book, tablebase, TaperedEvaluator::new);
+    }
+
+    //Package private so tests can give the workers an evaluator that fails
+    EnginePool(int threads, int queueSize, int tableMegabytes, OpeningBook book, Tablebase tablebase,
+               Supplier<Evaluator> evaluators) {
+        AtomicInteger count = new AtomicInteger();
+        executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueSize), runnable -> {
+                    Thread thread = new Thread(runnable, "engine-worker-" + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        workerEngine = ThreadLocal.withInitial(() -> {
+            Engine engine = new Engine(evaluators.get(), new TranspositionTable(tableMegabytes));
+            engine.setBook(book);
+            engine.setTablebase(tablebase);
+            engines.add(engine);
+            return engine;
+        });
+    }
+
+    //Queues a search whose failures are only logged
+    public boolean submit(Position position, SearchLimits limits, Consumer<SearchResult> onResult) {
+        return submit(position, limits, onResult, failure -> System.out.println(failure.getMessage()));
+    }
+
+    /**
+     * Queues a search
+     *
+     * @param onResult called on the worker thread with the finished search
+     * @param onFailure called on the worker thread instead if the search, or onResult, throws
+     * @return false if the pool is saturated and the search was not queued
+     */
+    public boolean submit(Position position, SearchLimits limits, Consumer<SearchResult> onResult,
+                          Consumer<Throwable> onFailure) {
+        try {
+            executor.execute(() -> {
+                try {
+                    onResult.accept(workerEngine.get().search(position, limits, result -> { }));
+                } catch (Throwable e) {
+                    onFailure.accept(e);
+                }
+            });
+            return true;
+        } catch (RejectedExecutionException e) {
+            return false;
+        }
+    }
+
+    public int threads() {
+        return executor.getMaximumPoolSize();
+    }
+
+    //Searches waiting for a free worker
+    public int queued() {
+        return executor.getQueue().size();
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+        for (Engine engine : engines) {
+            engine.stop();
+        }
+    }
+}
@@ -0,0 +1,245 @@
+package service;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.InvalidMoveException;
+import chess.engine.Engine;
+import chess.engine.Position;
+import chess.engine.SearchLimits;
+import chess.engine.SearchResult;
+import chess.engine.TaperedEvaluator;
+import chess.engine.TranspositionTable;
+import dataaccess.AnalysisDAO;
+import dataaccess.GameDAO;
+import model.GameAnalysis;
+import model.GameData;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.stream.Stream;
+
+/**
+ * A batch job that annotates finished games with the engine's opinion of every move.
+ * <p>
+ * Games are streamed from the GameDAO one at a time and replayed from their move history.
+ * The positions of one game are searched at a fixed depth in parallel on a fork-join pool,
+ * then each move is judged by how much it lowered the mover's winning chances. The pool's
+ * threads run at low priority, and the job pauses between games and can be capped per run,
+ * so it can share the machine with live games.
+ */
+public class GameAnalyzer implements AutoCloseable {
+    public static final int DEFAULT_DEPTH = 8;
+    public static final long DEFAULT_PAUSE_MILLIS = 100;
+
+    //Scores past a clear win all look the same to a player, so they are capped before judging moves
+    private static final int MAX_CENTIPAWNS = 1000;
+    private static final int TABLE_MEGABYTES = 4;
+
+    /**
+     * @param depth plies searched for each position
+     * @param parallelism threads searching at once
+     * @param pauseMillis rest between games, giving live traffic the machine
+     * @param maxGames games to analyse per run, 0 for no limit
+     */
+    public record Settings(int depth, int parallelism, long pauseMillis, int maxGames) {
+
+        public static Settings defaults() {
+            return new Settings(DEFAULT_DEPTH, Math.max(1, Runtime.getRuntime().availableProcessors() / 4),
+                    DEFAULT_PAUSE_MILLIS, 0);
+        }
+    }
+
+    private final GameDAO gameDAO;
+    private final AnalysisDAO analysisDAO;
+    private final Settings settings;
+    private final ForkJoinPool pool;
+    private final Set<Engine> engines = ConcurrentHashMap.newKeySet();
+    private final ThreadLocal<Engine> workerEngine;
+    private volatile boolean closed;
+
+    public GameAnalyzer(GameDAO gameDAO, AnalysisDAO analysisDAO, Settings settings) {
+        this.gameDAO = gameDAO;
+        this.analysisDAO = analysisDAO;
+        this.settings = settings;
+        pool = new ForkJoinPool(settings.parallelism(), forkJoinPool -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(forkJoinPool);
+            thread.setName("analysis-worker-" + thread.getPoolIndex());
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        }, null, false);
+        workerEngine = ThreadLocal.withInitial(() -> {
+            Engine engine = new Engine(new TaperedEvaluator(), new TranspositionTable(TABLE_MEGABYTES));
+            engines.add(engine);
+            return engine;
+        });
+    }
+
+    /**
+     * Analyses the finished games that have no analysis yet
+     *
+     * @return how many games were analysed
+     */
+    public int run() {
+        int analyzed = 0;
+        try (Stream<GameData> games = gameDAO.streamGames()) {
+            Iterator<GameData> finished = games.filter(game -> game.game().isGameOver()).iterator();
+            while (finished.hasNext() && !closed && (settings.maxGames() == 0 || analyzed < settings.maxGames())) {
+                GameData game = finished.next();
+                if (analysisDAO.getAnalysis(game.gameID()) != null) {
+                    continue;
+                }
+                GameAnalysis analysis = analyze(game);
+                if (analysis == null) {
+                    continue;
+                }
+                analysisDAO.saveAnalysis(analysis);
+                analyzed++;
+                if (!pause()) {
+                    break;
+                }
+            }
+        }
+        return analyzed;
+    }
+
+    /**
+     * @return the game's annotations, or null if its history can't be replayed from the starting board
+     */
+    public GameAnalysis analyze(GameData gameData) {
+        List<ChessMove> history = gameData.game().getMoveHistory();
+        ChessGame replay = new ChessGame();
+        Position[] positions = new Position[history.size() + 1];
+        for (int ply = 0; ply < history.size(); ply++) {
+            positions[ply] = Position.from(replay);
+            try {
+                replay.makeMove(history.get(ply));
+            } catch (InvalidMoveException e) {
+                return null;
+            }
+        }
+        positions[history.size()] = Position.from(replay);
+        //A game whose board was set directly has a history that doesn't lead to its position
+        if (!replay.getBoard().equals(gameData.game().getBoard())) {
+            return null;
+        }
+
+        SearchResult[] results = new SearchResult[positions.length];
+        try {
+            pool.invoke(new Evaluate(positions, results, 0, positions.length));
+        } catch (RejectedExecutionException | CancellationException e) {
+            return null;
+        }
+        //Searches cut short by close are not worth keeping
+        if (closed) {
+            return null;
+        }
+
+        ArrayList<GameAnalysis.MoveAnnotation> moves = new ArrayList<>();
+        double[] accuracySum = new double[2];
+        for (int ply = 0; ply < history.size(); ply++) {
+            GameAnalysis.MoveAnnotation annotation = annotate(ply, history.get(ply), results[ply], results[ply + 1]);
+            moves.add(annotation);
+            accuracySum[ply % 2] += annotation.accuracy();
+        }
+        int whiteMoves = (history.size() + 1) / 2;
+        int blackMoves = history.size() / 2;
+        return new GameAnalysis(gameData.gameID(), settings.depth(), moves,
+                whiteMoves == 0 ? 100 : accuracySum[0] / whiteMoves,
+                blackMoves == 0 ? 100 : accuracySum[1] / blackMoves);
+    }
+
+    static GameAnalysis.MoveAnnotation annotate(int ply, ChessMove played, SearchResult before, SearchResult after) {
+        ChessMove best = before.bestMove();
+        if (played.equals(best)) {
+            return new GameAnalysis.MoveAnnotation(ply, played, best, 0, 100, GameAnalysis.Judgement.BEST);
+        }
+        int scoreBefore = centipawns(before.score());
+        //The next search scores the position for the opponent
+        int scoreAfter = -centipawns(after.score());
+        int loss = Math.max(0, scoreBefore - scoreAfter);
+        double drop = Math.max(0, winPercent(scoreBefore) - winPercent(scoreAfter));
+        double accuracy = Math.max(0, Math.min(100, 103.1668 * Math.exp(-0.04354 * drop) - 3.1669));
+        GameAnalysis.Judgement judgement;
+        if (drop >= 30) {
+            judgement = GameAnalysis.Judgement.BLUNDER;
+        }
+        else if (drop >= 20) {
+            judgement = GameAnalysis.Judgement.MISTAKE;
+        }
+        else if (drop >= 10) {
+            judgement = GameAnalysis.Judgement.INACCURACY;
+        }
+        else {
+            judgement = GameAnalysis.Judgement.GOOD;
+        }
+        return new GameAnalysis.MoveAnnotation(ply, played, best, loss, accuracy, judgement);
+    }
+
+    private static int centipawns(int score) {
+        if (Math.abs(score) >= Engine.MATE - Engine.MAX_PLY) {
+            return score > 0 ? MAX_CENTIPAWNS : -MAX_CENTIPAWNS;
+        }
+        return Math.max(-MAX_CENTIPAWNS, Math.min(MAX_CENTIPAWNS, score));
+    }
+
+    //Chance of winning from a score, on the curve fitted to rated online games
+    static double winPercent(int centipawns) {
+        return 50 + 50 * (2 / (1 + Math.exp(-0.00368208 * centipawns)) - 1);
+    }
+
+    private boolean pause() {
+        if (settings.pauseMillis() <= 0) {
+            return true;
+        }
+        try {
+            Thread.sleep(settings.pauseMillis());
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        pool.shutdownNow();
+        for (Engine engine : engines) {
+            engine.stop();
+        }
+    }
+
+    //Splits a game's positions in half until each task has one position to search
+    private class Evaluate extends RecursiveAction {
+        private final Position[] positions;
+        private final SearchResult[] results;
+        private final int start;
+        private final int end;
+
+        Evaluate(Position[] positions, SearchResult[] results, int start, int end) {
+            this.positions = positions;
+            this.results = results;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        protected void compute() {
+            if (end - start == 1) {
+                results[start] = workerEngine.get().search(positions[start], SearchLimits.ofDepth(settings.depth()),
+                        result -> { });
+                return;
+            }
+            int middle = (start + end) >>> 1;
+            invokeAll(new Evaluate(positions, results, start, middle), new Evaluate(positions, results, middle, end));
+        }
+    }
+}
@@ -7,23 +7,39 @@ import dataaccess.*;
 import exception.ResponseException;
 import model.AuthData;
 import model.GameData;
+import model.LobbyEvent;
 import requestsresults.*;
 
 import java.util.ArrayList;
-import java.util.HashSet;
+import java.util.List;
 import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
 
 public class GameService {
     private final GameDAO gameDAO;
     private final AuthDAO authDAO;
     private final Random random;
-    private final HashSet<Integer> usedIDs;
+    private final Set<Integer> usedIDs;
+    private final long startedAt = System.currentTimeMillis();
+    private final List<Consumer<LobbyEvent>> lobbyListeners = new CopyOnWriteArrayList<>();
 
     public void verifyAuth(String authToken) throws ResponseException {
+        authenticate(authToken);
+    }
+
+    /**
+     * Reads the caller's auth once per request. Routes that need both a check and the username
+     * hold on to the result instead of reading it again.
+     */
+    public AuthData authenticate(String authToken) throws ResponseException {
         AuthData auth = authDAO.getAuth(authToken);
         if (auth == null) {
             throw new ResponseException(401, "Error: Unauthorized");
         }
+        return auth;
     }
 
     public GameData getGame(int gameId) throws ResponseException {
@@ -38,15 +54,45 @@ public class GameService {
         gameDAO = gameDAOToUse;
         authDAO = authDAOToUse;
         random = new Random();
-        usedIDs = new HashSet<>();
+        usedIDs = ConcurrentHashMap.newKeySet();
+        //Games restored from a snapshot or left in the database keep their IDs, so new games must not reuse them
+        for (GameData game : gameDAO.listGames()) {
+            usedIDs.add(game.gameID());
+        }
+    }
+
+    //Listeners hear about every game created, seat taken or left and game ended, on the thread that changed it
+    public void addLobbyListener(Consumer<LobbyEvent> listener) {
+        lobbyListeners.add(listener);
     }
 
     public ListResult list(ListRequest listReq) throws ResponseException{
         verifyAuth(listReq.authToken());
+        return list();
+    }
+
+    //Every user sees the same list, for a caller that has already authenticated the request
+    public ListResult list() {
         ArrayList<GameData> allGames = gameDAO.listGames();
         return new ListResult(allGames);
     }
 
+    /**
+     * An ETag for the game list, which changes whenever any game does. Every user sees the same
+     * list, so a client already holding the list with this tag has nothing new to fetch.
+     * Read it before the list: a game changing in between then only makes the tag older than the list.
+     */
+    public String listTag(ListRequest listReq) throws ResponseException {
+        verifyAuth(listReq.authToken());
+        return listTag();
+    }
+
+    //For a caller that has already authenticated the request
+    public String listTag() {
+        //The start time tells lists from before a restart apart, when the version starts over
+        return String.format("\"%d-%d\"", startedAt, gameDAO.version());
+    }
+
     public CreateResult create(CreateRequest createReq) throws ResponseException {
         verifyAuth(createReq.authToken());
         if (createReq.gameName() == null) {
@@ -54,58 +100,76 @@ public class GameService {
         }
         ChessGame newGame = new ChessGame();
         int id = Math.abs(random.nextInt());
-        while (usedIDs.contains(id) || id == 0) {
+        //add is the check, so two games created at once can't be handed the same ID
+        while (id == 0 || !usedIDs.add(id)) {
             id = random.nextInt();
         }
-        usedIDs.add(id);
-        gameDAO.createGame(new GameData(id, null, null, createReq.gameName(), newGame));
+        GameData created = new GameData(id, null, null, createReq.gameName(), newGame);
+        gameDAO.createGame(created);
+        publish(LobbyEvent.of(LobbyEvent.Kind.CREATED, created));
         return new CreateResult(id);
     }
 
     public JoinResult join(JoinRequest joinReq) throws ResponseException, DataAccessException{
-        verifyAuth(joinReq.authToken());
-        String username = authDAO.getAuth(joinReq.authToken()).user();
-        GameData gameToJoin = gameDAO.getGame(joinReq.gameID());
-        if (gameToJoin == null || joinReq.playerColor() == null) {
-            throw new ResponseException(400, "Error: bad request");
-        }
-        if (joinReq.playerColor().equals("WHITE")) {
-            if (gameToJoin.whiteUsername() != null) {
-                throw new ResponseException(403, "Error: already taken");
+        AuthData auth = authenticate(joinReq.authToken());
+        String username;
+        if (joinReq.bot() != null) {
+            if (!joinReq.bot().isValid()) {
+                throw new ResponseException(400, "Error: bad request");
             }
-            GameData updatedGame = new GameData(joinReq.gameID(), username, gameToJoin.blackUsername(), gameToJoin.gameName(), gameToJoin.game());
-            gameDAO.updateGame(updatedGame);
+            username = joinReq.bot().seatName();
         }
-        else if (joinReq.playerColor().equals("BLACK")) {
-            if (gameToJoin.blackUsername() != null) {
-                throw new ResponseException(403, "Error: already taken");
-            }
-            GameData updatedGame = new GameData(joinReq.gameID(), gameToJoin.whiteUsername(), username, gameToJoin.gameName(), gameToJoin.game());
-            gameDAO.updateGame(updatedGame);
+        else {
+            username = auth.user();
+        }
+        ChessGame.TeamColor color;
+        if ("WHITE".equals(joinReq.playerColor())) {
+            color = ChessGame.TeamColor.WHITE;
+        }
+        else if ("BLACK".equals(joinReq.playerColor())) {
+            color = ChessGame.TeamColor.BLACK;
         }
         else {
             throw new ResponseException(400, "Error: bad request");
         }
+        //Checking the seat and taking it is one step in the DAO, so of two players joining at once only one gets it
+        GameData claimed;
+        try {
+            claimed = gameDAO.claimSeat(joinReq.gameID(), color, username);
+        }
+        catch (GameNotFoundException e) {
+            throw new ResponseException(400, "Error: bad request");
+        }
+        catch (DataAccessException e) {
+            throw new ResponseException(500, String.format("Error: %s", e.getMessage()));
+        }
+        if (claimed == null) {
+            throw new ResponseException(403, "Error: already taken");
+        }
+        publish(LobbyEvent.of(LobbyEvent.Kind.SEAT_TAKEN, claimed));
         return new JoinResult();
     }
 
     public void removePlayer(String authToken, int id) throws ResponseException, DataAccessException {
-        verifyAuth(authToken);
-        String username = authDAO.getAuth(authToken).user();
-        GameData gameToJoin = gameDAO.getGame(id);
-        if (gameToJoin == null) {
+        String username = authenticate(authToken).user();
+        try {
+            leaveSeats(username, id);
+        }
+        catch (GameNotFoundException e) {
             throw new ResponseException(400, "Error: bad request");
         }
-        if (gameToJoin.whiteUsername() != null) {
-            if (gameToJoin.whiteUsername().equals(username)) {
-                GameData updatedGame = new GameData(id, null, gameToJoin.blackUsername(), gameToJoin.gameName(), gameToJoin.game());
-                gameDAO.updateGame(updatedGame);
-            }
+        catch (DataAccessException e) {
+            throw new ResponseException(500, String.format("Error: %s", e.getMessage()));
         }
-        if (gameToJoin.blackUsername() != null) {
-            if (gameToJoin.blackUsername().equals(username)) {
-                GameData updatedGame = new GameData(id, gameToJoin.whiteUsername(), null, gameToJoin.gameName(), gameToJoin.game());
-                gameDAO.updateGame(updatedGame);
+    }
+
+    //For callers that already know who the player is, such as a websocket command
+    public void leaveSeats(String username, int id) throws DataAccessException {
+        //Each seat is only cleared if this player still holds it, so a seat taken meanwhile is left alone
+        for (ChessGame.TeamColor color : ChessGame.TeamColor.values()) {
+            GameData updatedGame = gameDAO.releaseSeat(id, color, username);
+            if (updatedGame != null) {
+                publish(LobbyEvent.of(LobbyEvent.Kind.SEAT_LEFT, updatedGame));
             }
         }
         //else, Player wasn't in this game, most likely an observer
@@ -116,12 +180,39 @@ public class GameService {
             GameData gameData = gameDAO.getGame(id);
             ChessGame game = gameData.game();
             game.makeMove(move);
-            GameData updatedData = new GameData(id, gameData.whiteUsername(), gameData.blackUsername(), gameData.gameName(), game);
-            gameDAO.updateGame(updatedData);
-            return updatedData;
+            //Only the board is written, the seats may have changed since it was read
+            gameDAO.saveGame(id, game);
+            return new GameData(id, gameData.whiteUsername(), gameData.blackUsername(), gameData.gameName(), game);
         }
         catch (Exception e) {
             throw new ResponseException(500, e.getMessage());
         }
     }
+
+    //Records that a game has ended so it stays over after a restart and can be analysed
+    public void endGame(int id) {
+        GameData gameData = gameDAO.getGame(id);
+        if (gameData == null || gameData.game().isGameOver()) {
+            return;
+        }
+        gameData.game().setGameOver(true);
+        try {
+            gameDAO.saveGame(id, gameData.game());
+        }
+        catch (DataAccessException e) {
+            System.out.println(e.getMessage());
+        }
+        publish(LobbyEvent.of(LobbyEvent.Kind.ENDED, gameData));
+    }
+
+    private void publish(LobbyEvent event) {
+        for (Consumer<LobbyEvent> listener : lobbyListeners) {
+            try {
+                listener.accept(event);
+            }
+            catch (RuntimeException e) {
+                System.out.println(e.getMessage());
+            }
+        }
+    }
 }
@@ -0,0 +1,153 @@
+package service;
+
+import exception.ResponseException;
+import org.mindrot.jbcrypt.BCrypt;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs BCrypt on its own threads with a bounded queue in front of them.
+ * <p>
+ * BCrypt is slow on purpose, tens of milliseconds per call at the default work factor, so a
+ * burst of logins and registrations on the request threads would hold up every other route.
+ * Here at most one hash runs per worker, a limited number wait, and anything beyond that is
+ * answered with a 503 straight away instead of queueing behind work that can't finish in time.
+ */
+public class PasswordHasher implements AutoCloseable {
+    public static final int DEFAULT_WORK_FACTOR = 10;
+    public static final int DEFAULT_QUEUE_SIZE = 64;
+    public static final long DEFAULT_TIMEOUT_MILLIS = 5_000;
+
+    private final ThreadPoolExecutor executor;
+    private final int workFactor;
+    private final long timeoutMillis;
+    private final AtomicLong hashes = new AtomicLong();
+    private final AtomicLong checks = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong totalNanos = new AtomicLong();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    /**
+     * Latency of the hashes and checks run so far, measured on the worker so time spent
+     * queued isn't counted
+     */
+    public record Stats(long hashes, long checks, long rejected, int queued, double meanMillis, double maxMillis) {}
+
+    public PasswordHasher() {
+        this(DEFAULT_WORK_FACTOR);
+    }
+
+    public PasswordHasher(int workFactor) {
+        this(Runtime.getRuntime().availableProcessors(), DEFAULT_QUEUE_SIZE, workFactor, DEFAULT_TIMEOUT_MILLIS);
+    }
+
+    /**
+     * @param workFactor log2 of the BCrypt rounds for new hashes, existing hashes keep the one they were made with
+     * @param timeoutMillis how long a request thread waits for its hash before giving up with a 503
+     */
+    public PasswordHasher(int threads, int queueSize, int workFactor, long timeoutMillis) {
+        if (workFactor < 4 || workFactor > 30) {
+            throw new IllegalArgumentException("BCrypt work factor must be between 4 and 30: " + workFactor);
+        }
+        this.workFactor = workFactor;
+        this.timeoutMillis = timeoutMillis;
+        AtomicInteger count = new AtomicInteger();
+        executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueSize), runnable -> {
+                    Thread thread = new Thread(runnable, "password-hasher-" + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        //Logins come in bursts, idle workers don't need to stay around between them
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Queues a new salted hash of password
+     *
+     * @throws ResponseException 503 if the pool is saturated
+     */
+    public Future<String> hashAsync(String password) throws ResponseException {
+        return submit(() -> BCrypt.hashpw(password, BCrypt.gensalt(workFactor)), hashes);
+    }
+
+    /**
+     * Queues a check of password against a stored hash
+     *
+     * @throws ResponseException 503 if the pool is saturated
+     */
+    public Future<Boolean> checkAsync(String password, String hash) throws ResponseException {
+        return submit(() -> BCrypt.checkpw(password, hash), checks);
+    }
+
+    public String hash(String password) throws ResponseException {
+        return await(hashAsync(password));
+    }
+
+    public boolean check(String password, String hash) throws ResponseException {
+        return await(checkAsync(password, hash));
+    }
+
+    //True for anything BCrypt wrote, plain text passwords left from before hashing don't look like this
+    public static boolean isHash(String stored) {
+        return stored != null && stored.length() == 60 && stored.startsWith("$2");
+    }
+
+    public int workFactor() {
+        return workFactor;
+    }
+
+    public Stats stats() {
+        long done = hashes.get() + checks.get();
+        double mean = done == 0 ? 0 : totalNanos.get() / 1e6 / done;
+        return new Stats(hashes.get(), checks.get(), rejected.get(), executor.getQueue().size(), mean, maxNanos.get() / 1e6);
+    }
+
+    //Package private so tests can hold a worker busy
+    <T> Future<T> submit(Callable<T> work, AtomicLong counter) throws ResponseException {
+        try {
+            return executor.submit(() -> {
+                long start = System.nanoTime();
+                try {
+                    return work.call();
+                } finally {
+                    long elapsed = System.nanoTime() - start;
+                    totalNanos.addAndGet(elapsed);
+                    maxNanos.accumulateAndGet(elapsed, Math::max);
+                    counter.incrementAndGet();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rejected.incrementAndGet();
+            throw new ResponseException(503, "Error: server busy, try again");
+        }
+    }
+
+    private <T> T await(Future<T> result) throws ResponseException {
+        try {
+            return result.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            result.cancel(true);
+            throw new ResponseException(503, "Error: server busy, try again");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ResponseException(503, "Error: server busy, try again");
+        } catch (ExecutionException e) {
+            throw new ResponseException(500, String.format("Error: %s", e.getCause().getMessage()));
+        }
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+}
@@ -2,8 +2,8 @@ package service;
 import dataaccess.*;
 import exception.ResponseException;
 import model.AuthData;
+import model.BotSettings;
 import model.UserData;
-import org.mindrot.jbcrypt.BCrypt;
 import requestsresults.*;
 
 import java.util.UUID;
@@ -12,43 +12,51 @@ public class UserService {
 
     private final UserDAO userDAO;
     private final AuthDAO authDAO;
+    private final PasswordHasher hasher;
 
     public UserService(UserDAO userDAOToUse, AuthDAO authDAOToUse) {
+        this(userDAOToUse, authDAOToUse, new PasswordHasher());
+    }
+
+    public UserService(UserDAO userDAOToUse, AuthDAO authDAOToUse, PasswordHasher hasherToUse) {
         userDAO = userDAOToUse;
         authDAO = authDAOToUse;
+        hasher = hasherToUse;
     }
 
     public RegisterResult register(RegisterRequest registerRequest) throws ResponseException {
         if (registerRequest.username() == null || registerRequest.password() == null || registerRequest.email() == null) {
             throw new ResponseException(400, "Error: bad request");
         }
-        if (userDAO.getUser(registerRequest.username()) == null) {
-            UserData newUser = new UserData(registerRequest.username(), registerRequest.password(), registerRequest.email());
-            userDAO.createUser(newUser);
-            String newAuthToken = UUID.randomUUID().toString();
-            AuthData newAuth = new AuthData(newAuthToken, registerRequest.username());
-            authDAO.createAuth(newAuth);
-            return new RegisterResult(registerRequest.username(), newAuthToken);
+        if (BotSettings.isBotName(registerRequest.username())) {
+            throw new ResponseException(403, "Error: Already Taken");
         }
-        else {
+        //Hashed on the hasher's threads, a 503 here means too many logins and registrations are already waiting
+        String hashedPass = hasher.hash(registerRequest.password());
+        UserData newUser = new UserData(registerRequest.username(), hashedPass, registerRequest.email());
+        //One insert both checks the name is free and claims it, so two registrations can't both get it
+        if (!userDAO.createUser(newUser)) {
             throw new ResponseException(403, "Error: Already Taken");
         }
+        String newAuthToken = UUID.randomUUID().toString();
+        AuthData newAuth = new AuthData(newAuthToken, registerRequest.username());
+        authDAO.createAuth(newAuth);
+        return new RegisterResult(registerRequest.username(), newAuthToken);
     }
 
     public LoginResult login(LoginRequest loginRequest) throws ResponseException {
         String username = loginRequest.username();
         String password = loginRequest.password();
         UserData user = userDAO.getUser(username);
-        if (user != null) {
-            try {
-                if (user.password().equals(password) || BCrypt.checkpw(password, user.password())) {
-                    String newAuthToken = UUID.randomUUID().toString();
-                    AuthData newAuth = new AuthData(newAuthToken, username);
-                    authDAO.createAuth(newAuth);
-                    return new LoginResult(username, newAuthToken);
-                }
-            } catch (Exception e) {
-                throw new ResponseException(401, "Error: unauthorized");
+        if (user != null && password != null) {
+            //Only passwords stored before they were hashed are compared as text, so a stolen hash can't be sent as the password
+            boolean matches = PasswordHasher.isHash(user.password())
+                    ? hasher.check(password, user.password()) : user.password().equals(password);
+            if (matches) {
+                String newAuthToken = UUID.randomUUID().toString();
+                AuthData newAuth = new AuthData(newAuthToken, username);
+                authDAO.createAuth(newAuth);
+                return new LoginResult(username, newAuthToken);
             }
         }
         throw new ResponseException(401, "Error: unauthorized");
@@ -64,4 +72,8 @@ public class UserService {
         return new LogoutResult();
     }
 
+    public PasswordHasher.Stats hashStats() {
+        return hasher.stats();
+    }
+
 }
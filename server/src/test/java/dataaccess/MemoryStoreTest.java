@@ -0,0 +1,80 @@
+package dataaccess;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPosition;
+import chess.InvalidMoveException;
+import model.AuthData;
+import model.GameAnalysis;
+import model.GameData;
+import model.UserData;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MemoryStoreTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    @DisplayName("Snapshot Carries Everything Across A Restart")
+    void snapshotRoundTrip() throws IOException, InvalidMoveException, DataAccessException {
+        Path file = directory.resolve("store.json");
+        ChessGame game = new ChessGame();
+        ChessMove e4 = new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null);
+        game.makeMove(e4);
+        GameAnalysis analysis = new GameAnalysis(7, 3, new ArrayList<>(List.of(new GameAnalysis.MoveAnnotation(0, e4,
+                e4, 0, 100, GameAnalysis.Judgement.BEST))), 100, 0);
+        try (MemoryStore store = new MemoryStore(file)) {
+            store.users().createUser(new UserData("alice", "hash", "alice@test.test"));
+            store.auths().createAuth(new AuthData("token", "alice"));
+            store.auths().createAuth(new AuthData("gone", "alice"));
+            store.auths().deleteAuth(new AuthData("gone", "alice"));
+            store.games().createGame(new GameData(7, "alice", null, "game", game));
+            store.games().claimSeat(7, ChessGame.TeamColor.BLACK, "bob");
+            store.analyses().saveAnalysis(analysis);
+        }
+        assertTrue(Files.exists(file));
+
+        MemoryStore reopened = new MemoryStore(file);
+        assertEquals(new UserData("alice", "hash", "alice@test.test"), reopened.users().getUser("alice"));
+        assertEquals(new AuthData("token", "alice"), reopened.auths().getAuth("token"));
+        assertNull(reopened.auths().getAuth("gone"));
+        GameData read = reopened.games().getGame(7);
+        assertEquals("bob", read.blackUsername());
+        assertEquals(game, read.game());
+        assertEquals(List.of(e4), read.game().getMoveHistory());
+        assertEquals(analysis, reopened.analyses().getAnalysis(7));
+    }
+
+    @Test
+    @DisplayName("Store Without A Snapshot Starts Empty")
+    void noSnapshot() throws IOException {
+        Path file = directory.resolve("missing.json");
+        MemoryStore store = new MemoryStore(file);
+        assertTrue(store.games().listGames().isEmpty());
+        assertNull(store.users().getUser("alice"));
+        new MemoryStore().close();
+        assertFalse(Files.exists(file));
+    }
+
+    @Test
+    @DisplayName("Games Read Are Copies")
+    void gamesCopied() throws InvalidMoveException {
+        MemoryGameDAO games = new MemoryGameDAO();
+        games.createGame(new GameData(1, null, null, "game", new ChessGame()));
+        GameData read = games.getGame(1);
+        read.game().makeMove(new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null));
+        //Nothing changes for other readers until the move is written back
+        assertEquals(new ChessGame(), games.getGame(1).game());
+        assertEquals(new ChessGame(), games.listGames().get(0).game());
+    }
+}
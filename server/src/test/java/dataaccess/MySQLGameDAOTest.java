@@ -162,6 +162,39 @@ class MySQLGameDAOTest {
         }
     }
 
+    @Test
+    @DisplayName("Claim empty seat")
+    void claimSeat() throws DataAccessException {
+        gameDAO.createGame(new GameData(-5, null, "b", "game5", rawGame));
+        GameData claimed = gameDAO.claimSeat(-5, ChessGame.TeamColor.WHITE, "w");
+        assertNotNull(claimed);
+        assertEquals("w", claimed.whiteUsername());
+        assertEquals("b", claimed.blackUsername());
+        assertNull(gameDAO.claimSeat(-5, ChessGame.TeamColor.WHITE, "other"));
+        assertNull(gameDAO.claimSeat(-5, ChessGame.TeamColor.BLACK, "other"));
+        assertEquals("w", gameDAO.getGame(-5).whiteUsername());
+        assertEquals(rawGame, gameDAO.getGame(-5).game());
+        assertThrows(DataAccessException.class, () -> gameDAO.claimSeat(-6, ChessGame.TeamColor.WHITE, "w"));
+    }
+
+    @Test
+    @DisplayName("Release and save leave the other columns alone")
+    void releaseAndSave() throws DataAccessException, InvalidMoveException {
+        gameDAO.createGame(new GameData(-7, "w", "b", "game7", new ChessGame()));
+        assertNull(gameDAO.releaseSeat(-7, ChessGame.TeamColor.WHITE, "someoneElse"));
+        GameData released = gameDAO.releaseSeat(-7, ChessGame.TeamColor.WHITE, "w");
+        assertNotNull(released);
+        assertNull(released.whiteUsername());
+        ChessGame moved = new ChessGame();
+        moved.makeMove(new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null));
+        gameDAO.saveGame(-7, moved);
+        GameData after = gameDAO.getGame(-7);
+        assertNull(after.whiteUsername());
+        assertEquals("b", after.blackUsername());
+        assertEquals(moved, after.game());
+        assertThrows(DataAccessException.class, () -> gameDAO.saveGame(-8, moved));
+    }
+
     @Test
     @DisplayName("List with some games")
     void listGames() {
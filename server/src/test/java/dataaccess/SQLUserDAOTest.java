@@ -1,5 +1,6 @@
 package dataaccess;
 
+import exception.ResponseException;
 import model.UserData;
 import org.junit.jupiter.api.*;
 
@@ -77,10 +78,10 @@ class SQLUserDAOTest {
     @Test
     @Order(2)
     @DisplayName("Username in Use")
-    void createDupeUser() {
+    void createDupeUser() throws ResponseException {
         userDAO.createUser(newUser2);
         int startingRowsCount = countRows();
-        userDAO.createUser(newUser2);
+        assertFalse(userDAO.createUser(newUser2));
         int currentRowsCount = countRows();
         assertEquals(startingRowsCount,currentRowsCount, "Number of rows changed after adding existing user");
 
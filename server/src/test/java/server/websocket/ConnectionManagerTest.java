@@ -0,0 +1,132 @@
+package server.websocket;
+
+import org.eclipse.jetty.websocket.api.RemoteEndpoint;
+import org.eclipse.jetty.websocket.api.Session;
+import org.eclipse.jetty.websocket.api.UpgradeRequest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import websocket.messages.ServerMessage;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConnectionManagerTest {
+    private ConnectionManager manager;
+
+    //Sessions only need to report their handshake subprotocols and whether they are open
+    static Session fakeSession(boolean open) {
+        UpgradeRequest upgrade = (UpgradeRequest) Proxy.newProxyInstance(UpgradeRequest.class.getClassLoader(),
+                new Class<?>[]{UpgradeRequest.class}, (proxy, method, args) -> method.getName().equals("getSubProtocols") ? List.of() : null);
+        RemoteEndpoint remote = (RemoteEndpoint) Proxy.newProxyInstance(RemoteEndpoint.class.getClassLoader(),
+                new Class<?>[]{RemoteEndpoint.class}, (proxy, method, args) -> null);
+        return (Session) Proxy.newProxyInstance(Session.class.getClassLoader(), new Class<?>[]{Session.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "getUpgradeRequest" -> upgrade;
+                    case "getRemote" -> remote;
+                    case "isOpen" -> open;
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "equals" -> proxy == args[0];
+                    default -> null;
+                });
+    }
+
+    @BeforeEach
+    void setup() {
+        manager = new ConnectionManager();
+    }
+
+    @Test
+    @DisplayName("Empty Games Are Reclaimed")
+    void reclaimEmptyGame() {
+        manager.add(1, "white", fakeSession(true));
+        manager.add(1, "black", fakeSession(true));
+        assertEquals(1, manager.gameCount());
+        assertEquals(2, manager.connectionCount(1));
+        manager.remove(1, "white");
+        manager.remove(1, "black");
+        assertEquals(0, manager.gameCount());
+        assertEquals(0, manager.connectionCount());
+    }
+
+    @Test
+    @DisplayName("Remove By Session")
+    void removeBySession() {
+        Session session = fakeSession(true);
+        manager.add(3, "observer", session);
+        assertNotNull(manager.get(session));
+        manager.remove(session);
+        assertNull(manager.get(session));
+        assertEquals(0, manager.gameCount());
+    }
+
+    @Test
+    @DisplayName("Reconnect Replaces Old Session")
+    void reconnect() {
+        Session first = fakeSession(true);
+        Session second = fakeSession(true);
+        manager.add(1, "white", first);
+        manager.add(1, "white", second);
+        assertNull(manager.get(first));
+        assertEquals(1, manager.connectionCount());
+        manager.remove(first);
+        assertEquals(1, manager.connectionCount(1));
+    }
+
+    @Test
+    @DisplayName("Unknown Games Are Ignored")
+    void unknownGame() {
+        ServerMessage message = new ServerMessage(ServerMessage.ServerMessageType.NOTIFICATION);
+        assertDoesNotThrow(() -> manager.remove(99, "nobody"));
+        assertDoesNotThrow(() -> manager.send(99, "nobody", message));
+        assertDoesNotThrow(() -> manager.broadcast(99, "", message));
+    }
+
+    @Test
+    @DisplayName("Closed Sessions Are Dropped On Broadcast")
+    void closedSessionsDropped() throws Exception {
+        manager.add(5, "gone", fakeSession(false));
+        manager.broadcast(5, "", new ServerMessage(ServerMessage.ServerMessageType.NOTIFICATION));
+        assertEquals(0, manager.gameCount());
+        assertEquals(0, manager.connectionCount());
+    }
+
+    @Test
+    @DisplayName("One Session In Two Games")
+    void sessionInTwoGames() {
+        Session session = fakeSession(true);
+        manager.add(1, "white", session);
+        manager.add(2, "white", session);
+        assertEquals(2, manager.get(session).size());
+        assertEquals(2, manager.connectionCount());
+        manager.remove(1, "white");
+        assertEquals(1, manager.get(session).size());
+        manager.add(1, "white", session);
+        //Closing the session leaves neither game behind
+        assertEquals(2, manager.remove(session).size());
+        assertNull(manager.get(session));
+        assertEquals(0, manager.gameCount());
+        assertEquals(0, manager.connectionCount());
+    }
+
+    @Test
+    @DisplayName("Emptied Games Are Reported However The Last Connection Went")
+    void gameEmptied() throws Exception {
+        List<Integer> emptied = new ArrayList<>();
+        manager.onGameEmptied(emptied::add);
+        Session session = fakeSession(true);
+        manager.add(1, "white", session);
+        manager.add(1, "black", fakeSession(true));
+        manager.add(2, "white", session);
+        manager.add(3, "gone", fakeSession(false));
+        manager.remove(1, "black");
+        assertEquals(List.of(), emptied);
+        manager.remove(session);
+        manager.broadcast(3, "", new ServerMessage(ServerMessage.ServerMessageType.NOTIFICATION));
+        emptied.sort(null);
+        assertEquals(List.of(1, 2, 3), emptied);
+    }
+}
@@ -0,0 +1,39 @@
+package server.websocket;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GameLocksTest {
+    private GameLocks locks;
+
+    @BeforeEach
+    void setup() {
+        locks = new GameLocks();
+    }
+
+    @Test
+    @DisplayName("Holders Of A Game Share One Lock")
+    void shared() {
+        Object first = locks.acquire(1);
+        Object second = locks.acquire(1);
+        assertSame(first, second);
+        assertNotSame(first, locks.acquire(2));
+    }
+
+    @Test
+    @DisplayName("Lock Is Kept Until The Last Holder Releases It")
+    void keptWhileHeld() {
+        Object first = locks.acquire(1);
+        locks.acquire(1);
+        locks.release(1);
+        assertEquals(1, locks.gameCount());
+        //A thread arriving now must get the lock the remaining holder is synchronized on
+        assertSame(first, locks.acquire(1));
+        locks.release(1);
+        locks.release(1);
+        assertEquals(0, locks.gameCount());
+    }
+}
@@ -0,0 +1,66 @@
+package server.websocket;
+
+import org.eclipse.jetty.websocket.api.Session;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static server.websocket.ConnectionManagerTest.fakeSession;
+
+class HeartbeatMonitorTest {
+    private ConnectionManager manager;
+    private HeartbeatMonitor monitor;
+
+    @BeforeEach
+    void setup() {
+        manager = new ConnectionManager();
+        //Long interval so only the sweeps called by the tests run
+        monitor = new HeartbeatMonitor(manager, 3_600_000, 1_000);
+    }
+
+    @AfterEach
+    void tearDown() {
+        monitor.stop();
+    }
+
+    @Test
+    @DisplayName("Live Connections Survive A Sweep")
+    void liveConnection() {
+        manager.add(1, "white", fakeSession(true));
+        monitor.sweep();
+        assertEquals(1, manager.connectionCount());
+    }
+
+    @Test
+    @DisplayName("Idle Connections Are Evicted")
+    void idleConnection() {
+        Session idle = fakeSession(true);
+        manager.add(1, "white", idle);
+        manager.add(1, "black", fakeSession(true));
+        manager.get(idle).forEach(connection -> connection.lastSeen = System.nanoTime() - 5_000_000_000L);
+        monitor.sweep();
+        assertNull(manager.get(idle));
+        assertEquals(1, manager.connectionCount(1));
+    }
+
+    @Test
+    @DisplayName("Touch Keeps A Connection Alive")
+    void touchedConnection() {
+        Session session = fakeSession(true);
+        manager.add(2, "observer", session);
+        manager.get(session).forEach(connection -> connection.lastSeen = System.nanoTime() - 5_000_000_000L);
+        manager.touch(session);
+        monitor.sweep();
+        assertNotNull(manager.get(session));
+    }
+
+    @Test
+    @DisplayName("Closed Sessions Are Evicted")
+    void closedConnection() {
+        manager.add(3, "gone", fakeSession(false));
+        monitor.sweep();
+        assertEquals(0, manager.gameCount());
+    }
+}
@@ -0,0 +1,158 @@
+package server.websocket;
+
+import json.Codecs;
+import model.LobbyEvent;
+import org.eclipse.jetty.websocket.api.RemoteEndpoint;
+import org.eclipse.jetty.websocket.api.Session;
+import org.eclipse.jetty.websocket.api.UpgradeRequest;
+import org.eclipse.jetty.websocket.api.WriteCallback;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import websocket.messages.ServerMessage;
+
+import java.lang.reflect.Proxy;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LobbyFeedTest {
+    private LobbyFeed feed;
+
+    @BeforeEach
+    void setup() {
+        //Long window so only the flushes called by the tests run
+        feed = new LobbyFeed(3_600_000);
+    }
+
+    @AfterEach
+    void tearDown() {
+        feed.stop();
+    }
+
+    //A session that keeps every text frame sent to it and finishes writing each one straight away
+    private static Session recordingSession(boolean open, List<String> sent) {
+        return recordingSession(open, sent, WriteCallback::writeSuccess);
+    }
+
+    //written decides what becomes of each async send
+    private static Session recordingSession(boolean open, List<String> sent, Consumer<WriteCallback> written) {
+        UpgradeRequest upgrade = (UpgradeRequest) Proxy.newProxyInstance(UpgradeRequest.class.getClassLoader(),
+                new Class<?>[]{UpgradeRequest.class}, (proxy, method, args) -> method.getName().equals("getSubProtocols") ? List.of() : null);
+        RemoteEndpoint remote = (RemoteEndpoint) Proxy.newProxyInstance(RemoteEndpoint.class.getClassLoader(),
+                new Class<?>[]{RemoteEndpoint.class}, (proxy, method, args) -> {
+                    if (method.getName().equals("sendString")) {
+                        sent.add((String) args[0]);
+                        if (args.length == 2) {
+                            written.accept((WriteCallback) args[1]);
+                        }
+                    }
+                    return null;
+                });
+        return (Session) Proxy.newProxyInstance(Session.class.getClassLoader(), new Class<?>[]{Session.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "getUpgradeRequest" -> upgrade;
+                    case "getRemote" -> remote;
+                    case "isOpen" -> open;
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "equals" -> proxy == args[0];
+                    default -> null;
+                });
+    }
+
+    private static List<LobbyEvent> events(String json) {
+        ServerMessage message = Codecs.GSON.fromJson(json, ServerMessage.class);
+        assertEquals(ServerMessage.ServerMessageType.LOBBY, message.getServerMessageType());
+        return message.getLobbyEvents();
+    }
+
+    @Test
+    @DisplayName("A Burst Of Changes Is One Message")
+    void coalesce() {
+        List<String> sent = new CopyOnWriteArrayList<>();
+        feed.subscribe(recordingSession(true, sent));
+        feed.publish(new LobbyEvent(LobbyEvent.Kind.CREATED, 1, "first", null, null));
+        feed.publish(new LobbyEvent(LobbyEvent.Kind.CREATED, 2, "second", null, null));
+        feed.publish(new LobbyEvent(LobbyEvent.Kind.SEAT_TAKEN, 1, "first", "white", null));
+        feed.publish(new LobbyEvent(LobbyEvent.Kind.SEAT_TAKEN, 2, "second", null, "black"));
+        feed.publish(new LobbyEvent(LobbyEvent.Kind.ENDED, 2, "second", null, "black"));
+        feed.flush();
+        assertEquals(1, sent.size());
+        assertEquals(List.of(new LobbyEvent(LobbyEvent.Kind.CREATED, 1, "first", "white", null),
+                new LobbyEvent(LobbyEvent.Kind.ENDED, 2, "second", null, "black")), events(sent.get(0)));
+        feed.flush();
+        assertEquals(1, sent.size());
+    }
+
+    @Test
+    @DisplayName("Only Open Subscribers Hear Changes")
+    void subscribers() {
+        List<String> kept = new CopyOnWriteArrayList<>();
+        List<String> left = new CopyOnWriteArrayList<>();
+        List<String> closed = new CopyOnWriteArrayList<>();
+        Session leaving = recordingSession(true, left);
+        feed.subscribe(recordingSession(true, kept));
+        feed.subscribe(leaving);
+        feed.subscribe(recordingSession(false, closed));
+        feed.unsubscribe(leaving);
+        feed.publish(new LobbyEvent(LobbyEvent.Kind.CREATED, 1, "game", null, null));
+        feed.flush();
+        assertEquals(1, kept.size());
+        assertTrue(left.isEmpty());
+        assertTrue(closed.isEmpty());
+        assertEquals(1, feed.subscriberCount());
+    }
+
+    @Test
+    @DisplayName("Window Closes On Its Own")
+    void scheduledFlush() throws InterruptedException {
+        LobbyFeed quick = new LobbyFeed(10);
+        try {
+            List<String> sent = new CopyOnWriteArrayList<>();
+            quick.subscribe(recordingSession(true, sent));
+            quick.publish(new LobbyEvent(LobbyEvent.Kind.CREATED, 1, "game", null, null));
+            for (int i = 0; i < 200 && sent.isEmpty(); i++) {
+                Thread.sleep(10);
+            }
+            assertEquals(1, sent.size());
+            quick.publish(new LobbyEvent(LobbyEvent.Kind.SEAT_TAKEN, 1, "game", "white", null));
+            for (int i = 0; i < 200 && sent.size() < 2; i++) {
+                Thread.sleep(10);
+            }
+            assertEquals(LobbyEvent.Kind.SEAT_TAKEN, events(sent.get(1)).get(0).kind());
+        } finally {
+            quick.stop();
+        }
+    }
+
+    @Test
+    @DisplayName("A Subscriber That Falls Behind Is Dropped")
+    void slowSubscriber() {
+        List<String> healthy = new CopyOnWriteArrayList<>();
+        List<String> stalled = new CopyOnWriteArrayList<>();
+        feed.subscribe(recordingSession(true, healthy));
+        //Never finishes writing anything it is sent
+        feed.subscribe(recordingSession(true, stalled, callback -> {}));
+        for (int i = 0; i <= LobbyFeed.MAX_UNWRITTEN_PUSHES; i++) {
+            feed.publish(new LobbyEvent(LobbyEvent.Kind.CREATED, i, "game", null, null));
+            feed.flush();
+        }
+        assertEquals(LobbyFeed.MAX_UNWRITTEN_PUSHES + 1, healthy.size());
+        assertEquals(LobbyFeed.MAX_UNWRITTEN_PUSHES, stalled.size());
+        assertEquals(1, feed.subscriberCount());
+    }
+
+    @Test
+    @DisplayName("A Failed Write Drops The Subscriber")
+    void failedWrite() {
+        List<String> sent = new CopyOnWriteArrayList<>();
+        feed.subscribe(recordingSession(true, sent, callback -> callback.writeFailed(new IllegalStateException("closed"))));
+        feed.publish(new LobbyEvent(LobbyEvent.Kind.CREATED, 1, "game", null, null));
+        feed.flush();
+        assertEquals(1, sent.size());
+        assertEquals(0, feed.subscriberCount());
+    }
+}
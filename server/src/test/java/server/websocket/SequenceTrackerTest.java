@@ -0,0 +1,54 @@
+package server.websocket;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SequenceTrackerTest {
+    private SequenceTracker tracker;
+
+    @BeforeEach
+    void setup() {
+        tracker = new SequenceTracker();
+    }
+
+    @Test
+    @DisplayName("Applied Sequences Are Duplicates")
+    void duplicates() {
+        assertFalse(tracker.isDuplicate(1, "white", 5));
+        tracker.applied(1, "white", 5);
+        assertTrue(tracker.isDuplicate(1, "white", 5));
+        assertTrue(tracker.isDuplicate(1, "white", 4));
+        assertFalse(tracker.isDuplicate(1, "white", 6));
+    }
+
+    @Test
+    @DisplayName("Sequences Are Per Client And Game")
+    void perClient() {
+        tracker.applied(1, "white", 5);
+        assertFalse(tracker.isDuplicate(1, "black", 5));
+        assertFalse(tracker.isDuplicate(2, "white", 5));
+        //The same user on a second device counts from its own start
+        tracker.applied(1, "laptop", 900);
+        assertFalse(tracker.isDuplicate(1, "phone", 1));
+    }
+
+    @Test
+    @DisplayName("Late Acknowledgement Does Not Move Sequence Backwards")
+    void neverBackwards() {
+        tracker.applied(1, "white", 9);
+        tracker.applied(1, "white", 7);
+        assertTrue(tracker.isDuplicate(1, "white", 8));
+    }
+
+    @Test
+    @DisplayName("Forget Game")
+    void forget() {
+        tracker.applied(3, "white", 1);
+        tracker.forget(3);
+        assertEquals(0, tracker.gameCount());
+        assertFalse(tracker.isDuplicate(3, "white", 1));
+    }
+}
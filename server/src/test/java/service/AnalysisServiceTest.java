@@ -0,0 +1,155 @@
+package service;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPosition;
+import chess.engine.OpeningBook;
+import chess.engine.TaperedEvaluator;
+import chess.engine.PolyglotKey;
+import chess.engine.Position;
+import dataaccess.*;
+import exception.ResponseException;
+import model.AuthData;
+import model.GameData;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import requestsresults.*;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AnalysisServiceTest {
+    private GameDAO gameDAO;
+    private AuthDAO authDAO;
+
+    @TempDir
+    Path directory;
+
+    @BeforeEach
+    void setup() {
+        gameDAO = new MemoryGameDAO();
+        authDAO = new MemoryAuthDAO();
+        authDAO.createAuth(new AuthData("token", "authedUser"));
+        gameDAO.createGame(new GameData(1, null, null, "game1", new ChessGame()));
+    }
+
+    private OpeningBook startBook() throws IOException {
+        Position start = Position.start();
+        int[] moves = new int[256];
+        start.generateMoves(moves, false);
+        Path file = directory.resolve("book.bin");
+        OpeningBook.write(file, Map.of(PolyglotKey.defaultKeys().hash(start), List.of(new OpeningBook.BookMove(moves[0], 7))));
+        return OpeningBook.open(file);
+    }
+
+    @Test
+    @DisplayName("Book Moves For A Game")
+    void bookMoves() throws ResponseException, IOException {
+        AnalysisService service = new AnalysisService(gameDAO, authDAO, startBook());
+        BookResult result = service.bookMoves(new BookRequest("token", 1));
+        assertEquals(1, result.moves().size());
+        ChessMove move = result.moves().get(0).move();
+        assertEquals(7, result.moves().get(0).weight());
+        assertTrue(new ChessGame().validMoves(move.getStartPosition()).contains(move));
+    }
+
+    @Test
+    @DisplayName("No Book Means No Moves")
+    void noBook() throws ResponseException {
+        AnalysisService service = new AnalysisService(gameDAO, authDAO, null);
+        assertTrue(service.bookMoves(new BookRequest("token", 1)).moves().isEmpty());
+    }
+
+    @Test
+    @DisplayName("Position Out Of Book")
+    void outOfBook() throws Exception {
+        ChessGame game = new ChessGame();
+        game.makeMove(new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null));
+        gameDAO.createGame(new GameData(2, null, null, "game2", game));
+        AnalysisService service = new AnalysisService(gameDAO, authDAO, startBook());
+        assertTrue(service.bookMoves(new BookRequest("token", 2)).moves().isEmpty());
+    }
+
+    @Test
+    @DisplayName("Book Moves Unauthorized Or Bad Game")
+    void bookErrors() {
+        AnalysisService service = new AnalysisService(gameDAO, authDAO, null);
+        ResponseException unauthorized = assertThrows(ResponseException.class,
+                () -> service.bookMoves(new BookRequest("Fake Token", 1)));
+        assertEquals(401, unauthorized.statusCode());
+        ResponseException badGame = assertThrows(ResponseException.class,
+                () -> service.bookMoves(new BookRequest("token", 37)));
+        assertEquals(400, badGame.statusCode());
+    }
+
+    @Test
+    @DisplayName("Hint Is A Legal Move")
+    void hint() throws ResponseException {
+        try (EnginePool engines = new EnginePool(1, 4, 1, null, null)) {
+            AnalysisService service = new AnalysisService(gameDAO, authDAO, null, engines, 100, 16);
+            HintResult result = service.hint(new HintRequest("token", 1));
+            assertTrue(new ChessGame().validMoves(result.bestMove().getStartPosition()).contains(result.bestMove()));
+            assertEquals(result.bestMove(), result.principalVariation().get(0));
+            assertTrue(result.depth() > 0);
+        }
+    }
+
+    @Test
+    @DisplayName("Hints Cached By Position")
+    void hintCached() throws ResponseException {
+        gameDAO.createGame(new GameData(2, null, null, "game2", new ChessGame()));
+        try (EnginePool engines = new EnginePool(1, 4, 1, null, null)) {
+            AnalysisService service = new AnalysisService(gameDAO, authDAO, null, engines, 100, 16);
+            HintResult first = service.hint(new HintRequest("token", 1));
+            assertSame(first, service.hint(new HintRequest("token", 1)));
+            //A different game in the same position is answered from the cache too
+            assertSame(first, service.hint(new HintRequest("token", 2)));
+        }
+    }
+
+    @Test
+    @DisplayName("A Failed Search Doesn't Block Later Hints")
+    void hintAfterFailure() throws ResponseException {
+        AtomicBoolean failing = new AtomicBoolean(true);
+        TaperedEvaluator evaluator = new TaperedEvaluator();
+        try (EnginePool engines = new EnginePool(1, 4, 1, null, null, () -> position -> {
+            if (failing.get()) {
+                throw new IllegalStateException("evaluator failed");
+            }
+            return evaluator.evaluate(position);
+        })) {
+            AnalysisService service = new AnalysisService(gameDAO, authDAO, null, engines, 100, 16);
+            long start = System.nanoTime();
+            ResponseException e = assertThrows(ResponseException.class, () -> service.hint(new HintRequest("token", 1)));
+            assertEquals(503, e.statusCode());
+            failing.set(false);
+            HintResult result = service.hint(new HintRequest("token", 1));
+            assertNotNull(result.bestMove());
+            //Neither request waited out the grace period on a search that had already failed
+            assertTrue(System.nanoTime() - start < 4_000_000_000L);
+        }
+    }
+
+    @Test
+    @DisplayName("Hint Without Engines")
+    void hintUnavailable() {
+        AnalysisService service = new AnalysisService(gameDAO, authDAO, null);
+        ResponseException e = assertThrows(ResponseException.class, () -> service.hint(new HintRequest("token", 1)));
+        assertEquals(503, e.statusCode());
+    }
+
+    @Test
+    @DisplayName("Hint Unauthorized")
+    void hintUnauthorized() {
+        AnalysisService service = new AnalysisService(gameDAO, authDAO, null, null);
+        ResponseException e = assertThrows(ResponseException.class, () -> service.hint(new HintRequest("bad", 1)));
+        assertEquals(401, e.statusCode());
+    }
+}
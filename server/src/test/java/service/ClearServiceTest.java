@@ -1,6 +1,7 @@
 package service;
 
 import dataaccess.*;
+import exception.ResponseException;
 import model.*;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -23,7 +24,7 @@ public class ClearServiceTest {
     private final GameData testGame3 = new GameData(3, null, null, "game3", null);
 
     @BeforeEach
-    void fillInDAOs() {
+    void fillInDAOs() throws ResponseException {
         userDAO.createUser(testUser1);
         userDAO.createUser(testUser2);
         userDAO.createUser(testUser3);
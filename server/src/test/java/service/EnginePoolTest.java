@@ -0,0 +1,60 @@
+package service;
+
+import chess.ChessMove;
+import chess.ChessPosition;
+import chess.engine.Position;
+import chess.engine.SearchLimits;
+import chess.engine.SearchResult;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EnginePoolTest {
+
+    @Test
+    @DisplayName("Search Runs On A Worker")
+    void searchesOnWorker() throws Exception {
+        try (EnginePool pool = new EnginePool(1, 4, 1, null, null)) {
+            CompletableFuture<SearchResult> found = new CompletableFuture<>();
+            CompletableFuture<String> thread = new CompletableFuture<>();
+            assertTrue(pool.submit(Position.fromFen("6k1/5ppp/8/8/8/8/5PPP/R5K1 w - - 0 1"), SearchLimits.ofDepth(3),
+                    result -> {
+                        thread.complete(Thread.currentThread().getName());
+                        found.complete(result);
+                    }));
+            assertEquals(new ChessMove(new ChessPosition(1, 1), new ChessPosition(8, 1), null),
+                    found.get(10, TimeUnit.SECONDS).bestMove());
+            assertTrue(thread.get().startsWith("engine-worker-"));
+        }
+    }
+
+    @Test
+    @DisplayName("Saturated Pool Turns Searches Away")
+    void saturated() throws Exception {
+        try (EnginePool pool = new EnginePool(1, 1, 1, null, null)) {
+            CountDownLatch release = new CountDownLatch(1);
+            CountDownLatch started = new CountDownLatch(1);
+            //Holds the only worker busy until released
+            assertTrue(pool.submit(Position.start(), SearchLimits.ofDepth(1), result -> {
+                started.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }));
+            assertTrue(started.await(10, TimeUnit.SECONDS));
+            CountDownLatch queuedDone = new CountDownLatch(1);
+            assertTrue(pool.submit(Position.start(), SearchLimits.ofDepth(1), result -> queuedDone.countDown()));
+            assertEquals(1, pool.queued());
+            assertFalse(pool.submit(Position.start(), SearchLimits.ofDepth(1), result -> fail("Should not have run")));
+            release.countDown();
+            assertTrue(queuedDone.await(10, TimeUnit.SECONDS));
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package service;
+
+import chess.ChessBoard;
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPosition;
+import chess.InvalidMoveException;
+import dataaccess.*;
+import model.GameAnalysis;
+import model.GameData;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GameAnalyzerTest {
+    private GameDAO gameDAO;
+    private AnalysisDAO analysisDAO;
+    private GameAnalyzer analyzer;
+
+    @BeforeEach
+    void setup() {
+        gameDAO = new MemoryGameDAO();
+        analysisDAO = new MemoryAnalysisDAO();
+        analyzer = new GameAnalyzer(gameDAO, analysisDAO, new GameAnalyzer.Settings(3, 2, 0, 0));
+    }
+
+    @AfterEach
+    void close() {
+        analyzer.close();
+    }
+
+    private static ChessMove move(String from, String to) {
+        return new ChessMove(new ChessPosition(from.charAt(1) - '0', from.charAt(0) - 'a' + 1),
+                new ChessPosition(to.charAt(1) - '0', to.charAt(0) - 'a' + 1), null);
+    }
+
+    //Scholar's mate, black blunders with 3...Nf6
+    private static ChessGame scholarsMate() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        String[][] moves = {{"e2", "e4"}, {"e7", "e5"}, {"d1", "h5"}, {"b8", "c6"}, {"f1", "c4"}, {"g8", "f6"}, {"h5", "f7"}};
+        for (String[] move : moves) {
+            game.makeMove(move(move[0], move[1]));
+        }
+        game.setGameOver(true);
+        return game;
+    }
+
+    @Test
+    @DisplayName("Blunder Found In A Finished Game")
+    void blunder() throws InvalidMoveException {
+        gameDAO.createGame(new GameData(1, "w", "b", "game1", scholarsMate()));
+        assertEquals(1, analyzer.run());
+        GameAnalysis analysis = analysisDAO.getAnalysis(1);
+        assertEquals(7, analysis.moves().size());
+        assertEquals(GameAnalysis.Judgement.BLUNDER, analysis.moves().get(5).judgement());
+        assertEquals(GameAnalysis.Judgement.BEST, analysis.moves().get(6).judgement());
+        assertTrue(analysis.whiteAccuracy() > analysis.blackAccuracy());
+        assertTrue(analysis.count(GameAnalysis.Judgement.BLUNDER) >= 1);
+    }
+
+    @Test
+    @DisplayName("Only Finished Games Analysed, Once")
+    void onlyFinished() throws InvalidMoveException {
+        ChessGame ongoing = new ChessGame();
+        ongoing.makeMove(move("e2", "e4"));
+        gameDAO.createGame(new GameData(1, "w", "b", "game1", ongoing));
+        gameDAO.createGame(new GameData(2, "w", "b", "game2", scholarsMate()));
+        assertEquals(1, analyzer.run());
+        assertNull(analysisDAO.getAnalysis(1));
+        assertNotNull(analysisDAO.getAnalysis(2));
+        assertEquals(0, analyzer.run());
+    }
+
+    @Test
+    @DisplayName("Runs Capped By Max Games")
+    void maxGames() throws InvalidMoveException {
+        for (int id = 1; id <= 3; id++) {
+            gameDAO.createGame(new GameData(id, "w", "b", "game" + id, scholarsMate()));
+        }
+        try (GameAnalyzer capped = new GameAnalyzer(gameDAO, analysisDAO, new GameAnalyzer.Settings(2, 1, 0, 2))) {
+            assertEquals(2, capped.run());
+            assertEquals(1, capped.run());
+        }
+    }
+
+    @Test
+    @DisplayName("Set Boards Can't Be Replayed")
+    void notReplayable() {
+        ChessGame game = new ChessGame();
+        ChessBoard board = new ChessBoard();
+        board.resetBoard();
+        board.addPiece(new ChessPosition(2, 5), null);
+        game.setBoard(board);
+        game.setGameOver(true);
+        assertNull(analyzer.analyze(new GameData(1, "w", "b", "game1", game)));
+    }
+}
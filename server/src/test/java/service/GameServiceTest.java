@@ -1,5 +1,8 @@
 package service;
 
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPosition;
 import dataaccess.*;
 import exception.ResponseException;
 import org.junit.jupiter.api.BeforeEach;
@@ -10,6 +13,12 @@ import requestsresults.*;
 
 import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -65,6 +74,26 @@ class GameServiceTest {
 
     }
 
+    @Test
+    @DisplayName("List Tag Changes Only With The Games")
+    void listTag() throws ResponseException, DataAccessException {
+        String empty = service.listTag(new ListRequest("token"));
+        assertEquals(empty, service.listTag(new ListRequest("token2")));
+        gameDAO.createGame(testGame1);
+        String created = service.listTag(new ListRequest("token"));
+        assertNotEquals(empty, created);
+        service.list(new ListRequest("token"));
+        assertEquals(created, service.listTag(new ListRequest("token")));
+        gameDAO.updateGame(new GameData(1, "authedUser", null, "game1", null));
+        assertNotEquals(created, service.listTag(new ListRequest("token")));
+        try {
+            service.listTag(new ListRequest("Fake Token"));
+            fail("List tag should have thrown an error");
+        } catch (ResponseException e) {
+            assertEquals(401, e.statusCode());
+        }
+    }
+
     @Test
     @DisplayName("Basic Create Game")
     void basicCreate() throws ResponseException{
@@ -182,6 +211,24 @@ class GameServiceTest {
         }
     }
 
+    @Test
+    @DisplayName("Join When The Database Fails")
+    void joinDatabaseFailure() {
+        GameDAO failing = new MemoryGameDAO() {
+            @Override
+            public GameData claimSeat(int id, ChessGame.TeamColor color, String username) throws DataAccessException {
+                throw new DataAccessException("Connection lost");
+            }
+        };
+        AuthDAO authDAO = new MemoryAuthDAO();
+        authDAO.createAuth(authedUser);
+        GameService failingService = new GameService(failing, authDAO);
+        failing.createGame(testGame1);
+        ResponseException e = assertThrows(ResponseException.class,
+                () -> failingService.join(new JoinRequest("token", "WHITE", 1)));
+        assertEquals(500, e.statusCode());
+    }
+
     @Test
     @DisplayName("Join Unauthorized")
     void joinUnauthorized() throws DataAccessException{
@@ -205,4 +252,158 @@ class GameServiceTest {
             assertEquals(403, e.statusCode());
         }
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("Join Computer Player")
+    void joinBot() throws ResponseException, DataAccessException {
+        gameDAO.createGame(testGame1);
+        service.join(new JoinRequest("token", "BLACK", 1, new BotSettings(4, 500)));
+        GameData joinedGame = gameDAO.getGame(1);
+        assertEquals(new BotSettings(4, 500), BotSettings.fromSeatName(joinedGame.blackUsername()));
+        //The caller's own seat is left free, so they can play the computer
+        service.join(new JoinRequest("token", "WHITE", 1));
+        assertEquals("authedUser", gameDAO.getGame(1).whiteUsername());
+        assertNull(BotSettings.fromSeatName("authedUser"));
+    }
+
+    @Test
+    @DisplayName("Computer Player Takes Default Time From Level")
+    void botDefaultTime() throws ResponseException, DataAccessException {
+        gameDAO.createGame(testGame1);
+        service.join(new JoinRequest("token", "WHITE", 1, new BotSettings(3, 0)));
+        BotSettings seated = BotSettings.fromSeatName(gameDAO.getGame(1).whiteUsername());
+        assertEquals(3, seated.depth());
+        assertEquals(600, seated.timeLimit());
+    }
+
+    @Test
+    @DisplayName("Join Computer Player With Bad Level")
+    void joinBadBot() throws DataAccessException {
+        gameDAO.createGame(testGame1);
+        try {
+            service.join(new JoinRequest("token", "WHITE", 1, new BotSettings(BotSettings.MAX_LEVEL + 1, 0)));
+            fail("Join should've thrown an error");
+        } catch (ResponseException e) {
+            assertEquals(400, e.statusCode());
+        }
+        assertNull(gameDAO.getGame(1).whiteUsername());
+    }
+
+    @Test
+    @DisplayName("End Game Is Saved With The Game")
+    void endGame() throws ResponseException {
+        gameDAO.createGame(new GameData(1, null, null, "game1", new chess.ChessGame()));
+        service.endGame(1);
+        assertTrue(service.getGame(1).game().isGameOver());
+        //Unknown games are ignored
+        service.endGame(2);
+    }
+
+    @Test
+    @DisplayName("Lobby Listeners Hear Every Change")
+    void lobbyEvents() throws ResponseException, DataAccessException {
+        ArrayList<LobbyEvent> events = new ArrayList<>();
+        service.addLobbyListener(events::add);
+        int id = service.create(new CreateRequest("token", "game1")).gameID();
+        service.join(new JoinRequest("token", "WHITE", id));
+        service.removePlayer("token", id);
+        service.endGame(id);
+        assertEquals(List.of(LobbyEvent.Kind.CREATED, LobbyEvent.Kind.SEAT_TAKEN, LobbyEvent.Kind.SEAT_LEFT,
+                LobbyEvent.Kind.ENDED), events.stream().map(LobbyEvent::kind).toList());
+        assertEquals("authedUser", events.get(1).whiteUsername());
+        assertNull(events.get(2).whiteUsername());
+    }
+
+    @Test
+    @DisplayName("Only One Of Many Simultaneous Joins Gets The Seat")
+    void simultaneousJoins() throws Exception {
+        int id = service.create(new CreateRequest("token", "game1")).gameID();
+        AuthDAO authDAO = new MemoryAuthDAO();
+        GameService racing = new GameService(gameDAO, authDAO);
+        int players = 16;
+        for (int i = 0; i < players; i++) {
+            authDAO.createAuth(new AuthData("token" + i, "player" + i));
+        }
+        ExecutorService threads = Executors.newFixedThreadPool(players);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Integer>> results = new ArrayList<>();
+        for (int i = 0; i < players; i++) {
+            String token = "token" + i;
+            results.add(threads.submit(() -> {
+                start.await();
+                try {
+                    racing.join(new JoinRequest(token, "WHITE", id));
+                    return 200;
+                } catch (ResponseException e) {
+                    return e.statusCode();
+                }
+            }));
+        }
+        start.countDown();
+        int joined = 0;
+        for (Future<Integer> result : results) {
+            int status = result.get(10, TimeUnit.SECONDS);
+            assertTrue(status == 200 || status == 403);
+            joined += status == 200 ? 1 : 0;
+        }
+        threads.shutdown();
+        assertEquals(1, joined);
+        assertTrue(gameDAO.getGame(id).whiteUsername().startsWith("player"));
+        assertNull(gameDAO.getGame(id).blackUsername());
+    }
+
+    @Test
+    @DisplayName("Joins Made During Moves Keep Their Seats")
+    void joinsDuringMoves() throws Exception {
+        CountDownLatch read = new CountDownLatch(1);
+        CountDownLatch joined = new CountDownLatch(1);
+        //Holds the move between reading the game and writing it back, while the players join
+        GameDAO pausing = new MemoryGameDAO() {
+            @Override
+            public GameData getGame(int id) {
+                GameData game = super.getGame(id);
+                if (Thread.currentThread().getName().equals("mover")) {
+                    read.countDown();
+                    try {
+                        joined.await(10, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                return game;
+            }
+        };
+        AuthDAO authDAO = new MemoryAuthDAO();
+        authDAO.createAuth(authedUser);
+        authDAO.createAuth(authedUser2);
+        GameService racing = new GameService(pausing, authDAO);
+        int id = racing.create(new CreateRequest("token", "game1")).gameID();
+        ExecutorService mover = Executors.newSingleThreadExecutor(runnable -> new Thread(runnable, "mover"));
+        Future<GameData> moving = mover.submit(() -> racing.makeMove(id, move(2, 5, 4, 5)));
+        assertTrue(read.await(10, TimeUnit.SECONDS));
+        racing.join(new JoinRequest("token", "WHITE", id));
+        racing.join(new JoinRequest("token2", "BLACK", id));
+        joined.countDown();
+        moving.get(10, TimeUnit.SECONDS);
+        mover.shutdown();
+        GameData after = pausing.getGame(id);
+        assertEquals("authedUser", after.whiteUsername());
+        assertEquals("authedUser2", after.blackUsername());
+        assertEquals(List.of(move(2, 5, 4, 5)), after.game().getMoveHistory());
+    }
+
+    @Test
+    @DisplayName("Leaving Never Unseats Someone Else")
+    void leaveOnlyOwnSeat() throws ResponseException, DataAccessException {
+        int id = service.create(new CreateRequest("token", "game1")).gameID();
+        service.join(new JoinRequest("token2", "WHITE", id));
+        service.leaveSeats("authedUser", id);
+        assertEquals("authedUser2", gameDAO.getGame(id).whiteUsername());
+        service.leaveSeats("authedUser2", id);
+        assertNull(gameDAO.getGame(id).whiteUsername());
+    }
+
+    private static ChessMove move(int fromRow, int fromCol, int toRow, int toCol) {
+        return new ChessMove(new ChessPosition(fromRow, fromCol), new ChessPosition(toRow, toCol), null);
+    }
+}
@@ -0,0 +1,71 @@
+package service;
+
+import exception.ResponseException;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PasswordHasherTest {
+
+    @Test
+    @DisplayName("Hashes Check Against Their Password")
+    void roundTrip() throws Exception {
+        //The lowest work factor BCrypt allows, so the test stays quick
+        try (PasswordHasher hasher = new PasswordHasher(1, 4, 4, 10_000)) {
+            String hash = hasher.hash("superSecure");
+            assertTrue(PasswordHasher.isHash(hash));
+            assertTrue(hash.startsWith("$2a$04$"));
+            assertTrue(hasher.check("superSecure", hash));
+            assertFalse(hasher.check("notSoSecure", hash));
+            assertFalse(PasswordHasher.isHash("superSecure"));
+
+            PasswordHasher.Stats stats = hasher.stats();
+            assertEquals(1, stats.hashes());
+            assertEquals(2, stats.checks());
+            assertEquals(0, stats.rejected());
+            assertTrue(stats.maxMillis() > 0);
+            assertTrue(stats.meanMillis() <= stats.maxMillis());
+        }
+    }
+
+    @Test
+    @DisplayName("Saturated Hasher Answers 503")
+    void saturated() throws Exception {
+        try (PasswordHasher hasher = new PasswordHasher(1, 1, 4, 10_000)) {
+            CountDownLatch release = new CountDownLatch(1);
+            CountDownLatch started = new CountDownLatch(1);
+            //Holds the only worker busy until released
+            Future<Boolean> busy = hasher.submit(() -> {
+                started.countDown();
+                return release.await(10, TimeUnit.SECONDS);
+            }, new AtomicLong());
+            assertTrue(started.await(10, TimeUnit.SECONDS));
+            Future<String> queued = hasher.hashAsync("superSecure");
+            ResponseException turnedAway = assertThrows(ResponseException.class, () -> hasher.hash("superSecure"));
+            assertEquals(503, turnedAway.statusCode());
+            assertEquals(1, hasher.stats().rejected());
+            release.countDown();
+            assertTrue(busy.get(10, TimeUnit.SECONDS));
+            assertTrue(PasswordHasher.isHash(queued.get(10, TimeUnit.SECONDS)));
+        }
+    }
+
+    @Test
+    @DisplayName("Slow Hash Times Out With 503")
+    void timeout() throws Exception {
+        try (PasswordHasher hasher = new PasswordHasher(1, 1, 4, 50)) {
+            CountDownLatch release = new CountDownLatch(1);
+            hasher.submit(() -> release.await(10, TimeUnit.SECONDS), new AtomicLong());
+            ResponseException timedOut = assertThrows(ResponseException.class, () -> hasher.check("superSecure",
+                    "$2a$04$abcdefghijklmnopqrstuu5Ogmyf6Rl4Y2/lGZRXrQTCIWTBl8vG6"));
+            assertEquals(503, timedOut.statusCode());
+            release.countDown();
+        }
+    }
+}
@@ -4,6 +4,7 @@ import dataaccess.*;
 import dataaccess.UserDAO;
 import exception.ResponseException;
 import model.AuthData;
+import model.BotSettings;
 import model.UserData;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -86,7 +87,7 @@ class UserServiceTest {
 
     @Test
     @DisplayName("Register Username Already In Use")
-    void registerTaken(){
+    void registerTaken() throws ResponseException{
         userDAO.createUser(testUser1);
         try {
             service.register(regReqFromUserData(testUser1));
@@ -98,6 +99,19 @@ class UserServiceTest {
 
     }
 
+    @Test
+    @DisplayName("Register Computer Player Name")
+    void registerBotName() {
+        String botName = new BotSettings(5, 1000).seatName();
+        try {
+            service.register(new RegisterRequest(botName, "superSecure", "test@test.test"));
+            fail("Register did not throw an error");
+        } catch (ResponseException e) {
+            assertEquals(403, e.statusCode());
+        }
+        assertNull(userDAO.getUser(botName));
+    }
+
     @Test
     @DisplayName("Incomplete Registration")
     void registerIncomplete() {
@@ -150,9 +164,24 @@ class UserServiceTest {
         checkForAuth(result3.authToken(), "testUser3");
     }
 
+    @Test
+    @DisplayName("Registered Password Stored Hashed")
+    void registerThenLogin() throws ResponseException {
+        service.register(regReqFromUserData(testUser1));
+        String stored = userDAO.getUser("testUser1").password();
+        assertNotEquals(testUser1.password(), stored);
+        assertTrue(PasswordHasher.isHash(stored));
+        checkForAuth(service.login(loginReqFromUserData(testUser1)).authToken(), "testUser1");
+        //The hash itself isn't a password
+        ResponseException e = assertThrows(ResponseException.class, () -> service.login(new LoginRequest("testUser1", stored)));
+        assertEquals(401, e.statusCode());
+        assertEquals(1, service.hashStats().hashes());
+        assertEquals(2, service.hashStats().checks());
+    }
+
     @Test
     @DisplayName("Incorrect Password Login")
-    void incorrectPassword() {
+    void incorrectPassword() throws ResponseException {
         userDAO.createUser(testUser1);
         try {
             service.login(new LoginRequest("testUser1", "ThisIsntCorrect"));
@@ -164,7 +193,7 @@ class UserServiceTest {
 
     @Test
     @DisplayName("Nonexistent User Login")
-    void nonexistentUser() {
+    void nonexistentUser() throws ResponseException {
         //Include some users to make the UserData non-trivial
         userDAO.createUser(testUser1);
         userDAO.createUser(testUser2);
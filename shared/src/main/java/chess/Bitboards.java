@@ -0,0 +1,270 @@
+package chess;
+
+/**
+ * Attack tables for the board as 64-bit masks, one bit per square.
+ * <p>
+ * Squares are numbered (row - 1) * 8 + (column - 1), so a1 is bit 0 and h8 is bit 63, the
+ * same numbering the engine uses. Rook and bishop attacks come from magic bitboards: the
+ * pieces on a slider's rays, minus the board edge, are multiplied by a per-square magic
+ * number whose top bits index straight into that square's slice of one shared table.
+ * Knights, kings and pawns need no blockers, so theirs are a plain mask per square.
+ * <p>
+ * Searching for the magics takes a noticeable fraction of a second, so the ones below were
+ * found once by running main and only the tables are filled in when the class loads.
+ */
+public final class Bitboards {
+    private static final ChessPosition[] POSITIONS = new ChessPosition[64];
+
+    private static final int[][] ROOK_DIRECTIONS = {{1, 0}, {-1, 0}, {0, 1}, {0, -1}};
+    private static final int[][] BISHOP_DIRECTIONS = {{1, 1}, {1, -1}, {-1, 1}, {-1, -1}};
+
+    private static final long[] KNIGHT_ATTACKS = new long[64];
+    private static final long[] KING_ATTACKS = new long[64];
+    //PAWN_ATTACKS[team][square] are the squares a pawn of that team on square attacks
+    private static final long[][] PAWN_ATTACKS = new long[2][64];
+
+    //BETWEEN[a][b] are the squares strictly between two squares on a shared line, empty otherwise
+    private static final long[][] BETWEEN = new long[64][64];
+
+    private static final long[] ROOK_MAGICS = {
+            0x0200120102A08040L, 0x02400040100C2000L, 0x8480082000801002L, 0x10800C1000800801L,
+            0x4E0008A086001410L, 0x9500040048510012L, 0x0100310000840200L, 0x008001C020800100L,
+            0x10008000C0006083L, 0x0080C001D0002004L, 0x6002802000100080L, 0x0000801002802800L,
+            0x000A000520120008L, 0xC002001008060014L, 0x0406000401020028L, 0x0042000608440291L,
+            0x0020708000400582L, 0x020440400A601000L, 0x0001010060011240L, 0x0860808008001002L,
+            0x104202000D102008L, 0x000480800A000C00L, 0x4000040050024811L, 0x0000220010408401L,
+            0x4023208080104000L, 0x01900044C000A010L, 0x0001200080801000L, 0x8000280080801000L,
+            0x0002002200100D58L, 0x0086000200141008L, 0x3008010080800200L, 0x0011040200004581L,
+            0x0040008000802040L, 0x8040002000804480L, 0x0002600080801000L, 0x0104100289002101L,
+            0x0008440280800800L, 0x0042000802001005L, 0x100A481044000982L, 0x0000090042000284L,
+            0x0100400060948002L, 0x0010002004404008L, 0x200602C0802A0010L, 0x4301001830010020L,
+            0x2101040008008080L, 0x0411040002008080L, 0x61A0100508040002L, 0x000E070040820004L,
+            0x0000210250800100L, 0x00810049A2820200L, 0x0100100020008280L, 0x0000801002080380L,
+            0x2B4248005C110100L, 0x02200400804A0080L, 0x0042000188040200L, 0x4201040080610200L,
+            0x209A002180344102L, 0x0002018020403102L, 0x0040A00011090041L, 0x0002200C10010099L,
+            0x001200201044082AL, 0x5001000400084A41L, 0x04602218102908A4L, 0x0000138121004402L
+    };
+
+    private static final long[] BISHOP_MAGICS = {
+            0x09204514070C0020L, 0x0420020081210A80L, 0x0050610600260010L, 0x4044140280000019L,
+            0x0004042000124000L, 0x1A21040240088082L, 0x0004041128082100L, 0x400E002404020822L,
+            0x5001600224812400L, 0x8000028208020080L, 0x30840800A3021000L, 0x105004040480C000L,
+            0x0404291040800000L, 0x0440060824040000L, 0x2400010101602120L, 0x4800208041082000L,
+            0x1040001070010501L, 0x0011004604010400L, 0x0008011402440008L, 0x0104005201220000L,
+            0x0305000811402060L, 0x1002026040422000L, 0x0089A00404240200L, 0x0000204A06010C01L,
+            0x0620101018510130L, 0x0081200015040405L, 0x0041900008044410L, 0x5800802288020020L,
+            0x20048C0001806001L, 0x00C3020042C0D00CL, 0x54080048008A1800L, 0x002C404000920810L,
+            0x100603201AC00840L, 0x010C032400200410L, 0x001C208821100020L, 0x30088A0080080280L,
+            0x0B20004040040030L, 0x0922040840480800L, 0x0408128192040201L, 0x0022C082084C8200L,
+            0x8002011038804000L, 0x0080C10410102000L, 0x1002611402001005L, 0x1008A02018048102L,
+            0x4484096012000100L, 0x0004209800400200L, 0x00180288020080C0L, 0x2501061403128046L,
+            0x2002084104308484L, 0x2202A20210041010L, 0x5208008048084000L, 0x0000003020880480L,
+            0x0000004005050080L, 0x8800041810050820L, 0x000C041082020028L, 0x0210100201902000L,
+            0x0109040844020820L, 0x0048210301100604L, 0x0000016044040482L, 0x9001C000C4420220L,
+            0x042081206450C404L, 0x4000002002020200L, 0x0140400401020200L, 0x0056100A42040920L
+    };
+
+    private static final long[] ROOK_MASKS = new long[64];
+    private static final int[] ROOK_SHIFTS = new int[64];
+    private static final int[] ROOK_OFFSETS = new int[64];
+    private static final long[] ROOK_TABLE;
+
+    private static final long[] BISHOP_MASKS = new long[64];
+    private static final int[] BISHOP_SHIFTS = new int[64];
+    private static final int[] BISHOP_OFFSETS = new int[64];
+    private static final long[] BISHOP_TABLE;
+
+    static {
+        for (int square = 0; square < 64; square++) {
+            POSITIONS[square] = new ChessPosition(square / 8 + 1, square % 8 + 1);
+            KNIGHT_ATTACKS[square] = steps(square, new int[][]{{1, 2}, {2, 1}, {2, -1}, {1, -2}, {-1, -2}, {-2, -1}, {-2, 1}, {-1, 2}});
+            KING_ATTACKS[square] = steps(square, new int[][]{{1, 0}, {-1, 0}, {0, 1}, {0, -1}, {1, 1}, {1, -1}, {-1, 1}, {-1, -1}});
+            PAWN_ATTACKS[ChessGame.TeamColor.WHITE.ordinal()][square] = steps(square, new int[][]{{1, -1}, {1, 1}});
+            PAWN_ATTACKS[ChessGame.TeamColor.BLACK.ordinal()][square] = steps(square, new int[][]{{-1, -1}, {-1, 1}});
+        }
+        ROOK_TABLE = buildTable(ROOK_DIRECTIONS, ROOK_MASKS, ROOK_MAGICS, ROOK_SHIFTS, ROOK_OFFSETS);
+        BISHOP_TABLE = buildTable(BISHOP_DIRECTIONS, BISHOP_MASKS, BISHOP_MAGICS, BISHOP_SHIFTS, BISHOP_OFFSETS);
+        for (int from = 0; from < 64; from++) {
+            for (int to = 0; to < 64; to++) {
+                long target = 1L << to;
+                //Attacks from each end that stop at the other meet exactly in between
+                if ((rookAttacks(from, 0) & target) != 0) {
+                    BETWEEN[from][to] = rookAttacks(from, target) & rookAttacks(to, 1L << from);
+                }
+                else if ((bishopAttacks(from, 0) & target) != 0) {
+                    BETWEEN[from][to] = bishopAttacks(from, target) & bishopAttacks(to, 1L << from);
+                }
+            }
+        }
+    }
+
+    private Bitboards() {}
+
+    public static int square(ChessPosition position) {
+        return (position.getRow() - 1) * 8 + position.getColumn() - 1;
+    }
+
+    //Positions are shared rather than allocated for every move
+    public static ChessPosition position(int square) {
+        return POSITIONS[square];
+    }
+
+    public static long knightAttacks(int square) {
+        return KNIGHT_ATTACKS[square];
+    }
+
+    public static long kingAttacks(int square) {
+        return KING_ATTACKS[square];
+    }
+
+    public static long pawnAttacks(ChessGame.TeamColor color, int square) {
+        return PAWN_ATTACKS[color.ordinal()][square];
+    }
+
+    public static long bit(ChessPosition position) {
+        return 1L << square(position);
+    }
+
+    public static long between(int from, int to) {
+        return BETWEEN[from][to];
+    }
+
+    public static long rookAttacks(int square, long occupied) {
+        return ROOK_TABLE[ROOK_OFFSETS[square]
+                + (int) ((occupied & ROOK_MASKS[square]) * ROOK_MAGICS[square] >>> ROOK_SHIFTS[square])];
+    }
+
+    public static long bishopAttacks(int square, long occupied) {
+        return BISHOP_TABLE[BISHOP_OFFSETS[square]
+                + (int) ((occupied & BISHOP_MASKS[square]) * BISHOP_MAGICS[square] >>> BISHOP_SHIFTS[square])];
+    }
+
+    public static long queenAttacks(int square, long occupied) {
+        return rookAttacks(square, occupied) | bishopAttacks(square, occupied);
+    }
+
+    //The squares one step away that are still on the board, only used to build the tables
+    private static long steps(int square, int[][] steps) {
+        long attacks = 0;
+        for (int[] step : steps) {
+            int row = square / 8 + step[0];
+            int col = square % 8 + step[1];
+            if (row >= 0 && row < 8 && col >= 0 && col < 8) {
+                attacks |= 1L << row * 8 + col;
+            }
+        }
+        return attacks;
+    }
+
+    static long slowRookAttacks(int square, long occupied) {
+        return slowAttacks(square, occupied, ROOK_DIRECTIONS, true);
+    }
+
+    static long slowBishopAttacks(int square, long occupied) {
+        return slowAttacks(square, occupied, BISHOP_DIRECTIONS, true);
+    }
+
+    /**
+     * Walks the rays one square at a time, only used to build and check the tables
+     *
+     * @param edges false to leave out each ray's last square, giving the blockers that matter
+     */
+    private static long slowAttacks(int square, long occupied, int[][] directions, boolean edges) {
+        long attacks = 0;
+        for (int[] direction : directions) {
+            int row = square / 8 + direction[0];
+            int col = square % 8 + direction[1];
+            while (row >= 0 && row < 8 && col >= 0 && col < 8) {
+                boolean last = row + direction[0] < 0 || row + direction[0] > 7
+                        || col + direction[1] < 0 || col + direction[1] > 7;
+                if (last && !edges) {
+                    break;
+                }
+                attacks |= 1L << row * 8 + col;
+                if ((occupied & 1L << row * 8 + col) != 0) {
+                    break;
+                }
+                row += direction[0];
+                col += direction[1];
+            }
+        }
+        return attacks;
+    }
+
+    private static long[] buildTable(int[][] directions, long[] masks, long[] magics, int[] shifts, int[] offsets) {
+        int size = 0;
+        for (int square = 0; square < 64; square++) {
+            masks[square] = slowAttacks(square, 0, directions, false);
+            shifts[square] = 64 - Long.bitCount(masks[square]);
+            offsets[square] = size;
+            size += 1 << Long.bitCount(masks[square]);
+        }
+        long[] table = new long[size];
+        for (int square = 0; square < 64; square++) {
+            //Visit every subset of the mask
+            long blockers = 0;
+            do {
+                int index = (int) (blockers * magics[square] >>> shifts[square]);
+                table[offsets[square] + index] = slowAttacks(square, blockers, directions, true);
+                blockers = (blockers - masks[square]) & masks[square];
+            } while (blockers != 0);
+        }
+        return table;
+    }
+
+    //Searches for new magics and prints them in the form used above
+    public static void main(String[] args) {
+        long[] seed = {0x2545F4914F6CDD1DL};
+        for (int[][] directions : new int[][][] {ROOK_DIRECTIONS, BISHOP_DIRECTIONS}) {
+            StringBuilder magics = new StringBuilder();
+            for (int square = 0; square < 64; square++) {
+                magics.append(String.format("0x%016XL,%s", findMagic(square, directions, seed), square % 4 == 3 ? "\n" : " "));
+            }
+            System.out.println(magics);
+        }
+    }
+
+    private static long findMagic(int square, int[][] directions, long[] seed) {
+        long mask = slowAttacks(square, 0, directions, false);
+        int bits = Long.bitCount(mask);
+        int entries = 1 << bits;
+        long[] blockers = new long[entries];
+        long[] attacks = new long[entries];
+        long subset = 0;
+        for (int i = 0; i < entries; i++) {
+            blockers[i] = subset;
+            attacks[i] = slowAttacks(square, subset, directions, true);
+            subset = (subset - mask) & mask;
+        }
+        long[] slots = new long[entries];
+        int[] filledIn = new int[entries];
+        for (int attempt = 1; ; attempt++) {
+            //Magics with few set bits work far more often
+            long magic = nextRandom(seed) & nextRandom(seed) & nextRandom(seed);
+            boolean collided = false;
+            for (int i = 0; i < entries && !collided; i++) {
+                int index = (int) (blockers[i] * magic >>> (64 - bits));
+                //Two blocker sets may share a slot only if they give the same attacks
+                if (filledIn[index] != attempt) {
+                    filledIn[index] = attempt;
+                    slots[index] = attacks[i];
+                }
+                else if (slots[index] != attacks[i]) {
+                    collided = true;
+                }
+            }
+            if (!collided) {
+                return magic;
+            }
+        }
+    }
+
+    private static long nextRandom(long[] seed) {
+        long x = seed[0];
+        x ^= x >>> 12;
+        x ^= x << 25;
+        x ^= x >>> 27;
+        seed[0] = x;
+        return x * 0x2545F4914F6CDD1DL;
+    }
+}
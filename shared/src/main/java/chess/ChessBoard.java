@@ -27,7 +27,16 @@ public class ChessBoard {
      * @param piece    the piece to add
      */
     public void addPiece(ChessPosition position, ChessPiece piece) {
-        piecesMap.put(position, piece);
+        ChessPiece replaced = piecesMap.put(position, piece);
+        if (bitboards != null && onBoard(position)) {
+            long bit = 1L << Bitboards.square(position);
+            if (replaced != null) {
+                bitboards[index(replaced.getTeamColor(), replaced.getPieceType())] &= ~bit;
+            }
+            if (piece != null) {
+                bitboards[index(piece.getTeamColor(), piece.getPieceType())] |= bit;
+            }
+        }
     }
 
     /**
@@ -52,6 +61,8 @@ public class ChessBoard {
                 piecesMap.put(destination, null);
             }
         }
+        //The squares were cleared behind the masks' back, so they're rebuilt on next use
+        bitboards = null;
         this.addPiece(new ChessPosition(1,1), new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.ROOK));
         this.addPiece(new ChessPosition(1,2), new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KNIGHT));
         this.addPiece(new ChessPosition(1,3), new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.BISHOP));
@@ -75,8 +86,60 @@ public class ChessBoard {
     }
 
 
+    /**
+     * @return a mask of the squares holding this team's pieces of this type
+     */
+    public long pieces(ChessGame.TeamColor color, ChessPiece.PieceType type) {
+        return bitboards()[index(color, type)];
+    }
+
+    /**
+     * @return a mask of the squares holding any of this team's pieces
+     */
+    public long pieces(ChessGame.TeamColor color) {
+        long[] boards = bitboards();
+        int first = index(color, ChessPiece.PieceType.KING);
+        long pieces = 0;
+        for (int i = first; i < first + PIECE_TYPES; i++) {
+            pieces |= boards[i];
+        }
+        return pieces;
+    }
+
+    public long occupied() {
+        return pieces(ChessGame.TeamColor.WHITE) | pieces(ChessGame.TeamColor.BLACK);
+    }
+
+    //The masks are not serialized, so a board read from JSON builds them from the map on first use
+    private long[] bitboards() {
+        if (bitboards == null) {
+            long[] boards = new long[2 * PIECE_TYPES];
+            for (var entry : piecesMap.entrySet()) {
+                ChessPiece piece = entry.getValue();
+                if (piece != null && onBoard(entry.getKey())) {
+                    boards[index(piece.getTeamColor(), piece.getPieceType())] |= 1L << Bitboards.square(entry.getKey());
+                }
+            }
+            bitboards = boards;
+        }
+        return bitboards;
+    }
+
+    private static int index(ChessGame.TeamColor color, ChessPiece.PieceType type) {
+        return color.ordinal() * PIECE_TYPES + type.ordinal();
+    }
+
+    private static boolean onBoard(ChessPosition position) {
+        return position.getRow() >= 1 && position.getRow() <= 8 && position.getColumn() >= 1 && position.getColumn() <= 8;
+    }
+
+    private static final int PIECE_TYPES = ChessPiece.PieceType.values().length;
+
     private HashMap<ChessPosition, ChessPiece> piecesMap;
 
+    //One mask per team and piece type, kept in step with piecesMap once built
+    private transient long[] bitboards;
+
     @Override
     public boolean equals(Object o) {
         if (o == null || getClass() != o.getClass()) {
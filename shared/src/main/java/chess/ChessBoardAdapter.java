@@ -0,0 +1,169 @@
+package chess;
+
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+
+/**
+ * Writes a board as the piece placement part of FEN, like
+ * rnbqkbnr/pppppppp/8/8/4P3/8/PPPP1PPP/RNBQKBNR, instead of all 64 squares of its map
+ * as position and piece objects. Boards in that old form are still read.
+ */
+public class ChessBoardAdapter extends TypeAdapter<ChessBoard> {
+    //FEN letters in PieceType order, upper case for white
+    private static final String LETTERS = "KQBNRPkqbnrp";
+    //Pieces hold nothing but a color and a type, so every board read can share these
+    private static final ChessPiece[] PIECES = new ChessPiece[LETTERS.length()];
+
+    static {
+        for (int i = 0; i < PIECES.length; i++) {
+            PIECES[i] = new ChessPiece(ChessGame.TeamColor.values()[i / 6], ChessPiece.PieceType.values()[i % 6]);
+        }
+    }
+
+    @Override
+    public void write(JsonWriter out, ChessBoard board) throws IOException {
+        if (board == null) {
+            out.nullValue();
+            return;
+        }
+        char[] squares = new char[64];
+        for (int i = 0; i < PIECES.length; i++) {
+            long pieces = board.pieces(PIECES[i].getTeamColor(), PIECES[i].getPieceType());
+            while (pieces != 0) {
+                squares[Long.numberOfTrailingZeros(pieces)] = LETTERS.charAt(i);
+                pieces &= pieces - 1;
+            }
+        }
+        StringBuilder placement = new StringBuilder(71);
+        for (int row = 7; row >= 0; row--) {
+            int empty = 0;
+            for (int column = 0; column < 8; column++) {
+                char letter = squares[row * 8 + column];
+                if (letter == 0) {
+                    empty++;
+                    continue;
+                }
+                if (empty > 0) {
+                    placement.append(empty);
+                    empty = 0;
+                }
+                placement.append(letter);
+            }
+            if (empty > 0) {
+                placement.append(empty);
+            }
+            if (row > 0) {
+                placement.append('/');
+            }
+        }
+        out.value(placement.toString());
+    }
+
+    @Override
+    public ChessBoard read(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        if (in.peek() == JsonToken.STRING) {
+            return parse(in.nextString());
+        }
+        ChessBoard board = new ChessBoard();
+        in.beginObject();
+        while (in.hasNext()) {
+            if (in.nextName().equals("piecesMap")) {
+                readPiecesMap(in, board);
+            }
+            else {
+                in.skipValue();
+            }
+        }
+        in.endObject();
+        return board;
+    }
+
+    /**
+     * Parses the piece placement part of FEN
+     *
+     * @throws JsonSyntaxException if the text doesn't describe exactly 8 rows of 8 squares
+     */
+    public static ChessBoard parse(String placement) {
+        ChessBoard board = new ChessBoard();
+        int row = 7;
+        int column = 0;
+        for (int i = 0; i < placement.length(); i++) {
+            char c = placement.charAt(i);
+            if (c == '/' && column == 8 && row > 0) {
+                row--;
+                column = 0;
+            }
+            else if (c >= '1' && c <= '8' && column + c - '0' <= 8) {
+                column += c - '0';
+            }
+            else if (LETTERS.indexOf(c) >= 0 && column < 8) {
+                board.addPiece(Bitboards.position(row * 8 + column), piece(c));
+                column++;
+            }
+            else {
+                throw new JsonSyntaxException("Not a board: " + placement);
+            }
+        }
+        if (row != 0 || column != 8) {
+            throw new JsonSyntaxException("Not a board: " + placement);
+        }
+        return board;
+    }
+
+    static char letter(ChessPiece piece) {
+        return LETTERS.charAt(piece.getTeamColor().ordinal() * 6 + piece.getPieceType().ordinal());
+    }
+
+    static ChessPiece piece(char letter) {
+        int index = LETTERS.indexOf(letter);
+        if (index < 0) {
+            throw new JsonSyntaxException("Not a piece: " + letter);
+        }
+        return PIECES[index];
+    }
+
+    //Pieces in the old form, {"myColor":"WHITE","myType":"ROOK"}
+    static ChessPiece readPiece(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        ChessGame.TeamColor color = null;
+        ChessPiece.PieceType type = null;
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "myColor" -> color = ChessMoveAdapter.readEnum(in, ChessGame.TeamColor.class);
+                case "myType" -> type = ChessMoveAdapter.readEnum(in, ChessPiece.PieceType.class);
+                default -> in.skipValue();
+            }
+        }
+        in.endObject();
+        if (color == null || type == null) {
+            throw new JsonSyntaxException("Piece without a color or type");
+        }
+        return PIECES[color.ordinal() * 6 + type.ordinal()];
+    }
+
+    //The old map was written as an array of [position, piece] pairs
+    private static void readPiecesMap(JsonReader in, ChessBoard board) throws IOException {
+        in.beginArray();
+        while (in.hasNext()) {
+            in.beginArray();
+            ChessPosition position = ChessMoveAdapter.readPosition(in);
+            ChessPiece piece = readPiece(in);
+            in.endArray();
+            board.addPiece(position, piece);
+        }
+        in.endArray();
+    }
+}
@@ -1,8 +1,10 @@
 package chess;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
-import java.util.Iterator;
+import java.util.List;
 import java.util.Objects;
 
 /**
@@ -25,6 +27,15 @@ public class ChessGame {
         rook18Moved = false;
         rook81Moved = false;
         rook88Moved = false;
+        moveHistory = new ArrayList<>();
+        gameOver = false;
+    }
+
+    //For ChessGameAdapter, which sets everything else it reads without resetting a board first
+    ChessGame(ChessBoard board, TeamColor turn) {
+        gameBoard = board;
+        currentTurn = turn;
+        moveHistory = new ArrayList<>();
     }
 
     /**
@@ -78,17 +89,40 @@ public class ChessGame {
             return null;
         }
         HashSet<ChessMove> legalMoves = new HashSet<>();
-        Collection<ChessMove> proposedMoves = movingPiece.pieceMoves(gameBoard, startPosition);
-        for (Iterator<ChessMove> moveIt = proposedMoves.iterator(); moveIt.hasNext();) {
-            ChessMove move = moveIt.next();
-            ChessPosition destination = move.getEndPosition();
-            ChessPiece aboutToGetCaptured = gameBoard.getPiece(destination);
-            this.forceMove(move);
-            if (!isInCheck(movingPiece.getTeamColor())) {
-                legalMoves.add(move);
+        addLegalMoves(startPosition, movingPiece, new Restrictions(movingPiece.getTeamColor()), legalMoves);
+        return legalMoves;
+    }
+
+    /**
+     * Adds a piece's legal moves. Moves that would leave the king in check are never
+     * generated, except that king moves and en passant are checked one by one since they
+     * change which lines lead to the king.
+     */
+    private void addLegalMoves(ChessPosition startPosition, ChessPiece movingPiece, Restrictions restrictions,
+                               Collection<ChessMove> legalMoves) {
+        int from = Bitboards.square(startPosition);
+        TeamColor enemy = opponent(movingPiece.getTeamColor());
+        if (movingPiece.getPieceType() == ChessPiece.PieceType.KING) {
+            //The king can't hide from a slider by stepping along its line, so it comes off the board first
+            long occupied = gameBoard.occupied() & ~(1L << from);
+            for (ChessMove move : movingPiece.pieceMoves(gameBoard, startPosition)) {
+                if (!isAttacked(Bitboards.square(move.getEndPosition()), enemy, occupied)) {
+                    legalMoves.add(move);
+                }
+            }
+        }
+        else {
+            long allowed = restrictions.checkMask;
+            if ((restrictions.pinned & 1L << from) != 0) {
+                allowed &= restrictions.pinRays[from];
+            }
+            if (allowed != 0) {
+                for (ChessMove move : movingPiece.pieceMoves(gameBoard, startPosition)) {
+                    if ((allowed & Bitboards.bit(move.getEndPosition())) != 0) {
+                        legalMoves.add(move);
+                    }
+                }
             }
-            this.forceMove(new ChessMove(destination, startPosition, null));
-            gameBoard.addPiece(destination, aboutToGetCaptured);
         }
         //Check for En Passant
         checkForBlackEnPassant(startPosition, legalMoves);
@@ -100,7 +134,52 @@ public class ChessGame {
         if (startPosition.getRow() == 8 && startPosition.getColumn() == 5) {
             checkForBlackCastle(legalMoves);
         }
-        return legalMoves;
+    }
+
+    /**
+     * Where a team's pieces other than the king may move, worked out once per position.
+     * In check, a move has to capture the checker or block it, and against two checkers
+     * only the king can move. A pinned piece has to stay on the line between its king and
+     * the enemy piece pinning it.
+     */
+    private final class Restrictions {
+        private long checkMask = -1L;
+        private long pinned;
+        private final long[] pinRays = new long[64];
+
+        Restrictions(TeamColor team) {
+            long king = gameBoard.pieces(team, ChessPiece.PieceType.KING);
+            if (king == 0) {
+                return;
+            }
+            int kingSquare = 63 - Long.numberOfLeadingZeros(king);
+            TeamColor enemy = opponent(team);
+            long occupied = gameBoard.occupied();
+            long checkers = attackers(kingSquare, enemy, occupied);
+            if (Long.bitCount(checkers) > 1) {
+                checkMask = 0;
+            }
+            else if (checkers != 0) {
+                checkMask = checkers | Bitboards.between(kingSquare, Long.numberOfTrailingZeros(checkers));
+            }
+            //Sliders that would see the king if only our own pieces were removed
+            long enemyPieces = gameBoard.pieces(enemy);
+            long queens = gameBoard.pieces(enemy, ChessPiece.PieceType.QUEEN);
+            long snipers = (Bitboards.rookAttacks(kingSquare, enemyPieces)
+                    & (gameBoard.pieces(enemy, ChessPiece.PieceType.ROOK) | queens))
+                    | (Bitboards.bishopAttacks(kingSquare, enemyPieces)
+                    & (gameBoard.pieces(enemy, ChessPiece.PieceType.BISHOP) | queens));
+            long own = gameBoard.pieces(team);
+            while (snipers != 0) {
+                int sniper = Long.numberOfTrailingZeros(snipers);
+                snipers &= snipers - 1;
+                long blockers = Bitboards.between(kingSquare, sniper) & occupied;
+                if (Long.bitCount(blockers) == 1 && (blockers & own) != 0) {
+                    pinned |= blockers;
+                    pinRays[Long.numberOfTrailingZeros(blockers)] = Bitboards.between(kingSquare, sniper) | 1L << sniper;
+                }
+            }
+        }
     }
 
     /**
@@ -188,11 +267,12 @@ public class ChessGame {
                 rook81Moved = true;
             }
             if (startPosition.getRow() == 8 && startPosition.getColumn() == 8) {
-                rook11Moved = true;
+                rook88Moved = true;
             }
         }
         lastMove = move;
         lastMovingPiece = movingPiece;
+        moveHistory.add(move);
     }
 
     /**
@@ -202,29 +282,35 @@ public class ChessGame {
      * @return True if the specified team is in check
      */
     public boolean isInCheck(TeamColor teamColor) {
-        HashSet<ChessPosition> allUnderAttack = new HashSet<>();
-        ChessPosition kingPosition = null;
-        for (int i = 1; i <= 8; i++) {
-            for(int j = 1; j <= 8; j++) {
-                ChessPosition targetPosition = new ChessPosition(i, j);
-                ChessPiece targetPiece = this.gameBoard.getPiece(targetPosition);
-                if (targetPiece == null) {
-                    continue;
-                }
-                ChessPiece.PieceType targetPieceType = targetPiece.getPieceType();
-                if (targetPieceType == ChessPiece.PieceType.KING & targetPiece.getTeamColor() == teamColor) {
-                    kingPosition = targetPosition;
-                }
-                else if (targetPiece.getTeamColor() != teamColor) {
-                    Collection<ChessMove> targetPieceMoves = targetPiece.pieceMoves(gameBoard, targetPosition);
-                    for (Iterator<ChessMove> moveIt = targetPieceMoves.iterator(); moveIt.hasNext();) {
-                        ChessMove move = moveIt.next();
-                        allUnderAttack.add(move.getEndPosition());
-                    }
-                }
-            }
+        long king = gameBoard.pieces(teamColor, ChessPiece.PieceType.KING);
+        if (king == 0) {
+            return false;
         }
-        return allUnderAttack.contains(kingPosition);
+        return isAttacked(63 - Long.numberOfLeadingZeros(king), opponent(teamColor), gameBoard.occupied());
+    }
+
+    private boolean isAttacked(int square, TeamColor byColor, long occupied) {
+        return attackers(square, byColor, occupied) != 0;
+    }
+
+    /**
+     * A piece attacks a square exactly when a piece of its kind on that square, moving the
+     * other way, would land on it
+     *
+     * @param occupied the pieces that block sliders, which need not be the board's
+     * @return a mask of byColor's pieces attacking the square
+     */
+    private long attackers(int square, TeamColor byColor, long occupied) {
+        long queens = gameBoard.pieces(byColor, ChessPiece.PieceType.QUEEN);
+        return (Bitboards.rookAttacks(square, occupied) & (gameBoard.pieces(byColor, ChessPiece.PieceType.ROOK) | queens))
+                | (Bitboards.bishopAttacks(square, occupied) & (gameBoard.pieces(byColor, ChessPiece.PieceType.BISHOP) | queens))
+                | (Bitboards.knightAttacks(square) & gameBoard.pieces(byColor, ChessPiece.PieceType.KNIGHT))
+                | (Bitboards.kingAttacks(square) & gameBoard.pieces(byColor, ChessPiece.PieceType.KING))
+                | (Bitboards.pawnAttacks(opponent(byColor), square) & gameBoard.pieces(byColor, ChessPiece.PieceType.PAWN));
+    }
+
+    private static TeamColor opponent(TeamColor team) {
+        return team == TeamColor.WHITE ? TeamColor.BLACK : TeamColor.WHITE;
     }
 
     /**
@@ -273,6 +359,7 @@ public class ChessGame {
         rook18Moved = false;
         rook81Moved = false;
         rook88Moved = false;
+        moveHistory = new ArrayList<>();
     }
 
     /**
@@ -284,6 +371,58 @@ public class ChessGame {
         return this.gameBoard;
     }
 
+    /**
+     * The moves made so far, oldest first. Setting the board starts a new history, so only a
+     * history whose game began from the normal starting board can be replayed from it.
+     *
+     * @return the moves made since the board was last set
+     */
+    public List<ChessMove> getMoveHistory() {
+        return Collections.unmodifiableList(moveHistory);
+    }
+
+    /**
+     * @return True once the game has ended by checkmate, stalemate, resignation or adjudication
+     */
+    public boolean isGameOver() {
+        return gameOver;
+    }
+
+    public void setGameOver(boolean gameOver) {
+        this.gameOver = gameOver;
+    }
+
+    /**
+     * Whether a team may still castle to one side, judged only by whether its king and
+     * that rook have moved. The board still decides if castling is legal right now.
+     *
+     * @param teamColor the team asking
+     * @param kingSide true for the rook in column 8, false for the rook in column 1
+     * @return True if neither the king nor that rook has moved
+     */
+    public boolean hasCastlingRight(TeamColor teamColor, boolean kingSide) {
+        if (teamColor == TeamColor.WHITE) {
+            return !whiteKingMoved && !(kingSide ? rook18Moved : rook11Moved);
+        }
+        return !blackKingMoved && !(kingSide ? rook88Moved : rook81Moved);
+    }
+
+    /**
+     * Gets the square a pawn capturing en passant would move to
+     *
+     * @return the square passed over by the last move, or null if the last move was not
+     * a pawn moving two squares
+     */
+    public ChessPosition getEnPassantTarget() {
+        if (lastMoveWhitePawnDouble()) {
+            return new ChessPosition(3, lastMove.getEndPosition().getColumn());
+        }
+        if (lastMoveBlackPawnDouble()) {
+            return new ChessPosition(6, lastMove.getEndPosition().getColumn());
+        }
+        return null;
+    }
+
     /**
         A private callable method to make a move whether it's valid or not
         Does not handle pawn promotions, use makeMove for that
@@ -297,22 +436,16 @@ public class ChessGame {
     }
 
     /**
-     * Returns a collection of all legal moves for a team
+     * Returns a collection of all legal moves for a team, in one pass over its pieces
      */
     private Collection<ChessMove> getWholeTeamMoves(ChessGame.TeamColor teamColor) {
         HashSet<ChessMove> allLegalMoves = new HashSet<>();
-        for (int i = 1; i <= 8; i++) {
-            for (int j = 1; j <= 8; j++) {
-                ChessPosition targetPosition = new ChessPosition(i, j);
-                ChessPiece targetPiece = this.gameBoard.getPiece(targetPosition);
-                if (targetPiece == null) {
-                    continue;
-                }
-                if (targetPiece.getTeamColor() == teamColor) {
-                    Collection<ChessMove> targetPieceMoves = validMoves(targetPosition);
-                    allLegalMoves.addAll(targetPieceMoves);
-                }
-            }
+        Restrictions restrictions = new Restrictions(teamColor);
+        long pieces = gameBoard.pieces(teamColor);
+        while (pieces != 0) {
+            ChessPosition targetPosition = Bitboards.position(Long.numberOfTrailingZeros(pieces));
+            addLegalMoves(targetPosition, gameBoard.getPiece(targetPosition), restrictions, allLegalMoves);
+            pieces &= pieces - 1;
         }
         return allLegalMoves;
     }
@@ -383,24 +516,15 @@ public class ChessGame {
 
     private void castleHelper(ChessPosition startPosition, ChessPosition step1, ChessPosition step2, Collection<ChessMove> legalMoves) {
         //Ensures that the castling move isn't into, out of, or through check
-        TeamColor activeColor = gameBoard.getPiece(startPosition).getTeamColor();
-        if (isInCheck(activeColor)) {
+        TeamColor enemy = opponent(gameBoard.getPiece(startPosition).getTeamColor());
+        if (gameBoard.getPiece(step1) != null || gameBoard.getPiece(step2) != null) {
             return;
         }
-        if (gameBoard.getPiece(step1) == null && gameBoard.getPiece(step2) == null) {
-            boolean safe = true;
-            forceMove(new ChessMove(startPosition, step1, null));
-            if (isInCheck(activeColor)) {
-                safe = false;
-            }
-            forceMove(new ChessMove(step1, step2, null));
-            if (isInCheck(activeColor)) {
-                safe = false;
-            }
-            if (safe) {
-                legalMoves.add(new ChessMove(startPosition, step2, null));
-            }
-            forceMove(new ChessMove(step2, startPosition, null));
+        long occupied = gameBoard.occupied() & ~Bitboards.bit(startPosition);
+        if (!isAttacked(Bitboards.square(startPosition), enemy, occupied)
+                && !isAttacked(Bitboards.square(step1), enemy, occupied)
+                && !isAttacked(Bitboards.square(step2), enemy, occupied)) {
+            legalMoves.add(new ChessMove(startPosition, step2, null));
         }
     }
 
@@ -480,14 +604,17 @@ public class ChessGame {
 
     private ChessBoard gameBoard;
     private ChessGame.TeamColor currentTurn;
-    private ChessMove lastMove;
-    private ChessPiece lastMovingPiece;
-    private boolean whiteKingMoved;
-    private boolean rook11Moved;
-    private boolean rook18Moved;
-    private boolean blackKingMoved;
-    private boolean rook81Moved;
-    private boolean rook88Moved;
+    //Package-private so ChessGameAdapter can save and restore them without reflection
+    ChessMove lastMove;
+    ChessPiece lastMovingPiece;
+    boolean whiteKingMoved;
+    boolean rook11Moved;
+    boolean rook18Moved;
+    boolean blackKingMoved;
+    boolean rook81Moved;
+    boolean rook88Moved;
+    ArrayList<ChessMove> moveHistory;
+    private boolean gameOver;
 
     //private boolean debug = true;
 }
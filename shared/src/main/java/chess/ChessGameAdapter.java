@@ -0,0 +1,142 @@
+package chess;
+
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+
+/**
+ * Writes a game as a small fixed set of fields, for example
+ * {"board":"rnbqkbnr/pppppppp/8/8/4P3/8/PPPP1PPP/RNBQKBNR","turn":"BLACK","castling":"KQkq",
+ * "lastMove":"e2e4","lastMovingPiece":"P","history":["e2e4"],"gameOver":false}
+ * <p>
+ * Castling is written as FEN castling rights rather than the six moved flags, which says
+ * the same thing since a right can only be lost by moving the king or that rook. Games
+ * written by plain Gson reflection, as the games table held before, are still read.
+ */
+public class ChessGameAdapter extends TypeAdapter<ChessGame> {
+    private final ChessBoardAdapter boards = new ChessBoardAdapter();
+    private final ChessMoveAdapter moves = new ChessMoveAdapter();
+
+    @Override
+    public void write(JsonWriter out, ChessGame game) throws IOException {
+        if (game == null) {
+            out.nullValue();
+            return;
+        }
+        out.beginObject();
+        out.name("board");
+        boards.write(out, game.getBoard());
+        out.name("turn").value(game.getTeamTurn() == null ? null : game.getTeamTurn().name());
+        out.name("castling").value(castling(game));
+        out.name("lastMove");
+        moves.write(out, game.lastMove);
+        if (game.lastMovingPiece != null) {
+            out.name("lastMovingPiece").value(String.valueOf(ChessBoardAdapter.letter(game.lastMovingPiece)));
+        }
+        out.name("history").beginArray();
+        for (ChessMove move : game.moveHistory) {
+            moves.write(out, move);
+        }
+        out.endArray();
+        out.name("gameOver").value(game.isGameOver());
+        out.endObject();
+    }
+
+    @Override
+    public ChessGame read(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        ChessBoard board = null;
+        ChessGame.TeamColor turn = ChessGame.TeamColor.WHITE;
+        String castling = null;
+        ChessMove lastMove = null;
+        ChessPiece lastMovingPiece = null;
+        ArrayList<ChessMove> history = new ArrayList<>();
+        boolean gameOver = false;
+        //whiteKingMoved, rook11Moved, rook18Moved, blackKingMoved, rook81Moved and rook88Moved
+        boolean[] moved = new boolean[6];
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "board", "gameBoard" -> board = boards.read(in);
+                case "turn", "currentTurn" -> turn = ChessMoveAdapter.readEnum(in, ChessGame.TeamColor.class);
+                case "castling" -> castling = in.nextString();
+                case "lastMove" -> lastMove = moves.read(in);
+                case "lastMovingPiece" -> lastMovingPiece = in.peek() == JsonToken.STRING
+                        ? piece(in.nextString()) : ChessBoardAdapter.readPiece(in);
+                case "history", "moveHistory" -> readHistory(in, history);
+                case "gameOver" -> gameOver = in.nextBoolean();
+                case "whiteKingMoved" -> moved[0] = in.nextBoolean();
+                case "rook11Moved" -> moved[1] = in.nextBoolean();
+                case "rook18Moved" -> moved[2] = in.nextBoolean();
+                case "blackKingMoved" -> moved[3] = in.nextBoolean();
+                case "rook81Moved" -> moved[4] = in.nextBoolean();
+                case "rook88Moved" -> moved[5] = in.nextBoolean();
+                default -> in.skipValue();
+            }
+        }
+        in.endObject();
+        if (board == null) {
+            throw new JsonSyntaxException("Game without a board");
+        }
+        if (castling != null) {
+            moved[0] = false;
+            moved[1] = castling.indexOf('Q') < 0;
+            moved[2] = castling.indexOf('K') < 0;
+            moved[3] = false;
+            moved[4] = castling.indexOf('q') < 0;
+            moved[5] = castling.indexOf('k') < 0;
+        }
+        ChessGame game = new ChessGame(board, turn);
+        game.lastMove = lastMove;
+        game.lastMovingPiece = lastMovingPiece;
+        game.moveHistory = history;
+        game.setGameOver(gameOver);
+        game.whiteKingMoved = moved[0];
+        game.rook11Moved = moved[1];
+        game.rook18Moved = moved[2];
+        game.blackKingMoved = moved[3];
+        game.rook81Moved = moved[4];
+        game.rook88Moved = moved[5];
+        return game;
+    }
+
+    private void readHistory(JsonReader in, ArrayList<ChessMove> history) throws IOException {
+        in.beginArray();
+        while (in.hasNext()) {
+            history.add(moves.read(in));
+        }
+        in.endArray();
+    }
+
+    private static String castling(ChessGame game) {
+        StringBuilder rights = new StringBuilder(4);
+        if (game.hasCastlingRight(ChessGame.TeamColor.WHITE, true)) {
+            rights.append('K');
+        }
+        if (game.hasCastlingRight(ChessGame.TeamColor.WHITE, false)) {
+            rights.append('Q');
+        }
+        if (game.hasCastlingRight(ChessGame.TeamColor.BLACK, true)) {
+            rights.append('k');
+        }
+        if (game.hasCastlingRight(ChessGame.TeamColor.BLACK, false)) {
+            rights.append('q');
+        }
+        return rights.isEmpty() ? "-" : rights.toString();
+    }
+
+    private static ChessPiece piece(String letter) {
+        if (letter.length() != 1) {
+            throw new JsonSyntaxException("Not a piece: " + letter);
+        }
+        return ChessBoardAdapter.piece(letter.charAt(0));
+    }
+}
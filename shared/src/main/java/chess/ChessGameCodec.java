@@ -0,0 +1,137 @@
+package chess;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+
+/**
+ * Packs a game into a few dozen bytes for the binary websocket protocol, the binary
+ * counterpart of ChessGameAdapter.
+ * <p>
+ * The board is 32 bytes, one nibble per square from a1 to h8 with the lower square in the low
+ * nibble: 0 is empty, PieceType ordinal + 1 a white piece, and the same with 8 added a black
+ * one. A state byte follows with the side to move, the four castling rights, whether the game
+ * is over and whether a last move follows. The last move is three bytes and the nibble of the
+ * piece that made it, then the history is a 2 byte count and three bytes per move.
+ */
+public final class ChessGameCodec {
+    private static final int BLACK_PIECE = 8;
+    private static final int BLACK_TO_MOVE = 1;
+    private static final int WHITE_KING_SIDE = 1 << 1;
+    private static final int WHITE_QUEEN_SIDE = 1 << 2;
+    private static final int BLACK_KING_SIDE = 1 << 3;
+    private static final int BLACK_QUEEN_SIDE = 1 << 4;
+    private static final int GAME_OVER = 1 << 5;
+    private static final int HAS_LAST_MOVE = 1 << 6;
+    private static final byte NO_PROMOTION = -1;
+    private static final ChessPiece.PieceType[] PIECE_TYPES = ChessPiece.PieceType.values();
+
+    private ChessGameCodec() {}
+
+    public static void write(DataOutputStream out, ChessGame game) throws IOException {
+        ChessBoard board = game.getBoard();
+        for (int square = 0; square < 64; square += 2) {
+            out.writeByte(code(board.getPiece(position(square))) | code(board.getPiece(position(square + 1))) << 4);
+        }
+        int state = 0;
+        if (game.getTeamTurn() == ChessGame.TeamColor.BLACK) {
+            state |= BLACK_TO_MOVE;
+        }
+        if (game.hasCastlingRight(ChessGame.TeamColor.WHITE, true)) {
+            state |= WHITE_KING_SIDE;
+        }
+        if (game.hasCastlingRight(ChessGame.TeamColor.WHITE, false)) {
+            state |= WHITE_QUEEN_SIDE;
+        }
+        if (game.hasCastlingRight(ChessGame.TeamColor.BLACK, true)) {
+            state |= BLACK_KING_SIDE;
+        }
+        if (game.hasCastlingRight(ChessGame.TeamColor.BLACK, false)) {
+            state |= BLACK_QUEEN_SIDE;
+        }
+        if (game.isGameOver()) {
+            state |= GAME_OVER;
+        }
+        if (game.lastMove != null) {
+            state |= HAS_LAST_MOVE;
+        }
+        out.writeByte(state);
+        if (game.lastMove != null) {
+            writeMove(out, game.lastMove);
+            out.writeByte(code(game.lastMovingPiece));
+        }
+        out.writeShort(game.moveHistory.size());
+        for (ChessMove move : game.moveHistory) {
+            writeMove(out, move);
+        }
+    }
+
+    public static ChessGame read(ByteBuffer frame) {
+        ChessBoard board = new ChessBoard();
+        for (int square = 0; square < 64; square += 2) {
+            int packed = frame.get();
+            board.addPiece(position(square), piece(packed & 0xF));
+            board.addPiece(position(square + 1), piece(packed >> 4 & 0xF));
+        }
+        int state = frame.get();
+        ChessGame game = new ChessGame(board, (state & BLACK_TO_MOVE) != 0 ? ChessGame.TeamColor.BLACK : ChessGame.TeamColor.WHITE);
+        //A right can only be lost by moving the king or that rook, so the rook flags alone say the same
+        game.whiteKingMoved = false;
+        game.blackKingMoved = false;
+        game.rook18Moved = (state & WHITE_KING_SIDE) == 0;
+        game.rook11Moved = (state & WHITE_QUEEN_SIDE) == 0;
+        game.rook88Moved = (state & BLACK_KING_SIDE) == 0;
+        game.rook81Moved = (state & BLACK_QUEEN_SIDE) == 0;
+        game.setGameOver((state & GAME_OVER) != 0);
+        if ((state & HAS_LAST_MOVE) != 0) {
+            game.lastMove = readMove(frame);
+            game.lastMovingPiece = piece(frame.get());
+        }
+        int count = frame.getChar();
+        ArrayList<ChessMove> history = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            history.add(readMove(frame));
+        }
+        game.moveHistory = history;
+        return game;
+    }
+
+    private static int code(ChessPiece piece) {
+        if (piece == null) {
+            return 0;
+        }
+        int code = piece.getPieceType().ordinal() + 1;
+        return piece.getTeamColor() == ChessGame.TeamColor.BLACK ? code | BLACK_PIECE : code;
+    }
+
+    private static ChessPiece piece(int code) {
+        if (code == 0) {
+            return null;
+        }
+        ChessGame.TeamColor color = (code & BLACK_PIECE) != 0 ? ChessGame.TeamColor.BLACK : ChessGame.TeamColor.WHITE;
+        return new ChessPiece(color, PIECE_TYPES[(code & ~BLACK_PIECE) - 1]);
+    }
+
+    private static void writeMove(DataOutputStream out, ChessMove move) throws IOException {
+        out.writeByte(square(move.getStartPosition()));
+        out.writeByte(square(move.getEndPosition()));
+        ChessPiece.PieceType promotion = move.getPromotionPiece();
+        out.writeByte(promotion == null ? NO_PROMOTION : promotion.ordinal());
+    }
+
+    private static ChessMove readMove(ByteBuffer frame) {
+        ChessPosition start = position(frame.get());
+        ChessPosition end = position(frame.get());
+        byte promotion = frame.get();
+        return new ChessMove(start, end, promotion == NO_PROMOTION ? null : PIECE_TYPES[promotion]);
+    }
+
+    private static int square(ChessPosition position) {
+        return (position.getRow() - 1) * 8 + (position.getColumn() - 1);
+    }
+
+    private static ChessPosition position(int square) {
+        return new ChessPosition(square / 8 + 1, square % 8 + 1);
+    }
+}
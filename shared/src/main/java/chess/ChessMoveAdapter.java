@@ -0,0 +1,160 @@
+package chess;
+
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+
+/**
+ * Writes a move in coordinate notation, like e2e4 or e7e8q, instead of Gson's nested
+ * position objects. Moves in the old form, start and end positions as objects, are still
+ * read, and a move with a square off the board is still written that way since the square
+ * has no name.
+ */
+public class ChessMoveAdapter extends TypeAdapter<ChessMove> {
+    private static final String PROMOTIONS = "kqbnrp";
+
+    @Override
+    public void write(JsonWriter out, ChessMove move) throws IOException {
+        if (move == null) {
+            out.nullValue();
+            return;
+        }
+        if (named(move.getStartPosition()) && named(move.getEndPosition())) {
+            out.value(toString(move));
+            return;
+        }
+        out.beginObject();
+        out.name("startPosition");
+        writePosition(out, move.getStartPosition());
+        out.name("endPosition");
+        writePosition(out, move.getEndPosition());
+        if (move.getPromotionPiece() != null) {
+            out.name("promotionPiece").value(move.getPromotionPiece().name());
+        }
+        out.endObject();
+    }
+
+    @Override
+    public ChessMove read(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        if (in.peek() == JsonToken.STRING) {
+            return parse(in.nextString());
+        }
+        ChessPosition start = null;
+        ChessPosition end = null;
+        ChessPiece.PieceType promotion = null;
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "startPosition" -> start = readPosition(in);
+                case "endPosition" -> end = readPosition(in);
+                case "promotionPiece" -> promotion = readEnum(in, ChessPiece.PieceType.class);
+                default -> in.skipValue();
+            }
+        }
+        in.endObject();
+        return new ChessMove(start, end, promotion);
+    }
+
+    /**
+     * Parses coordinate notation
+     *
+     * @throws JsonSyntaxException if the text isn't a move like e2e4 or e7e8q
+     */
+    public static ChessMove parse(String text) {
+        if (text.length() != 4 && text.length() != 5) {
+            throw new JsonSyntaxException("Not a move: " + text);
+        }
+        ChessPiece.PieceType promotion = null;
+        if (text.length() == 5) {
+            int type = PROMOTIONS.indexOf(text.charAt(4));
+            if (type < 0) {
+                throw new JsonSyntaxException("Not a move: " + text);
+            }
+            promotion = ChessPiece.PieceType.values()[type];
+        }
+        return new ChessMove(square(text, 0), square(text, 2), promotion);
+    }
+
+    public static String toString(ChessMove move) {
+        StringBuilder text = new StringBuilder(5);
+        appendSquare(text, move.getStartPosition());
+        appendSquare(text, move.getEndPosition());
+        if (move.getPromotionPiece() != null) {
+            text.append(PROMOTIONS.charAt(move.getPromotionPiece().ordinal()));
+        }
+        return text.toString();
+    }
+
+    //Positions in the old form, {"thisRow":2,"thisCol":5}
+    static ChessPosition readPosition(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        int row = 0;
+        int column = 0;
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "thisRow" -> row = in.nextInt();
+                case "thisCol" -> column = in.nextInt();
+                default -> in.skipValue();
+            }
+        }
+        in.endObject();
+        return named(row, column) ? Bitboards.position((row - 1) * 8 + column - 1) : new ChessPosition(row, column);
+    }
+
+    static <E extends Enum<E>> E readEnum(JsonReader in, Class<E> type) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        String name = in.nextString();
+        try {
+            return Enum.valueOf(type, name);
+        } catch (IllegalArgumentException e) {
+            throw new JsonSyntaxException("Not a " + type.getSimpleName() + ": " + name);
+        }
+    }
+
+    private static void writePosition(JsonWriter out, ChessPosition position) throws IOException {
+        if (position == null) {
+            out.nullValue();
+            return;
+        }
+        out.beginObject();
+        out.name("thisRow").value(position.getRow());
+        out.name("thisCol").value(position.getColumn());
+        out.endObject();
+    }
+
+    private static ChessPosition square(String text, int offset) {
+        int column = text.charAt(offset) - 'a' + 1;
+        int row = text.charAt(offset + 1) - '0';
+        if (!named(row, column)) {
+            throw new JsonSyntaxException("Not a move: " + text);
+        }
+        return Bitboards.position((row - 1) * 8 + column - 1);
+    }
+
+    private static void appendSquare(StringBuilder text, ChessPosition position) {
+        text.append((char) ('a' + position.getColumn() - 1)).append((char) ('0' + position.getRow()));
+    }
+
+    private static boolean named(ChessPosition position) {
+        return position != null && named(position.getRow(), position.getColumn());
+    }
+
+    private static boolean named(int row, int column) {
+        return row >= 1 && row <= 8 && column >= 1 && column <= 8;
+    }
+}
@@ -86,190 +86,39 @@ public class ChessPiece {
         };
     }
 
-    private boolean canMoveTo(ChessBoard board, ChessPosition destination) {
-        //Returns true if destination on board is empty or contains a piece of the other color.
-        //Returns false if position is not on board or contains a friendly piece
-        //Doesn't check if the piece can legally get there, that logic will be handled by pieceMoves
-        //Doesn't work for pawns
-        int row = destination.getRow();
-        int col = destination.getColumn();
-        if (!inBounds(row, col)) {
-            return false;
-        }
-        if (board.getPiece(destination) != null) {
-            //Space contains a piece
-            //Return true if this.myColor is different from that piece's color
-            return myColor != board.getPiece(destination).getTeamColor();
-        }
-        else {
-            //Space is empty
-            return true;
-        }
-    }
-
     private Collection<ChessMove> kingMoves(ChessBoard board, ChessPosition myPosition) {
-        ChessPosition destination;
-        HashSet<ChessMove> legalMoves = new HashSet<ChessMove>() {
-        };
-        int col = myPosition.getColumn();
-        int row = myPosition.getRow();
-        if (row != 1) {
-            //Check down-left
-            if (col != 1) {
-                destination = new ChessPosition(row - 1, col - 1);
-                if (this.canMoveTo(board, destination)) {
-                    legalMoves.add(new ChessMove(myPosition, destination, null));
-                }
-            }
-            //Check down
-            destination = new ChessPosition(row - 1, col);
-            if (this.canMoveTo(board, destination)) {
-                legalMoves.add(new ChessMove(myPosition, destination, null));
-            }
-            //Check down-right
-            if (col != 8) {
-                destination = new ChessPosition(row - 1, col + 1);
-                if (this.canMoveTo(board, destination)) {
-                    legalMoves.add(new ChessMove(myPosition, destination, null));
-                }
-            }
-        }
-        if (row != 8) {
-            //Check up-left
-            if (col != 1) {
-                destination = new ChessPosition(row + 1, col - 1);
-                if (this.canMoveTo(board, destination)) {
-                    legalMoves.add(new ChessMove(myPosition, destination, null));
-                }
-            }
-            //Check up
-            destination = new ChessPosition(row + 1, col);
-            if (this.canMoveTo(board, destination)) {
-                legalMoves.add(new ChessMove(myPosition, destination, null));
-            }
-            //Check up-right
-            if(col != 8) {
-                destination = new ChessPosition(row + 1, col + 1);
-                if (this.canMoveTo(board, destination)) {
-                    legalMoves.add(new ChessMove(myPosition, destination, null));
-                }
-            }
-        }
-        if (col != 1) {
-            //Check left
-            destination = new ChessPosition(row, col - 1);
-            if (this.canMoveTo(board, destination)) {
-                legalMoves.add(new ChessMove(myPosition, destination, null));
-            }
-        }
-        if (col != 8) {
-            //Check right
-            destination = new ChessPosition(row, col + 1);
-            if (this.canMoveTo(board, destination)) {
-                legalMoves.add(new ChessMove(myPosition, destination, null));
-            }
-        }
-        return legalMoves;
+        return targetMoves(myPosition, Bitboards.kingAttacks(Bitboards.square(myPosition)), board);
     }
 
     private Collection<ChessMove> queenMoves(ChessBoard board, ChessPosition myPosition) {
-        HashSet<ChessMove> legalMoves = new HashSet<>();
-        //Check up-left diagonal
-        linearMoves(board, myPosition, 1, -1, legalMoves);
-        //Check up-right diagonal
-        linearMoves(board, myPosition, 1, 1, legalMoves);
-        //Check down-right diagonal
-        linearMoves(board, myPosition, -1, 1, legalMoves);
-        //Check down-left diagonal
-        linearMoves(board, myPosition, -1, -1, legalMoves);
-        //Check up moves
-        linearMoves(board, myPosition, 1, 0, legalMoves);
-        //Check down moves
-        linearMoves(board, myPosition, -1, 0, legalMoves);
-        //Check left moves
-        linearMoves(board, myPosition, 0, -1, legalMoves);
-        //Check right moves
-        linearMoves(board, myPosition, 0, 1, legalMoves);
-        return legalMoves;
+        return targetMoves(myPosition, Bitboards.queenAttacks(Bitboards.square(myPosition), board.occupied()), board);
     }
 
     private Collection<ChessMove> bishopMoves(ChessBoard board, ChessPosition myPosition) {
-        HashSet<ChessMove> legalMoves = new HashSet<>();
-        //Check up-left diagonal
-        linearMoves(board, myPosition, 1, -1, legalMoves);
-        //Check up-right diagonal
-        linearMoves(board, myPosition, 1, 1, legalMoves);
-        //Check down-right diagonal
-        linearMoves(board, myPosition, -1, 1, legalMoves);
-        //Check down-left diagonal
-        linearMoves(board, myPosition, -1, -1, legalMoves);
-        return legalMoves;
+        return targetMoves(myPosition, Bitboards.bishopAttacks(Bitboards.square(myPosition), board.occupied()), board);
     }
 
     private Collection<ChessMove> knightMoves(ChessBoard board, ChessPosition myPosition) {
-        HashSet<ChessMove> legalMoves = new HashSet<>();
-        int row = myPosition.getRow();
-        int col = myPosition.getColumn();
-        ChessPosition destination;
-        //Left 2 up 1
-        destination = new ChessPosition(row + 1, col - 2);
-        if (this.canMoveTo(board, destination)) {
-            legalMoves.add(new ChessMove(myPosition, destination, null));
-        }
-        //Left 1 up 2
-        destination = new ChessPosition(row + 2, col - 1);
-        if (this.canMoveTo(board, destination)) {
-            legalMoves.add(new ChessMove(myPosition, destination, null));
-        }
-        //Right 1 up 2
-        destination = new ChessPosition(row + 2, col + 1);
-        if (this.canMoveTo(board, destination)) {
-            legalMoves.add(new ChessMove(myPosition, destination, null));
-        }
-        //Right 2 up 1
-        destination = new ChessPosition(row + 1, col + 2);
-        if (this.canMoveTo(board, destination)) {
-            legalMoves.add(new ChessMove(myPosition, destination, null));
-        }
-
-        //Right 2 down 1
-        destination = new ChessPosition(row - 1, col + 2);
-        if (this.canMoveTo(board, destination)) {
-            legalMoves.add(new ChessMove(myPosition, destination, null));
-        }
-        //Right 1 down 2
-        destination = new ChessPosition(row - 2, col + 1);
-        if (this.canMoveTo(board, destination)) {
-            legalMoves.add(new ChessMove(myPosition, destination, null));
-        }
-        //Left 1 down 2
-        destination = new ChessPosition(row - 2, col - 1);
-        if (this.canMoveTo(board, destination)) {
-            legalMoves.add(new ChessMove(myPosition, destination, null));
-        }
-        //Left 2 down 1
-        destination = new ChessPosition(row - 1, col - 2);
-        if (this.canMoveTo(board, destination)) {
-            legalMoves.add(new ChessMove(myPosition, destination, null));
-        }
-        return legalMoves;
+        return targetMoves(myPosition, Bitboards.knightAttacks(Bitboards.square(myPosition)), board);
     }
 
     private Collection<ChessMove> rookMoves(ChessBoard board, ChessPosition myPosition) {
+        return targetMoves(myPosition, Bitboards.rookAttacks(Bitboards.square(myPosition), board.occupied()), board);
+    }
+
+    //Every attacked square not holding a friendly piece, straight from the attack tables
+    private Collection<ChessMove> targetMoves(ChessPosition myPosition, long attacks, ChessBoard board) {
         HashSet<ChessMove> legalMoves = new HashSet<>();
-        //Check up moves
-        linearMoves(board, myPosition, 1, 0, legalMoves);
-        //Check down moves
-        linearMoves(board, myPosition, -1, 0, legalMoves);
-        //Check left moves
-        linearMoves(board, myPosition, 0, -1, legalMoves);
-        //Check right moves
-        linearMoves(board, myPosition, 0, 1, legalMoves);
+        long targets = attacks & ~board.pieces(myColor);
+        while (targets != 0) {
+            legalMoves.add(new ChessMove(myPosition, Bitboards.position(Long.numberOfTrailingZeros(targets)), null));
+            targets &= targets - 1;
+        }
         return legalMoves;
     }
 
     private Collection<ChessMove> pawnMoves(ChessBoard board, ChessPosition myPosition) {
-        //Cannot use the ChessPiece.canMoveTo method because of pawn special rules
+        //Pawns move and capture differently, so they can't use the attack tables
         return switch (myColor) {
             case WHITE -> whitePawnMoves(board, myPosition);
             case BLACK -> blackPawnMoves(board, myPosition);
@@ -391,37 +240,6 @@ public class ChessPiece {
         return legalMoves;
     }
 
-    private void linearMoves(ChessBoard board, ChessPosition myPosition, int rChange, int cChange, Collection<ChessMove> legalMoves) {
-        //rChange is change in row: 1 for up, -1 for down, 0 to stay in same row
-        //cChange is change in column: 1 for right, -1 for left, 0 to stay in same column
-        int row = myPosition.getRow();
-        int col = myPosition.getColumn();
-        ChessPosition destination;
-        row += rChange;
-        col += cChange;
-        while (inBounds(row, col)) {
-            destination = new ChessPosition(row, col);
-            if (this.canMoveTo(board, destination)) {
-                legalMoves.add(new ChessMove(myPosition, destination, null));
-                if (board.getPiece(destination) != null) {break;}
-                row = row + rChange;
-                col = col + cChange;
-            } else {
-                break;
-            }
-        }
-    }
-
-    private boolean inBounds(int row, int col) {
-        if (row < 1 || row > 8) {
-            return false;
-        }
-        if (col < 1 || col > 8) {
-            return false;
-        }
-        return true;
-    }
-
     private void pawnPromotionMoves(ChessPosition myPosition, ChessPosition destination, Collection<ChessMove> legalMoves) {
         legalMoves.add(new ChessMove(myPosition, destination, PieceType.QUEEN));
         legalMoves.add(new ChessMove(myPosition, destination, PieceType.ROOK));
@@ -0,0 +1,320 @@
+package chess.engine;
+
+import chess.ChessGame;
+import chess.ChessMove;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Consumer;
+
+/**
+ * Finds the best move with a negamax alpha-beta search.
+ * <p>
+ * The search deepens one ply at a time, so whenever the time or node budget runs out there
+ * is a finished iteration to fall back on, and each iteration's principal variation is
+ * searched first by the next. Leaves are resolved with a quiescence search over captures
+ * so the evaluation is never taken in the middle of an exchange.
+ * <p>
+ * Results are cached in a TranspositionTable, so positions reached by different move orders
+ * are only searched once. The table may be shared between engines, but an Engine keeps its
+ * move ordering tables between calls and is not thread safe, give each thread its own.
+ * <p>
+ * With an OpeningBook set, positions found in the book are answered from it without searching.
+ * With a Tablebase set, endgames it covers are scored from it instead of searched further.
+ */
+public class Engine {
+    public static final int MATE = 30_000;
+    public static final int MAX_PLY = 128;
+    static final int INFINITY = 32_000;
+    //Tablebase wins score below any mate the search finds itself, and shorter wins score higher
+    public static final int TABLEBASE_WIN = MATE - 2 * MAX_PLY;
+
+    //Checking the clock is slow compared to visiting a node, so only do it this often
+    private static final int CHECK_INTERVAL = 1024;
+    private static final int MAX_MOVES = 256;
+
+    private final Evaluator evaluator;
+    private final TranspositionTable table;
+    private final MoveOrderer orderer = new MoveOrderer();
+    private final int[][] moveBuffers = new int[MAX_PLY][MAX_MOVES];
+    private final int[][] scoreBuffers = new int[MAX_PLY][MAX_MOVES];
+    private final int[][] pvTable = new int[MAX_PLY][MAX_PLY];
+    private final int[] pvLength = new int[MAX_PLY];
+    private int[] previousPv = new int[0];
+    private boolean followPv;
+
+    private Position position;
+    private long nodes;
+    private long deadline;
+    private long nodeLimit;
+    private boolean canAbort;
+    private boolean aborted;
+    private volatile boolean stopRequested;
+    private OpeningBook book;
+    private Tablebase tablebase;
+
+    public Engine() {
+        this(new TaperedEvaluator());
+    }
+
+    public Engine(Evaluator evaluator) {
+        this(evaluator, new TranspositionTable());
+    }
+
+    public Engine(Evaluator evaluator, TranspositionTable table) {
+        this.evaluator = evaluator;
+        this.table = table;
+    }
+
+    public SearchResult search(ChessGame game, SearchLimits limits) {
+        return search(Position.from(game), limits, result -> { });
+    }
+
+    /**
+     * Searches the position until a limit is reached
+     *
+     * @param root the position to search, left unchanged when the search returns
+     * @param listener called with the result of every finished iteration
+     * @return the result of the deepest finished iteration
+     */
+    public SearchResult search(Position root, SearchLimits limits, Consumer<SearchResult> listener) {
+        if (book != null) {
+            long start = System.nanoTime();
+            int bookMove = book.pick(root, ThreadLocalRandom.current());
+            if (bookMove != Move.NONE) {
+                ChessMove move = Move.toChessMove(bookMove);
+                SearchResult result = new SearchResult(move, 0, 0, 0, System.nanoTime() - start, List.of(move));
+                listener.accept(result);
+                return result;
+            }
+        }
+        stopRequested = false;
+        table.newSearch();
+        return searchShared(root, limits, 0, listener);
+    }
+
+    /**
+     * The search itself, for ParallelSearch which ages the shared table and clears stop
+     * requests once for all of its engines rather than letting each one do it
+     *
+     * @param depthSkew plies added to every iteration, so helper threads search ahead of the main one
+     */
+    SearchResult searchShared(Position root, SearchLimits limits, int depthSkew, Consumer<SearchResult> listener) {
+        position = root;
+        nodes = 0;
+        aborted = false;
+        canAbort = false;
+        previousPv = new int[0];
+        orderer.clear();
+        long start = System.nanoTime();
+        deadline = limits.timeMillis() > 0 ? start + limits.timeMillis() * 1_000_000 : Long.MAX_VALUE;
+        nodeLimit = limits.nodes() > 0 ? limits.nodes() : Long.MAX_VALUE;
+        int maxDepth = limits.depth() > 0 ? Math.min(limits.depth(), MAX_PLY - 1) : MAX_PLY - 1;
+
+        SearchResult best = null;
+        for (int iteration = 1; iteration <= maxDepth; iteration++) {
+            int depth = Math.min(iteration + depthSkew, maxDepth);
+            followPv = true;
+            int score = negamax(depth, -INFINITY, INFINITY, 0);
+            if (aborted) {
+                break;
+            }
+            previousPv = Arrays.copyOf(pvTable[0], pvLength[0]);
+            best = new SearchResult(previousPv.length == 0 ? null : Move.toChessMove(previousPv[0]), score, depth,
+                    nodes, System.nanoTime() - start, toChessMoves(previousPv));
+            listener.accept(best);
+            canAbort = true;
+            //A shorter mate can't exist, it would have been found at a shallower depth
+            if (depth == maxDepth || best.isMate() || previousPv.length == 0 || outOfBudget()) {
+                break;
+            }
+        }
+        return best;
+    }
+
+    //Asks a running search to return its last finished iteration as soon as possible
+    public void stop() {
+        stopRequested = true;
+    }
+
+    //Null turns the book off
+    public void setBook(OpeningBook book) {
+        this.book = book;
+    }
+
+    //Null turns tablebase probing off
+    public void setTablebase(Tablebase tablebase) {
+        this.tablebase = tablebase;
+    }
+
+    void clearStop() {
+        stopRequested = false;
+    }
+
+    public long nodes() {
+        return nodes;
+    }
+
+    private int negamax(int depth, int alpha, int beta, int ply) {
+        pvLength[ply] = ply;
+        if (countNode()) {
+            return 0;
+        }
+        if (ply > 0 && position.isDraw()) {
+            return 0;
+        }
+        if (tablebase != null && ply > 0 && position.pieceCount() <= tablebase.maxPieces()) {
+            TablebaseResult known = tablebase.probe(position);
+            if (known != null) {
+                return switch (known.outcome()) {
+                    case WIN -> TABLEBASE_WIN - ply - known.dtz();
+                    case LOSS -> -TABLEBASE_WIN + ply + known.dtz();
+                    case DRAW -> 0;
+                };
+            }
+        }
+        boolean inCheck = position.inCheck();
+        if (inCheck) {
+            //Don't stop searching in the middle of a forcing sequence
+            depth++;
+        }
+        if (depth <= 0) {
+            return quiesce(alpha, beta, ply);
+        }
+        if (ply >= MAX_PLY - 1) {
+            return evaluator.evaluate(position);
+        }
+
+        int hashMove = Move.NONE;
+        long entry = table.probe(position.key);
+        if (entry != 0) {
+            hashMove = TranspositionTable.move(entry);
+            //The root always searches so there is a move to return
+            if (ply > 0 && TranspositionTable.depth(entry) >= depth) {
+                int score = TranspositionTable.score(entry, ply);
+                int bound = TranspositionTable.bound(entry);
+                if (bound == TranspositionTable.EXACT
+                        || (bound == TranspositionTable.LOWER_BOUND && score >= beta)
+                        || (bound == TranspositionTable.UPPER_BOUND && score <= alpha)) {
+                    return score;
+                }
+            }
+        }
+
+        int[] moves = moveBuffers[ply];
+        int[] scores = scoreBuffers[ply];
+        int count = position.generateMoves(moves, false);
+        int pvMove = followPv && ply < previousPv.length ? previousPv[ply] : Move.NONE;
+        orderer.score(position, moves, scores, count, ply, pvMove != Move.NONE ? pvMove : hashMove);
+
+        int originalAlpha = alpha;
+        int bestScore = -INFINITY;
+        int bestMove = Move.NONE;
+        int legalMoves = 0;
+        for (int i = 0; i < count; i++) {
+            MoveOrderer.pickNext(moves, scores, i, count);
+            int move = moves[i];
+            if (!position.makeIfLegal(move)) {
+                continue;
+            }
+            legalMoves++;
+            followPv = move == pvMove;
+            int score = -negamax(depth - 1, -beta, -alpha, ply + 1);
+            position.unmake(move);
+            followPv = false;
+            if (aborted) {
+                return 0;
+            }
+            if (score > bestScore) {
+                bestScore = score;
+                if (score > alpha) {
+                    alpha = score;
+                    bestMove = move;
+                    updatePv(ply, move);
+                    if (score >= beta) {
+                        if (!Move.isCapture(move)) {
+                            orderer.cutoff(position.sideToMove, move, ply, depth);
+                        }
+                        break;
+                    }
+                }
+            }
+        }
+        if (legalMoves == 0) {
+            //Mates closer to the root score higher, so the engine takes the quickest one
+            return inCheck ? -MATE + ply : 0;
+        }
+        int bound = bestScore >= beta ? TranspositionTable.LOWER_BOUND
+                : bestScore > originalAlpha ? TranspositionTable.EXACT : TranspositionTable.UPPER_BOUND;
+        table.store(position.key, bestMove, bestScore, depth, bound, ply);
+        return bestScore;
+    }
+
+    private int quiesce(int alpha, int beta, int ply) {
+        pvLength[ply] = ply;
+        if (countNode()) {
+            return 0;
+        }
+        int standPat = evaluator.evaluate(position);
+        if (standPat >= beta || ply >= MAX_PLY - 1) {
+            return standPat;
+        }
+        if (standPat > alpha) {
+            alpha = standPat;
+        }
+        int[] moves = moveBuffers[ply];
+        int[] scores = scoreBuffers[ply];
+        int count = position.generateMoves(moves, true);
+        orderer.score(position, moves, scores, count, ply, Move.NONE);
+        for (int i = 0; i < count; i++) {
+            MoveOrderer.pickNext(moves, scores, i, count);
+            int move = moves[i];
+            if (!position.makeIfLegal(move)) {
+                continue;
+            }
+            int score = -quiesce(-beta, -alpha, ply + 1);
+            position.unmake(move);
+            if (aborted) {
+                return 0;
+            }
+            if (score > alpha) {
+                alpha = score;
+                updatePv(ply, move);
+                if (score >= beta) {
+                    return score;
+                }
+            }
+        }
+        return alpha;
+    }
+
+    //Counts a node and returns true if the search has to stop
+    private boolean countNode() {
+        nodes++;
+        if (canAbort && !aborted && (nodes & (CHECK_INTERVAL - 1)) == 0 && outOfBudget()) {
+            aborted = true;
+        }
+        return aborted;
+    }
+
+    private boolean outOfBudget() {
+        return stopRequested || nodes >= nodeLimit || System.nanoTime() >= deadline;
+    }
+
+    private void updatePv(int ply, int move) {
+        pvTable[ply][ply] = move;
+        int childLength = pvLength[ply + 1];
+        System.arraycopy(pvTable[ply + 1], ply + 1, pvTable[ply], ply + 1, childLength - ply - 1);
+        pvLength[ply] = childLength;
+    }
+
+    private static List<ChessMove> toChessMoves(int[] line) {
+        List<ChessMove> moves = new ArrayList<>(line.length);
+        for (int move : line) {
+            moves.add(Move.toChessMove(move));
+        }
+        return moves;
+    }
+}
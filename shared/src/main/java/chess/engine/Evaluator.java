@@ -0,0 +1,8 @@
+package chess.engine;
+
+/**
+ * Scores a position in centipawns from the point of view of the side to move.
+ */
+public interface Evaluator {
+    int evaluate(Position position);
+}
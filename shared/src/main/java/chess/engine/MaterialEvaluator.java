@@ -0,0 +1,38 @@
+package chess.engine;
+
+/**
+ * Counts material and nudges minor pieces and pawns toward the center and up the board.
+ * Cheap enough to call at every quiescence node.
+ */
+public class MaterialEvaluator implements Evaluator {
+    //Indexed by piece type, EMPTY first
+    static final int[] VALUES = {0, 100, 320, 330, 500, 900, 0};
+
+    @Override
+    public int evaluate(Position position) {
+        int score = 0;
+        for (int square = 0; square < 64; square++) {
+            int piece = position.board[square];
+            if (piece == Position.EMPTY) {
+                continue;
+            }
+            int type = Position.type(piece);
+            int pieceScore = VALUES[type] + placement(type, Position.color(piece), square);
+            score += Position.color(piece) == Position.WHITE ? pieceScore : -pieceScore;
+        }
+        return position.sideToMove == Position.WHITE ? score : -score;
+    }
+
+    private static int placement(int type, int color, int square) {
+        int row = square / 8;
+        int col = square % 8;
+        //Distance from the four center squares, 0 to 6
+        int centerDistance = Math.max(3 - col, col - 4) + Math.max(3 - row, row - 4);
+        int advance = color == Position.WHITE ? row - 1 : 6 - row;
+        return switch (type) {
+            case Position.PAWN -> advance * 5 + (col >= 2 && col <= 5 ? advance * 3 : 0);
+            case Position.KNIGHT, Position.BISHOP -> 18 - centerDistance * 6;
+            default -> 0;
+        };
+    }
+}
@@ -0,0 +1,82 @@
+package chess.engine;
+
+import chess.ChessMove;
+import chess.ChessPiece;
+import chess.ChessPosition;
+
+/**
+ * Moves inside the engine are packed into a single int so move lists are plain int arrays.
+ * <p>
+ * Bits 0-5 hold the from square, 6-11 the to square, 12-14 the promotion piece type,
+ * 15-16 a flag for special moves and bit 17 is set on captures. Squares are numbered
+ * (row - 1) * 8 + (column - 1), so a1 is 0 and h8 is 63.
+ */
+public final class Move {
+    public static final int NONE = 0;
+
+    static final int NORMAL = 0;
+    static final int DOUBLE_PUSH = 1;
+    static final int EN_PASSANT = 2;
+    static final int CASTLE = 3;
+
+    private static final int CAPTURE_BIT = 1 << 17;
+
+    private Move() {}
+
+    static int of(int from, int to, int promotion, int flag, boolean capture) {
+        return from | to << 6 | promotion << 12 | flag << 15 | (capture ? CAPTURE_BIT : 0);
+    }
+
+    public static int from(int move) {
+        return move & 63;
+    }
+
+    public static int to(int move) {
+        return move >>> 6 & 63;
+    }
+
+    //The promoted piece type, or 0 when the move is not a promotion
+    public static int promotion(int move) {
+        return move >>> 12 & 7;
+    }
+
+    static int flag(int move) {
+        return move >>> 15 & 3;
+    }
+
+    public static boolean isCapture(int move) {
+        return (move & CAPTURE_BIT) != 0;
+    }
+
+    public static ChessMove toChessMove(int move) {
+        ChessPiece.PieceType promotion = switch (promotion(move)) {
+            case Position.KNIGHT -> ChessPiece.PieceType.KNIGHT;
+            case Position.BISHOP -> ChessPiece.PieceType.BISHOP;
+            case Position.ROOK -> ChessPiece.PieceType.ROOK;
+            case Position.QUEEN -> ChessPiece.PieceType.QUEEN;
+            default -> null;
+        };
+        return new ChessMove(toPosition(from(move)), toPosition(to(move)), promotion);
+    }
+
+    public static ChessPosition toPosition(int square) {
+        return new ChessPosition(square / 8 + 1, square % 8 + 1);
+    }
+
+    public static int square(ChessPosition position) {
+        return (position.getRow() - 1) * 8 + position.getColumn() - 1;
+    }
+
+    //Coordinate notation such as e2e4 or e7e8q, handy in logs and tests
+    public static String toString(int move) {
+        if (move == NONE) {
+            return "none";
+        }
+        String text = squareName(from(move)) + squareName(to(move));
+        return promotion(move) == 0 ? text : text + " pnbrqk".charAt(promotion(move));
+    }
+
+    public static String squareName(int square) {
+        return "" + (char) ('a' + square % 8) + (char) ('1' + square / 8);
+    }
+}
@@ -0,0 +1,98 @@
+package chess.engine;
+
+import java.util.Arrays;
+
+/**
+ * Puts the moves most likely to cause a cutoff first: the move the last iteration thought
+ * best, then captures by most valuable victim and least valuable attacker (MVV-LVA),
+ * then killer moves that refuted a sibling position at the same ply, then quiet moves by
+ * how often they have caused cutoffs anywhere in the tree (the history heuristic).
+ */
+class MoveOrderer {
+    private static final int PV_SCORE = 2_000_000;
+    private static final int CAPTURE_SCORE = 1_000_000;
+    private static final int PROMOTION_SCORE = 900_000;
+    private static final int FIRST_KILLER_SCORE = 800_000;
+    private static final int SECOND_KILLER_SCORE = 700_000;
+    //History scores are halved when any reaches this, so they never outrank a killer
+    private static final int HISTORY_LIMIT = 500_000;
+
+    private final int[][] killers = new int[Engine.MAX_PLY][2];
+    private final int[][][] history = new int[2][64][64];
+
+    void clear() {
+        for (int[] plyKillers : killers) {
+            plyKillers[0] = Move.NONE;
+            plyKillers[1] = Move.NONE;
+        }
+        for (int[][] side : history) {
+            for (int[] from : side) {
+                Arrays.fill(from, 0);
+            }
+        }
+    }
+
+    void score(Position position, int[] moves, int[] scores, int count, int ply, int bestMove) {
+        int side = position.sideToMove;
+        for (int i = 0; i < count; i++) {
+            int move = moves[i];
+            if (move == bestMove) {
+                scores[i] = PV_SCORE;
+            }
+            else if (Move.isCapture(move)) {
+                int victim = Move.flag(move) == Move.EN_PASSANT ? Position.PAWN : Position.type(position.board[Move.to(move)]);
+                int attacker = Position.type(position.board[Move.from(move)]);
+                scores[i] = CAPTURE_SCORE + victim * 16 - attacker;
+            }
+            else if (Move.promotion(move) == Position.QUEEN) {
+                scores[i] = PROMOTION_SCORE;
+            }
+            else if (move == killers[ply][0]) {
+                scores[i] = FIRST_KILLER_SCORE;
+            }
+            else if (move == killers[ply][1]) {
+                scores[i] = SECOND_KILLER_SCORE;
+            }
+            else {
+                scores[i] = history[side][Move.from(move)][Move.to(move)];
+            }
+        }
+    }
+
+    //Selection sort one step at a time, since a cutoff often comes before the list is used up
+    static void pickNext(int[] moves, int[] scores, int index, int count) {
+        int best = index;
+        for (int i = index + 1; i < count; i++) {
+            if (scores[i] > scores[best]) {
+                best = i;
+            }
+        }
+        if (best != index) {
+            int move = moves[best];
+            moves[best] = moves[index];
+            moves[index] = move;
+            int score = scores[best];
+            scores[best] = scores[index];
+            scores[index] = score;
+        }
+    }
+
+    //Called when a quiet move causes a beta cutoff
+    void cutoff(int side, int move, int ply, int depth) {
+        if (killers[ply][0] != move) {
+            killers[ply][1] = killers[ply][0];
+            killers[ply][0] = move;
+        }
+        int[] counts = history[side][Move.from(move)];
+        counts[Move.to(move)] += depth * depth;
+        if (counts[Move.to(move)] >= HISTORY_LIMIT) {
+            for (int[][] sideHistory : history) {
+                for (int[] from : sideHistory) {
+                    for (int to = 0; to < 64; to++) {
+                        from[to] /= 2;
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package chess.engine;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.random.RandomGenerator;
+
+/**
+ * Reads an opening book in Polyglot's .bin format.
+ * <p>
+ * The file is a list of 16 byte big-endian entries sorted by key: the position's key, a
+ * move, a weight and four bytes of learning data that are ignored here. The file is memory
+ * mapped and searched in place, so opening a book reads nothing up front and its entries
+ * never take up heap. Lookups only use absolute reads on the shared buffer, so one book can
+ * serve any number of threads.
+ */
+public final class OpeningBook {
+    static final int ENTRY_BYTES = 16;
+
+    private final ByteBuffer entries;
+    private final int size;
+    private final PolyglotKey keys;
+
+    /**
+     * A move the book suggests, with how often it should be played relative to the others
+     */
+    public record BookMove(int move, int weight) {}
+
+    private OpeningBook(ByteBuffer entries, PolyglotKey keys) {
+        this.entries = entries;
+        this.size = entries.capacity() / ENTRY_BYTES;
+        this.keys = keys;
+    }
+
+    public static OpeningBook open(Path file) throws IOException {
+        return open(file, PolyglotKey.defaultKeys());
+    }
+
+    /**
+     * Maps a book into memory
+     *
+     * @param keys the key table the book was written with
+     * @throws IOException if the file can't be read or isn't a whole number of entries
+     */
+    public static OpeningBook open(Path file, PolyglotKey keys) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long length = channel.size();
+            if (length % ENTRY_BYTES != 0 || length > Integer.MAX_VALUE) {
+                throw new IOException("Not a Polyglot book: " + file);
+            }
+            //The mapping stays valid after the channel is closed
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+            return new OpeningBook(mapped, keys);
+        }
+    }
+
+    /**
+     * Writes a book, for building small books from known lines
+     *
+     * @param movesByKey book moves for each position, keyed by PolyglotKey.hash of the position
+     */
+    public static void write(Path file, Map<Long, List<BookMove>> movesByKey) throws IOException {
+        TreeMap<Long, List<BookMove>> sorted = new TreeMap<>(Long::compareUnsigned);
+        sorted.putAll(movesByKey);
+        ByteBuffer entry = ByteBuffer.allocate(ENTRY_BYTES);
+        try (OutputStream out = Files.newOutputStream(file)) {
+            for (Map.Entry<Long, List<BookMove>> position : sorted.entrySet()) {
+                for (BookMove move : position.getValue()) {
+                    entry.clear();
+                    entry.putLong(position.getKey()).putShort((short) encodeMove(move.move()))
+                            .putShort((short) move.weight()).putInt(0);
+                    out.write(entry.array());
+                }
+            }
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Every book move for a position
+     *
+     * @param position left unchanged, though moves are made and unmade on it while checking legality
+     * @return the legal book moves, highest weight first, or an empty list if the position isn't in the book
+     */
+    public List<BookMove> moves(Position position) {
+        long key = keys.hash(position);
+        List<BookMove> found = new ArrayList<>();
+        for (int index = firstEntry(key); index < size && keyAt(index) == key; index++) {
+            int offset = index * ENTRY_BYTES;
+            int move = decodeMove(position, entries.getShort(offset + 8) & 0xFFFF);
+            int weight = entries.getShort(offset + 10) & 0xFFFF;
+            //A corrupt entry or a key collision can suggest a move that isn't legal here
+            if (move != Move.NONE) {
+                found.add(new BookMove(move, weight));
+            }
+        }
+        found.sort(Comparator.comparingInt(BookMove::weight).reversed());
+        return found;
+    }
+
+    /**
+     * Picks a book move at random, each in proportion to its weight
+     *
+     * @return the chosen move, or Move.NONE if the position isn't in the book
+     */
+    public int pick(Position position, RandomGenerator random) {
+        List<BookMove> moves = moves(position);
+        int total = 0;
+        for (BookMove move : moves) {
+            total += move.weight();
+        }
+        if (total == 0) {
+            return moves.isEmpty() ? Move.NONE : moves.get(0).move();
+        }
+        int roll = random.nextInt(total);
+        for (BookMove move : moves) {
+            roll -= move.weight();
+            if (roll < 0) {
+                return move.move();
+            }
+        }
+        return moves.get(moves.size() - 1).move();
+    }
+
+    //Index of the first entry whose key is not below key, entries are sorted as unsigned numbers
+    private int firstEntry(long key) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (Long.compareUnsigned(keyAt(middle), key) < 0) {
+                low = middle + 1;
+            }
+            else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private long keyAt(int index) {
+        return entries.getLong(index * ENTRY_BYTES);
+    }
+
+    /**
+     * Polyglot moves are the to square in bits 0-5, the from square in bits 6-11 and the
+     * promotion (knight 1 to queen 4) in bits 12-14, with squares numbered like Position's.
+     * Castling is written as the king taking its own rook.
+     */
+    static int encodeMove(int move) {
+        int from = Move.from(move);
+        int to = Move.to(move);
+        if (Move.flag(move) == Move.CASTLE) {
+            to = to > from ? from + 3 : from - 4;
+        }
+        int promotion = Move.promotion(move);
+        return to | from << 6 | (promotion == 0 ? 0 : promotion - 1) << 12;
+    }
+
+    //Finds the legal move a book entry describes, Move.NONE if there isn't one
+    private static int decodeMove(Position position, int bookMove) {
+        int[] moves = new int[256];
+        int count = position.generateMoves(moves, false);
+        for (int i = 0; i < count; i++) {
+            if (encodeMove(moves[i]) == bookMove && position.makeIfLegal(moves[i])) {
+                position.unmake(moves[i]);
+                return moves[i];
+            }
+        }
+        return Move.NONE;
+    }
+}
@@ -0,0 +1,135 @@
+package chess.engine;
+
+import chess.ChessGame;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Lazy SMP: every thread runs its own Engine on the same root and they cooperate only
+ * through a shared TranspositionTable.
+ * <p>
+ * There is no work splitting. Threads race through the same tree, and because each
+ * one's results land in the table the others find cutoffs and best moves they would
+ * have had to search for. Odd numbered helpers search one ply deeper on every
+ * iteration so the threads spread out over the tree instead of walking it in lockstep.
+ * The search ends as soon as any thread finishes, and the deepest result wins.
+ */
+public class ParallelSearch implements AutoCloseable {
+    private final Engine[] engines;
+    private final TranspositionTable table;
+    private final ExecutorService workers;
+
+    public ParallelSearch(int threads) {
+        this(threads, new TranspositionTable(), TaperedEvaluator::new);
+    }
+
+    /**
+     * @param threads how many engines search at once, 1 runs an ordinary single threaded search
+     * @param evaluators makes one evaluator per thread, so evaluators don't need to be thread safe
+     */
+    public ParallelSearch(int threads, TranspositionTable table, Supplier<Evaluator> evaluators) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("A search needs at least one thread");
+        }
+        this.table = table;
+        engines = new Engine[threads];
+        for (int i = 0; i < threads; i++) {
+            engines[i] = new Engine(evaluators.get(), table);
+        }
+        AtomicInteger count = new AtomicInteger();
+        workers = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "search-worker-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public int threads() {
+        return engines.length;
+    }
+
+    public TranspositionTable table() {
+        return table;
+    }
+
+    public SearchResult search(ChessGame game, SearchLimits limits) {
+        return search(Position.from(game), limits, result -> { });
+    }
+
+    /**
+     * Searches with every thread until one of them reaches a limit
+     *
+     * @param listener called with each iteration finished by the main thread
+     * @return the deepest result any thread finished, with nodes counted across all threads
+     */
+    public synchronized SearchResult search(Position root, SearchLimits limits, Consumer<SearchResult> listener) {
+        long start = System.nanoTime();
+        table.newSearch();
+        AtomicReferenceArray<SearchResult> latest = new AtomicReferenceArray<>(engines.length);
+        List<CompletableFuture<SearchResult>> running = new ArrayList<>(engines.length);
+        //A node budget is shared out so the whole search still costs about what was asked for
+        SearchLimits perThread = limits.nodes() > 0
+                ? new SearchLimits(limits.depth(), limits.timeMillis(), Math.max(1, limits.nodes() / engines.length))
+                : limits;
+        for (Engine engine : engines) {
+            engine.clearStop();
+        }
+        for (int i = 0; i < engines.length; i++) {
+            int index = i;
+            Engine engine = engines[i];
+            Position position = root.copy();
+            running.add(CompletableFuture.supplyAsync(() -> engine.searchShared(position, perThread, index % 2, result -> {
+                latest.set(index, result);
+                if (index == 0) {
+                    listener.accept(result);
+                }
+            }), workers));
+        }
+        //Whichever thread stops first has used up the budget or reached the target depth
+        CompletableFuture.anyOf(running.toArray(new CompletableFuture[0])).exceptionally(e -> null).join();
+        stop();
+        try {
+            CompletableFuture.allOf(running.toArray(new CompletableFuture[0])).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Search thread failed", e.getCause());
+        }
+
+        SearchResult best = null;
+        long nodes = 0;
+        for (int i = 0; i < engines.length; i++) {
+            nodes += engines[i].nodes();
+            SearchResult result = latest.get(i);
+            if (result != null && (best == null || result.depth() > best.depth())) {
+                best = result;
+            }
+        }
+        if (best == null) {
+            return null;
+        }
+        return new SearchResult(best.bestMove(), best.score(), best.depth(), nodes, System.nanoTime() - start,
+                best.principalVariation());
+    }
+
+    public void stop() {
+        for (Engine engine : engines) {
+            engine.stop();
+        }
+    }
+
+    @Override
+    public void close() {
+        stop();
+        workers.shutdownNow();
+    }
+}
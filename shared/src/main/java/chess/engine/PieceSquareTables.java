@@ -0,0 +1,123 @@
+package chess.engine;
+
+/**
+ * Material and placement values for every piece on every square, separately for the
+ * middlegame and the endgame.
+ * <p>
+ * Entries are indexed by piece code and square, already include the piece's material value
+ * and are negative for black pieces, so a position's score is just the sum over its pieces.
+ * Position keeps that sum up to date as pieces are put and removed, which makes reading
+ * material and placement free at evaluation time.
+ */
+final class PieceSquareTables {
+    //Indexed by piece type, EMPTY first
+    static final int[] MIDGAME_VALUES = {0, 82, 337, 365, 477, 1025, 0};
+    static final int[] ENDGAME_VALUES = {0, 94, 281, 297, 512, 936, 0};
+    //How much each piece counts toward the middlegame, a full set of pieces adds up to TOTAL_PHASE
+    static final int[] PHASE_WEIGHTS = {0, 0, 1, 1, 2, 4, 0};
+    static final int TOTAL_PHASE = 24;
+
+    static final int[][] MIDGAME = new int[16][64];
+    static final int[][] ENDGAME = new int[16][64];
+    //Indexed by piece code, so it can be updated without splitting the code into type and color
+    static final int[] PHASE = new int[16];
+
+    //The tables below are drawn from white's side with rank 8 on top, as the board is usually printed
+    private static final int[] PAWN_MIDGAME = {
+            0, 0, 0, 0, 0, 0, 0, 0,
+            50, 50, 50, 50, 50, 50, 50, 50,
+            10, 10, 20, 30, 30, 20, 10, 10,
+            5, 5, 10, 25, 25, 10, 5, 5,
+            0, 0, 0, 20, 20, 0, 0, 0,
+            5, -5, -10, 0, 0, -10, -5, 5,
+            5, 10, 10, -20, -20, 10, 10, 5,
+            0, 0, 0, 0, 0, 0, 0, 0};
+    private static final int[] PAWN_ENDGAME = {
+            0, 0, 0, 0, 0, 0, 0, 0,
+            80, 80, 80, 80, 80, 80, 80, 80,
+            50, 50, 50, 50, 50, 50, 50, 50,
+            30, 30, 30, 30, 30, 30, 30, 30,
+            20, 20, 20, 20, 20, 20, 20, 20,
+            10, 10, 10, 10, 10, 10, 10, 10,
+            0, 0, 0, 0, 0, 0, 0, 0,
+            0, 0, 0, 0, 0, 0, 0, 0};
+    private static final int[] KNIGHT = {
+            -50, -40, -30, -30, -30, -30, -40, -50,
+            -40, -20, 0, 0, 0, 0, -20, -40,
+            -30, 0, 10, 15, 15, 10, 0, -30,
+            -30, 5, 15, 20, 20, 15, 5, -30,
+            -30, 0, 15, 20, 20, 15, 0, -30,
+            -30, 5, 10, 15, 15, 10, 5, -30,
+            -40, -20, 0, 5, 5, 0, -20, -40,
+            -50, -40, -30, -30, -30, -30, -40, -50};
+    private static final int[] BISHOP = {
+            -20, -10, -10, -10, -10, -10, -10, -20,
+            -10, 0, 0, 0, 0, 0, 0, -10,
+            -10, 0, 5, 10, 10, 5, 0, -10,
+            -10, 5, 5, 10, 10, 5, 5, -10,
+            -10, 0, 10, 10, 10, 10, 0, -10,
+            -10, 10, 10, 10, 10, 10, 10, -10,
+            -10, 5, 0, 0, 0, 0, 5, -10,
+            -20, -10, -10, -10, -10, -10, -10, -20};
+    private static final int[] ROOK = {
+            0, 0, 0, 0, 0, 0, 0, 0,
+            5, 10, 10, 10, 10, 10, 10, 5,
+            -5, 0, 0, 0, 0, 0, 0, -5,
+            -5, 0, 0, 0, 0, 0, 0, -5,
+            -5, 0, 0, 0, 0, 0, 0, -5,
+            -5, 0, 0, 0, 0, 0, 0, -5,
+            -5, 0, 0, 0, 0, 0, 0, -5,
+            0, 0, 0, 5, 5, 0, 0, 0};
+    private static final int[] QUEEN = {
+            -20, -10, -10, -5, -5, -10, -10, -20,
+            -10, 0, 0, 0, 0, 0, 0, -10,
+            -10, 0, 5, 5, 5, 5, 0, -10,
+            -5, 0, 5, 5, 5, 5, 0, -5,
+            0, 0, 5, 5, 5, 5, 0, -5,
+            -10, 5, 5, 5, 5, 5, 0, -10,
+            -10, 0, 5, 0, 0, 0, 0, -10,
+            -20, -10, -10, -5, -5, -10, -10, -20};
+    //Tucked away behind its pawns while the pieces are on
+    private static final int[] KING_MIDGAME = {
+            -30, -40, -40, -50, -50, -40, -40, -30,
+            -30, -40, -40, -50, -50, -40, -40, -30,
+            -30, -40, -40, -50, -50, -40, -40, -30,
+            -30, -40, -40, -50, -50, -40, -40, -30,
+            -20, -30, -30, -40, -40, -30, -30, -20,
+            -10, -20, -20, -20, -20, -20, -20, -10,
+            20, 20, 0, 0, 0, 0, 20, 20,
+            20, 30, 10, 0, 0, 10, 30, 20};
+    //In the center once they are off
+    private static final int[] KING_ENDGAME = {
+            -50, -40, -30, -20, -20, -30, -40, -50,
+            -30, -20, -10, 0, 0, -10, -20, -30,
+            -30, -10, 20, 30, 30, 20, -10, -30,
+            -30, -10, 30, 40, 40, 30, -10, -30,
+            -30, -10, 30, 40, 40, 30, -10, -30,
+            -30, -10, 20, 30, 30, 20, -10, -30,
+            -30, -30, 0, 0, 0, 0, -30, -30,
+            -50, -30, -30, -30, -30, -30, -30, -50};
+
+    static {
+        int[][] midgame = {null, PAWN_MIDGAME, KNIGHT, BISHOP, ROOK, QUEEN, KING_MIDGAME};
+        int[][] endgame = {null, PAWN_ENDGAME, KNIGHT, BISHOP, ROOK, QUEEN, KING_ENDGAME};
+        for (int type = Position.PAWN; type <= Position.KING; type++) {
+            int black = type | 8;
+            PHASE[type] = PHASE_WEIGHTS[type];
+            PHASE[black] = PHASE_WEIGHTS[type];
+            for (int square = 0; square < 64; square++) {
+                int row = square / 8;
+                int col = square % 8;
+                //White reads the table upside down since its rank 1 is the bottom row, black reads it as drawn
+                int whiteIndex = (7 - row) * 8 + col;
+                int blackIndex = row * 8 + col;
+                MIDGAME[type][square] = MIDGAME_VALUES[type] + midgame[type][whiteIndex];
+                ENDGAME[type][square] = ENDGAME_VALUES[type] + endgame[type][whiteIndex];
+                MIDGAME[black][square] = -(MIDGAME_VALUES[type] + midgame[type][blackIndex]);
+                ENDGAME[black][square] = -(ENDGAME_VALUES[type] + endgame[type][blackIndex]);
+            }
+        }
+    }
+
+    private PieceSquareTables() {}
+}
@@ -0,0 +1,640 @@
+package chess.engine;
+
+import chess.Bitboards;
+import chess.ChessBoard;
+import chess.ChessGame;
+import chess.ChessPiece;
+import chess.ChessPosition;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * A mutable chess position built for searching.
+ * <p>
+ * ChessGame allocates a ChessPosition for every square it looks at and copies move sets
+ * to test legality, which is fine for validating one move but far too slow to search
+ * millions. Position keeps the board in a 64 entry int array, generates moves into
+ * caller supplied int arrays and undoes moves from its own stacks, so searching allocates
+ * nothing. It also keeps a Zobrist key up to date for repetition checks and hashing, and
+ * keeps the material and piece-square sums and a bitboard per piece up to date so the
+ * evaluation never has to scan the board.
+ * <p>
+ * Pieces are a type (PAWN to KING) with the color in bit 3, so a black rook is ROOK | 8.
+ */
+public final class Position {
+    public static final int WHITE = 0;
+    public static final int BLACK = 1;
+
+    public static final int EMPTY = 0;
+    public static final int PAWN = 1;
+    public static final int KNIGHT = 2;
+    public static final int BISHOP = 3;
+    public static final int ROOK = 4;
+    public static final int QUEEN = 5;
+    public static final int KING = 6;
+
+    public static final String START_FEN = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+
+    //Enough for the longest search line plus quiescence, and for the moves of a long game
+    static final int MAX_HISTORY = 1024;
+
+    private static final int WHITE_KING_SIDE = 1;
+    private static final int WHITE_QUEEN_SIDE = 2;
+    private static final int BLACK_KING_SIDE = 4;
+    private static final int BLACK_QUEEN_SIDE = 8;
+
+    //The first four directions are orthogonal, the last four diagonal
+    private static final int[][] DIRECTIONS = {{1, 0}, {-1, 0}, {0, 1}, {0, -1}, {1, 1}, {1, -1}, {-1, 1}, {-1, -1}};
+    static final int[][] KNIGHT_TARGETS = new int[64][];
+    static final int[][] KING_TARGETS = new int[64][];
+    static final int[][][] RAYS = new int[64][8][];
+    //PAWN_ATTACKS[color][square] are the squares a pawn of that color on square attacks
+    static final int[][][] PAWN_ATTACKS = new int[2][64][];
+    //Castling rights that survive a move touching each square
+    private static final int[] CASTLE_MASK = new int[64];
+
+    static final long[][] PIECE_KEYS = new long[16][64];
+    static final long[] CASTLE_KEYS = new long[16];
+    static final long[] EN_PASSANT_KEYS = new long[8];
+    static final long SIDE_KEY;
+
+    static {
+        int[][] knightSteps = {{1, 2}, {2, 1}, {2, -1}, {1, -2}, {-1, -2}, {-2, -1}, {-2, 1}, {-1, 2}};
+        for (int square = 0; square < 64; square++) {
+            KNIGHT_TARGETS[square] = targets(square, knightSteps);
+            KING_TARGETS[square] = targets(square, DIRECTIONS);
+            PAWN_ATTACKS[WHITE][square] = targets(square, new int[][]{{1, -1}, {1, 1}});
+            PAWN_ATTACKS[BLACK][square] = targets(square, new int[][]{{-1, -1}, {-1, 1}});
+            for (int direction = 0; direction < 8; direction++) {
+                RAYS[square][direction] = ray(square, DIRECTIONS[direction]);
+            }
+            CASTLE_MASK[square] = 15;
+        }
+        CASTLE_MASK[4] &= ~(WHITE_KING_SIDE | WHITE_QUEEN_SIDE);
+        CASTLE_MASK[7] &= ~WHITE_KING_SIDE;
+        CASTLE_MASK[0] &= ~WHITE_QUEEN_SIDE;
+        CASTLE_MASK[60] &= ~(BLACK_KING_SIDE | BLACK_QUEEN_SIDE);
+        CASTLE_MASK[63] &= ~BLACK_KING_SIDE;
+        CASTLE_MASK[56] &= ~BLACK_QUEEN_SIDE;
+
+        //A fixed seed keeps keys identical between runs, so hashes can be compared across processes
+        SplittableRandom random = new SplittableRandom(0x5EED_C4E55L);
+        for (long[] keys : PIECE_KEYS) {
+            for (int square = 0; square < 64; square++) {
+                keys[square] = random.nextLong();
+            }
+        }
+        for (int i = 0; i < CASTLE_KEYS.length; i++) {
+            CASTLE_KEYS[i] = random.nextLong();
+        }
+        for (int i = 0; i < EN_PASSANT_KEYS.length; i++) {
+            EN_PASSANT_KEYS[i] = random.nextLong();
+        }
+        SIDE_KEY = random.nextLong();
+    }
+
+    final int[] board = new int[64];
+    final int[] kingSquare = new int[2];
+    int sideToMove;
+    int castling;
+    int enPassant = -1;
+    int halfmoveClock;
+    long key;
+    //Material plus piece-square values, white minus black, see PieceSquareTables
+    int midgame;
+    int endgame;
+    int phase;
+    int pieceCount;
+    //One bit per square for each piece code
+    final long[] pieces = new long[16];
+
+    //Undo information, one entry per move made
+    private int historySize;
+    private final int[] capturedHistory = new int[MAX_HISTORY];
+    private final int[] castlingHistory = new int[MAX_HISTORY];
+    private final int[] enPassantHistory = new int[MAX_HISTORY];
+    private final int[] halfmoveHistory = new int[MAX_HISTORY];
+    private final long[] keyHistory = new long[MAX_HISTORY];
+
+    private Position() {}
+
+    public static Position start() {
+        return fromFen(START_FEN);
+    }
+
+    public static Position from(ChessGame game) {
+        Position position = new Position();
+        ChessBoard chessBoard = game.getBoard();
+        for (int square = 0; square < 64; square++) {
+            ChessPiece piece = chessBoard.getPiece(Move.toPosition(square));
+            if (piece != null) {
+                position.put(square, pieceCode(piece));
+            }
+        }
+        position.sideToMove = game.getTeamTurn() == ChessGame.TeamColor.WHITE ? WHITE : BLACK;
+        //ChessGame only tracks whether pieces moved, so also require them to still be in place
+        int whiteKing = KING, whiteRook = ROOK, blackKing = KING | 8, blackRook = ROOK | 8;
+        if (game.hasCastlingRight(ChessGame.TeamColor.WHITE, true) && position.board[4] == whiteKing && position.board[7] == whiteRook) {
+            position.castling |= WHITE_KING_SIDE;
+        }
+        if (game.hasCastlingRight(ChessGame.TeamColor.WHITE, false) && position.board[4] == whiteKing && position.board[0] == whiteRook) {
+            position.castling |= WHITE_QUEEN_SIDE;
+        }
+        if (game.hasCastlingRight(ChessGame.TeamColor.BLACK, true) && position.board[60] == blackKing && position.board[63] == blackRook) {
+            position.castling |= BLACK_KING_SIDE;
+        }
+        if (game.hasCastlingRight(ChessGame.TeamColor.BLACK, false) && position.board[60] == blackKing && position.board[56] == blackRook) {
+            position.castling |= BLACK_QUEEN_SIDE;
+        }
+        ChessPosition enPassantTarget = game.getEnPassantTarget();
+        position.enPassant = enPassantTarget == null ? -1 : Move.square(enPassantTarget);
+        position.key = position.computeKey();
+        return position;
+    }
+
+    /**
+     * Reads a position in Forsyth-Edwards Notation. The move counters are optional.
+     *
+     * @throws IllegalArgumentException if the text is not a valid FEN
+     */
+    public static Position fromFen(String fen) {
+        String[] fields = fen.trim().split("\\s+");
+        if (fields.length < 4) {
+            throw new IllegalArgumentException("Invalid FEN: " + fen);
+        }
+        Position position = new Position();
+        int row = 7;
+        int col = 0;
+        for (char c : fields[0].toCharArray()) {
+            if (c == '/') {
+                row--;
+                col = 0;
+            }
+            else if (Character.isDigit(c)) {
+                col += c - '0';
+            }
+            else {
+                int type = "pnbrqk".indexOf(Character.toLowerCase(c)) + 1;
+                if (type == 0 || row < 0 || col > 7) {
+                    throw new IllegalArgumentException("Invalid FEN: " + fen);
+                }
+                position.put(row * 8 + col, Character.isUpperCase(c) ? type : type | 8);
+                col++;
+            }
+        }
+        position.sideToMove = fields[1].equals("w") ? WHITE : BLACK;
+        for (char c : fields[2].toCharArray()) {
+            switch (c) {
+                case 'K' -> position.castling |= WHITE_KING_SIDE;
+                case 'Q' -> position.castling |= WHITE_QUEEN_SIDE;
+                case 'k' -> position.castling |= BLACK_KING_SIDE;
+                case 'q' -> position.castling |= BLACK_QUEEN_SIDE;
+                default -> { }
+            }
+        }
+        if (!fields[3].equals("-")) {
+            position.enPassant = (fields[3].charAt(1) - '1') * 8 + fields[3].charAt(0) - 'a';
+        }
+        if (fields.length > 4) {
+            position.halfmoveClock = Integer.parseInt(fields[4]);
+        }
+        position.key = position.computeKey();
+        return position;
+    }
+
+    /**
+     * Turns this position into one holding only the given pieces, with no castling rights or
+     * en passant square. Lets tablebase generation walk millions of positions without
+     * allocating one for each.
+     */
+    void reset(int[] pieceCodes, int[] squares, int count, int side) {
+        Arrays.fill(board, EMPTY);
+        Arrays.fill(pieces, 0);
+        midgame = 0;
+        endgame = 0;
+        phase = 0;
+        pieceCount = 0;
+        key = 0;
+        for (int i = 0; i < count; i++) {
+            put(squares[i], pieceCodes[i]);
+        }
+        sideToMove = side;
+        castling = 0;
+        enPassant = -1;
+        halfmoveClock = 0;
+        historySize = 0;
+        key = computeKey();
+    }
+
+    public Position copy() {
+        Position copy = new Position();
+        System.arraycopy(board, 0, copy.board, 0, 64);
+        copy.kingSquare[WHITE] = kingSquare[WHITE];
+        copy.kingSquare[BLACK] = kingSquare[BLACK];
+        copy.sideToMove = sideToMove;
+        copy.castling = castling;
+        copy.enPassant = enPassant;
+        copy.halfmoveClock = halfmoveClock;
+        copy.key = key;
+        copy.midgame = midgame;
+        copy.endgame = endgame;
+        copy.phase = phase;
+        copy.pieceCount = pieceCount;
+        System.arraycopy(pieces, 0, copy.pieces, 0, pieces.length);
+        return copy;
+    }
+
+    public int sideToMove() {
+        return sideToMove;
+    }
+
+    public long key() {
+        return key;
+    }
+
+    public int pieceCount() {
+        return pieceCount;
+    }
+
+    public int pieceAt(int square) {
+        return board[square];
+    }
+
+    public static int type(int piece) {
+        return piece & 7;
+    }
+
+    public static int color(int piece) {
+        return piece >>> 3;
+    }
+
+    /**
+     * Writes the pseudo-legal moves for the side to move into moves. Moves that leave the
+     * king in check are included, makeIfLegal weeds them out.
+     *
+     * @param noisyOnly only captures and queen promotions, for quiescence search
+     * @return how many moves were written
+     */
+    public int generateMoves(int[] moves, boolean noisyOnly) {
+        int us = sideToMove;
+        int count = 0;
+        for (int from = 0; from < 64; from++) {
+            int piece = board[from];
+            if (piece == EMPTY || color(piece) != us) {
+                continue;
+            }
+            switch (type(piece)) {
+                case PAWN -> count = pawnMoves(moves, count, from, us, noisyOnly);
+                case KNIGHT -> count = jumpMoves(moves, count, from, KNIGHT_TARGETS[from], us, noisyOnly);
+                case BISHOP -> count = slideMoves(moves, count, from, 4, 8, us, noisyOnly);
+                case ROOK -> count = slideMoves(moves, count, from, 0, 4, us, noisyOnly);
+                case QUEEN -> count = slideMoves(moves, count, from, 0, 8, us, noisyOnly);
+                case KING -> {
+                    count = jumpMoves(moves, count, from, KING_TARGETS[from], us, noisyOnly);
+                    if (!noisyOnly) {
+                        count = castleMoves(moves, count, us);
+                    }
+                }
+                default -> { }
+            }
+        }
+        return count;
+    }
+
+    private int pawnMoves(int[] moves, int count, int from, int us, boolean noisyOnly) {
+        int forward = us == WHITE ? 8 : -8;
+        int startRow = us == WHITE ? 1 : 6;
+        int lastRow = us == WHITE ? 7 : 0;
+        int to = from + forward;
+        if (board[to] == EMPTY) {
+            if (to / 8 == lastRow) {
+                count = promotions(moves, count, from, to, false, noisyOnly);
+            }
+            else if (!noisyOnly) {
+                moves[count++] = Move.of(from, to, 0, Move.NORMAL, false);
+                if (from / 8 == startRow && board[to + forward] == EMPTY) {
+                    moves[count++] = Move.of(from, to + forward, 0, Move.DOUBLE_PUSH, false);
+                }
+            }
+        }
+        for (int target : PAWN_ATTACKS[us][from]) {
+            int victim = board[target];
+            if (victim != EMPTY && color(victim) != us) {
+                if (target / 8 == lastRow) {
+                    count = promotions(moves, count, from, target, true, noisyOnly);
+                }
+                else {
+                    moves[count++] = Move.of(from, target, 0, Move.NORMAL, true);
+                }
+            }
+            else if (target == enPassant) {
+                moves[count++] = Move.of(from, target, 0, Move.EN_PASSANT, true);
+            }
+        }
+        return count;
+    }
+
+    private static int promotions(int[] moves, int count, int from, int to, boolean capture, boolean queenOnly) {
+        moves[count++] = Move.of(from, to, QUEEN, Move.NORMAL, capture);
+        if (!queenOnly) {
+            moves[count++] = Move.of(from, to, KNIGHT, Move.NORMAL, capture);
+            moves[count++] = Move.of(from, to, ROOK, Move.NORMAL, capture);
+            moves[count++] = Move.of(from, to, BISHOP, Move.NORMAL, capture);
+        }
+        return count;
+    }
+
+    private int jumpMoves(int[] moves, int count, int from, int[] targets, int us, boolean noisyOnly) {
+        for (int to : targets) {
+            int victim = board[to];
+            if (victim == EMPTY) {
+                if (!noisyOnly) {
+                    moves[count++] = Move.of(from, to, 0, Move.NORMAL, false);
+                }
+            }
+            else if (color(victim) != us) {
+                moves[count++] = Move.of(from, to, 0, Move.NORMAL, true);
+            }
+        }
+        return count;
+    }
+
+    private int slideMoves(int[] moves, int count, int from, int firstDirection, int lastDirection, int us, boolean noisyOnly) {
+        for (int direction = firstDirection; direction < lastDirection; direction++) {
+            for (int to : RAYS[from][direction]) {
+                int victim = board[to];
+                if (victim == EMPTY) {
+                    if (!noisyOnly) {
+                        moves[count++] = Move.of(from, to, 0, Move.NORMAL, false);
+                    }
+                    continue;
+                }
+                if (color(victim) != us) {
+                    moves[count++] = Move.of(from, to, 0, Move.NORMAL, true);
+                }
+                break;
+            }
+        }
+        return count;
+    }
+
+    private int castleMoves(int[] moves, int count, int us) {
+        int them = us ^ 1;
+        int kingFrom = us == WHITE ? 4 : 60;
+        int kingSide = us == WHITE ? WHITE_KING_SIDE : BLACK_KING_SIDE;
+        int queenSide = us == WHITE ? WHITE_QUEEN_SIDE : BLACK_QUEEN_SIDE;
+        if ((castling & (kingSide | queenSide)) == 0 || isAttacked(kingFrom, them)) {
+            return count;
+        }
+        //The square the king lands on is checked by makeIfLegal like any other move
+        if ((castling & kingSide) != 0 && board[kingFrom + 1] == EMPTY && board[kingFrom + 2] == EMPTY
+                && !isAttacked(kingFrom + 1, them)) {
+            moves[count++] = Move.of(kingFrom, kingFrom + 2, 0, Move.CASTLE, false);
+        }
+        if ((castling & queenSide) != 0 && board[kingFrom - 1] == EMPTY && board[kingFrom - 2] == EMPTY
+                && board[kingFrom - 3] == EMPTY && !isAttacked(kingFrom - 1, them)) {
+            moves[count++] = Move.of(kingFrom, kingFrom - 2, 0, Move.CASTLE, false);
+        }
+        return count;
+    }
+
+    public boolean isAttacked(int square, int byColor) {
+        int colorBits = byColor << 3;
+        //A pawn of the defending color on square attacks exactly the squares an attacking pawn could strike from
+        for (int from : PAWN_ATTACKS[byColor ^ 1][square]) {
+            if (board[from] == (PAWN | colorBits)) {
+                return true;
+            }
+        }
+        if ((Bitboards.knightAttacks(square) & pieces[KNIGHT | colorBits]) != 0
+                || (Bitboards.kingAttacks(square) & pieces[KING | colorBits]) != 0) {
+            return true;
+        }
+        long occupied = 0;
+        for (long bits : pieces) {
+            occupied |= bits;
+        }
+        long queens = pieces[QUEEN | colorBits];
+        return (Bitboards.rookAttacks(square, occupied) & (pieces[ROOK | colorBits] | queens)) != 0
+                || (Bitboards.bishopAttacks(square, occupied) & (pieces[BISHOP | colorBits] | queens)) != 0;
+    }
+
+    //Whether the side to move has a pawn that can take en passant right now
+    boolean canCaptureEnPassant() {
+        if (enPassant < 0) {
+            return false;
+        }
+        for (int from : PAWN_ATTACKS[sideToMove ^ 1][enPassant]) {
+            if (board[from] == (PAWN | sideToMove << 3)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public boolean inCheck() {
+        return isAttacked(kingSquare[sideToMove], sideToMove ^ 1);
+    }
+
+    /**
+     * Makes a pseudo-legal move, keeping it only if it doesn't leave the mover's king in check
+     *
+     * @return True if the move was legal and has been made
+     */
+    public boolean makeIfLegal(int move) {
+        make(move);
+        int mover = sideToMove ^ 1;
+        if (isAttacked(kingSquare[mover], sideToMove)) {
+            unmake(move);
+            return false;
+        }
+        return true;
+    }
+
+    public void make(int move) {
+        int from = Move.from(move);
+        int to = Move.to(move);
+        int flag = Move.flag(move);
+        int piece = board[from];
+        int us = sideToMove;
+
+        capturedHistory[historySize] = EMPTY;
+        castlingHistory[historySize] = castling;
+        enPassantHistory[historySize] = enPassant;
+        halfmoveHistory[historySize] = halfmoveClock;
+        keyHistory[historySize] = key;
+
+        if (enPassant >= 0) {
+            key ^= EN_PASSANT_KEYS[enPassant % 8];
+        }
+        enPassant = -1;
+        halfmoveClock++;
+
+        if (flag == Move.EN_PASSANT) {
+            int victimSquare = to - (us == WHITE ? 8 : -8);
+            capturedHistory[historySize] = board[victimSquare];
+            remove(victimSquare);
+            halfmoveClock = 0;
+        }
+        else if (board[to] != EMPTY) {
+            capturedHistory[historySize] = board[to];
+            remove(to);
+            halfmoveClock = 0;
+        }
+        remove(from);
+        int promotion = Move.promotion(move);
+        put(to, promotion == 0 ? piece : promotion | us << 3);
+
+        if (type(piece) == PAWN) {
+            halfmoveClock = 0;
+            if (flag == Move.DOUBLE_PUSH) {
+                enPassant = (from + to) / 2;
+                key ^= EN_PASSANT_KEYS[enPassant % 8];
+            }
+        }
+        else if (flag == Move.CASTLE) {
+            //The rook jumps to the square the king passed over
+            int rookFrom = to > from ? from + 3 : from - 4;
+            int rookTo = (from + to) / 2;
+            int rook = board[rookFrom];
+            remove(rookFrom);
+            put(rookTo, rook);
+        }
+
+        key ^= CASTLE_KEYS[castling];
+        castling &= CASTLE_MASK[from] & CASTLE_MASK[to];
+        key ^= CASTLE_KEYS[castling];
+
+        sideToMove = us ^ 1;
+        key ^= SIDE_KEY;
+        historySize++;
+    }
+
+    public void unmake(int move) {
+        historySize--;
+        int from = Move.from(move);
+        int to = Move.to(move);
+        int flag = Move.flag(move);
+        sideToMove ^= 1;
+        int us = sideToMove;
+
+        int piece = board[to];
+        remove(to);
+        put(from, Move.promotion(move) == 0 ? piece : PAWN | us << 3);
+        int captured = capturedHistory[historySize];
+        if (flag == Move.EN_PASSANT) {
+            put(to - (us == WHITE ? 8 : -8), captured);
+        }
+        else if (captured != EMPTY) {
+            put(to, captured);
+        }
+        if (flag == Move.CASTLE) {
+            int rookFrom = to > from ? from + 3 : from - 4;
+            int rookTo = (from + to) / 2;
+            int rook = board[rookTo];
+            remove(rookTo);
+            put(rookFrom, rook);
+        }
+
+        castling = castlingHistory[historySize];
+        enPassant = enPassantHistory[historySize];
+        halfmoveClock = halfmoveHistory[historySize];
+        key = keyHistory[historySize];
+    }
+
+    //Draw by the fifty move rule or by repeating a position reached since the last irreversible move
+    public boolean isDraw() {
+        if (halfmoveClock >= 100) {
+            return true;
+        }
+        int oldest = Math.max(0, historySize - halfmoveClock);
+        for (int i = historySize - 2; i >= oldest; i -= 2) {
+            if (keyHistory[i] == key) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    long computeKey() {
+        long hash = 0;
+        for (int square = 0; square < 64; square++) {
+            if (board[square] != EMPTY) {
+                hash ^= PIECE_KEYS[board[square]][square];
+            }
+        }
+        hash ^= CASTLE_KEYS[castling];
+        if (enPassant >= 0) {
+            hash ^= EN_PASSANT_KEYS[enPassant % 8];
+        }
+        if (sideToMove == BLACK) {
+            hash ^= SIDE_KEY;
+        }
+        return hash;
+    }
+
+    private void put(int square, int piece) {
+        board[square] = piece;
+        key ^= PIECE_KEYS[piece][square];
+        pieces[piece] |= 1L << square;
+        midgame += PieceSquareTables.MIDGAME[piece][square];
+        endgame += PieceSquareTables.ENDGAME[piece][square];
+        phase += PieceSquareTables.PHASE[piece];
+        pieceCount++;
+        if (type(piece) == KING) {
+            kingSquare[color(piece)] = square;
+        }
+    }
+
+    private void remove(int square) {
+        int piece = board[square];
+        key ^= PIECE_KEYS[piece][square];
+        pieces[piece] &= ~(1L << square);
+        midgame -= PieceSquareTables.MIDGAME[piece][square];
+        endgame -= PieceSquareTables.ENDGAME[piece][square];
+        phase -= PieceSquareTables.PHASE[piece];
+        pieceCount--;
+        board[square] = EMPTY;
+    }
+
+    private static int pieceCode(ChessPiece piece) {
+        int type = switch (piece.getPieceType()) {
+            case PAWN -> PAWN;
+            case KNIGHT -> KNIGHT;
+            case BISHOP -> BISHOP;
+            case ROOK -> ROOK;
+            case QUEEN -> QUEEN;
+            case KING -> KING;
+        };
+        return piece.getTeamColor() == ChessGame.TeamColor.WHITE ? type : type | 8;
+    }
+
+    private static int[] targets(int square, int[][] steps) {
+        int row = square / 8;
+        int col = square % 8;
+        int[] found = new int[steps.length];
+        int count = 0;
+        for (int[] step : steps) {
+            int r = row + step[0];
+            int c = col + step[1];
+            if (r >= 0 && r < 8 && c >= 0 && c < 8) {
+                found[count++] = r * 8 + c;
+            }
+        }
+        return Arrays.copyOf(found, count);
+    }
+
+    private static int[] ray(int square, int[] step) {
+        int[] found = new int[7];
+        int count = 0;
+        int r = square / 8 + step[0];
+        int c = square % 8 + step[1];
+        while (r >= 0 && r < 8 && c >= 0 && c < 8) {
+            found[count++] = r * 8 + c;
+            r += step[0];
+            c += step[1];
+        }
+        return Arrays.copyOf(found, count);
+    }
+}
@@ -0,0 +1,24 @@
+package chess.engine;
+
+/**
+ * When a search should stop. Zero means no limit of that kind. Iterative deepening always
+ * finishes depth 1 so there is a move to play, even if the budget is already spent.
+ *
+ * @param depth deepest iteration to search, in plies
+ * @param timeMillis wall clock budget
+ * @param nodes how many positions may be visited
+ */
+public record SearchLimits(int depth, long timeMillis, long nodes) {
+
+    public static SearchLimits ofDepth(int depth) {
+        return new SearchLimits(depth, 0, 0);
+    }
+
+    public static SearchLimits ofTime(long timeMillis) {
+        return new SearchLimits(0, timeMillis, 0);
+    }
+
+    public static SearchLimits ofNodes(long nodes) {
+        return new SearchLimits(0, 0, nodes);
+    }
+}
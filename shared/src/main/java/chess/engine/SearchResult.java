@@ -0,0 +1,40 @@
+package chess.engine;
+
+import chess.ChessMove;
+
+import java.util.List;
+
+/**
+ * The outcome of a completed search iteration.
+ *
+ * @param bestMove the move to play, or null if the side to move has no legal moves
+ * @param score centipawns for the side to move, or within MAX_PLY of Engine.MATE for a forced mate
+ * @param depth the deepest iteration that finished, 0 when the move came from the opening book
+ * @param nodes positions visited across all iterations so far
+ * @param elapsedNanos time spent across all iterations so far
+ * @param principalVariation the line the engine expects, starting with bestMove
+ */
+public record SearchResult(ChessMove bestMove, int score, int depth, long nodes, long elapsedNanos,
+                           List<ChessMove> principalVariation) {
+
+    public long nodesPerSecond() {
+        return elapsedNanos == 0 ? 0 : nodes * 1_000_000_000L / elapsedNanos;
+    }
+
+    public boolean isBookMove() {
+        return depth == 0 && bestMove != null;
+    }
+
+    public boolean isMate() {
+        return Math.abs(score) >= Engine.MATE - Engine.MAX_PLY;
+    }
+
+    //Moves until mate, negative when the side to move is the one getting mated, 0 if no mate was found
+    public int mateIn() {
+        if (!isMate()) {
+            return 0;
+        }
+        int plies = Engine.MATE - Math.abs(score);
+        return score > 0 ? (plies + 1) / 2 : -(plies + 1) / 2;
+    }
+}
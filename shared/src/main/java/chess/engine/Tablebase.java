@@ -0,0 +1,206 @@
+package chess.engine;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Looks up endgames of up to five pieces in a directory of tablebase files.
+ * <p>
+ * There is one file per set of pieces, named like KRvKP.ctb with the stronger side first.
+ * Positions where the weaker side is white are looked up in the same file with the board
+ * flipped. TablebaseIndex folds the symmetries of the board out of each index, and deflate
+ * absorbs the illegal positions left. Files are mapped on first use and blocks are inflated
+ * into a shared least recently used cache. TablebaseGenerator writes the files.
+ * <p>
+ * Positions with castling rights or a possible en passant capture are never in a table.
+ */
+public final class Tablebase {
+    public static final int MAX_PIECES = 5;
+    public static final String EXTENSION = ".ctb";
+    public static final int DEFAULT_CACHE_BLOCKS = 512;
+
+    private static final String PIECE_LETTERS = " PNBRQK";
+    private static final int[] STRENGTH = {0, 1, 3, 3, 5, 9, 0};
+
+    private final Path directory;
+    private final ConcurrentHashMap<String, TablebaseFile> files = new ConcurrentHashMap<>();
+    private final Set<String> missing = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger nextId = new AtomicInteger();
+    private final Map<Long, short[]> cache;
+    private final int maxPieces;
+
+    private Tablebase(Path directory, int cacheBlocks) throws IOException {
+        this.directory = directory;
+        cache = new LinkedHashMap<>(cacheBlocks, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, short[]> eldest) {
+                return size() > cacheBlocks;
+            }
+        };
+        int most = 2;
+        try (var listing = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) listing::iterator) {
+                String name = file.getFileName().toString();
+                if (name.endsWith(EXTENSION)) {
+                    most = Math.max(most, name.length() - EXTENSION.length() - 1);
+                }
+            }
+        }
+        maxPieces = Math.min(most, MAX_PIECES);
+    }
+
+    public static Tablebase open(Path directory) throws IOException {
+        return open(directory, DEFAULT_CACHE_BLOCKS);
+    }
+
+    /**
+     * @param cacheBlocks how many inflated blocks to keep, each is 8 KB
+     * @throws IOException if the directory can't be listed
+     */
+    public static Tablebase open(Path directory, int cacheBlocks) throws IOException {
+        return new Tablebase(directory, cacheBlocks);
+    }
+
+    //The most pieces of any table in the directory, positions with more are never probed
+    public int maxPieces() {
+        return maxPieces;
+    }
+
+    /**
+     * Looks a position up
+     *
+     * @return the result for the side to move, or null if no table covers the position
+     */
+    public TablebaseResult probe(Position position) {
+        if (position.pieceCount > maxPieces || position.castling != 0 || position.canCaptureEnPassant()) {
+            return null;
+        }
+        if (position.pieceCount == 2) {
+            return new TablebaseResult(TablebaseResult.Outcome.DRAW, 0);
+        }
+        String white = sideSignature(position, Position.WHITE);
+        String black = sideSignature(position, Position.BLACK);
+        boolean flip = !isStronger(white, black);
+        String signature = flip ? black + "v" + white : white + "v" + black;
+        TablebaseFile file = file(signature);
+        if (file == null) {
+            return null;
+        }
+        short entry = entry(file, TablebaseIndex.index(position, file.pieces(), flip));
+        return decode(entry);
+    }
+
+    static TablebaseResult decode(short entry) {
+        int outcome = (entry & 0xFFFF) >>> 14;
+        if (outcome == 0) {
+            return null;
+        }
+        return new TablebaseResult(TablebaseResult.Outcome.values()[outcome - 1], entry & 0x3FFF);
+    }
+
+    static short encode(TablebaseResult.Outcome outcome, int dtz) {
+        return (short) ((outcome.ordinal() + 1) << 14 | Math.min(dtz, 0x3FFF));
+    }
+
+    //Pieces of one color as letters, strongest first, like KRP
+    static String sideSignature(Position position, int color) {
+        StringBuilder letters = new StringBuilder();
+        for (int type = Position.KING; type >= Position.PAWN; type--) {
+            int count = Long.bitCount(position.pieces[type | color << 3]);
+            for (int i = 0; i < count; i++) {
+                letters.append(PIECE_LETTERS.charAt(type));
+            }
+        }
+        return letters.toString();
+    }
+
+    //Whether a side with these pieces is the one written first in a file name
+    static boolean isStronger(String side, String other) {
+        int strength = strength(side);
+        int otherStrength = strength(other);
+        if (strength != otherStrength) {
+            return strength > otherStrength;
+        }
+        if (side.length() != other.length()) {
+            return side.length() > other.length();
+        }
+        return side.compareTo(other) >= 0;
+    }
+
+    private static int strength(String side) {
+        int strength = 0;
+        for (char letter : side.toCharArray()) {
+            strength += STRENGTH[PIECE_LETTERS.indexOf(letter)];
+        }
+        return strength;
+    }
+
+    /**
+     * Piece codes for a signature such as KQvKR, white's first, in the order their squares
+     * are combined into an index
+     */
+    static int[] piecesOf(String signature) {
+        String[] sides = signature.split("v");
+        int[] pieces = new int[sides[0].length() + sides[1].length()];
+        int i = 0;
+        for (int color = Position.WHITE; color <= Position.BLACK; color++) {
+            for (char letter : sides[color].toCharArray()) {
+                pieces[i++] = PIECE_LETTERS.indexOf(letter) | color << 3;
+            }
+        }
+        return pieces;
+    }
+
+    private short entry(TablebaseFile file, long index) {
+        int block = (int) (index / file.entriesPerBlock());
+        long cacheKey = (long) file.id << 40 | block;
+        short[] entries;
+        synchronized (cache) {
+            entries = cache.get(cacheKey);
+        }
+        if (entries == null) {
+            try {
+                entries = file.readBlock(block);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            synchronized (cache) {
+                cache.put(cacheKey, entries);
+            }
+        }
+        int offset = (int) (index % file.entriesPerBlock());
+        return offset < entries.length ? entries[offset] : 0;
+    }
+
+    private TablebaseFile file(String signature) {
+        TablebaseFile file = files.get(signature);
+        if (file != null || missing.contains(signature)) {
+            return file;
+        }
+        Path path = directory.resolve(signature + EXTENSION);
+        if (!Files.exists(path)) {
+            missing.add(signature);
+            return null;
+        }
+        try {
+            return files.computeIfAbsent(signature, name -> {
+                try {
+                    return TablebaseFile.open(path, nextId.getAndIncrement());
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            System.out.println(e.getMessage());
+            missing.add(signature);
+            return null;
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package chess.engine;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * One memory mapped tablebase file, covering every position with one set of pieces.
+ * <p>
+ * The file starts with a header naming the pieces, then a table of block offsets, then the
+ * blocks themselves. Each block is a run of two byte entries compressed with deflate, so a
+ * probe only inflates the one block it needs, and recently used blocks are kept inflated in
+ * the tablebase's shared cache.
+ */
+final class TablebaseFile {
+    //CTB2, files from before indexes were folded are CTB1 and no longer read
+    static final int MAGIC = 0x43544232;
+    static final int ENTRIES_PER_BLOCK = 4096;
+
+    private final ByteBuffer data;
+    private final int[] pieces;
+    private final int entriesPerBlock;
+    private final long[] blockOffsets;
+    private final int dataStart;
+    final int id;
+
+    private TablebaseFile(ByteBuffer data, int id) throws IOException {
+        this.data = data;
+        this.id = id;
+        if (data.capacity() < 9 || data.getInt(0) != MAGIC) {
+            throw new IOException("Not a tablebase file");
+        }
+        int position = 4;
+        pieces = new int[data.get(position++)];
+        for (int i = 0; i < pieces.length; i++) {
+            pieces[i] = data.get(position++);
+        }
+        entriesPerBlock = data.getInt(position);
+        position += 4;
+        int blockCount = data.getInt(position);
+        position += 4;
+        blockOffsets = new long[blockCount + 1];
+        for (int i = 0; i <= blockCount; i++) {
+            blockOffsets[i] = data.getLong(position);
+            position += 8;
+        }
+        dataStart = position;
+    }
+
+    static TablebaseFile open(Path file, int id) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Tablebase file too large: " + file);
+            }
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new TablebaseFile(mapped, id);
+        }
+    }
+
+    //Piece codes in the order their squares make up an index
+    int[] pieces() {
+        return pieces;
+    }
+
+    int entriesPerBlock() {
+        return entriesPerBlock;
+    }
+
+    int blockCount() {
+        return blockOffsets.length - 1;
+    }
+
+    //Inflates one block, only called when the block isn't already cached
+    short[] readBlock(int block) throws IOException {
+        int start = (int) (dataStart + blockOffsets[block]);
+        byte[] compressed = new byte[(int) (blockOffsets[block + 1] - blockOffsets[block])];
+        data.get(start, compressed);
+        byte[] raw = new byte[entriesPerBlock * 2];
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(compressed);
+            int length = inflater.inflate(raw);
+            short[] entries = new short[length / 2];
+            ByteBuffer.wrap(raw, 0, length).asShortBuffer().get(entries);
+            return entries;
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupt tablebase block " + block, e);
+        } finally {
+            inflater.end();
+        }
+    }
+}
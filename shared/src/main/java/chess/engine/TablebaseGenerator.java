@@ -0,0 +1,362 @@
+package chess.engine;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.Deflater;
+
+/**
+ * Writes tablebase files for Tablebase by solving every position of an endgame.
+ * <p>
+ * Captures and promotions leave the table, so their results are looked up once in smaller
+ * tables, which are generated first. The rest is solved by sweeping the whole table, making
+ * every move again and looking up where it leads, until nothing changes: a
+ * position is won if some move leads to a lost position, lost if every move leads to a won
+ * one, and whatever is still undecided at the end is a draw. Distances to zeroing are
+ * relaxed in the same sweeps, so they settle on the shortest win and the longest defence.
+ * <p>
+ * Every entry is held in memory, three bytes each in chunked arrays, so three piece tables
+ * take seconds while five piece tables need a few gigabytes and hours. The en passant right left by a double push is not tracked, which only
+ * matters for tables with pawns on both sides.
+ * Run with: java chess.engine.TablebaseGenerator directory KQvK KRvK ...
+ */
+public final class TablebaseGenerator {
+    private static final String PIECE_ORDER = "KQRBNP";
+    private static final byte NO_RESULT = -1;
+    private static final byte FINAL = -2;
+    private static final byte ILLEGAL = -3;
+
+    private final Path directory;
+
+    public TablebaseGenerator(Path directory) {
+        this.directory = directory;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.out.println("Usage: TablebaseGenerator <directory> <signature>...");
+            return;
+        }
+        TablebaseGenerator generator = new TablebaseGenerator(Path.of(args[0]));
+        for (int i = 1; i < args.length; i++) {
+            generator.generate(args[i]);
+        }
+    }
+
+    /**
+     * Writes the table for an endgame such as KRvK, first writing any smaller tables it needs
+     *
+     * @throws IllegalArgumentException if the signature isn't a valid endgame of up to Tablebase.MAX_PIECES pieces
+     */
+    public void generate(String signature) throws IOException {
+        String canonical = canonical(signature);
+        Path file = directory.resolve(canonical + Tablebase.EXTENSION);
+        if (Files.exists(file)) {
+            return;
+        }
+        for (String dependency : dependencies(canonical)) {
+            generate(dependency);
+        }
+        long started = System.nanoTime();
+        ShortChunks entries = solve(canonical);
+        write(file, Tablebase.piecesOf(canonical), entries);
+        System.out.printf("%s: %,d positions in %d ms%n", canonical, entries.size(), (System.nanoTime() - started) / 1_000_000);
+    }
+
+    //Orders each side's pieces and puts the stronger side first
+    static String canonical(String signature) {
+        String[] sides = signature.toUpperCase().split("V");
+        if (sides.length != 2) {
+            throw new IllegalArgumentException("Expected a signature like KQvK: " + signature);
+        }
+        for (int color = 0; color < 2; color++) {
+            char[] letters = sides[color].toCharArray();
+            for (char letter : letters) {
+                if (PIECE_ORDER.indexOf(letter) < 0) {
+                    throw new IllegalArgumentException("Unknown piece " + letter + " in " + signature);
+                }
+            }
+            Arrays.sort(letters);
+            StringBuilder sorted = new StringBuilder();
+            for (char piece : PIECE_ORDER.toCharArray()) {
+                for (char letter : letters) {
+                    if (letter == piece) {
+                        sorted.append(letter);
+                    }
+                }
+            }
+            sides[color] = sorted.toString();
+            if (sides[color].isEmpty() || sides[color].charAt(0) != 'K' || sides[color].lastIndexOf('K') != 0) {
+                throw new IllegalArgumentException("Each side needs exactly one king: " + signature);
+            }
+        }
+        if (sides[0].length() + sides[1].length() > Tablebase.MAX_PIECES) {
+            throw new IllegalArgumentException("Tables go up to " + Tablebase.MAX_PIECES + " pieces: " + signature);
+        }
+        return Tablebase.isStronger(sides[0], sides[1]) ? sides[0] + "v" + sides[1] : sides[1] + "v" + sides[0];
+    }
+
+    //Tables reached by a capture or a promotion
+    static Set<String> dependencies(String signature) {
+        String[] sides = signature.split("v");
+        Set<String> dependencies = new LinkedHashSet<>();
+        for (int color = 0; color < 2; color++) {
+            String side = sides[color];
+            for (int i = 1; i < side.length(); i++) {
+                String reduced = side.substring(0, i) + side.substring(i + 1);
+                addDependency(dependencies, color == 0 ? reduced : sides[0], color == 0 ? sides[1] : reduced);
+                if (side.charAt(i) == 'P') {
+                    for (char promotion : "QRBN".toCharArray()) {
+                        String promoted = reduced + promotion;
+                        addDependency(dependencies, color == 0 ? promoted : sides[0], color == 0 ? sides[1] : promoted);
+                    }
+                }
+            }
+        }
+        return dependencies;
+    }
+
+    private static void addDependency(Set<String> dependencies, String white, String black) {
+        //Bare kings are always a draw and have no table
+        if (white.length() + black.length() > 2) {
+            dependencies.add(canonical(white + "v" + black));
+        }
+    }
+
+    private ShortChunks solve(String signature) throws IOException {
+        int[] pieces = Tablebase.piecesOf(signature);
+        long size = TablebaseIndex.size(pieces);
+        Tablebase smaller = Tablebase.open(directory);
+        //Entries as they are written, 0 while undecided
+        ShortChunks entries = new ShortChunks(size);
+        //Best result for the side to move among moves that leave the table, NO_RESULT, ILLEGAL or FINAL
+        ByteChunks leaving = new ByteChunks(size);
+
+        Position position = Position.start();
+        int[] squares = new int[pieces.length];
+        int[] moves = new int[256];
+        for (long index = 0; index < size; index++) {
+            if (!setUp(position, index, pieces, squares)) {
+                leaving.set(index, ILLEGAL);
+                continue;
+            }
+            int best = NO_RESULT;
+            int count = position.generateMoves(moves, false);
+            boolean anyLegal = false;
+            for (int i = 0; i < count; i++) {
+                int move = moves[i];
+                if (!position.makeIfLegal(move)) {
+                    continue;
+                }
+                anyLegal = true;
+                if (Move.isCapture(move) || Move.promotion(move) != 0) {
+                    TablebaseResult result = smaller.probe(position);
+                    if (result == null) {
+                        throw new IOException("Missing a smaller table needed by " + signature);
+                    }
+                    //The result is for the opponent, turn it around
+                    best = Math.max(best, 2 - result.outcome().ordinal());
+                }
+                position.unmake(move);
+            }
+            if (anyLegal) {
+                leaving.set(index, (byte) best);
+            }
+            else {
+                //Checkmated is lost now, stalemate a draw
+                entries.set(index, Tablebase.encode(position.inCheck() ? TablebaseResult.Outcome.LOSS : TablebaseResult.Outcome.DRAW, 0));
+                leaving.set(index, FINAL);
+            }
+        }
+
+        sweep(entries, leaving, pieces);
+
+        short draw = Tablebase.encode(TablebaseResult.Outcome.DRAW, 0);
+        for (long index = 0; index < size; index++) {
+            if (leaving.get(index) != ILLEGAL && entries.get(index) == 0) {
+                entries.set(index, draw);
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * Settles wins and losses until a sweep changes nothing. Moves are generated again on every
+     * sweep rather than kept, since a five piece table has billions of them.
+     */
+    private static void sweep(ShortChunks entries, ByteChunks leaving, int[] pieces) {
+        int winForMover = TablebaseResult.Outcome.WIN.ordinal();
+        int lossForMover = TablebaseResult.Outcome.LOSS.ordinal();
+        Position position = Position.start();
+        int[] squares = new int[pieces.length];
+        int[] moves = new int[256];
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (long index = 0; index < entries.size(); index++) {
+                //Illegal positions and mates or stalemates never change
+                byte leaves = leaving.get(index);
+                if (leaves == ILLEGAL || leaves == FINAL) {
+                    continue;
+                }
+                setUp(position, index, pieces, squares);
+                int bestWin = leaves == winForMover ? 1 : Integer.MAX_VALUE;
+                boolean allLose = leaves == NO_RESULT || leaves == lossForMover;
+                int longestLoss = leaves == lossForMover ? 1 : 0;
+                int count = position.generateMoves(moves, false);
+                for (int i = 0; i < count; i++) {
+                    int move = moves[i];
+                    if (Move.isCapture(move) || Move.promotion(move) != 0 || !position.makeIfLegal(move)) {
+                        continue;
+                    }
+                    long child = TablebaseIndex.index(position, pieces, false);
+                    boolean zeroing = Position.type(position.board[Move.to(move)]) == Position.PAWN;
+                    position.unmake(move);
+                    int entry = entries.get(child) & 0xFFFF;
+                    int outcome = (entry >>> 14) - 1;
+                    int distance = zeroing ? 1 : (entry & 0x3FFF) + 1;
+                    if (outcome == lossForMover) {
+                        bestWin = Math.min(bestWin, distance);
+                    }
+                    if (outcome == winForMover) {
+                        longestLoss = Math.max(longestLoss, distance);
+                    }
+                    else {
+                        allLose = false;
+                    }
+                }
+                short result;
+                if (bestWin != Integer.MAX_VALUE) {
+                    result = Tablebase.encode(TablebaseResult.Outcome.WIN, bestWin);
+                }
+                else if (allLose) {
+                    result = Tablebase.encode(TablebaseResult.Outcome.LOSS, longestLoss);
+                }
+                else {
+                    continue;
+                }
+                if (entries.get(index) != result) {
+                    entries.set(index, result);
+                    changed = true;
+                }
+            }
+        }
+    }
+
+    //Puts the pieces of an index on the board, false if the index isn't a legal position
+    private static boolean setUp(Position position, long index, int[] pieces, int[] squares) {
+        if (!TablebaseIndex.squares(index, pieces, squares)) {
+            return false;
+        }
+        int side = (int) (index & 1);
+        position.reset(pieces, squares, pieces.length, side);
+        //The side that just moved can't be in check
+        return !position.isAttacked(position.kingSquare[side ^ 1], side);
+    }
+
+    private static void write(Path file, int[] pieces, ShortChunks entries) throws IOException {
+        int blockCount = (int) ((entries.size() + TablebaseFile.ENTRIES_PER_BLOCK - 1) / TablebaseFile.ENTRIES_PER_BLOCK);
+        List<byte[]> blocks = new ArrayList<>(blockCount);
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        ByteBuffer raw = ByteBuffer.allocate(TablebaseFile.ENTRIES_PER_BLOCK * 2);
+        byte[] buffer = new byte[raw.capacity() + 64];
+        for (int block = 0; block < blockCount; block++) {
+            long start = (long) block * TablebaseFile.ENTRIES_PER_BLOCK;
+            int length = (int) Math.min(entries.size() - start, TablebaseFile.ENTRIES_PER_BLOCK);
+            raw.clear();
+            for (int i = 0; i < length; i++) {
+                raw.putShort(entries.get(start + i));
+            }
+            deflater.reset();
+            deflater.setInput(raw.array(), 0, length * 2);
+            deflater.finish();
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+            while (!deflater.finished()) {
+                compressed.write(buffer, 0, deflater.deflate(buffer));
+            }
+            blocks.add(compressed.toByteArray());
+        }
+        deflater.end();
+
+        //Written next to the real file and moved into place, so a reader never sees half a table
+        Path partial = file.resolveSibling(file.getFileName() + ".tmp");
+        try (OutputStream out = Files.newOutputStream(partial); DataOutputStream data = new DataOutputStream(out)) {
+            data.writeInt(TablebaseFile.MAGIC);
+            data.writeByte(pieces.length);
+            for (int piece : pieces) {
+                data.writeByte(piece);
+            }
+            data.writeInt(TablebaseFile.ENTRIES_PER_BLOCK);
+            data.writeInt(blockCount);
+            long offset = 0;
+            for (byte[] block : blocks) {
+                data.writeLong(offset);
+                offset += block.length;
+            }
+            data.writeLong(offset);
+            for (byte[] block : blocks) {
+                data.write(block);
+            }
+        }
+        Files.move(partial, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    //Chunks are a power of two entries and a whole number of blocks, so no block straddles two
+    private static final int CHUNK_BITS = 24;
+    private static final int CHUNK_MASK = (1 << CHUNK_BITS) - 1;
+
+    //A short array indexed by a long, a five piece table with pawns is close to the most one array can hold
+    private static final class ShortChunks {
+        private final short[][] chunks;
+        private final long size;
+
+        ShortChunks(long size) {
+            this.size = size;
+            chunks = new short[(int) ((size + CHUNK_MASK) >>> CHUNK_BITS)][];
+            for (int i = 0; i < chunks.length; i++) {
+                chunks[i] = new short[(int) Math.min(size - ((long) i << CHUNK_BITS), 1 << CHUNK_BITS)];
+            }
+        }
+
+        short get(long index) {
+            return chunks[(int) (index >>> CHUNK_BITS)][(int) (index & CHUNK_MASK)];
+        }
+
+        void set(long index, short value) {
+            chunks[(int) (index >>> CHUNK_BITS)][(int) (index & CHUNK_MASK)] = value;
+        }
+
+        long size() {
+            return size;
+        }
+    }
+
+    private static final class ByteChunks {
+        private final byte[][] chunks;
+
+        ByteChunks(long size) {
+            chunks = new byte[(int) ((size + CHUNK_MASK) >>> CHUNK_BITS)][];
+            for (int i = 0; i < chunks.length; i++) {
+                chunks[i] = new byte[(int) Math.min(size - ((long) i << CHUNK_BITS), 1 << CHUNK_BITS)];
+            }
+        }
+
+        byte get(long index) {
+            return chunks[(int) (index >>> CHUNK_BITS)][(int) (index & CHUNK_MASK)];
+        }
+
+        void set(long index, byte value) {
+            chunks[(int) (index >>> CHUNK_BITS)][(int) (index & CHUNK_MASK)] = value;
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package chess.engine;
+
+import java.util.Arrays;
+
+/**
+ * Turns a position into its place in a tablebase file and back.
+ * <p>
+ * The board is first turned so the white king sits in one corner: the a1-d1-d4 triangle when
+ * there are no pawns, which folds away all eight symmetries of the board, or files a to d when
+ * there are pawns, since those can only be mirrored left to right. Each pair of king squares
+ * left where the kings don't touch gets a number, 462 pairs without pawns and 1806 with them.
+ * An index is that number, then six bits for each other piece in signature order, then the
+ * side to move in the lowest bit. Five pieces with a pawn come to 2 * 1806 * 64^3 entries,
+ * against 2 * 64^5 without folding.
+ */
+final class TablebaseIndex {
+    private static final int MIRROR_FILE = 1;
+    private static final int MIRROR_RANK = 2;
+    private static final int DIAGONAL = 4;
+
+    //King pair numbers by white king square * 64 + black king square, -1 if not canonical, then back again
+    private static final int[][] PAIR_OF = new int[2][64 * 64];
+    private static final int[][] PAIR_SQUARES = new int[2][];
+
+    static {
+        for (int pawns = 0; pawns < 2; pawns++) {
+            int[] squares = new int[64 * 64];
+            int count = 0;
+            for (int white = 0; white < 64; white++) {
+                for (int black = 0; black < 64; black++) {
+                    int pair = white << 6 | black;
+                    PAIR_OF[pawns][pair] = -1;
+                    boolean touching = Math.abs((white >>> 3) - (black >>> 3)) <= 1 && Math.abs((white & 7) - (black & 7)) <= 1;
+                    if (!touching && symmetry(white, black, pawns == 1) == 0) {
+                        PAIR_OF[pawns][pair] = count;
+                        squares[count++] = pair;
+                    }
+                }
+            }
+            PAIR_SQUARES[pawns] = Arrays.copyOf(squares, count);
+        }
+    }
+
+    private TablebaseIndex() {}
+
+    static int kingPairs(boolean pawns) {
+        return PAIR_SQUARES[pawns ? 1 : 0].length;
+    }
+
+    //How many entries a table with these pieces has, legal or not
+    static long size(int[] pieces) {
+        return 2L * kingPairs(hasPawns(pieces)) << 6 * (pieces.length - 2);
+    }
+
+    /**
+     * Where a position is found in the table for these pieces
+     *
+     * @param flip whether to swap the colors and turn the board over first, for positions
+     *             where black has the pieces written first
+     */
+    static long index(Position position, int[] pieces, boolean flip) {
+        boolean pawns = hasPawns(pieces);
+        int whiteKing = Position.KING;
+        int blackKing = Position.KING | 8;
+        int side = position.sideToMove;
+        if (flip) {
+            whiteKing = blackKing;
+            blackKing = Position.KING;
+            side ^= 1;
+        }
+        int flipSquare = flip ? 56 : 0;
+        int white = Long.numberOfTrailingZeros(position.pieces[whiteKing]) ^ flipSquare;
+        int black = Long.numberOfTrailingZeros(position.pieces[blackKing]) ^ flipSquare;
+        int symmetry = symmetry(white, black, pawns);
+        long index = PAIR_OF[pawns ? 1 : 0][transform(white, symmetry) << 6 | transform(black, symmetry)];
+        long used = 0;
+        for (int piece : pieces) {
+            if (Position.type(piece) == Position.KING) {
+                continue;
+            }
+            //Pieces of the same kind can go in any order since the table holds every arrangement
+            long candidates = position.pieces[flip ? piece ^ 8 : piece] & ~used;
+            int square = Long.numberOfTrailingZeros(candidates);
+            used |= 1L << square;
+            index = index << 6 | transform(square ^ flipSquare, symmetry);
+        }
+        return index << 1 | side;
+    }
+
+    /**
+     * Fills squares from an index, in the same order as the pieces
+     *
+     * @return false if two pieces share a square or a pawn is on a back rank
+     */
+    static boolean squares(long index, int[] pieces, int[] squares) {
+        long rest = index >>> 1;
+        long used = 0;
+        for (int i = pieces.length - 1; i >= 0; i--) {
+            if (Position.type(pieces[i]) == Position.KING) {
+                continue;
+            }
+            int square = (int) (rest & 63);
+            rest >>>= 6;
+            if (Position.type(pieces[i]) == Position.PAWN && (square < 8 || square >= 56)) {
+                return false;
+            }
+            used |= 1L << square;
+            squares[i] = square;
+        }
+        int pair = PAIR_SQUARES[hasPawns(pieces) ? 1 : 0][(int) rest];
+        for (int i = 0; i < pieces.length; i++) {
+            if (pieces[i] == Position.KING) {
+                squares[i] = pair >>> 6;
+            }
+            else if (pieces[i] == (Position.KING | 8)) {
+                squares[i] = pair & 63;
+            }
+        }
+        used |= 1L << (pair >>> 6) | 1L << (pair & 63);
+        return Long.bitCount(used) == pieces.length;
+    }
+
+    static boolean hasPawns(int[] pieces) {
+        for (int piece : pieces) {
+            if (Position.type(piece) == Position.PAWN) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    //Which reflections bring the white king into its corner, and settle ties on the diagonal by the black king
+    private static int symmetry(int white, int black, boolean pawns) {
+        int symmetry = 0;
+        if ((white & 7) > 3) {
+            symmetry |= MIRROR_FILE;
+        }
+        if (pawns) {
+            return symmetry;
+        }
+        if (white >>> 3 > 3) {
+            symmetry |= MIRROR_RANK;
+        }
+        int king = transform(white, symmetry);
+        int other = transform(black, symmetry);
+        if (king >>> 3 > (king & 7) || king >>> 3 == (king & 7) && other >>> 3 > (other & 7)) {
+            symmetry |= DIAGONAL;
+        }
+        return symmetry;
+    }
+
+    private static int transform(int square, int symmetry) {
+        if ((symmetry & MIRROR_FILE) != 0) {
+            square ^= 7;
+        }
+        if ((symmetry & MIRROR_RANK) != 0) {
+            square ^= 56;
+        }
+        if ((symmetry & DIAGONAL) != 0) {
+            square = square >>> 3 | (square & 7) << 3;
+        }
+        return square;
+    }
+}
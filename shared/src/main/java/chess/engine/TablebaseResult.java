@@ -0,0 +1,15 @@
+package chess.engine;
+
+/**
+ * What a tablebase knows about a position, from the point of view of the side to move.
+ *
+ * @param dtz plies until the next capture, pawn move or mate with best play by both sides
+ */
+public record TablebaseResult(Outcome outcome, int dtz) {
+
+    public enum Outcome {
+        LOSS,
+        DRAW,
+        WIN
+    }
+}
@@ -0,0 +1,134 @@
+package chess.engine;
+
+import chess.Bitboards;
+
+/**
+ * Scores material, piece placement, mobility and king safety, each with a middlegame and an
+ * endgame weight, and blends the two by how much material is left on the board.
+ * <p>
+ * Material and placement come straight from the sums Position keeps up to date as moves are
+ * made, so they cost nothing here. Mobility and king safety depend on where every piece can
+ * move, so they are counted fresh, but only for the knights, bishops, rooks and queens found
+ * through the piece bitboards rather than by scanning all 64 squares.
+ */
+public class TaperedEvaluator implements Evaluator {
+    //Per square a piece can reach, middlegame and endgame, indexed by piece type
+    private static final int[] MOBILITY_MIDGAME = {0, 0, 4, 5, 2, 1, 0};
+    private static final int[] MOBILITY_ENDGAME = {0, 0, 4, 5, 4, 2, 0};
+    //Squares a piece typically reaches, so an average piece scores about nothing
+    private static final int[] MOBILITY_BASE = {0, 0, 4, 6, 7, 13, 0};
+    //How threatening each piece is to the king per square it attacks next to the king
+    private static final int[] ATTACK_UNITS = {0, 0, 2, 2, 3, 5, 0};
+    private static final int MAX_ATTACK_PENALTY = 500;
+    private static final int SHIELD_PAWN = 12;
+
+    //The king's square and every square next to it
+    private static final long[] KING_ZONE = new long[64];
+
+    static {
+        for (int square = 0; square < 64; square++) {
+            KING_ZONE[square] = 1L << square | Bitboards.kingAttacks(square);
+        }
+    }
+
+    @Override
+    public int evaluate(Position position) {
+        int midgame = position.midgame;
+        int endgame = position.endgame;
+        long whitePieces = occupied(position, Position.WHITE);
+        long blackPieces = occupied(position, Position.BLACK);
+        //Attack units and attacker counts against the enemy king, kept in locals so evaluating allocates nothing
+        int whiteUnits = 0;
+        int whiteAttackers = 0;
+        int blackUnits = 0;
+        int blackAttackers = 0;
+        for (int color = Position.WHITE; color <= Position.BLACK; color++) {
+            int sign = color == Position.WHITE ? 1 : -1;
+            long own = color == Position.WHITE ? whitePieces : blackPieces;
+            long enemyZone = KING_ZONE[position.kingSquare[color ^ 1]];
+            int units = 0;
+            int attackers = 0;
+            for (int type = Position.KNIGHT; type <= Position.QUEEN; type++) {
+                long bits = position.pieces[type | color << 3];
+                while (bits != 0) {
+                    int square = Long.numberOfTrailingZeros(bits);
+                    bits &= bits - 1;
+                    long reach = reach(square, type, whitePieces | blackPieces) & ~own;
+                    int mobility = Long.bitCount(reach) - MOBILITY_BASE[type];
+                    midgame += sign * mobility * MOBILITY_MIDGAME[type];
+                    endgame += sign * mobility * MOBILITY_ENDGAME[type];
+                    int zoneHits = Long.bitCount(reach & enemyZone);
+                    if (zoneHits > 0) {
+                        attackers++;
+                        units += zoneHits * ATTACK_UNITS[type];
+                    }
+                }
+            }
+            if (color == Position.WHITE) {
+                whiteUnits = units;
+                whiteAttackers = attackers;
+            }
+            else {
+                blackUnits = units;
+                blackAttackers = attackers;
+            }
+        }
+        //King safety only counts toward the middlegame, there is too little left to attack with later
+        midgame += shield(position, Position.WHITE) - shield(position, Position.BLACK);
+        midgame += attackPenalty(whiteUnits, whiteAttackers) - attackPenalty(blackUnits, blackAttackers);
+
+        int phase = Math.min(position.phase, PieceSquareTables.TOTAL_PHASE);
+        int score = (midgame * phase + endgame * (PieceSquareTables.TOTAL_PHASE - phase)) / PieceSquareTables.TOTAL_PHASE;
+        return position.sideToMove == Position.WHITE ? score : -score;
+    }
+
+    //A lone attacker is rarely dangerous, several together quickly are
+    private static int attackPenalty(int units, int attackers) {
+        return attackers >= 2 ? Math.min(units * units, MAX_ATTACK_PENALTY) : 0;
+    }
+
+    private static long occupied(Position position, int color) {
+        long occupied = 0;
+        for (int type = Position.PAWN; type <= Position.KING; type++) {
+            occupied |= position.pieces[type | color << 3];
+        }
+        return occupied;
+    }
+
+    //Squares the piece attacks, including ones held by its own side
+    private static long reach(int square, int type, long occupied) {
+        return switch (type) {
+            case Position.KNIGHT -> Bitboards.knightAttacks(square);
+            case Position.BISHOP -> Bitboards.bishopAttacks(square, occupied);
+            case Position.ROOK -> Bitboards.rookAttacks(square, occupied);
+            default -> Bitboards.queenAttacks(square, occupied);
+        };
+    }
+
+    //Pawns standing on the three files in front of a king that is still on its back two ranks
+    private static int shield(Position position, int color) {
+        int king = position.kingSquare[color];
+        int row = king / 8;
+        int homeRow = color == Position.WHITE ? 0 : 7;
+        if (Math.abs(row - homeRow) > 1) {
+            return 0;
+        }
+        int forward = color == Position.WHITE ? 1 : -1;
+        long pawns = position.pieces[Position.PAWN | color << 3];
+        int col = king % 8;
+        int shield = 0;
+        for (int step = 1; step <= 2; step++) {
+            int shieldRow = row + forward * step;
+            if (shieldRow < 0 || shieldRow > 7) {
+                break;
+            }
+            for (int shieldCol = Math.max(0, col - 1); shieldCol <= Math.min(7, col + 1); shieldCol++) {
+                if ((pawns & 1L << (shieldRow * 8 + shieldCol)) != 0) {
+                    //A pawn right in front counts twice as much as one a square further up
+                    shield += step == 1 ? SHIELD_PAWN : SHIELD_PAWN / 2;
+                }
+            }
+        }
+        return shield;
+    }
+}
@@ -0,0 +1,186 @@
+package chess.engine;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * A fixed size hash table of search results, shared by every thread searching a position.
+ * <p>
+ * Entries are two longs: the packed data and the position key XOR the data. A reader
+ * only trusts an entry if XORing them back gives its own key, so an entry torn by two
+ * threads writing at once just looks like a miss and no locks are needed. Each long is
+ * read and written with opaque access, which makes it atomic without ordering costs.
+ * <p>
+ * Buckets hold two entries. The first keeps the deepest result, since that cost the most
+ * to compute, unless it is left over from an earlier search. The second always takes the
+ * newest result so recent positions are still found.
+ */
+public final class TranspositionTable {
+    public static final int DEFAULT_MEGABYTES = 16;
+
+    public static final int EXACT = 1;
+    public static final int LOWER_BOUND = 2;
+    public static final int UPPER_BOUND = 3;
+
+    private static final VarHandle SLOTS = MethodHandles.arrayElementVarHandle(long[].class);
+    private static final int LONGS_PER_BUCKET = 4;
+    private static final int BYTES_PER_BUCKET = LONGS_PER_BUCKET * Long.BYTES;
+
+    //Data layout: move 0-17, score 18-33 (offset by 2^15), depth 34-41, bound 42-43, generation 44-51
+    private static final int SCORE_SHIFT = 18;
+    private static final int DEPTH_SHIFT = 34;
+    private static final int BOUND_SHIFT = 42;
+    private static final int GENERATION_SHIFT = 44;
+
+    private final long[] slots;
+    private final long bucketMask;
+    private volatile int generation;
+
+    public TranspositionTable() {
+        this(DEFAULT_MEGABYTES);
+    }
+
+    /**
+     * @param megabytes memory to use, rounded down to a power of two number of buckets
+     */
+    public TranspositionTable(int megabytes) {
+        if (megabytes < 1) {
+            throw new IllegalArgumentException("Transposition table needs at least 1 MB");
+        }
+        long buckets = Long.highestOneBit((long) megabytes * 1024 * 1024 / BYTES_PER_BUCKET);
+        //A Java array can't hold more than 2^31 longs
+        buckets = Math.min(buckets, 1L << 29);
+        slots = new long[(int) (buckets * LONGS_PER_BUCKET)];
+        bucketMask = buckets - 1;
+    }
+
+    /**
+     * Looks up a position
+     *
+     * @return the packed entry, or 0 if the position isn't stored. Unpack it with move, score, depth and bound.
+     */
+    public long probe(long key) {
+        int base = bucket(key);
+        for (int slot = base; slot < base + LONGS_PER_BUCKET; slot += 2) {
+            long data = (long) SLOTS.getOpaque(slots, slot + 1);
+            if (data != 0 && ((long) SLOTS.getOpaque(slots, slot) ^ data) == key) {
+                return data;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Stores a search result
+     *
+     * @param score the score at this node, mate scores are converted to be independent of ply
+     * @param ply distance from the root, used to convert mate scores
+     */
+    public void store(long key, int move, int score, int depth, int bound, int ply) {
+        int base = bucket(key);
+        long deep = (long) SLOTS.getOpaque(slots, base + 1);
+        boolean deepMatches = deep != 0 && ((long) SLOTS.getOpaque(slots, base) ^ deep) == key;
+        int target;
+        long previous;
+        if (deep == 0 || deepMatches || depth >= depth(deep) || generation(deep) != generation) {
+            target = base;
+            previous = deepMatches ? deep : 0;
+        }
+        else {
+            target = base + 2;
+            long recent = (long) SLOTS.getOpaque(slots, base + 3);
+            previous = recent != 0 && ((long) SLOTS.getOpaque(slots, base + 2) ^ recent) == key ? recent : 0;
+        }
+        if (move == Move.NONE && previous != 0) {
+            //Keep the best move from an earlier visit rather than forget it
+            move = move(previous);
+        }
+        long data = pack(move, toTable(score, ply), depth, bound);
+        SLOTS.setOpaque(slots, target, key ^ data);
+        SLOTS.setOpaque(slots, target + 1, data);
+    }
+
+    //Marks the start of a new search so entries from older ones are the first to be replaced
+    public void newSearch() {
+        generation = (generation + 1) & 0xFF;
+    }
+
+    public void clear() {
+        for (int i = 0; i < slots.length; i++) {
+            SLOTS.setOpaque(slots, i, 0L);
+        }
+    }
+
+    public int megabytes() {
+        return (int) ((long) slots.length * Long.BYTES / (1024 * 1024));
+    }
+
+    public long entries() {
+        return slots.length / 2;
+    }
+
+    //Permille of the first thousand entries filled during the current search, like UCI's hashfull
+    public int hashfull() {
+        int used = 0;
+        int sample = (int) Math.min(1000, entries());
+        for (int i = 0; i < sample; i++) {
+            long data = (long) SLOTS.getOpaque(slots, i * 2 + 1);
+            if (data != 0 && generation(data) == generation) {
+                used++;
+            }
+        }
+        return used * 1000 / sample;
+    }
+
+    public static int move(long data) {
+        return (int) (data & 0x3FFFF);
+    }
+
+    //The stored score converted back to be relative to this ply
+    public static int score(long data, int ply) {
+        int score = (int) (data >>> SCORE_SHIFT & 0xFFFF) - 32768;
+        if (score >= Engine.MATE - Engine.MAX_PLY) {
+            return score - ply;
+        }
+        if (score <= -Engine.MATE + Engine.MAX_PLY) {
+            return score + ply;
+        }
+        return score;
+    }
+
+    public static int depth(long data) {
+        return (int) (data >>> DEPTH_SHIFT & 0xFF);
+    }
+
+    public static int bound(long data) {
+        return (int) (data >>> BOUND_SHIFT & 3);
+    }
+
+    private static int generation(long data) {
+        return (int) (data >>> GENERATION_SHIFT & 0xFF);
+    }
+
+    private long pack(int move, int score, int depth, int bound) {
+        return (long) move
+                | (long) (score + 32768) << SCORE_SHIFT
+                | (long) Math.min(depth, 255) << DEPTH_SHIFT
+                | (long) bound << BOUND_SHIFT
+                | (long) generation << GENERATION_SHIFT;
+    }
+
+    //Mate scores count plies from the root, stored they count from this node instead
+    private static int toTable(int score, int ply) {
+        if (score >= Engine.MATE - Engine.MAX_PLY) {
+            return score + ply;
+        }
+        if (score <= -Engine.MATE + Engine.MAX_PLY) {
+            return score - ply;
+        }
+        return score;
+    }
+
+    private int bucket(long key) {
+        //The low bits pick the bucket, the full key is still verified on probe
+        return (int) (key & bucketMask) * LONGS_PER_BUCKET;
+    }
+}
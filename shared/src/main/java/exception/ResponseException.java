@@ -1,6 +1,6 @@
 package exception;
 
-import com.google.gson.Gson;
+import json.Codecs;
 
 import java.io.InputStream;
 import java.io.InputStreamReader;
@@ -16,11 +16,11 @@ public class ResponseException extends Exception {
   }
 
   public String toJson() {
-    return new Gson().toJson(Map.of("message", getMessage(), "status", statusCode));
+    return Codecs.GSON.toJson(Map.of("message", getMessage(), "status", statusCode));
   }
 
   public static ResponseException fromJson(InputStream stream) {
-    var map = new Gson().fromJson(new InputStreamReader(stream), HashMap.class);
+    var map = Codecs.GSON.fromJson(new InputStreamReader(stream), HashMap.class);
     var status = ((Double)map.get("status")).intValue();
     String message = map.get("message").toString();
     return new ResponseException(status, message);
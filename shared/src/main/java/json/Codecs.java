@@ -0,0 +1,65 @@
+package json;
+
+import chess.*;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonIOException;
+import com.google.gson.JsonSyntaxException;
+import model.GameData;
+import requestsresults.*;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * The one place JSON is configured. A Gson is immutable and thread safe once built, and it
+ * caches the adapter it works out for each type, so the server, client and DAOs all share
+ * this instance instead of paying to build a new one and rediscover every adapter per call.
+ */
+public final class Codecs {
+    //Maps with object keys are written as arrays of pairs so they read back. The chess types have their own
+    //adapters, reflection over the game's private fields was the slowest part of saving and loading games.
+    public static final Gson GSON = new GsonBuilder()
+            .enableComplexMapKeySerialization()
+            .registerTypeAdapter(ChessMove.class, new ChessMoveAdapter())
+            .registerTypeAdapter(ChessBoard.class, new ChessBoardAdapter())
+            .registerTypeAdapter(ChessGame.class, new ChessGameAdapter())
+            .create();
+
+    static {
+        //Work out the adapters for everything sent on each request up front, not on the first request
+        for (Class<?> type : List.of(RegisterRequest.class, RegisterResult.class, LoginRequest.class, LoginResult.class,
+                LogoutResult.class, ListResult.class, CreateRequest.class, CreateResult.class, JoinRequest.class,
+                JoinResult.class, BookResult.class, HintResult.class, GameData.class, ChessGame.class)) {
+            GSON.getAdapter(type);
+        }
+    }
+
+    private Codecs() {}
+
+    /**
+     * Parses JSON straight from a stream without copying it into a String first
+     *
+     * @return the parsed value, or null if the stream is empty
+     * @throws JsonSyntaxException if the stream isn't valid JSON for the type
+     */
+    public static <T> T read(InputStream in, Class<T> type) throws IOException {
+        try {
+            return GSON.fromJson(new InputStreamReader(in, StandardCharsets.UTF_8), type);
+        } catch (JsonIOException e) {
+            throw new IOException(e.getMessage(), e);
+        }
+    }
+
+    //Writes JSON straight to a stream, the caller still owns the stream and closes it
+    public static void write(Object value, OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        try {
+            GSON.toJson(value, writer);
+        } catch (JsonIOException e) {
+            throw new IOException(e.getMessage(), e);
+        }
+        writer.flush();
+    }
+}
@@ -0,0 +1,54 @@
+package model;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * How strong a computer player is and how long it may think, given when it is seated.
+ * <p>
+ * A seat only holds a username, so the settings are written into the computer's name and
+ * read back from it whenever it is the computer's turn. That keeps bots working across
+ * restarts without a table of their own.
+ */
+public record BotSettings(int level, long moveMillis) {
+    public static final int MAX_LEVEL = 10;
+    public static final long MAX_MOVE_MILLIS = 10_000;
+
+    private static final String NAME_PREFIX = "Computer (";
+    private static final Pattern NAME = Pattern.compile("Computer \\(level (\\d+), (\\d+) ms\\)");
+
+    public boolean isValid() {
+        return level >= 1 && level <= MAX_LEVEL && moveMillis >= 0 && moveMillis <= MAX_MOVE_MILLIS;
+    }
+
+    //How many plies the engine may search, the level is the depth
+    public int depth() {
+        return level;
+    }
+
+    //0 means no limit was given, so stronger levels get longer to think
+    public long timeLimit() {
+        return moveMillis > 0 ? moveMillis : 200L * level;
+    }
+
+    public String seatName() {
+        return String.format("Computer (level %d, %d ms)", level, timeLimit());
+    }
+
+    //The settings of the computer sitting under this name, or null if it's a person's name
+    public static BotSettings fromSeatName(String username) {
+        if (!isBotName(username)) {
+            return null;
+        }
+        Matcher matcher = NAME.matcher(username);
+        if (!matcher.matches()) {
+            return null;
+        }
+        return new BotSettings(Integer.parseInt(matcher.group(1)), Long.parseLong(matcher.group(2)));
+    }
+
+    //Names that look like a computer's are reserved so nobody can register one and move for it
+    public static boolean isBotName(String username) {
+        return username != null && username.startsWith(NAME_PREFIX);
+    }
+}
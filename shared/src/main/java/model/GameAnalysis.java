@@ -0,0 +1,43 @@
+package model;
+
+import chess.ChessMove;
+
+import java.util.ArrayList;
+
+/**
+ * What the engine thought of every move of a finished game
+ *
+ * @param depth plies searched for each position
+ * @param whiteAccuracy 0-100, the average accuracy of white's moves
+ * @param blackAccuracy 0-100, the average accuracy of black's moves
+ */
+public record GameAnalysis(int gameID, int depth, ArrayList<MoveAnnotation> moves, double whiteAccuracy,
+                           double blackAccuracy) {
+
+    /**
+     * @param ply 0 for white's first move
+     * @param bestMove what the engine would have played instead
+     * @param centipawnLoss how much worse the position got for the mover compared to bestMove
+     * @param accuracy 0-100, from the mover's drop in winning chances
+     */
+    public record MoveAnnotation(int ply, ChessMove move, ChessMove bestMove, int centipawnLoss, double accuracy,
+                                 Judgement judgement) {}
+
+    public enum Judgement {
+        BEST,
+        GOOD,
+        INACCURACY,
+        MISTAKE,
+        BLUNDER
+    }
+
+    public int count(Judgement judgement) {
+        int count = 0;
+        for (MoveAnnotation annotation : moves) {
+            if (annotation.judgement() == judgement) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,21 @@
+package model;
+
+/**
+ * A change to the game list, pushed to clients watching the lobby.
+ * <p>
+ * Each event carries the game's whole listing rather than just what changed, so a newer
+ * event for a game replaces an older one outright and a client that missed some still
+ * ends up with the right seats.
+ */
+public record LobbyEvent(Kind kind, int gameID, String gameName, String whiteUsername, String blackUsername) {
+    public enum Kind {
+        CREATED,
+        SEAT_TAKEN,
+        SEAT_LEFT,
+        ENDED
+    }
+
+    public static LobbyEvent of(Kind kind, GameData game) {
+        return new LobbyEvent(kind, game.gameID(), game.gameName(), game.whiteUsername(), game.blackUsername());
+    }
+}
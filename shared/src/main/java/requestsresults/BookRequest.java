@@ -0,0 +1,3 @@
+package requestsresults;
+
+public record BookRequest(String authToken, int gameID) {}
@@ -0,0 +1,11 @@
+package requestsresults;
+
+import chess.ChessMove;
+
+import java.util.ArrayList;
+
+//Book moves for a game's current position, most played first
+public record BookResult(ArrayList<Choice> moves) {
+
+    public record Choice(ChessMove move, int weight) {}
+}
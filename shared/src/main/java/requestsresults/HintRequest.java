@@ -0,0 +1,3 @@
+package requestsresults;
+
+public record HintRequest(String authToken, int gameID) {}
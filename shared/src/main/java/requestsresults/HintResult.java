@@ -0,0 +1,16 @@
+package requestsresults;
+
+import chess.ChessMove;
+
+import java.util.ArrayList;
+
+/**
+ * The engine's view of a game's current position
+ *
+ * @param bestMove null when the side to move has no legal moves
+ * @param score centipawns for the side to move
+ * @param mateIn moves until mate, negative when the side to move is getting mated, 0 if none was found
+ * @param depth plies searched, 0 when the move came from the opening book
+ * @param principalVariation the line the engine expects, starting with bestMove
+ */
+public record HintResult(ChessMove bestMove, int score, int mateIn, int depth, ArrayList<ChessMove> principalVariation) {}
@@ -1,3 +1,11 @@
 package requestsresults;
 
-public record JoinRequest(String authToken, String playerColor, int gameID) {}
+import model.BotSettings;
+
+//With bot set, a computer player with those settings takes the seat instead of the caller
+public record JoinRequest(String authToken, String playerColor, int gameID, BotSettings bot) {
+
+    public JoinRequest(String authToken, String playerColor, int gameID) {
+        this(authToken, playerColor, gameID, null);
+    }
+}
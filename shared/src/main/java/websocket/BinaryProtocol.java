@@ -0,0 +1,219 @@
+package websocket;
+
+import chess.ChessGameCodec;
+import chess.ChessMove;
+import chess.ChessPiece;
+import chess.ChessPosition;
+import model.GameData;
+import model.LobbyEvent;
+import websocket.commands.UserGameCommand;
+import websocket.messages.ServerMessage;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+
+/**
+ * Compact binary encoding of UserGameCommands and ServerMessages, used instead of JSON
+ * when a client offers the SUBPROTOCOL during the websocket handshake.
+ * <p>
+ * Every frame starts with a version byte and a type byte (the enum ordinal).
+ * Strings are written as a 4 byte length followed by UTF-8 bytes, with -1 meaning null.
+ * Squares are a single byte, (row - 1) * 8 + (column - 1).
+ * A CONNECT command has the client id as a string after its auth token.
+ * A command's optional sequence is a trailing 8 byte long, so frames without one are unchanged.
+ * A LOBBY message is a 4 byte event count, then per event its kind byte, game id and three strings.
+ * A LOAD_GAME message is the game id, the white, black and game names, a byte saying whether a
+ * game follows and then the game as ChessGameCodec packs it, no JSON anywhere.
+ */
+public final class BinaryProtocol {
+
+    public static final String SUBPROTOCOL = "chess.binary.v1";
+
+    private static final byte VERSION = 1;
+    private static final byte NO_PROMOTION = -1;
+    private static final UserGameCommand.CommandType[] COMMAND_TYPES = UserGameCommand.CommandType.values();
+    private static final ServerMessage.ServerMessageType[] MESSAGE_TYPES = ServerMessage.ServerMessageType.values();
+    private static final ChessPiece.PieceType[] PIECE_TYPES = ChessPiece.PieceType.values();
+    private static final LobbyEvent.Kind[] EVENT_KINDS = LobbyEvent.Kind.values();
+
+    private BinaryProtocol() {}
+
+    public static ByteBuffer encodeCommand(UserGameCommand command) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeByte(VERSION);
+            out.writeByte(command.getCommandType().ordinal());
+            out.writeInt(command.getGameID() == null ? 0 : command.getGameID());
+            writeString(out, command.getAuthToken());
+            if (command.getCommandType() == UserGameCommand.CommandType.CONNECT) {
+                writeString(out, command.getClientId());
+            }
+            if (command.getCommandType() == UserGameCommand.CommandType.MAKE_MOVE) {
+                writeMove(out, command.getMove());
+            }
+            if (command.getSequence() != null) {
+                out.writeLong(command.getSequence());
+            }
+            return ByteBuffer.wrap(bytes.toByteArray());
+        }
+        catch (IOException e) {
+            //ByteArrayOutputStream never throws
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public static UserGameCommand decodeCommand(ByteBuffer frame) {
+        checkVersion(frame);
+        UserGameCommand.CommandType type = COMMAND_TYPES[frame.get()];
+        int gameID = frame.getInt();
+        String authToken = readString(frame);
+        UserGameCommand command = new UserGameCommand(type, authToken, gameID);
+        if (type == UserGameCommand.CommandType.CONNECT) {
+            command.setClientId(readString(frame));
+        }
+        if (type == UserGameCommand.CommandType.MAKE_MOVE) {
+            command.setMove(readMove(frame));
+        }
+        if (frame.remaining() >= Long.BYTES) {
+            command.setSequence(frame.getLong());
+        }
+        return command;
+    }
+
+    public static ByteBuffer encodeMessage(ServerMessage message) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeByte(VERSION);
+            out.writeByte(message.getServerMessageType().ordinal());
+            switch (message.getServerMessageType()) {
+                case LOAD_GAME -> writeGame(out, message.getGameData());
+                case ERROR -> writeString(out, message.getErrorMessage());
+                case NOTIFICATION -> writeString(out, message.getMessage());
+                case ACK -> {
+                    out.writeLong(message.getSequence());
+                    writeString(out, message.getMessage());
+                }
+                case NACK -> {
+                    out.writeLong(message.getSequence());
+                    writeString(out, message.getErrorMessage());
+                }
+                case LOBBY -> {
+                    out.writeInt(message.getLobbyEvents().size());
+                    for (LobbyEvent event : message.getLobbyEvents()) {
+                        out.writeByte(event.kind().ordinal());
+                        out.writeInt(event.gameID());
+                        writeString(out, event.gameName());
+                        writeString(out, event.whiteUsername());
+                        writeString(out, event.blackUsername());
+                    }
+                }
+            }
+            return ByteBuffer.wrap(bytes.toByteArray());
+        }
+        catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public static ServerMessage decodeMessage(ByteBuffer frame) {
+        checkVersion(frame);
+        ServerMessage message = new ServerMessage(MESSAGE_TYPES[frame.get()]);
+        switch (message.getServerMessageType()) {
+            case LOAD_GAME -> message.setGameData(readGame(frame));
+            case ERROR -> message.setErrorMessage(readString(frame));
+            case NOTIFICATION -> message.setMessage(readString(frame));
+            case ACK -> {
+                message.setSequence(frame.getLong());
+                message.setMessage(readString(frame));
+            }
+            case NACK -> {
+                message.setSequence(frame.getLong());
+                message.setErrorMessage(readString(frame));
+            }
+            case LOBBY -> {
+                int count = frame.getInt();
+                ArrayList<LobbyEvent> events = new ArrayList<>(count);
+                for (int i = 0; i < count; i++) {
+                    LobbyEvent.Kind kind = EVENT_KINDS[frame.get()];
+                    events.add(new LobbyEvent(kind, frame.getInt(), readString(frame), readString(frame), readString(frame)));
+                }
+                message.setLobbyEvents(events);
+            }
+        }
+        return message;
+    }
+
+    private static void checkVersion(ByteBuffer frame) {
+        byte version = frame.get();
+        if (version != VERSION) {
+            throw new IllegalArgumentException(String.format("Unsupported binary frame version %d", version));
+        }
+    }
+
+    private static void writeGame(DataOutputStream out, GameData game) throws IOException {
+        out.writeInt(game.gameID());
+        writeString(out, game.whiteUsername());
+        writeString(out, game.blackUsername());
+        writeString(out, game.gameName());
+        out.writeBoolean(game.game() != null);
+        if (game.game() != null) {
+            ChessGameCodec.write(out, game.game());
+        }
+    }
+
+    private static GameData readGame(ByteBuffer frame) {
+        int gameID = frame.getInt();
+        String white = readString(frame);
+        String black = readString(frame);
+        String name = readString(frame);
+        return new GameData(gameID, white, black, name, frame.get() != 0 ? ChessGameCodec.read(frame) : null);
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] encoded = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(encoded.length);
+        out.write(encoded);
+    }
+
+    private static String readString(ByteBuffer frame) {
+        int length = frame.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] encoded = new byte[length];
+        frame.get(encoded);
+        return new String(encoded, StandardCharsets.UTF_8);
+    }
+
+    private static void writeMove(DataOutputStream out, ChessMove move) throws IOException {
+        out.writeByte(squareIndex(move.getStartPosition()));
+        out.writeByte(squareIndex(move.getEndPosition()));
+        ChessPiece.PieceType promotion = move.getPromotionPiece();
+        out.writeByte(promotion == null ? NO_PROMOTION : promotion.ordinal());
+    }
+
+    private static ChessMove readMove(ByteBuffer frame) {
+        ChessPosition start = squarePosition(frame.get());
+        ChessPosition end = squarePosition(frame.get());
+        byte promotion = frame.get();
+        return new ChessMove(start, end, promotion == NO_PROMOTION ? null : PIECE_TYPES[promotion]);
+    }
+
+    private static int squareIndex(ChessPosition position) {
+        return (position.getRow() - 1) * 8 + (position.getColumn() - 1);
+    }
+
+    private static ChessPosition squarePosition(int index) {
+        return new ChessPosition(index / 8 + 1, index % 8 + 1);
+    }
+}
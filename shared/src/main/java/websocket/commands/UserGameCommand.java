@@ -17,6 +17,10 @@ public class UserGameCommand {
     private final Integer gameID;
     private ChessMove move;
     private GameData gameData;
+    //Optional client chosen id, echoed back in an ACK or NACK so commands can be pipelined and retried
+    private Long sequence;
+    //Sent with CONNECT and kept by the client across reconnects, sequences are only compared within one client
+    private String clientId;
 
     public String getUsername() {
         return username;
@@ -38,7 +42,10 @@ public class UserGameCommand {
         CONNECT,
         MAKE_MOVE,
         LEAVE,
-        RESIGN
+        RESIGN,
+        //Start and stop receiving LOBBY messages about games being created, filled and finished, no gameID needed
+        SUBSCRIBE_LOBBY,
+        UNSUBSCRIBE_LOBBY
     }
 
 
@@ -78,6 +85,22 @@ public class UserGameCommand {
         return gameData;
     }
 
+    public void setSequence(Long sequence) {
+        this.sequence = sequence;
+    }
+
+    public Long getSequence() {
+        return sequence;
+    }
+
+    public void setClientId(String clientId) {
+        this.clientId = clientId;
+    }
+
+    public String getClientId() {
+        return clientId;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) {
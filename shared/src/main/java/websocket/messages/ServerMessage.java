@@ -1,5 +1,10 @@
 package websocket.messages;
 
+import json.Codecs;
+import model.GameData;
+import model.LobbyEvent;
+
+import java.util.ArrayList;
 import java.util.Objects;
 
 /**
@@ -12,11 +17,21 @@ public class ServerMessage {
     private String message;
     private String errorMessage;
     private String game;
+    private Long sequence;
+    private ArrayList<LobbyEvent> lobbyEvents;
+    //The game a LOAD_GAME carries, never written as JSON itself. Each of the two forms is only made
+    //from the other when asked for, so a message sent only as binary never goes through Gson.
+    private transient GameData gameData;
 
     public enum ServerMessageType {
         LOAD_GAME,
         ERROR,
-        NOTIFICATION
+        NOTIFICATION,
+        //Replies to a command that carried a sequence, telling the client it was applied or rejected
+        ACK,
+        NACK,
+        //Changes to the game list, sent to sessions subscribed to the lobby
+        LOBBY
     }
 
     public ServerMessage(ServerMessageType type) {
@@ -45,12 +60,50 @@ public class ServerMessage {
 
     public void setGame(String json) {
         this.game = json;
+        this.gameData = null;
     }
 
     public String getGameJson() {
+        if (game == null && gameData != null) {
+            game = Codecs.GSON.toJson(gameData);
+        }
         return game;
     }
 
+    public void setGameData(GameData gameData) {
+        this.gameData = gameData;
+        this.game = null;
+    }
+
+    public GameData getGameData() {
+        if (gameData == null && game != null) {
+            gameData = Codecs.GSON.fromJson(game, GameData.class);
+        }
+        return gameData;
+    }
+
+    //The message as JSON, with the game written out first if only its GameData was set
+    public String toJson() {
+        getGameJson();
+        return Codecs.GSON.toJson(this);
+    }
+
+    public void setSequence(Long sequence) {
+        this.sequence = sequence;
+    }
+
+    public Long getSequence() {
+        return sequence;
+    }
+
+    public void setLobbyEvents(ArrayList<LobbyEvent> lobbyEvents) {
+        this.lobbyEvents = lobbyEvents;
+    }
+
+    public ArrayList<LobbyEvent> getLobbyEvents() {
+        return lobbyEvents;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) {
@@ -0,0 +1,109 @@
+package chess;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BitboardsTest {
+
+    @Test
+    @DisplayName("Magic Attacks Match Walking The Rays")
+    void magicsMatchRays() {
+        Random random = new Random(7);
+        for (int square = 0; square < 64; square++) {
+            for (int trial = 0; trial < 200; trial++) {
+                long occupied = random.nextLong() & random.nextLong();
+                assertEquals(Bitboards.slowRookAttacks(square, occupied), Bitboards.rookAttacks(square, occupied));
+                assertEquals(Bitboards.slowBishopAttacks(square, occupied), Bitboards.bishopAttacks(square, occupied));
+            }
+            assertEquals(14, Long.bitCount(Bitboards.rookAttacks(square, 0)));
+        }
+    }
+
+    @Test
+    @DisplayName("Squares And Positions")
+    void squares() {
+        for (int square = 0; square < 64; square++) {
+            assertEquals(square, Bitboards.square(Bitboards.position(square)));
+        }
+        assertEquals(new ChessPosition(1, 1), Bitboards.position(0));
+        assertEquals(new ChessPosition(8, 8), Bitboards.position(63));
+        assertEquals(12, Bitboards.square(new ChessPosition(2, 5)));
+    }
+
+    @Test
+    @DisplayName("Board Masks Follow Added Pieces")
+    void boardMasks() {
+        ChessBoard board = new ChessBoard();
+        board.resetBoard();
+        assertEquals(0xFFFFL, board.pieces(ChessGame.TeamColor.WHITE));
+        assertEquals(0xFFFFL << 48, board.pieces(ChessGame.TeamColor.BLACK));
+        ChessPosition e2 = new ChessPosition(2, 5);
+        ChessPosition e4 = new ChessPosition(4, 5);
+        board.addPiece(e4, board.getPiece(e2));
+        board.addPiece(e2, null);
+        assertEquals(1L << 28, board.pieces(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.PAWN) & 1L << 28);
+        assertEquals(0, board.occupied() & 1L << 12);
+        //Capturing replaces the other team's piece
+        board.addPiece(new ChessPosition(7, 4), new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.QUEEN));
+        assertEquals(0, board.pieces(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.PAWN) & 1L << 51);
+        assertEquals(15, Long.bitCount(board.pieces(ChessGame.TeamColor.BLACK)));
+    }
+
+    @Test
+    @DisplayName("Masks Rebuilt After Reading JSON")
+    void masksFromJson() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        game.makeMove(new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null));
+        Gson gson = new GsonBuilder().enableComplexMapKeySerialization().create();
+        ChessGame read = gson.fromJson(gson.toJson(game), ChessGame.class);
+        assertEquals(game.getBoard().occupied(), read.getBoard().occupied());
+        assertEquals(game.getBoard().pieces(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.PAWN),
+                read.getBoard().pieces(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.PAWN));
+        assertFalse(gson.toJson(game).contains("bitboards"));
+    }
+
+    @Test
+    @DisplayName("Knight, King And Pawn Tables")
+    void stepTables() {
+        //a1, e4 and h8
+        assertEquals(2, Long.bitCount(Bitboards.knightAttacks(0)));
+        assertEquals(8, Long.bitCount(Bitboards.knightAttacks(28)));
+        assertEquals(3, Long.bitCount(Bitboards.kingAttacks(63)));
+        assertEquals(8, Long.bitCount(Bitboards.kingAttacks(28)));
+        assertEquals(1L << 37 | 1L << 35, Bitboards.pawnAttacks(ChessGame.TeamColor.WHITE, 28));
+        assertEquals(1L << 19 | 1L << 21, Bitboards.pawnAttacks(ChessGame.TeamColor.BLACK, 28));
+        //Pawns on the edge files only attack one way
+        assertEquals(1L << 17, Bitboards.pawnAttacks(ChessGame.TeamColor.WHITE, 8));
+    }
+
+    @Test
+    @DisplayName("Check From Every Piece Type")
+    void checks() {
+        ChessPosition kingSquare = new ChessPosition(4, 4);
+        ChessPiece.PieceType[] types = {ChessPiece.PieceType.PAWN, ChessPiece.PieceType.KNIGHT,
+                ChessPiece.PieceType.BISHOP, ChessPiece.PieceType.ROOK, ChessPiece.PieceType.QUEEN};
+        ChessPosition[] attackers = {new ChessPosition(5, 5), new ChessPosition(6, 5), new ChessPosition(7, 7),
+                new ChessPosition(4, 8), new ChessPosition(1, 1)};
+        for (int i = 0; i < types.length; i++) {
+            ChessBoard board = new ChessBoard();
+            board.addPiece(kingSquare, new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KING));
+            board.addPiece(attackers[i], new ChessPiece(ChessGame.TeamColor.BLACK, types[i]));
+            ChessGame game = new ChessGame();
+            game.setBoard(board);
+            assertTrue(game.isInCheck(ChessGame.TeamColor.WHITE), types[i].toString());
+        }
+        //A black pawn behind the king does not give check
+        ChessBoard board = new ChessBoard();
+        board.addPiece(kingSquare, new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KING));
+        board.addPiece(new ChessPosition(3, 5), new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.PAWN));
+        ChessGame game = new ChessGame();
+        game.setBoard(board);
+        assertFalse(game.isInCheck(ChessGame.TeamColor.WHITE));
+    }
+}
@@ -0,0 +1,133 @@
+package chess;
+
+import chess.engine.Move;
+import chess.engine.Position;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LegalMovesTest {
+
+    private static Set<ChessMove> allMoves(ChessGame game) {
+        Set<ChessMove> moves = new HashSet<>();
+        for (int row = 1; row <= 8; row++) {
+            for (int col = 1; col <= 8; col++) {
+                ChessPosition position = new ChessPosition(row, col);
+                ChessPiece piece = game.getBoard().getPiece(position);
+                if (piece != null && piece.getTeamColor() == game.getTeamTurn()) {
+                    moves.addAll(game.validMoves(position));
+                }
+            }
+        }
+        return moves;
+    }
+
+    private static Set<ChessMove> engineMoves(ChessGame game) {
+        Position position = Position.from(game);
+        int[] moves = new int[256];
+        int count = position.generateMoves(moves, false);
+        Set<ChessMove> legal = new HashSet<>();
+        for (int i = 0; i < count; i++) {
+            if (position.makeIfLegal(moves[i])) {
+                legal.add(Move.toChessMove(moves[i]));
+                position.unmake(moves[i]);
+            }
+        }
+        return legal;
+    }
+
+    //The two generators disagree on some castling edge cases, so castling is compared elsewhere
+    private static Set<ChessMove> withoutCastling(Set<ChessMove> moves, ChessBoard board) {
+        Set<ChessMove> kept = new HashSet<>();
+        for (ChessMove move : moves) {
+            ChessPiece piece = board.getPiece(move.getStartPosition());
+            boolean castle = piece.getPieceType() == ChessPiece.PieceType.KING
+                    && Math.abs(move.getStartPosition().getColumn() - move.getEndPosition().getColumn()) == 2;
+            if (!castle) {
+                kept.add(move);
+            }
+        }
+        return kept;
+    }
+
+    @Test
+    @DisplayName("Legal Moves Match The Engine In Random Games")
+    void randomGames() throws InvalidMoveException {
+        Random random = new Random(11);
+        for (int gameNumber = 0; gameNumber < 40; gameNumber++) {
+            ChessGame game = new ChessGame();
+            for (int ply = 0; ply < 80; ply++) {
+                Set<ChessMove> moves = allMoves(game);
+                assertEquals(withoutCastling(engineMoves(game), game.getBoard()), withoutCastling(moves, game.getBoard()),
+                        "game " + gameNumber + " ply " + ply);
+                if (moves.isEmpty()) {
+                    break;
+                }
+                List<ChessMove> choices = new ArrayList<>(moves);
+                game.makeMove(choices.get(random.nextInt(choices.size())));
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Pinned Piece Stays On Its Line")
+    void pinned() {
+        ChessBoard board = new ChessBoard();
+        board.addPiece(new ChessPosition(1, 5), new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KING));
+        board.addPiece(new ChessPosition(3, 5), new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.ROOK));
+        board.addPiece(new ChessPosition(8, 5), new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.QUEEN));
+        board.addPiece(new ChessPosition(8, 1), new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KING));
+        ChessGame game = new ChessGame();
+        game.setBoard(board);
+        Collection<ChessMove> rookMoves = game.validMoves(new ChessPosition(3, 5));
+        //Up the file to the queen, down to the king
+        assertEquals(6, rookMoves.size());
+        for (ChessMove move : rookMoves) {
+            assertEquals(5, move.getEndPosition().getColumn());
+        }
+    }
+
+    @Test
+    @DisplayName("Double Check Leaves Only King Moves")
+    void doubleCheck() {
+        ChessBoard board = new ChessBoard();
+        board.addPiece(new ChessPosition(1, 5), new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KING));
+        board.addPiece(new ChessPosition(2, 1), new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.QUEEN));
+        board.addPiece(new ChessPosition(5, 5), new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.ROOK));
+        board.addPiece(new ChessPosition(3, 4), new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KNIGHT));
+        board.addPiece(new ChessPosition(8, 8), new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KING));
+        ChessGame game = new ChessGame();
+        game.setBoard(board);
+        //The queen could block the rook or take the knight, but not both
+        assertTrue(game.validMoves(new ChessPosition(2, 1)).isEmpty());
+        assertFalse(game.validMoves(new ChessPosition(1, 5)).isEmpty());
+        //The king can't step back along the rook's file
+        assertFalse(game.validMoves(new ChessPosition(1, 5)).contains(
+                new ChessMove(new ChessPosition(1, 5), new ChessPosition(2, 5), null)));
+    }
+
+    @Test
+    @DisplayName("Reset Board Forgets Earlier Moves")
+    void resetAfterMoves() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        game.makeMove(new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null));
+        game.makeMove(new ChessMove(new ChessPosition(7, 5), new ChessPosition(5, 5), null));
+        game.makeMove(new ChessMove(new ChessPosition(1, 4), new ChessPosition(5, 8), null));
+        ChessBoard board = game.getBoard();
+        board.resetBoard();
+        game.setBoard(board);
+        game.setTeamTurn(ChessGame.TeamColor.WHITE);
+        assertEquals(new ChessGame().getBoard().pieces(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.QUEEN),
+                board.pieces(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.QUEEN));
+        assertEquals(20, allMoves(game).size());
+        assertEquals(allMoves(new ChessGame()), allMoves(game));
+    }
+}
@@ -0,0 +1,90 @@
+package chess.engine;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPosition;
+import chess.InvalidMoveException;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EngineTest {
+
+    private static ChessMove move(int fromRow, int fromCol, int toRow, int toCol) {
+        return new ChessMove(new ChessPosition(fromRow, fromCol), new ChessPosition(toRow, toCol), null);
+    }
+
+    @Test
+    @DisplayName("Finds Back Rank Mate")
+    void mateInOne() {
+        SearchResult result = new Engine().search(Position.fromFen("6k1/5ppp/8/8/8/8/5PPP/R5K1 w - - 0 1"),
+                SearchLimits.ofDepth(4), r -> { });
+        assertEquals(move(1, 1, 8, 1), result.bestMove());
+        assertEquals(1, result.mateIn());
+    }
+
+    @Test
+    @DisplayName("Finds Mate In Two")
+    void mateInTwo() {
+        //Kg6 or Kf7 boxes the king in for the rook
+        SearchResult result = new Engine().search(Position.fromFen("7k/8/5K2/8/8/8/8/R7 w - - 0 1"),
+                SearchLimits.ofDepth(5), r -> { });
+        assertEquals(2, result.mateIn());
+    }
+
+    @Test
+    @DisplayName("Takes A Hanging Queen")
+    void winsMaterial() {
+        SearchResult result = new Engine().search(Position.fromFen("3qk3/8/8/8/8/8/3R4/4K3 w - - 0 1"),
+                SearchLimits.ofDepth(3), r -> { });
+        assertEquals(move(2, 4, 8, 4), result.bestMove());
+    }
+
+    @Test
+    @DisplayName("No Moves When Checkmated")
+    void checkmated() {
+        SearchResult result = new Engine().search(Position.fromFen("R5k1/5ppp/8/8/8/8/5PPP/6K1 b - - 0 1"),
+                SearchLimits.ofDepth(3), r -> { });
+        assertNull(result.bestMove());
+        assertEquals(-Engine.MATE, result.score());
+    }
+
+    @Test
+    @DisplayName("Node Budget Is Respected")
+    void nodeBudget() {
+        Engine engine = new Engine();
+        SearchResult result = engine.search(Position.start(), SearchLimits.ofNodes(20_000), r -> { });
+        assertNotNull(result.bestMove());
+        //Limits are checked every 1024 nodes
+        assertTrue(engine.nodes() < 20_000 + 1024);
+    }
+
+    @Test
+    @DisplayName("Time Budget Is Respected")
+    void timeBudget() {
+        long start = System.nanoTime();
+        List<SearchResult> iterations = new ArrayList<>();
+        new Engine().search(Position.start(), SearchLimits.ofTime(200), iterations::add);
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+        assertTrue(elapsedMillis < 1000, "took " + elapsedMillis + "ms");
+        assertTrue(iterations.size() >= 2);
+        SearchResult last = iterations.get(iterations.size() - 1);
+        assertTrue(last.nodesPerSecond() > 0);
+    }
+
+    @Test
+    @DisplayName("Engine Moves Are Accepted By ChessGame")
+    void playsLegalMoves() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        Engine engine = new Engine();
+        for (int i = 0; i < 16; i++) {
+            SearchResult result = engine.search(game, SearchLimits.ofDepth(3));
+            assertNotNull(result.bestMove());
+            game.makeMove(result.bestMove());
+        }
+    }
+}
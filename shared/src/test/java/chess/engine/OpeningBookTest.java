@@ -0,0 +1,157 @@
+package chess.engine;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OpeningBookTest {
+    private static final String CASTLING = "r3k2r/pppppppp/8/8/8/8/PPPPPPPP/R3K2R w KQkq - 0 1";
+
+    @TempDir
+    Path directory;
+
+    private static int find(Position position, String text) {
+        int[] moves = new int[256];
+        int count = position.generateMoves(moves, false);
+        for (int i = 0; i < count; i++) {
+            if (Move.toString(moves[i]).equals(text)) {
+                return moves[i];
+            }
+        }
+        throw new IllegalArgumentException(text);
+    }
+
+    //A book with a few real lines hidden among thousands of random keys
+    private OpeningBook writeBook() throws IOException {
+        PolyglotKey keys = PolyglotKey.defaultKeys();
+        Map<Long, List<OpeningBook.BookMove>> book = new HashMap<>();
+        SplittableRandom random = new SplittableRandom(3);
+        Position start = Position.start();
+        for (int i = 0; i < 5000; i++) {
+            book.put(random.nextLong(), List.of(new OpeningBook.BookMove(find(start, "g1f3"), 1)));
+        }
+        book.put(keys.hash(start), List.of(new OpeningBook.BookMove(find(start, "d2d4"), 5),
+                new OpeningBook.BookMove(find(start, "e2e4"), 10)));
+        Position castling = Position.fromFen(CASTLING);
+        book.put(keys.hash(castling), List.of(new OpeningBook.BookMove(find(castling, "e1g1"), 1)));
+        Path file = directory.resolve("book.bin");
+        OpeningBook.write(file, book);
+        assertEquals(5003 * OpeningBook.ENTRY_BYTES, Files.size(file));
+        return OpeningBook.open(file);
+    }
+
+    @Test
+    @DisplayName("Finds Moves By Binary Search")
+    void lookup() throws IOException {
+        OpeningBook book = writeBook();
+        Position start = Position.start();
+        List<OpeningBook.BookMove> moves = book.moves(start);
+        assertEquals(2, moves.size());
+        assertEquals("e2e4", Move.toString(moves.get(0).move()));
+        assertEquals(10, moves.get(0).weight());
+        assertEquals("d2d4", Move.toString(moves.get(1).move()));
+        assertEquals(Position.start().key(), start.key());
+
+        start.make(moves.get(0).move());
+        assertTrue(book.moves(start).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Castling Is Stored As King Takes Rook")
+    void castling() throws IOException {
+        Position castling = Position.fromFen(CASTLING);
+        int kingSide = find(castling, "e1g1");
+        //e1 is square 4 and h1 square 7
+        assertEquals(7 | 4 << 6, OpeningBook.encodeMove(kingSide));
+        List<OpeningBook.BookMove> moves = writeBook().moves(castling);
+        assertEquals(List.of(new OpeningBook.BookMove(kingSide, 1)), moves);
+    }
+
+    @Test
+    @DisplayName("Picks Moves In Proportion To Weight")
+    void weightedPick() throws IOException {
+        OpeningBook book = writeBook();
+        SplittableRandom random = new SplittableRandom(11);
+        int kingPawn = 0;
+        for (int i = 0; i < 1500; i++) {
+            if (Move.toString(book.pick(Position.start(), random)).equals("e2e4")) {
+                kingPawn++;
+            }
+        }
+        //Two thirds of the weight
+        assertTrue(kingPawn > 900 && kingPawn < 1100, "e2e4 picked " + kingPawn + " times");
+        assertEquals(Move.NONE, book.pick(Position.fromFen("8/8/8/4k3/8/8/8/4K3 w - - 0 1"), random));
+    }
+
+    @Test
+    @DisplayName("Engine Plays From The Book")
+    void engineUsesBook() throws IOException {
+        Engine engine = new Engine();
+        engine.setBook(writeBook());
+        SearchResult result = engine.search(Position.start(), SearchLimits.ofDepth(6), r -> { });
+        assertTrue(result.isBookMove());
+        assertEquals(0, result.nodes());
+        //Out of book it searches as usual
+        SearchResult searched = engine.search(Position.fromFen("6k1/5ppp/8/8/8/8/5PPP/R5K1 w - - 0 1"),
+                SearchLimits.ofDepth(3), r -> { });
+        assertFalse(searched.isBookMove());
+        assertEquals(1, searched.mateIn());
+    }
+
+    @Test
+    @DisplayName("En Passant Only Counts With A Capturer")
+    void enPassantKey() {
+        PolyglotKey keys = PolyglotKey.defaultKeys();
+        //No black pawn can take on e3, so the square doesn't change the key
+        assertEquals(keys.hash(Position.fromFen("4k3/8/8/8/4P3/8/8/4K3 b - - 0 1")),
+                keys.hash(Position.fromFen("4k3/8/8/8/4P3/8/8/4K3 b - e3 0 1")));
+        assertNotEquals(keys.hash(Position.fromFen("4k3/8/8/8/3pP3/8/8/4K3 b - - 0 1")),
+                keys.hash(Position.fromFen("4k3/8/8/8/3pP3/8/8/4K3 b - e3 0 1")));
+    }
+
+    @Test
+    @DisplayName("Rejects Files That Are Not Books")
+    void badFiles() throws IOException {
+        Path file = directory.resolve("broken.bin");
+        Files.write(file, new byte[OpeningBook.ENTRY_BYTES + 3]);
+        assertThrows(IOException.class, () -> OpeningBook.open(file));
+        assertThrows(IOException.class, () -> PolyglotKey.load(file));
+    }
+
+    @Test
+    @DisplayName("Default Keys Are Polyglot's")
+    void standardKeys() throws IOException {
+        PolyglotKey standard = PolyglotKey.defaultKeys();
+        assertTrue(standard.isStandard());
+        //The example positions published with the Polyglot book format
+        assertEquals(0x823c9b50fd114196L, standard.hash(Position.fromFen("rnbqkbnr/pppppppp/8/8/4P3/8/PPPP1PPP/RNBQKBNR b KQkq e3 0 1")));
+        assertEquals(0x0756b94461c50fb0L, standard.hash(Position.fromFen("rnbqkbnr/ppp1pppp/8/3p4/4P3/8/PPPP1PPP/RNBQKBNR w KQkq d6 0 2")));
+        assertEquals(0x662fafb965db29d4L, standard.hash(Position.fromFen("rnbqkbnr/ppp1pppp/8/3pP3/8/8/PPPP1PPP/RNBQKBNR b KQkq - 0 2")));
+        assertEquals(0x22a48b5a8e47ff78L, standard.hash(Position.fromFen("rnbqkbnr/ppp1p1pp/8/3pPp2/8/8/PPPP1PPP/RNBQKBNR w KQkq f6 0 3")));
+        assertEquals(0x652a607ca3f242c1L, standard.hash(Position.fromFen("rnbqkbnr/ppp1p1pp/8/3pPp2/8/8/PPPPKPPP/RNBQ1BNR b kq - 0 3")));
+        assertEquals(0x00fdd303c946bdd9L, standard.hash(Position.fromFen("rnbq1bnr/ppp1pkpp/8/3pPp2/8/8/PPPPKPPP/RNBQ1BNR w - - 0 4")));
+        assertEquals(0x3c8123ea7b067637L, standard.hash(Position.fromFen("rnbqkbnr/p1pppppp/8/8/PpP4P/8/1P1PPPP1/RNBQKBNR b KQkq c3 0 3")));
+        assertEquals(0x5c3f9b829b279560L, standard.hash(Position.fromFen("rnbqkbnr/p1pppppp/8/8/P6P/R1p5/1P1PPPP1/1NBQKBNR b Kkq - 0 4")));
+        //Any other table loads, but isn't mistaken for Polyglot's
+        ByteBuffer table = ByteBuffer.allocate(PolyglotKey.TABLE_SIZE * Long.BYTES);
+        for (int i = 0; i < PolyglotKey.TABLE_SIZE; i++) {
+            table.putLong(i * 0x9E3779B97F4A7C15L);
+        }
+        Path file = directory.resolve("keys.bin");
+        Files.write(file, table.array());
+        PolyglotKey keys = PolyglotKey.load(file);
+        assertFalse(keys.isStandard());
+        assertNotEquals(PolyglotKey.defaultKeys().hash(Position.start()), keys.hash(Position.start()));
+    }
+}
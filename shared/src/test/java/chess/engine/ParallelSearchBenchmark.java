@@ -0,0 +1,56 @@
+package chess.engine;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Measures Lazy SMP time-to-depth: how long 1, 2, 4 ... threads take to finish the same
+ * fixed depth search on a few positions, and the speedup over one thread. Every run gets a
+ * fresh table so no thread count profits from an earlier one.
+ * Run with: java chess.engine.ParallelSearchBenchmark [depth] [max threads]
+ */
+public class ParallelSearchBenchmark {
+    private static final String[] POSITIONS = {
+            "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1",
+            "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+            "r1bq1rk1/pp2ppbp/2np1np1/8/3NP3/2N1BP2/PPPQ2PP/R3KB1R w KQ - 0 9",
+            "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1",
+    };
+
+    public static void main(String[] args) {
+        int depth = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+        int maxThreads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        List<Integer> counts = new ArrayList<>();
+        for (int threads = 1; threads < maxThreads; threads *= 2) {
+            counts.add(threads);
+        }
+        counts.add(maxThreads);
+        System.out.printf("depth %d, %d cores available%n", depth, Runtime.getRuntime().availableProcessors());
+        //Warm up the JIT before timing anything
+        run(1, Math.max(1, depth - 2));
+
+        long baseline = 0;
+        for (int threads : counts) {
+            long[] result = run(threads, depth);
+            if (threads == 1) {
+                baseline = result[0];
+            }
+            System.out.printf("%2d threads  %,8d ms  %,12d nodes  %,10d nps  speedup %.2fx%n", threads,
+                    result[0] / 1_000_000, result[1], result[1] * 1_000_000_000L / Math.max(1, result[0]),
+                    (double) baseline / result[0]);
+        }
+    }
+
+    //Returns {total nanos, total nodes} over every position
+    private static long[] run(int threads, int depth) {
+        long[] result = new long[2];
+        for (String fen : POSITIONS) {
+            try (ParallelSearch search = new ParallelSearch(threads, new TranspositionTable(64), TaperedEvaluator::new)) {
+                SearchResult searched = search.search(Position.fromFen(fen), SearchLimits.ofDepth(depth), r -> { });
+                result[0] += searched.elapsedNanos();
+                result[1] += searched.nodes();
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,58 @@
+package chess.engine;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPosition;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ParallelSearchTest {
+
+    @Test
+    @DisplayName("Threads Agree On Mate")
+    void findsMate() {
+        try (ParallelSearch search = new ParallelSearch(4)) {
+            SearchResult result = search.search(Position.fromFen("6k1/5ppp/8/8/8/8/5PPP/R5K1 w - - 0 1"),
+                    SearchLimits.ofDepth(5), r -> { });
+            assertEquals(new ChessMove(new ChessPosition(1, 1), new ChessPosition(8, 1), null), result.bestMove());
+            assertEquals(1, result.mateIn());
+        }
+    }
+
+    @Test
+    @DisplayName("Reaches The Requested Depth With A Legal Move")
+    void legalMove() {
+        ChessGame game = new ChessGame();
+        try (ParallelSearch search = new ParallelSearch(3)) {
+            SearchResult result = search.search(game, SearchLimits.ofDepth(5));
+            assertEquals(5, result.depth());
+            assertTrue(game.validMoves(result.bestMove().getStartPosition()).contains(result.bestMove()));
+            //Nodes are counted across every thread
+            assertTrue(result.nodes() > 0);
+        }
+    }
+
+    @Test
+    @DisplayName("Stop Ends Every Thread")
+    void stop() throws Exception {
+        try (ParallelSearch search = new ParallelSearch(2)) {
+            CompletableFuture<SearchResult> running = CompletableFuture.supplyAsync(
+                    () -> search.search(Position.start(), SearchLimits.ofDepth(60), r -> { }));
+            Thread.sleep(200);
+            search.stop();
+            SearchResult result = running.get(10, TimeUnit.SECONDS);
+            assertNotNull(result.bestMove());
+        }
+    }
+
+    @Test
+    @DisplayName("Rejects Zero Threads")
+    void zeroThreads() {
+        assertThrows(IllegalArgumentException.class, () -> new ParallelSearch(0));
+    }
+}
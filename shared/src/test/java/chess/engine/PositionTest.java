@@ -0,0 +1,132 @@
+package chess.engine;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPosition;
+import chess.InvalidMoveException;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PositionTest {
+    private static final String KIWIPETE = "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1";
+    private static final String ENDGAME = "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1";
+
+    //Counts the leaf positions of the legal move tree, the standard check for a move generator
+    private static long perft(Position position, int depth) {
+        if (depth == 0) {
+            return 1;
+        }
+        int[] moves = new int[256];
+        int count = position.generateMoves(moves, false);
+        long leaves = 0;
+        for (int i = 0; i < count; i++) {
+            if (position.makeIfLegal(moves[i])) {
+                leaves += perft(position, depth - 1);
+                position.unmake(moves[i]);
+            }
+        }
+        return leaves;
+    }
+
+    @Test
+    @DisplayName("Perft From The Start Position")
+    void perftStart() {
+        Position position = Position.start();
+        assertEquals(20, perft(position, 1));
+        assertEquals(400, perft(position, 2));
+        assertEquals(8902, perft(position, 3));
+        assertEquals(197281, perft(position, 4));
+    }
+
+    @Test
+    @DisplayName("Perft With Castling, En Passant And Promotions")
+    void perftTricky() {
+        assertEquals(48, perft(Position.fromFen(KIWIPETE), 1));
+        assertEquals(2039, perft(Position.fromFen(KIWIPETE), 2));
+        assertEquals(97862, perft(Position.fromFen(KIWIPETE), 3));
+        assertEquals(43238, perft(Position.fromFen(ENDGAME), 4));
+    }
+
+    @Test
+    @DisplayName("Make And Unmake Restore The Key")
+    void keyRestored() {
+        Position position = Position.fromFen(KIWIPETE);
+        long key = position.key();
+        int[] moves = new int[256];
+        int count = position.generateMoves(moves, false);
+        for (int i = 0; i < count; i++) {
+            if (position.makeIfLegal(moves[i])) {
+                assertEquals(position.computeKey(), position.key(), Move.toString(moves[i]));
+                position.unmake(moves[i]);
+            }
+            assertEquals(key, position.key());
+        }
+    }
+
+    @Test
+    @DisplayName("Matches ChessGame Move Generation")
+    void matchesChessGame() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        //Walk a line with castling rights, a double push and an en passant capture
+        String[] line = {"e2e4", "g8f6", "e4e5", "d7d5", "e5d6", "e7d6", "g1f3", "f8e7", "f1c4"};
+        for (String text : line) {
+            assertEquals(legalMoves(game), engineMoves(Position.from(game)), text);
+            game.makeMove(parse(text));
+        }
+        assertEquals(legalMoves(game), engineMoves(Position.from(game)));
+        assertEquals(Position.fromFen("rnbqk2r/ppp1bppp/3p1n2/8/2B5/5N2/PPPP1PPP/RNBQK2R b KQkq - 1 5").key(),
+                Position.from(game).key());
+    }
+
+    @Test
+    @DisplayName("Moving The h8 Rook Costs Only Black Kingside Castling")
+    void blackKingsideRook() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        //The rook goes out and comes back, so only the moved flag can tell the right is gone
+        for (String text : new String[]{"h2h4", "h7h5", "a2a3", "h8h7", "a3a4", "h7h8"}) {
+            game.makeMove(parse(text));
+        }
+        assertFalse(game.hasCastlingRight(ChessGame.TeamColor.BLACK, true));
+        assertTrue(game.hasCastlingRight(ChessGame.TeamColor.BLACK, false));
+        assertTrue(game.hasCastlingRight(ChessGame.TeamColor.WHITE, false));
+        assertEquals(Position.fromFen("rnbqkbnr/ppppppp1/8/7p/P6P/8/1PPPPPP1/RNBQKBNR w KQq - 1 4").key(),
+                Position.from(game).key());
+    }
+
+    private static Set<ChessMove> legalMoves(ChessGame game) {
+        Set<ChessMove> moves = new HashSet<>();
+        for (int square = 0; square < 64; square++) {
+            ChessPosition from = Move.toPosition(square);
+            var piece = game.getBoard().getPiece(from);
+            if (piece != null && piece.getTeamColor() == game.getTeamTurn()) {
+                Collection<ChessMove> pieceMoves = game.validMoves(from);
+                moves.addAll(pieceMoves);
+            }
+        }
+        return moves;
+    }
+
+    private static Set<ChessMove> engineMoves(Position position) {
+        Set<ChessMove> moves = new HashSet<>();
+        int[] buffer = new int[256];
+        int count = position.generateMoves(buffer, false);
+        for (int i = 0; i < count; i++) {
+            if (position.makeIfLegal(buffer[i])) {
+                moves.add(Move.toChessMove(buffer[i]));
+                position.unmake(buffer[i]);
+            }
+        }
+        return moves;
+    }
+
+    private static ChessMove parse(String text) {
+        return new ChessMove(new ChessPosition(text.charAt(1) - '0', text.charAt(0) - 'a' + 1),
+                new ChessPosition(text.charAt(3) - '0', text.charAt(2) - 'a' + 1), null);
+    }
+}
@@ -0,0 +1,156 @@
+package chess.engine;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TablebaseTest {
+
+    @TempDir
+    static Path directory;
+
+    private static Tablebase tablebase;
+
+    @BeforeAll
+    static void generate() throws IOException {
+        new TablebaseGenerator(directory).generate("KQvK");
+        tablebase = Tablebase.open(directory, 4);
+    }
+
+    private static TablebaseResult probe(String fen) {
+        return tablebase.probe(Position.fromFen(fen));
+    }
+
+    @Test
+    @DisplayName("Longest Queen Mate Is Ten Moves")
+    void longestMate() throws IOException {
+        TablebaseFile file = TablebaseFile.open(directory.resolve("KQvK" + Tablebase.EXTENSION), 0);
+        int longestWin = 0;
+        for (int block = 0; block < file.blockCount(); block++) {
+            for (short entry : file.readBlock(block)) {
+                TablebaseResult result = Tablebase.decode(entry);
+                if (result != null && result.outcome() == TablebaseResult.Outcome.WIN) {
+                    longestWin = Math.max(longestWin, result.dtz());
+                }
+            }
+        }
+        //Mate in ten is nineteen plies for the side to move
+        assertEquals(19, longestWin);
+    }
+
+    @Test
+    @DisplayName("Wins, Losses And Draws")
+    void outcomes() {
+        assertEquals(new TablebaseResult(TablebaseResult.Outcome.WIN, 1), probe("7k/8/6K1/8/8/8/8/1Q6 w - - 0 1"));
+        assertEquals(new TablebaseResult(TablebaseResult.Outcome.LOSS, 0), probe("Q6k/8/6K1/8/8/8/8/8 b - - 0 1"));
+        //Black can take the undefended queen
+        assertEquals(TablebaseResult.Outcome.DRAW, probe("7k/6Q1/8/8/8/8/8/K7 b - - 0 1").outcome());
+        //Stalemate
+        assertEquals(TablebaseResult.Outcome.DRAW, probe("7k/5Q2/6K1/8/8/8/8/8 b - - 0 1").outcome());
+        assertEquals(TablebaseResult.Outcome.DRAW, probe("7k/8/8/8/8/8/8/K7 w - - 0 1").outcome());
+    }
+
+    @Test
+    @DisplayName("Black Side Found By Flipping The Board")
+    void flipped() {
+        assertEquals(probe("7k/8/6K1/8/8/8/8/1Q6 w - - 0 1"), probe("1q6/8/8/8/8/6k1/8/7K b - - 0 1"));
+        assertEquals(probe("k7/8/8/8/3Q4/8/8/4K3 b - - 0 1"), probe("4k3/8/8/3q4/8/8/8/K7 w - - 0 1"));
+    }
+
+    @Test
+    @DisplayName("Symmetric Positions Share An Entry")
+    void symmetric() {
+        assertEquals(462, TablebaseIndex.kingPairs(false));
+        assertEquals(1806, TablebaseIndex.kingPairs(true));
+        int[] pieces = Tablebase.piecesOf("KQvK");
+        //The same position mirrored, turned over and reflected in the long diagonal
+        String[] fens = {"8/8/8/3k4/8/8/8/KQ6 w - - 0 1", "8/8/8/4k3/8/8/8/6QK w - - 0 1",
+                "KQ6/8/8/8/3k4/8/8/8 w - - 0 1", "8/8/8/8/4k3/8/Q7/K7 w - - 0 1"};
+        long index = TablebaseIndex.index(Position.fromFen(fens[0]), pieces, false);
+        for (String fen : fens) {
+            assertEquals(index, TablebaseIndex.index(Position.fromFen(fen), pieces, false), fen);
+            assertEquals(probe(fens[0]), probe(fen));
+        }
+        //Five piece tables now fit in a long index with room to spare
+        assertEquals(2L * 462 * 64 * 64 * 64, TablebaseIndex.size(Tablebase.piecesOf("KRNvKR")));
+        assertEquals(2L * 1806 * 64 * 64 * 64, TablebaseIndex.size(Tablebase.piecesOf("KRPvKR")));
+    }
+
+    @Test
+    @DisplayName("Every Index Reads Back To Itself")
+    void roundTrip() {
+        int[] pieces = Tablebase.piecesOf("KRvKP");
+        int[] squares = new int[pieces.length];
+        Position position = Position.start();
+        int legal = 0;
+        for (long index = 0; index < TablebaseIndex.size(pieces); index++) {
+            if (TablebaseIndex.squares(index, pieces, squares)) {
+                position.reset(pieces, squares, pieces.length, (int) (index & 1));
+                assertEquals(index, TablebaseIndex.index(position, pieces, false));
+                legal++;
+            }
+        }
+        assertTrue(legal > 0);
+    }
+
+    @Test
+    @DisplayName("Positions No Table Covers")
+    void notCovered() {
+        assertNull(probe("7k/8/8/8/8/8/8/R5K1 w - - 0 1"));
+        assertNull(probe(Position.START_FEN));
+        assertNull(probe("r3k3/8/8/8/8/8/8/4K2Q w q - 0 1"));
+        assertEquals(3, tablebase.maxPieces());
+    }
+
+    @Test
+    @DisplayName("Engine Converts A Tablebase Win")
+    void engineWins() {
+        Engine engine = new Engine();
+        engine.setTablebase(tablebase);
+        Position position = Position.fromFen("8/8/8/3k4/8/8/8/KQ6 w - - 0 1");
+        for (int move = 0; move < 40; move++) {
+            SearchResult result = engine.search(position, SearchLimits.ofDepth(3), r -> { });
+            assertTrue(result.score() > 0);
+            position.makeIfLegal(move(position, result));
+            TablebaseResult reply = tablebase.probe(position);
+            if (reply.dtz() == 0) {
+                assertEquals(TablebaseResult.Outcome.LOSS, reply.outcome());
+                return;
+            }
+            SearchResult defence = engine.search(position, SearchLimits.ofDepth(3), r -> { });
+            position.makeIfLegal(move(position, defence));
+        }
+        fail("The engine did not mate with a queen");
+    }
+
+    private static int move(Position position, SearchResult result) {
+        int[] moves = new int[256];
+        int count = position.generateMoves(moves, false);
+        for (int i = 0; i < count; i++) {
+            if (Move.toChessMove(moves[i]).equals(result.bestMove())) {
+                return moves[i];
+            }
+        }
+        throw new IllegalStateException("No such move");
+    }
+
+    @Test
+    @DisplayName("Generator Rejects Bad Signatures")
+    void badSignatures() {
+        TablebaseGenerator generator = new TablebaseGenerator(directory);
+        //Six pieces are turned away up front rather than failing part way through generating
+        assertThrows(IllegalArgumentException.class, () -> generator.generate("KQQvKRR"));
+        assertThrows(IllegalArgumentException.class, () -> generator.generate("KRPPvKR"));
+        assertThrows(IllegalArgumentException.class, () -> generator.generate("QvK"));
+        assertThrows(IllegalArgumentException.class, () -> generator.generate("KXvK"));
+        assertEquals("KRvKP", TablebaseGenerator.canonical("kpvkr"));
+        assertTrue(Files.exists(directory.resolve("KQvK" + Tablebase.EXTENSION)));
+    }
+}
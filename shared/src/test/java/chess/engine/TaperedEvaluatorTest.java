@@ -0,0 +1,117 @@
+package chess.engine;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TaperedEvaluatorTest {
+    private static final String KIWIPETE = "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1";
+
+    private final TaperedEvaluator evaluator = new TaperedEvaluator();
+
+    //The same position with the board flipped top to bottom and the colors swapped
+    private static String mirror(String fen) {
+        String[] fields = fen.split(" ");
+        String[] ranks = fields[0].split("/");
+        StringBuilder board = new StringBuilder();
+        for (int i = ranks.length - 1; i >= 0; i--) {
+            board.append(swapCase(ranks[i]));
+            if (i > 0) {
+                board.append('/');
+            }
+        }
+        String side = fields[1].equals("w") ? "b" : "w";
+        String castling = fields[2].equals("-") ? "-" : swapCase(fields[2]);
+        return board + " " + side + " " + castling + " - 0 1";
+    }
+
+    private static String swapCase(String text) {
+        StringBuilder swapped = new StringBuilder();
+        for (char c : text.toCharArray()) {
+            swapped.append(Character.isUpperCase(c) ? Character.toLowerCase(c) : Character.toUpperCase(c));
+        }
+        return swapped.toString();
+    }
+
+    @Test
+    @DisplayName("Incremental Scores Match A Full Count")
+    void incremental() {
+        Position position = Position.fromFen(KIWIPETE);
+        SplittableRandom random = new SplittableRandom(7);
+        int[] moves = new int[256];
+        int[] played = new int[40];
+        int depth = 0;
+        //Play a random game, checking the running sums after every move and again on the way back
+        while (depth < played.length) {
+            int count = position.generateMoves(moves, false);
+            int move = moves[random.nextInt(count)];
+            if (position.makeIfLegal(move)) {
+                played[depth++] = move;
+                assertFullCount(position);
+            }
+        }
+        while (depth > 0) {
+            position.unmake(played[--depth]);
+            assertFullCount(position);
+        }
+        assertEquals(Position.fromFen(KIWIPETE).midgame, position.midgame);
+    }
+
+    private static void assertFullCount(Position position) {
+        int midgame = 0;
+        int endgame = 0;
+        int phase = 0;
+        for (int square = 0; square < 64; square++) {
+            int piece = position.board[square];
+            if (piece != Position.EMPTY) {
+                midgame += PieceSquareTables.MIDGAME[piece][square];
+                endgame += PieceSquareTables.ENDGAME[piece][square];
+                phase += PieceSquareTables.PHASE[piece];
+                assertNotEquals(0, position.pieces[piece] & 1L << square);
+            }
+        }
+        assertEquals(midgame, position.midgame);
+        assertEquals(endgame, position.endgame);
+        assertEquals(phase, position.phase);
+        assertEquals(position.midgame, position.copy().midgame);
+    }
+
+    @Test
+    @DisplayName("Symmetric For Both Colors")
+    void symmetric() {
+        assertEquals(0, evaluator.evaluate(Position.start()));
+        String[] fens = {KIWIPETE, "r1bq1rk1/pp2ppbp/2np1np1/8/3NP3/2N1BP2/PPPQ2PP/R3KB1R w KQ - 0 9",
+                "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1", "6k1/5ppp/8/8/8/8/5PPP/R5K1 b - - 0 1"};
+        for (String fen : fens) {
+            assertEquals(evaluator.evaluate(Position.fromFen(fen)), evaluator.evaluate(Position.fromFen(mirror(fen))), fen);
+        }
+    }
+
+    @Test
+    @DisplayName("Scores From The Side To Move")
+    void sideToMove() {
+        int white = evaluator.evaluate(Position.fromFen("4k3/8/8/8/8/8/8/3QK3 w - - 0 1"));
+        int black = evaluator.evaluate(Position.fromFen("4k3/8/8/8/8/8/8/3QK3 b - - 0 1"));
+        assertTrue(white > 800);
+        assertEquals(-white, black);
+    }
+
+    @Test
+    @DisplayName("King Belongs In The Center In The Endgame")
+    void endgameKing() {
+        int centered = evaluator.evaluate(Position.fromFen("4k3/8/8/8/4K3/8/4P3/8 w - - 0 1"));
+        int cornered = evaluator.evaluate(Position.fromFen("4k3/8/8/8/8/8/4P3/K7 w - - 0 1"));
+        assertTrue(centered > cornered);
+    }
+
+    @Test
+    @DisplayName("Castled King Behind Pawns Is Safer")
+    void pawnShield() {
+        int sheltered = evaluator.evaluate(Position.fromFen("r2q1rk1/ppp2ppp/8/8/8/8/PPP2PPP/R2Q1RK1 w - - 0 1"));
+        int exposed = evaluator.evaluate(Position.fromFen("r2q1rk1/ppp2ppp/8/8/8/5PPP/PPP5/R2Q1RK1 w - - 0 1"));
+        assertTrue(sheltered > exposed);
+    }
+}
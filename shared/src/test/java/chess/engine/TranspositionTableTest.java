@@ -0,0 +1,110 @@
+package chess.engine;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TranspositionTableTest {
+
+    @Test
+    @DisplayName("Stored Entries Round Trip")
+    void roundTrip() {
+        TranspositionTable table = new TranspositionTable(1);
+        int move = Move.of(12, 28, 0, Move.DOUBLE_PUSH, false);
+        table.store(0xABCDEF12345L, move, -250, 7, TranspositionTable.UPPER_BOUND, 3);
+        long entry = table.probe(0xABCDEF12345L);
+        assertEquals(move, TranspositionTable.move(entry));
+        assertEquals(-250, TranspositionTable.score(entry, 3));
+        assertEquals(7, TranspositionTable.depth(entry));
+        assertEquals(TranspositionTable.UPPER_BOUND, TranspositionTable.bound(entry));
+        assertEquals(0, table.probe(0xABCDEF12346L));
+    }
+
+    @Test
+    @DisplayName("Mate Scores Are Stored Relative To The Node")
+    void mateScores() {
+        TranspositionTable table = new TranspositionTable(1);
+        //Mate in 5 plies from the root, found 3 plies in
+        table.store(42, Move.NONE, Engine.MATE - 5, 4, TranspositionTable.EXACT, 3);
+        //Reached again at ply 1, the mate is now 2 plies closer
+        assertEquals(Engine.MATE - 3, TranspositionTable.score(table.probe(42), 1));
+    }
+
+    @Test
+    @DisplayName("Deeper Results Are Kept On Collision")
+    void depthPreferred() {
+        TranspositionTable table = new TranspositionTable(1);
+        long buckets = table.entries() / 2;
+        long deep = 5;
+        long shallow = 5 + buckets;
+        long newest = 5 + 2 * buckets;
+        table.store(deep, Move.NONE, 10, 9, TranspositionTable.EXACT, 0);
+        table.store(shallow, Move.NONE, 20, 2, TranspositionTable.EXACT, 0);
+        table.store(newest, Move.NONE, 30, 1, TranspositionTable.EXACT, 0);
+        assertNotEquals(0, table.probe(deep));
+        //The second slot always takes the newest result
+        assertEquals(0, table.probe(shallow));
+        assertNotEquals(0, table.probe(newest));
+
+        //Once a new search starts the old deep entry can be replaced
+        table.newSearch();
+        table.store(shallow, Move.NONE, 20, 2, TranspositionTable.EXACT, 0);
+        assertEquals(0, table.probe(deep));
+        assertNotEquals(0, table.probe(shallow));
+    }
+
+    @Test
+    @DisplayName("Concurrent Writers Never Produce A Mismatched Entry")
+    void concurrentAccess() throws InterruptedException {
+        //A tiny table so threads constantly overwrite each other's buckets
+        TranspositionTable table = new TranspositionTable(1);
+        long buckets = table.entries() / 2;
+        AtomicInteger corrupt = new AtomicInteger();
+        AtomicInteger hits = new AtomicInteger();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            long seed = t;
+            threads.add(new Thread(() -> {
+                SplittableRandom random = new SplittableRandom(seed);
+                for (int i = 0; i < 500_000; i++) {
+                    //Keys share a handful of buckets, and each key always stores the same depth and score
+                    long key = random.nextLong(64) + random.nextLong(1 << 20) * buckets;
+                    int expected = (int) (key % 1000);
+                    table.store(key, Move.NONE, expected, (int) (key & 63), TranspositionTable.EXACT, 0);
+                    long entry = table.probe(key ^ 1);
+                    if (entry != 0) {
+                        hits.incrementAndGet();
+                        if (TranspositionTable.score(entry, 0) != (int) ((key ^ 1) % 1000)) {
+                            corrupt.incrementAndGet();
+                        }
+                    }
+                }
+            }));
+        }
+        threads.forEach(Thread::start);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertTrue(hits.get() > 0);
+        assertEquals(0, corrupt.get());
+    }
+
+    @Test
+    @DisplayName("Search Reuses Table Between Iterations")
+    void searchUsesTable() {
+        TranspositionTable table = new TranspositionTable(4);
+        Engine engine = new Engine(new MaterialEvaluator(), table);
+        SearchResult first = engine.search(Position.start(), SearchLimits.ofDepth(6), r -> { });
+        assertTrue(table.hashfull() > 0);
+        //Searching the same position again starts with every node of the last search cached
+        SearchResult second = engine.search(Position.start(), SearchLimits.ofDepth(6), r -> { });
+        assertEquals(first.bestMove(), second.bestMove());
+        assertTrue(second.nodes() < first.nodes() / 2);
+    }
+}
@@ -0,0 +1,96 @@
+package json;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPosition;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import model.GameData;
+import requestsresults.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+
+/**
+ * Measures the JSON work one HTTP request costs the server: parse a request body and write
+ * a result, both the old way with a new Gson and Strings per call and with the shared
+ * codec streaming against byte streams. The game list is the heaviest result so it is
+ * measured with a few games in progress.
+ * Run with: java json.CodecsBenchmark [seconds per case] [games in the list]
+ */
+public class CodecsBenchmark {
+    public static void main(String[] args) throws IOException {
+        int seconds = args.length > 0 ? Integer.parseInt(args[0]) : 3;
+        int gameCount = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        byte[] login = Codecs.GSON.toJson(new LoginRequest("username", "password")).getBytes(StandardCharsets.UTF_8);
+        LoginResult loginResult = new LoginResult("username", "0d2f2c5e-8f6b-4a5c-9b0e-3f1d2a7c6e41");
+        ListResult list = new ListResult(games(gameCount));
+
+        //Warm up the JIT before timing anything
+        measure("warm up", 1, () -> perCall(login, loginResult));
+        measure("warm up", 1, () -> shared(login, loginResult));
+
+        System.out.printf("%d games in the list%n", gameCount);
+        double oldLogin = measure("login, new Gson per call", seconds, () -> perCall(login, loginResult));
+        double newLogin = measure("login, shared codec", seconds, () -> shared(login, loginResult));
+        double oldList = measure("list, new Gson per call", seconds, () -> perCall(null, list));
+        double newList = measure("list, shared codec", seconds, () -> shared(null, list));
+        System.out.printf("speedup: login %.2fx, list %.2fx%n", newLogin / oldLogin, newList / oldList);
+    }
+
+    private interface Request {
+        int handle() throws IOException;
+    }
+
+    private static double measure(String name, int seconds, Request request) throws IOException {
+        long end = System.nanoTime() + seconds * 1_000_000_000L;
+        long start = System.nanoTime();
+        long count = 0;
+        long bytes = 0;
+        while (System.nanoTime() < end) {
+            bytes += request.handle();
+            count++;
+        }
+        double perSecond = count / ((System.nanoTime() - start) / 1e9);
+        if (!name.equals("warm up")) {
+            System.out.printf("%-28s %,12.0f requests/s %,8d bytes each%n", name, perSecond, bytes / count);
+        }
+        return perSecond;
+    }
+
+    //What the routes did before: a fresh Gson for the body and another for the result, through Strings
+    private static int perCall(byte[] body, Object result) {
+        if (body != null) {
+            new Gson().fromJson(new String(body, StandardCharsets.UTF_8), LoginRequest.class);
+        }
+        Gson gson = new GsonBuilder().enableComplexMapKeySerialization().create();
+        return gson.toJson(result).getBytes(StandardCharsets.UTF_8).length;
+    }
+
+    private static int shared(byte[] body, Object result) throws IOException {
+        if (body != null) {
+            Codecs.read(new ByteArrayInputStream(body), LoginRequest.class);
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream(4096);
+        Codecs.write(result, out);
+        return out.size();
+    }
+
+    private static ArrayList<GameData> games(int count) {
+        ArrayList<GameData> games = new ArrayList<>();
+        for (int i = 1; i <= count; i++) {
+            ChessGame game = new ChessGame();
+            try {
+                game.makeMove(new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null));
+                game.makeMove(new ChessMove(new ChessPosition(7, 5), new ChessPosition(5, 5), null));
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+            games.add(new GameData(i, "white" + i, "black" + i, "game " + i, game));
+        }
+        return games;
+    }
+}
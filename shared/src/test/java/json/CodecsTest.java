@@ -0,0 +1,95 @@
+package json;
+
+import chess.*;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CodecsTest {
+    //How games were written to the games table before the chess types had their own adapters
+    private static final Gson REFLECTION = new GsonBuilder().enableComplexMapKeySerialization().create();
+
+    @Test
+    @DisplayName("Games Written Compactly")
+    void compactGame() throws InvalidMoveException {
+        ChessGame game = play("e2e4", "e7e5", "g1f3");
+        String json = Codecs.GSON.toJson(game);
+        assertEquals("{\"board\":\"rnbqkbnr/pppp1ppp/8/4p3/4P3/5N2/PPPP1PPP/RNBQKB1R\",\"turn\":\"BLACK\","
+                + "\"castling\":\"KQkq\",\"lastMove\":\"g1f3\",\"lastMovingPiece\":\"N\","
+                + "\"history\":[\"e2e4\",\"e7e5\",\"g1f3\"],\"gameOver\":false}", json);
+        assertTrue(json.length() * 10 < REFLECTION.toJson(game).length());
+    }
+
+    @Test
+    @DisplayName("Games Read Back The Same")
+    void roundTrip() throws InvalidMoveException {
+        //White's king has moved, black's h8 rook too, and black can take en passant
+        ChessGame game = play("e2e4", "h7h5", "e1e2", "h8h6", "e4e5", "d7d5");
+        game.setGameOver(true);
+        assertSameState(game, Codecs.GSON.fromJson(Codecs.GSON.toJson(game), ChessGame.class));
+    }
+
+    @Test
+    @DisplayName("Games Written By Reflection Still Read")
+    void readsReflectionJson() throws InvalidMoveException {
+        ChessGame game = play("e2e4", "h7h5", "e1e2", "h8h6", "e4e5", "d7d5");
+        assertSameState(game, Codecs.GSON.fromJson(REFLECTION.toJson(game), ChessGame.class));
+
+        //Games saved before moves were recorded have no history at all
+        String withoutHistory = REFLECTION.toJson(new ChessGame()).replaceAll(",\"moveHistory\":\\[[^]]*]", "");
+        ChessGame read = Codecs.GSON.fromJson(withoutHistory, ChessGame.class);
+        assertEquals(new ChessGame(), read);
+        assertTrue(read.getMoveHistory().isEmpty());
+        read.makeMove(ChessMoveAdapter.parse("e2e4"));
+    }
+
+    @Test
+    @DisplayName("Moves In Either Form")
+    void moves() {
+        ChessMove promotion = new ChessMove(new ChessPosition(7, 1), new ChessPosition(8, 2), ChessPiece.PieceType.KNIGHT);
+        assertEquals("\"a7b8n\"", Codecs.GSON.toJson(promotion));
+        assertEquals(promotion, Codecs.GSON.fromJson("\"a7b8n\"", ChessMove.class));
+        assertEquals(promotion, Codecs.GSON.fromJson(REFLECTION.toJson(promotion), ChessMove.class));
+
+        //A square off the board has no name, so the move keeps the old form
+        ChessMove offBoard = new ChessMove(new ChessPosition(2, 5), new ChessPosition(9, 5), null);
+        assertEquals(offBoard, Codecs.GSON.fromJson(Codecs.GSON.toJson(offBoard), ChessMove.class));
+        assertThrows(JsonParseException.class, () -> Codecs.GSON.fromJson("\"e2e9\"", ChessMove.class));
+    }
+
+    @Test
+    @DisplayName("Bad Boards Rejected")
+    void badBoards() {
+        assertThrows(JsonParseException.class, () -> ChessBoardAdapter.parse("8/8/8/8/8/8/8"));
+        assertThrows(JsonParseException.class, () -> ChessBoardAdapter.parse("9/8/8/8/8/8/8/8"));
+        assertThrows(JsonParseException.class, () -> ChessBoardAdapter.parse("8/8/8/8/8/8/8/7x"));
+        assertEquals(new ChessBoard(), ChessBoardAdapter.parse("8/8/8/8/8/8/8/8"));
+    }
+
+    private static ChessGame play(String... moves) throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        for (String move : moves) {
+            game.makeMove(ChessMoveAdapter.parse(move));
+        }
+        return game;
+    }
+
+    private static void assertSameState(ChessGame expected, ChessGame actual) {
+        assertEquals(expected, actual);
+        assertEquals(expected.getMoveHistory(), actual.getMoveHistory());
+        assertEquals(expected.getEnPassantTarget(), actual.getEnPassantTarget());
+        assertEquals(expected.isGameOver(), actual.isGameOver());
+        for (ChessGame.TeamColor team : ChessGame.TeamColor.values()) {
+            assertEquals(expected.hasCastlingRight(team, true), actual.hasCastlingRight(team, true));
+            assertEquals(expected.hasCastlingRight(team, false), actual.hasCastlingRight(team, false));
+        }
+        for (int square = 0; square < 64; square++) {
+            ChessPosition position = Bitboards.position(square);
+            assertEquals(expected.validMoves(position), actual.validMoves(position));
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package websocket;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPiece;
+import chess.ChessPosition;
+import json.Codecs;
+import model.GameData;
+import model.LobbyEvent;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import websocket.commands.UserGameCommand;
+import websocket.messages.ServerMessage;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BinaryProtocolTest {
+
+    @Test
+    @DisplayName("Move Command Round Trip")
+    void moveCommand() {
+        UserGameCommand command = new UserGameCommand(UserGameCommand.CommandType.MAKE_MOVE, "token", 42);
+        ChessMove move = new ChessMove(new ChessPosition(7, 2), new ChessPosition(8, 1), ChessPiece.PieceType.KNIGHT);
+        command.setMove(move);
+        UserGameCommand decoded = BinaryProtocol.decodeCommand(BinaryProtocol.encodeCommand(command));
+        assertEquals(command, decoded);
+        assertEquals(move, decoded.getMove());
+    }
+
+    @Test
+    @DisplayName("Connect Command Round Trip")
+    void connectCommand() {
+        UserGameCommand command = new UserGameCommand(UserGameCommand.CommandType.CONNECT, "token", 7);
+        command.setClientId("client");
+        command.setSequence(3L);
+        ByteBuffer frame = BinaryProtocol.encodeCommand(command);
+        UserGameCommand decoded = BinaryProtocol.decodeCommand(frame);
+        assertEquals(command, decoded);
+        assertEquals("client", decoded.getClientId());
+        assertEquals(3L, decoded.getSequence());
+        assertFalse(frame.hasRemaining());
+    }
+
+    @Test
+    @DisplayName("Server Message Round Trip")
+    void serverMessages() {
+        ServerMessage error = new ServerMessage(ServerMessage.ServerMessageType.ERROR);
+        error.setErrorMessage("Error: not your turn");
+        assertEquals("Error: not your turn", BinaryProtocol.decodeMessage(BinaryProtocol.encodeMessage(error)).getErrorMessage());
+
+        ServerMessage load = new ServerMessage(ServerMessage.ServerMessageType.LOAD_GAME);
+        load.setGame("{\"gameID\":1}");
+        ServerMessage decoded = BinaryProtocol.decodeMessage(BinaryProtocol.encodeMessage(load));
+        assertEquals(ServerMessage.ServerMessageType.LOAD_GAME, decoded.getServerMessageType());
+        assertEquals("{\"gameID\":1}", decoded.getGameJson());
+    }
+
+    @Test
+    @DisplayName("Sequenced Command And Acknowledgements")
+    void sequences() {
+        UserGameCommand command = new UserGameCommand(UserGameCommand.CommandType.MAKE_MOVE, "token", 3);
+        command.setMove(new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null));
+        command.setSequence(17L);
+        assertEquals(17L, BinaryProtocol.decodeCommand(BinaryProtocol.encodeCommand(command)).getSequence());
+
+        ServerMessage nack = new ServerMessage(ServerMessage.ServerMessageType.NACK);
+        nack.setSequence(17L);
+        nack.setErrorMessage("Cannot move: It is not your turn");
+        ServerMessage decoded = BinaryProtocol.decodeMessage(BinaryProtocol.encodeMessage(nack));
+        assertEquals(ServerMessage.ServerMessageType.NACK, decoded.getServerMessageType());
+        assertEquals(17L, decoded.getSequence());
+        assertEquals("Cannot move: It is not your turn", decoded.getErrorMessage());
+    }
+
+    @Test
+    @DisplayName("Unknown Frame Version")
+    void badVersion() {
+        ByteBuffer frame = ByteBuffer.wrap(new byte[]{9, 0, 0, 0, 0, 0});
+        assertThrows(IllegalArgumentException.class, () -> BinaryProtocol.decodeCommand(frame));
+    }
+
+    @Test
+    @DisplayName("Lobby Message Round Trip")
+    void lobbyMessage() {
+        ServerMessage lobby = new ServerMessage(ServerMessage.ServerMessageType.LOBBY);
+        ArrayList<LobbyEvent> events = new ArrayList<>();
+        events.add(new LobbyEvent(LobbyEvent.Kind.CREATED, 4, "game", null, null));
+        events.add(new LobbyEvent(LobbyEvent.Kind.SEAT_TAKEN, 9, "other", "white", "black"));
+        lobby.setLobbyEvents(events);
+        ByteBuffer frame = BinaryProtocol.encodeMessage(lobby);
+        assertEquals(events, BinaryProtocol.decodeMessage(frame).getLobbyEvents());
+        assertFalse(frame.hasRemaining());
+    }
+
+    @Test
+    @DisplayName("Load Game Is Packed Without JSON")
+    void loadGame() throws Exception {
+        ChessGame game = new ChessGame();
+        game.makeMove(new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null));
+        game.makeMove(new ChessMove(new ChessPosition(7, 1), new ChessPosition(6, 1), null));
+        game.makeMove(new ChessMove(new ChessPosition(1, 7), new ChessPosition(3, 6), null));
+        game.makeMove(new ChessMove(new ChessPosition(8, 1), new ChessPosition(7, 1), null));
+        game.makeMove(new ChessMove(new ChessPosition(4, 5), new ChessPosition(5, 5), null));
+        game.makeMove(new ChessMove(new ChessPosition(7, 4), new ChessPosition(5, 4), null));
+        GameData data = new GameData(12, "white", "black", "game", game);
+        ServerMessage load = new ServerMessage(ServerMessage.ServerMessageType.LOAD_GAME);
+        load.setGameData(data);
+
+        ByteBuffer frame = BinaryProtocol.encodeMessage(load);
+        //Board, state, last move and six moves of history, a quarter of the same message as JSON
+        int size = frame.remaining();
+        assertTrue(size <= 100, "LOAD_GAME frame is " + size + " bytes");
+        assertTrue(size * 4 < load.toJson().length());
+
+        GameData decoded = BinaryProtocol.decodeMessage(frame).getGameData();
+        assertFalse(frame.hasRemaining());
+        assertEquals(12, decoded.gameID());
+        assertEquals("white", decoded.whiteUsername());
+        assertEquals("black", decoded.blackUsername());
+        assertEquals("game", decoded.gameName());
+        ChessGame copy = decoded.game();
+        assertEquals(game, copy);
+        assertEquals(game.getMoveHistory(), copy.getMoveHistory());
+        assertEquals(new ChessPosition(6, 4), copy.getEnPassantTarget());
+        assertTrue(copy.hasCastlingRight(ChessGame.TeamColor.WHITE, true));
+        assertFalse(copy.hasCastlingRight(ChessGame.TeamColor.BLACK, false));
+        assertFalse(copy.isGameOver());
+        //The en passant capture the last move allows is still legal in the copy
+        assertTrue(copy.validMoves(new ChessPosition(5, 5)).contains(
+                new ChessMove(new ChessPosition(5, 5), new ChessPosition(6, 4), null)));
+        assertEquals(Codecs.GSON.toJson(data), Codecs.GSON.toJson(decoded));
+    }
+}